@@ -1,5 +1,9 @@
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
 import java.io.FileInputStream
+import java.net.IDN
 import java.util.Properties
+import java.util.TreeMap
 import kotlin.toString
 
 /*
@@ -83,10 +87,37 @@ android {
             excludes += "/META-INF/{AL2.0,LGPL2.1}"
         }
     }
+
+    // The compiled Public Suffix List is memory-mapped from the APK, which needs it stored
+    // uncompressed.
+    androidResources {
+        noCompress += "bin"
+    }
+
+    // JVM tests run against Robolectric's Android framework:
+    //   ./gradlew :app:testDebugUnitTest
+    // The provider benchmark lives in the debug source set, so its test is in src/testDebug.
+    testOptions {
+        unitTests.isIncludeAndroidResources = true
+    }
+}
+
+val compilePublicSuffixList = tasks.register<CompilePublicSuffixListTask>("compilePublicSuffixList") {
+    source.set(layout.projectDirectory.file("src/main/psl/public_suffix_list.dat"))
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(
+            compilePublicSuffixList,
+            CompilePublicSuffixListTask::outputDirectory,
+        )
+    }
 }
 
 dependencies {
 
+    implementation(project(":fido"))
     implementation(libs.androidx.core.ktx)
     implementation(libs.androidx.lifecycle.runtime.ktx)
     implementation(libs.androidx.activity.compose)
@@ -106,10 +137,16 @@ dependencies {
     ksp(libs.androidx.room.compiler)
     annotationProcessor(libs.androidx.room.compiler)
     implementation(libs.androidx.biometrics)
+    implementation(libs.androidx.work.runtime)
+    implementation(libs.androidx.tracing)
     implementation(libs.androidx.navigation)
     implementation(libs.google.accompanist)
     implementation(libs.androidx.lifecyle.runtime.compose)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    testImplementation(libs.androidx.test.core)
+    testImplementation(libs.androidx.room.testing)
+    testImplementation(libs.kotlinx.coroutines.test)
     androidTestImplementation(libs.androidx.junit)
     androidTestImplementation(libs.androidx.espresso.core)
     androidTestImplementation(platform(libs.androidx.compose.bom))
@@ -117,3 +154,105 @@ dependencies {
     debugImplementation(libs.androidx.ui.tooling)
     debugImplementation(libs.androidx.ui.test.manifest)
 }
+
+/**
+ * Compiles the text Public Suffix List into the reversed-label trie read by
+ * `com.example.android.authentication.myvault.data.psl.PublicSuffixList`, which documents the
+ * layout. Unicode rules are stored in their punycode form.
+ */
+abstract class CompilePublicSuffixListTask : DefaultTask() {
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val source: RegularFileProperty
+
+    @get:OutputDirectory
+    abstract val outputDirectory: DirectoryProperty
+
+    private class Node {
+        var flags = 0
+        val children = TreeMap<String, Node>()
+        var offset = 0
+    }
+
+    @TaskAction
+    fun compile() {
+        val root = Node()
+        source.get().asFile.useLines { lines ->
+            for (line in lines) {
+                val rule = line.trim().substringBefore(' ')
+                if (rule.isEmpty() || rule.startsWith("//")) continue
+                addRule(root, rule)
+            }
+        }
+
+        // Assign offsets: label pool first, then nodes in depth-first order.
+        val labels = LinkedHashMap<String, Int>()
+        var position = HEADER_BYTES
+        fun collectLabels(node: Node) {
+            for ((label, child) in node.children) {
+                if (label !in labels) {
+                    labels[label] = position
+                    position += label.length
+                }
+                collectLabels(child)
+            }
+        }
+        collectLabels(root)
+        fun assignOffsets(node: Node) {
+            node.offset = position
+            position += NODE_HEADER_BYTES + node.children.size * CHILD_ENTRY_BYTES
+            node.children.values.forEach(::assignOffsets)
+        }
+        assignOffsets(root)
+
+        val trie = ByteArrayOutputStream()
+        DataOutputStream(trie).use { out ->
+            out.writeInt(MAGIC)
+            out.writeInt(VERSION)
+            out.writeInt(root.offset)
+            labels.keys.forEach { out.write(it.toByteArray(Charsets.US_ASCII)) }
+            fun writeNode(node: Node) {
+                out.writeByte(node.flags)
+                out.writeShort(node.children.size)
+                for ((label, child) in node.children) {
+                    out.writeInt(labels.getValue(label))
+                    out.writeByte(label.length)
+                    out.writeInt(child.offset)
+                }
+                node.children.values.forEach(::writeNode)
+            }
+            writeNode(root)
+        }
+        outputDirectory.file(COMPILED_NAME).get().asFile.writeBytes(trie.toByteArray())
+    }
+
+    private fun addRule(root: Node, rule: String) {
+        val exception = rule.startsWith("!")
+        val labels = rule.removePrefix("!").split('.')
+        val wildcard = labels.first() == "*"
+        val path = if (wildcard) labels.drop(1) else labels
+
+        var node = root
+        for (label in path.asReversed()) {
+            val ascii = IDN.toASCII(label, IDN.ALLOW_UNASSIGNED).lowercase()
+            node = node.children.getOrPut(ascii) { Node() }
+        }
+        node.flags = node.flags or when {
+            exception -> FLAG_EXCEPTION
+            wildcard -> FLAG_WILDCARD
+            else -> FLAG_TERMINAL
+        }
+    }
+
+    private companion object {
+        const val COMPILED_NAME = "public_suffix_list.bin"
+        const val MAGIC = 0x4d565053 // "MVPS"
+        const val VERSION = 2
+        const val HEADER_BYTES = 12
+        const val NODE_HEADER_BYTES = 3
+        const val CHILD_ENTRY_BYTES = 9
+        const val FLAG_TERMINAL = 1
+        const val FLAG_WILDCARD = 2
+        const val FLAG_EXCEPTION = 4
+    }
+}
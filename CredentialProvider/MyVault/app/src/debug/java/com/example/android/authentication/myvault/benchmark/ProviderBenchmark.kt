@@ -0,0 +1,431 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.benchmark
+
+import android.content.Context
+import android.content.pm.SigningInfo
+import android.os.Build
+import android.os.Bundle
+import android.os.Debug
+import androidx.credentials.provider.BeginCreatePasswordCredentialRequest
+import androidx.credentials.provider.BeginCreatePublicKeyCredentialRequest
+import androidx.credentials.provider.BeginGetCredentialRequest
+import androidx.credentials.provider.BeginGetCredentialResponse
+import androidx.credentials.provider.BeginGetPasswordOption
+import androidx.credentials.provider.BeginGetPublicKeyCredentialOption
+import androidx.credentials.provider.CallingAppInfo
+import androidx.room.Room
+import com.example.android.authentication.myvault.ACCEPTED_CREDENTIAL_IDS
+import com.example.android.authentication.myvault.AppDependencies
+import com.example.android.authentication.myvault.CREDENTIAL_ID
+import com.example.android.authentication.myvault.DISPLAY_NAME
+import com.example.android.authentication.myvault.NAME
+import com.example.android.authentication.myvault.USER_ID
+import com.example.android.authentication.myvault.data.CredentialSignalHandler
+import com.example.android.authentication.myvault.data.CredentialsDataSource
+import com.example.android.authentication.myvault.data.CredentialsRepository
+import com.example.android.authentication.myvault.data.PasskeyItem
+import com.example.android.authentication.myvault.data.metrics.Histogram
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+import com.example.android.authentication.myvault.data.room.DefaultAccounts
+import com.example.android.authentication.myvault.data.room.MyVaultDatabase
+import com.example.android.authentication.myvault.data.room.VaultChangeTracking
+import com.example.android.authentication.myvault.fido.RelatedOriginVerifier
+import kotlinx.coroutines.CoroutineScope
+import org.json.JSONArray
+import org.json.JSONObject
+import java.io.File
+import kotlin.random.Random
+
+/**
+ * Measures the credential provider against synthetic vaults of increasing size.
+ *
+ * For every vault size a fresh in-memory database is filled by [SyntheticVault] and each provider
+ * operation is run [iterations] times after a tenth as many unmeasured runs, recording latency
+ * percentiles and, where [allocationCounter] can count them, the bytes allocated per run. Requests
+ * are built before each run and the vault is put back after each signal, so every run measures
+ * the same vault. Results are written as JSON under `files/benchmarks` and compared with the
+ * previous run on the same device.
+ *
+ * Requests come from an app caller, so web origin validation and its network fetches are not
+ * part of the measurement.
+ *
+ * @param context Any context; the application context is used.
+ * @param iterations The number of measured runs of each operation at each size.
+ * @param publicSuffixList The list the vault and repository match sites with.
+ * @param coroutineScope The scope the repository runs concurrent lookups in.
+ * @param allocationCounter Counts the bytes allocated while an operation runs.
+ */
+class ProviderBenchmark(
+    context: Context,
+    private val iterations: Int = DEFAULT_ITERATIONS,
+    private val publicSuffixList: PublicSuffixList = AppDependencies.publicSuffixList,
+    private val coroutineScope: CoroutineScope = AppDependencies.coroutineScope,
+    private val allocationCounter: AllocationCounter = AllocationCounter.ART,
+) {
+    private val appContext = context.applicationContext
+    private val resultsDir = File(appContext.filesDir, RESULTS_DIR)
+
+    /**
+     * Counts the bytes the process has allocated so far.
+     */
+    fun interface AllocationCounter {
+        /**
+         * Returns the bytes allocated so far, or null if the runtime does not count them.
+         */
+        fun bytesAllocated(): Long?
+
+        companion object {
+            /**
+             * Reads the allocation count ART keeps for the whole process.
+             */
+            val ART = AllocationCounter {
+                Debug.getRuntimeStat("art.gc.bytes-allocated")?.toLongOrNull()
+            }
+        }
+    }
+
+    /**
+     * The result of one operation at one vault size.
+     *
+     * @property operation The name of the operation
+     * @property vaultSize The number of credentials in the vault
+     * @property latency Latency percentiles, in microseconds
+     * @property bytesPerOp The bytes allocated per run, across all threads, or null if they could
+     * not be counted
+     */
+    data class Measurement(
+        val operation: String,
+        val vaultSize: Int,
+        val latency: Histogram.Snapshot,
+        val bytesPerOp: Long?,
+    )
+
+    /**
+     * Runs every operation at every size in [sizes].
+     *
+     * @param onProgress Called with a line of text as each measurement completes.
+     */
+    suspend fun run(
+        sizes: List<Int> = DEFAULT_SIZES,
+        onProgress: (String) -> Unit = {},
+    ): List<Measurement> {
+        val results = ArrayList<Measurement>()
+        for (size in sizes) {
+            runSize(size) { measurement ->
+                results.add(measurement)
+                onProgress(format(measurement))
+            }
+        }
+        return results
+    }
+
+    private suspend fun runSize(size: Int, onMeasurement: (Measurement) -> Unit) {
+        val database = Room.inMemoryDatabaseBuilder(appContext, MyVaultDatabase::class.java)
+            .addCallback(VaultChangeTracking.callback)
+            .addCallback(DefaultAccounts.callback)
+            .build()
+        try {
+            val vault = SyntheticVault(size)
+            vault.populate(database, publicSuffixList)
+
+            val dao = database.myVaultDao()
+            val dataSource = CredentialsDataSource(dao, publicSuffixList)
+            val repository = CredentialsRepository(
+                dataSource,
+                appContext,
+                RelatedOriginVerifier(publicSuffixList, coroutineScope),
+                coroutineScope,
+            )
+            val signalHandler = CredentialSignalHandler(dataSource, appContext)
+            val random = Random(vault.seed)
+
+            fun app() = caller(vault.appPackages.random(random))
+            fun rpId() = vault.webHosts.random(random)
+            fun passkeyRequest() = JSONObject()
+                .put("challenge", CHALLENGE)
+                .put("rpId", rpId())
+                .toString()
+
+            // Signals rewrite the passkeys of one user; putting them back keeps every run on the
+            // vault as generated.
+            suspend fun restore(passkeys: List<PasskeyItem>) {
+                passkeys.forEach { dao.updatePasskey(it) }
+            }
+
+            onMeasurement(
+                measure(
+                    "getPassword",
+                    size,
+                    prepare = {
+                        BeginGetCredentialRequest(
+                            listOf(BeginGetPasswordOption(emptySet(), Bundle(), OPTION_ID)),
+                            app(),
+                        )
+                    },
+                ) { request ->
+                    repository.processGetCredentialsRequest(request, BeginGetCredentialResponse.Builder())
+                },
+            )
+            onMeasurement(
+                measure(
+                    "getPasskey",
+                    size,
+                    prepare = {
+                        BeginGetCredentialRequest(
+                            listOf(BeginGetPublicKeyCredentialOption(Bundle(), OPTION_ID, passkeyRequest())),
+                            app(),
+                        )
+                    },
+                ) { request ->
+                    repository.processGetCredentialsRequest(request, BeginGetCredentialResponse.Builder())
+                },
+            )
+            onMeasurement(
+                measure(
+                    "getPasswordAndPasskey",
+                    size,
+                    prepare = {
+                        BeginGetCredentialRequest(
+                            listOf(
+                                BeginGetPasswordOption(emptySet(), Bundle(), OPTION_ID),
+                                BeginGetPublicKeyCredentialOption(Bundle(), OPTION_ID, passkeyRequest()),
+                            ),
+                            app(),
+                        )
+                    },
+                ) { request ->
+                    repository.processGetCredentialsRequest(request, BeginGetCredentialResponse.Builder())
+                },
+            )
+            onMeasurement(
+                measure(
+                    "createPassword",
+                    size,
+                    prepare = { BeginCreatePasswordCredentialRequest(app(), Bundle()) },
+                ) { request ->
+                    repository.processCreateCredentialsRequest(request)
+                },
+            )
+            onMeasurement(
+                measure(
+                    "createPasskey",
+                    size,
+                    prepare = {
+                        val requestJson = JSONObject()
+                            .put("rp", JSONObject().put("id", rpId()).put("name", "rp"))
+                            .toString()
+                        val queryData = Bundle().apply { putString(REQUEST_JSON_KEY, requestJson) }
+                        BeginCreatePublicKeyCredentialRequest(requestJson, app(), queryData)
+                    },
+                ) { request ->
+                    repository.processCreateCredentialsRequest(request)
+                },
+            )
+            if (vault.credentialIds.isNotEmpty()) {
+                onMeasurement(
+                    measure(
+                        "signalUnknownCredential",
+                        size,
+                        prepare = {
+                            val credentialId = vault.credentialIds.random(random)
+                            JSONObject().put(CREDENTIAL_ID, credentialId).toString() to
+                                listOfNotNull(dao.getPasskey(credentialId))
+                        },
+                        reset = { (_, passkeys) -> restore(passkeys) },
+                    ) { (requestJson, _) ->
+                        signalHandler.handleUnknownCredentialRequest(requestJson)
+                    },
+                )
+                onMeasurement(
+                    measure(
+                        "signalAllAcceptedCredentials",
+                        size,
+                        prepare = {
+                            val userId = vault.users.random(random)
+                            val accepted = JSONArray()
+                            repeat(ACCEPTED_IDS) { accepted.put(vault.credentialIds.random(random)) }
+                            JSONObject()
+                                .put(USER_ID, userId)
+                                .put(ACCEPTED_CREDENTIAL_IDS, accepted)
+                                .toString() to dao.getAllPasskeysForUser(userId).orEmpty()
+                        },
+                        reset = { (_, passkeys) -> restore(passkeys) },
+                    ) { (requestJson, _) ->
+                        signalHandler.handleAcceptedCredentialsRequest(requestJson)
+                    },
+                )
+                onMeasurement(
+                    measure(
+                        "signalCurrentUserDetails",
+                        size,
+                        prepare = {
+                            val userId = vault.users.random(random)
+                            JSONObject()
+                                .put(USER_ID, userId)
+                                .put(NAME, "renamed@example.com")
+                                .put(DISPLAY_NAME, "renamed")
+                                .toString() to dao.getAllPasskeysForUser(userId).orEmpty()
+                        },
+                        reset = { (_, passkeys) -> restore(passkeys) },
+                    ) { (requestJson, _) ->
+                        signalHandler.handleCurrentUserDetailRequest(requestJson)
+                    },
+                )
+            }
+        } finally {
+            database.close()
+        }
+    }
+
+    /**
+     * Runs [block] [iterations] times, after a tenth as many unmeasured runs. Only [block] is
+     * timed and counted: each run's input is built by [prepare] before it, and [reset] undoes its
+     * writes after it.
+     */
+    private suspend fun <T> measure(
+        operation: String,
+        size: Int,
+        prepare: suspend () -> T,
+        reset: suspend (T) -> Unit = {},
+        block: suspend (T) -> Unit,
+    ): Measurement {
+        repeat((iterations / 10).coerceAtLeast(1)) {
+            val input = prepare()
+            block(input)
+            reset(input)
+        }
+        val histogram = Histogram(operation, "us")
+        var bytes = 0L
+        var counted = true
+        repeat(iterations) {
+            val input = prepare()
+            val allocatedBefore = allocationCounter.bytesAllocated()
+            val start = System.nanoTime()
+            block(input)
+            histogram.record((System.nanoTime() - start) / 1000)
+            val allocatedAfter = allocationCounter.bytesAllocated()
+            if (allocatedBefore != null && allocatedAfter != null) {
+                bytes += allocatedAfter - allocatedBefore
+            } else {
+                counted = false
+            }
+            reset(input)
+        }
+        val bytesPerOp = if (counted) bytes / iterations else null
+        return Measurement(operation, size, histogram.snapshot(), bytesPerOp)
+    }
+
+    private fun caller(packageName: String) = CallingAppInfo(packageName, SigningInfo())
+
+    /**
+     * Writes [results] to a new file in the results directory.
+     *
+     * @return The file written.
+     */
+    fun save(results: List<Measurement>): File {
+        resultsDir.mkdirs()
+        val json = JSONObject()
+            .put("timestampMs", System.currentTimeMillis())
+            .put("device", Build.MODEL)
+            .put("sdk", Build.VERSION.SDK_INT)
+            .put(
+                "results",
+                JSONArray().apply {
+                    results.forEach { m ->
+                        put(
+                            JSONObject()
+                                .put("operation", m.operation)
+                                .put("vaultSize", m.vaultSize)
+                                .put("count", m.latency.count)
+                                .put("meanUs", m.latency.mean)
+                                .put("p50Us", m.latency.p50)
+                                .put("p90Us", m.latency.p90)
+                                .put("p99Us", m.latency.p99)
+                                .put("maxUs", m.latency.max)
+                                .put("bytesPerOp", m.bytesPerOp ?: JSONObject.NULL),
+                        )
+                    }
+                },
+            )
+        val file = File(resultsDir, "provider-${System.currentTimeMillis()}.json")
+        file.writeText(json.toString(2))
+        return file
+    }
+
+    /**
+     * Compares [results] with the newest saved run other than [current], listing the change in
+     * median latency and allocation of every operation both runs measured.
+     */
+    fun compareWithPrevious(results: List<Measurement>, current: File): String {
+        val previous = resultsDir.listFiles { file -> file.name.endsWith(".json") && file != current }
+            ?.maxByOrNull { it.name.removePrefix("provider-").removeSuffix(".json").toLongOrNull() ?: 0L }
+            ?: return "No previous run to compare with"
+        val baseline = HashMap<String, JSONObject>()
+        val array = JSONObject(previous.readText()).getJSONArray("results")
+        for (i in 0 until array.length()) {
+            val entry = array.getJSONObject(i)
+            baseline["${entry.getString("operation")}@${entry.getInt("vaultSize")}"] = entry
+        }
+        return buildString {
+            append("Compared with ").append(previous.name).append('\n')
+            for (m in results) {
+                val base = baseline["${m.operation}@${m.vaultSize}"] ?: continue
+                append(
+                    "%-30s %7d  p50 %+6.1f%%  alloc %+6.1f%%\n".format(
+                        m.operation,
+                        m.vaultSize,
+                        change(base.getLong("p50Us"), m.latency.p50),
+                        change(base.optLong("bytesPerOp"), m.bytesPerOp ?: 0L),
+                    ),
+                )
+            }
+        }
+    }
+
+    private fun change(before: Long, after: Long): Double =
+        if (before == 0L) 0.0 else (after - before) * 100.0 / before
+
+    companion object {
+        /**
+         * The vault sizes measured by default, from a handful of credentials to a very large vault.
+         */
+        val DEFAULT_SIZES = listOf(10, 100, 1_000, 10_000, 100_000)
+
+        /**
+         * The number of measured runs of each operation by default.
+         */
+        const val DEFAULT_ITERATIONS = 200
+        private const val ACCEPTED_IDS = 5
+        private const val RESULTS_DIR = "benchmarks"
+        private const val OPTION_ID = "benchmark"
+        private const val CHALLENGE = "Y2hhbGxlbmdl"
+        private const val REQUEST_JSON_KEY = "androidx.credentials.BUNDLE_KEY_REQUEST_JSON"
+
+        /**
+         * Formats one measurement as a report line.
+         */
+        fun format(m: Measurement): String =
+            "%-30s %7d  p50 %6d us  p90 %6d us  p99 %6d us  %8s B/op".format(
+                m.operation,
+                m.vaultSize,
+                m.latency.p50,
+                m.latency.p90,
+                m.latency.p99,
+                m.bytesPerOp ?: "-",
+            )
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.benchmark
+
+import android.os.Bundle
+import android.util.Log
+import androidx.activity.ComponentActivity
+import androidx.activity.compose.setContent
+import androidx.activity.enableEdgeToEdge
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.items
+import androidx.compose.material3.ExperimentalMaterial3Api
+import androidx.compose.material3.MaterialTheme
+import androidx.compose.material3.Scaffold
+import androidx.compose.material3.Text
+import androidx.compose.material3.TopAppBar
+import androidx.compose.runtime.mutableStateListOf
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.res.stringResource
+import androidx.compose.ui.text.font.FontFamily
+import androidx.lifecycle.lifecycleScope
+import com.example.android.authentication.myvault.Dimensions
+import com.example.android.authentication.myvault.R
+import com.example.android.authentication.myvault.ui.theme.MyVaultTheme
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+
+/**
+ * Debug screen that runs [ProviderBenchmark] and shows its report as it progresses. Each line is
+ * also logged, so a run can be followed from adb:
+ *
+ * ```
+ * adb shell am start -a com.example.android.authentication.myvault.RUN_PROVIDER_BENCHMARK \
+ *     --eia sizes 10,1000 --ei iterations 100
+ * ```
+ */
+class ProviderBenchmarkActivity : ComponentActivity() {
+    private val lines = mutableStateListOf<String>()
+
+    @OptIn(ExperimentalMaterial3Api::class)
+    override fun onCreate(savedInstanceState: Bundle?) {
+        enableEdgeToEdge()
+        super.onCreate(savedInstanceState)
+        setContent {
+            MyVaultTheme {
+                Scaffold(
+                    topBar = { TopAppBar(title = { Text(stringResource(R.string.provider_benchmark)) }) },
+                ) { innerPadding ->
+                    LazyColumn(
+                        modifier = Modifier
+                            .padding(innerPadding)
+                            .fillMaxWidth()
+                            .padding(Dimensions.padding_large),
+                    ) {
+                        items(lines) { line ->
+                            Text(
+                                text = line,
+                                style = MaterialTheme.typography.bodySmall,
+                                fontFamily = FontFamily.Monospace,
+                            )
+                        }
+                    }
+                }
+            }
+        }
+        if (savedInstanceState == null) {
+            run()
+        }
+    }
+
+    private fun run() {
+        val sizes = intent.getIntArrayExtra(EXTRA_SIZES)?.toList() ?: ProviderBenchmark.DEFAULT_SIZES
+        val iterations = intent.getIntExtra(EXTRA_ITERATIONS, ProviderBenchmark.DEFAULT_ITERATIONS)
+        val benchmark = ProviderBenchmark(this, iterations)
+        lifecycleScope.launch {
+            show(getString(R.string.benchmark_running, sizes.joinToString(), iterations))
+            val report = withContext(Dispatchers.Default) {
+                val results = benchmark.run(sizes) { line -> lifecycleScope.launch { show(line) } }
+                val file = benchmark.save(results)
+                "Saved ${file.path}\n" + benchmark.compareWithPrevious(results, file)
+            }
+            report.lines().filter { it.isNotEmpty() }.forEach(::show)
+        }
+    }
+
+    private fun show(line: String) {
+        Log.i(TAG, line)
+        lines.add(line)
+    }
+
+    companion object {
+        private const val EXTRA_SIZES = "sizes"
+        private const val EXTRA_ITERATIONS = "iterations"
+        private const val TAG = "ProviderBenchmark"
+    }
+}
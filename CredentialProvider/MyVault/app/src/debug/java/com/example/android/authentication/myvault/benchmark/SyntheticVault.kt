@@ -0,0 +1,130 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.benchmark
+
+import androidx.room.withTransaction
+import com.example.android.authentication.myvault.data.PasskeyItem
+import com.example.android.authentication.myvault.data.PasswordItem
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+import com.example.android.authentication.myvault.data.room.MyVaultDatabase
+import com.example.android.authentication.myvault.data.room.SiteMetaData
+import kotlin.random.Random
+
+/**
+ * Generates a vault of a given size with a realistic shape: half the sites are apps keyed by
+ * package name, half are web sites spread over subdomains of shared registrable domains, and a
+ * share of the web credentials are passkeys.
+ *
+ * The same seed always produces the same vault, so runs on different builds are comparable.
+ *
+ * @property credentials The total number of passwords and passkeys
+ * @property credentialsPerSite The average number of credentials stored for one site
+ * @property passkeyShare The fraction of web site credentials that are passkeys
+ * @property seed The seed of the generator
+ */
+class SyntheticVault(
+    val credentials: Int,
+    val credentialsPerSite: Int = 3,
+    val passkeyShare: Double = 0.3,
+    val seed: Long = 42,
+) {
+    /** The app sites written by [populate], for picking request targets. */
+    val appPackages = ArrayList<String>()
+
+    /** The web sites written by [populate]. */
+    val webHosts = ArrayList<String>()
+
+    /** The user ids of the passkeys written by [populate]. */
+    val users = ArrayList<String>()
+
+    /** The credential ids of the passkeys written by [populate]. */
+    val credentialIds = ArrayList<String>()
+
+    private val siteCount = (credentials / credentialsPerSite).coerceAtLeast(1)
+
+    /**
+     * Writes the vault into [database], which should be empty.
+     */
+    suspend fun populate(database: MyVaultDatabase, publicSuffixList: PublicSuffixList) {
+        val random = Random(seed)
+        val dao = database.myVaultDao()
+        var written = 0
+        database.withTransaction {
+            for (siteIndex in 0 until siteCount) {
+                val isApp = siteIndex % 2 == 0
+                val url = if (isApp) {
+                    "com.example.app$siteIndex".also(appPackages::add)
+                } else {
+                    // Several sites share each registrable domain, as login.example.com and
+                    // www.example.com would.
+                    "${SUBDOMAINS[siteIndex % SUBDOMAINS.size]}.site${siteIndex / SUBDOMAINS.size}.com"
+                        .also(webHosts::add)
+                }
+                val siteId = dao.insertSite(
+                    if (isApp) {
+                        SiteMetaData.forPackage(url)
+                    } else {
+                        SiteMetaData.forWebHost(url, publicSuffixList)
+                    },
+                )
+
+                val remaining = credentials - written
+                val count = if (siteIndex == siteCount - 1) remaining else minOf(remaining, credentialsPerSite)
+                val passwords = ArrayList<PasswordItem>()
+                val passkeys = ArrayList<PasskeyItem>()
+                repeat(count) {
+                    val username = "user${random.nextInt(credentials)}@example.com"
+                    if (!isApp && random.nextDouble() < passkeyShare) {
+                        val userId = "uid-${random.nextInt(credentials)}"
+                        val credId = "cred-$siteIndex-$it"
+                        users.add(userId)
+                        credentialIds.add(credId)
+                        passkeys.add(
+                            PasskeyItem(
+                                uid = userId,
+                                username = username,
+                                displayName = username.substringBefore('@'),
+                                credId = credId,
+                                credPrivateKey = PRIVATE_KEY,
+                                siteId = siteId,
+                                lastUsedTimeMs = random.nextLong(1, Long.MAX_VALUE / 2),
+                            ),
+                        )
+                    } else {
+                        passwords.add(
+                            PasswordItem(
+                                username = username,
+                                password = "pw-${random.nextLong()}",
+                                siteId = siteId,
+                                lastUsedTimeMs = random.nextLong(1, Long.MAX_VALUE / 2),
+                            ),
+                        )
+                    }
+                }
+                dao.insertPasswords(passwords)
+                dao.insertPasskeys(passkeys)
+                written += count
+            }
+        }
+    }
+
+    companion object {
+        private val SUBDOMAINS = listOf("www", "login", "accounts")
+
+        // A syntactically valid placeholder; benchmarks never sign with it.
+        private const val PRIVATE_KEY = "MEECAQAwEwYHKoZIzj0CAQYIKoZIzj0DAQcEJzAlAgEBBCA"
+    }
+}
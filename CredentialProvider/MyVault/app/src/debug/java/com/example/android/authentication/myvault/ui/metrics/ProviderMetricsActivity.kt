@@ -0,0 +1,137 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.ui.metrics
+
+import android.os.Bundle
+import androidx.activity.ComponentActivity
+import androidx.activity.compose.setContent
+import androidx.activity.enableEdgeToEdge
+import androidx.compose.foundation.layout.Arrangement
+import androidx.compose.foundation.layout.Column
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.items
+import androidx.compose.material3.ExperimentalMaterial3Api
+import androidx.compose.material3.MaterialTheme
+import androidx.compose.material3.Scaffold
+import androidx.compose.material3.Text
+import androidx.compose.material3.TextButton
+import androidx.compose.material3.TopAppBar
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.LaunchedEffect
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.remember
+import androidx.compose.runtime.setValue
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.res.stringResource
+import com.example.android.authentication.myvault.Dimensions
+import com.example.android.authentication.myvault.R
+import com.example.android.authentication.myvault.data.metrics.Histogram
+import com.example.android.authentication.myvault.data.metrics.ProviderMetrics
+import com.example.android.authentication.myvault.ui.theme.MyVaultTheme
+import kotlinx.coroutines.delay
+
+/**
+ * Debug screen listing the provider metrics of this process, refreshed every second.
+ *
+ * It runs in the provider process, since that is where the credential provider services record
+ * their metrics.
+ */
+class ProviderMetricsActivity : ComponentActivity() {
+    override fun onCreate(savedInstanceState: Bundle?) {
+        enableEdgeToEdge()
+        super.onCreate(savedInstanceState)
+        setContent {
+            MyVaultTheme {
+                var snapshot by remember { mutableStateOf(ProviderMetrics.snapshot()) }
+                LaunchedEffect(Unit) {
+                    while (true) {
+                        delay(REFRESH_MS)
+                        snapshot = ProviderMetrics.snapshot()
+                    }
+                }
+                ProviderMetricsScreen(
+                    snapshot = snapshot,
+                    onReset = {
+                        ProviderMetrics.reset()
+                        snapshot = ProviderMetrics.snapshot()
+                    },
+                )
+            }
+        }
+    }
+
+    companion object {
+        private const val REFRESH_MS = 1000L
+    }
+}
+
+/**
+ * Lists one row per histogram.
+ *
+ * @param snapshot The histograms to show.
+ * @param onReset Called when the reset button is clicked.
+ * @param modifier The modifier to be applied to the composable.
+ */
+@Composable
+@OptIn(ExperimentalMaterial3Api::class)
+private fun ProviderMetricsScreen(
+    snapshot: List<Histogram.Snapshot>,
+    onReset: () -> Unit,
+    modifier: Modifier = Modifier,
+) {
+    Scaffold(
+        topBar = {
+            TopAppBar(
+                title = { Text(stringResource(R.string.provider_metrics)) },
+                actions = {
+                    TextButton(onClick = onReset) {
+                        Text(stringResource(R.string.reset_metrics))
+                    }
+                },
+            )
+        },
+        modifier = modifier,
+    ) { innerPadding ->
+        LazyColumn(
+            modifier = Modifier
+                .padding(innerPadding)
+                .fillMaxWidth()
+                .padding(Dimensions.padding_large),
+            verticalArrangement = Arrangement.spacedBy(Dimensions.padding_medium),
+        ) {
+            items(snapshot) { histogram ->
+                Column {
+                    Text(text = histogram.name, style = MaterialTheme.typography.titleSmall)
+                    Text(
+                        text = stringResource(
+                            R.string.metric_row,
+                            histogram.count,
+                            histogram.p50,
+                            histogram.p90,
+                            histogram.p99,
+                            histogram.max,
+                            histogram.unit,
+                        ),
+                        style = MaterialTheme.typography.bodyMedium,
+                    )
+                }
+            }
+        }
+    }
+}
@@ -19,65 +19,176 @@ import android.content.Context
 import android.content.SharedPreferences
 import android.graphics.drawable.Icon
 import androidx.room.Room
+import com.example.android.authentication.myvault.StartupTrace.component
 import com.example.android.authentication.myvault.data.CredentialsDataSource
 import com.example.android.authentication.myvault.data.CredentialsRepository
 import com.example.android.authentication.myvault.data.RPIconDataSource
+import com.example.android.authentication.myvault.data.autofill.WebDomainVerifier
+import com.example.android.authentication.myvault.data.backup.VaultBackupManager
+import com.example.android.authentication.myvault.data.breach.BreachedPasswordChecker
+import com.example.android.authentication.myvault.data.health.VaultHealthAnalyzer
+import com.example.android.authentication.myvault.data.importer.CredentialsImporter
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+import com.example.android.authentication.myvault.data.room.DefaultAccounts
 import com.example.android.authentication.myvault.data.room.MyVaultDatabase
+import com.example.android.authentication.myvault.data.room.VaultChangeTracking
+import com.example.android.authentication.myvault.data.room.VaultMigration
+import com.example.android.authentication.myvault.fido.PrivilegedAppAllowlist
+import com.example.android.authentication.myvault.fido.RelatedOriginVerifier
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
+import java.io.File
 
 /**
  * This class is an application-level singleton object which is providing dependencies required for the app to function.
  * We recommend using dependency injection framework while working on production apps.
+ *
+ * Every component is constructed on first use, so a process only pays for what its entry point
+ * touches: a credential provider bind builds the database and repository, but never the rpicon
+ * data source or the breached password checker. Construction times are recorded by
+ * [StartupTrace].
  */
 object AppDependencies {
-    lateinit var database: MyVaultDatabase
-    lateinit var sharedPreferences: SharedPreferences
-    lateinit var credentialsRepository: CredentialsRepository
-    val credentialsDataSource by lazy {
+    /**
+     * The suffix of the process that hosts the credential provider and autofill services, as
+     * declared in the manifest.
+     */
+    const val PROVIDER_PROCESS = ":provider"
+
+    private const val BACKUP_DIRECTORY = "backups"
+
+    private lateinit var appContext: Context
+
+    val sharedPreferences: SharedPreferences by component("sharedPreferences") {
+        appContext.getSharedPreferences(appContext.packageName, Context.MODE_PRIVATE)
+    }
+
+    /**
+     * The Public Suffix List, compiled by the build, used to match sites by domain.
+     */
+    val publicSuffixList by component("publicSuffixList") {
+        PublicSuffixList.open(appContext.assets)
+    }
+
+    /**
+     * The vault database. Invalidations are shared across processes, so writes made by the UI
+     * reach the provider process and vice versa.
+     */
+    val database by component("database") {
+        val legacyLastUsedMs = sharedPreferences.getLong(DefaultAccounts.LEGACY_LAST_USED_KEY, 0L)
+        Room.databaseBuilder(appContext, MyVaultDatabase::class.java, "my_vault.db")
+            .allowMainThreadQueries()
+            .enableMultiInstanceInvalidation()
+            // Only a vault that still needs the migration maps the list.
+            .addMigrations(VaultMigration({ publicSuffixList }, legacyLastUsedMs))
+            .addCallback(VaultChangeTracking.callback)
+            .addCallback(DefaultAccounts.callback)
+            .fallbackToDestructiveMigration()
+            .build()
+            // Open now so the cost of opening and migrating is attributed to this component
+            // rather than hidden in whichever query happens to run first.
+            .also { it.openHelper.writableDatabase }
+            .also {
+                // Any migration that needed the preference has run.
+                if (sharedPreferences.contains(DefaultAccounts.LEGACY_LAST_USED_KEY)) {
+                    sharedPreferences.edit().remove(DefaultAccounts.LEGACY_LAST_USED_KEY).apply()
+                }
+            }
+    }
+
+    val credentialsDataSource by component("credentialsDataSource") {
         CredentialsDataSource(
             myVaultDao = database.myVaultDao(),
+            publicSuffixList = publicSuffixList,
         )
     }
 
-    var providerIcon: Icon? = null
+    val credentialsRepository by component("credentialsRepository") {
+        CredentialsRepository(
+            credentialsDataSource,
+            appContext,
+            relatedOriginVerifier,
+            coroutineScope,
+        )
+    }
 
-    lateinit var rpIconDataSource: RPIconDataSource
+    val credentialsImporter by component("credentialsImporter") {
+        CredentialsImporter(database, publicSuffixList)
+    }
 
-    lateinit var coroutineScope: CoroutineScope
+    val relatedOriginVerifier by component("relatedOriginVerifier") {
+        RelatedOriginVerifier(publicSuffixList, coroutineScope)
+    }
 
     /**
-     * Initializes the core components required for the application's data storage and icon handling.
-     * This includes:
-     * * **sharedPreference:** Creates a sharedpreference instance for storing application metadata.
-     * * **database:** Creates a Room database instance for storing application data.
-     * * **RPIconDataSource:** Initializes a data source for handling Relying Party icons (rpicons).
-     * * **provider icon:** Sets a default icon to represent secure data providers.
-     *
-     * @param context The application context, used for accessing resources and file storage.
+     * The privileged app allowlist, read from its local copy and refreshed in the background.
      */
-    fun init(context: Context) {
-        sharedPreferences = context.getSharedPreferences(
-            context.packageName,
-            Context.MODE_PRIVATE,
+    val privilegedAppAllowlist by component("privilegedAppAllowlist") {
+        PrivilegedAppAllowlist(
+            File(appContext.noBackupFilesDir, PrivilegedAppAllowlist.CACHE_FILE_NAME),
+            coroutineScope,
         )
+    }
 
-        database = Room.databaseBuilder(context, MyVaultDatabase::class.java, "my_vault.db")
-            .allowMainThreadQueries()
-            .fallbackToDestructiveMigration()
-            .build()
+    /**
+     * Decides which web domains autofill may trust from the apps that report them.
+     */
+    val webDomainVerifier by component("webDomainVerifier") {
+        WebDomainVerifier(appContext.packageManager, privilegedAppAllowlist, coroutineScope)
+    }
+
+    val vaultHealthAnalyzer by component("vaultHealthAnalyzer") {
+        VaultHealthAnalyzer(database)
+    }
+
+    /**
+     * The default icon representing secure data providers.
+     */
+    val providerIcon: Icon by component("providerIcon") {
+        Icon.createWithResource(appContext, R.drawable.android_secure)
+    }
+
+    /**
+     * The data source for Relying Party icons (rpicons).
+     */
+    val rpIconDataSource by component("rpIconDataSource") {
+        RPIconDataSource(appContext.applicationInfo.dataDir)
+    }
 
-        rpIconDataSource = RPIconDataSource(context.applicationInfo.dataDir)
-        providerIcon = Icon.createWithResource(context, R.drawable.android_secure)
+    /**
+     * The offline breached password check, pointed at its index file and the bundled hash list.
+     */
+    val breachedPasswordChecker by component("breachedPasswordChecker") {
+        BreachedPasswordChecker(
+            File(appContext.noBackupFilesDir, BreachedPasswordChecker.INDEX_FILE_NAME),
+            { appContext.assets.open(BreachedPasswordChecker.SEED_ASSET_NAME) },
+            database.myVaultDao(),
+        )
+    }
+
+    /**
+     * Creates the backup manager for the chain of encrypted vault backups kept in the app's files.
+     *
+     * @param passphrase The passphrase the backup key is derived from.
+     */
+    fun vaultBackupManager(passphrase: CharArray) = VaultBackupManager(
+        database,
+        File(appContext.filesDir, BACKUP_DIRECTORY),
+        passphrase,
+        publicSuffixList,
+    )
 
-        credentialsRepository =
-            CredentialsRepository(
-                sharedPreferences,
-                credentialsDataSource,
-                context,
-            )
+    val coroutineScope by component("coroutineScope") {
+        CoroutineScope(Dispatchers.IO + SupervisorJob())
+    }
 
-        coroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
+    /**
+     * Records the application context components are built from. Nothing is constructed here.
+     *
+     * @param context The application context, used for accessing resources and file storage.
+     */
+    fun init(context: Context) {
+        appContext = context.applicationContext
     }
 }
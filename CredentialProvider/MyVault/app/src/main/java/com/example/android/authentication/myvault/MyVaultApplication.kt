@@ -16,11 +16,20 @@
 package com.example.android.authentication.myvault
 
 import android.app.Application
+import androidx.work.Configuration
 
 /**
- * This is the application level class used to initialize application level dependencies
+ * This is the application level class used to initialize application level dependencies.
+ *
+ * Dependencies are constructed lazily by [AppDependencies], so this only hands over the
+ * application context. The credential provider and autofill services run in their own
+ * [AppDependencies.PROVIDER_PROCESS] and build just the components they use. WorkManager is
+ * likewise configured here and started on demand rather than at process start.
  */
-class MyVaultApplication : Application() {
+class MyVaultApplication : Application(), Configuration.Provider {
+    override val workManagerConfiguration: Configuration
+        get() = Configuration.Builder().build()
+
     override fun onCreate() {
         super.onCreate()
         AppDependencies.init(this)
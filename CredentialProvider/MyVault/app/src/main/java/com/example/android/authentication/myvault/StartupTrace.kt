@@ -0,0 +1,116 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault
+
+import android.os.Process
+import android.os.SystemClock
+import android.os.Trace
+import android.util.Log
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Records how long each [AppDependencies] component takes to construct.
+ *
+ * Every component is wrapped in a trace section named `MyVault.<component>`, so it shows up in
+ * system traces, and is also kept in an in-memory log. [report] lists the components built so far
+ * in the order they were built, with the time since process start at which each began and its own
+ * construction time excluding the components it pulled in.
+ */
+object StartupTrace {
+    private const val TAG = "MyVaultStartup"
+
+    /**
+     * One constructed component.
+     *
+     * @property name The component name
+     * @property thread The thread that constructed it
+     * @property startMs When construction began, in milliseconds since the process started
+     * @property totalNanos The construction time, including nested components
+     * @property selfNanos The construction time, excluding nested components
+     */
+    class Entry(
+        val name: String,
+        val thread: String,
+        val startMs: Long,
+        val totalNanos: Long,
+        val selfNanos: Long,
+    )
+
+    private val entries = CopyOnWriteArrayList<Entry>()
+    private val reported = AtomicBoolean()
+    private val nested = ThreadLocal.withInitial { ArrayDeque<Long>() }
+
+    /**
+     * Runs [block] as the construction of the component [name] and records its duration.
+     */
+    fun <T> trace(name: String, block: () -> T): T {
+        val stack = nested.get()
+        val startMs = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime()
+        val start = SystemClock.elapsedRealtimeNanos()
+        stack.addLast(0L)
+        Trace.beginSection("MyVault.$name")
+        try {
+            return block()
+        } finally {
+            Trace.endSection()
+            val total = SystemClock.elapsedRealtimeNanos() - start
+            val children = stack.removeLast()
+            if (stack.isNotEmpty()) {
+                stack.addLast(stack.removeLast() + total)
+            }
+            entries.add(Entry(name, Thread.currentThread().name, startMs, total, total - children))
+        }
+    }
+
+    /**
+     * Returns a lazy delegate whose value is constructed by [initializer] under [trace].
+     */
+    fun <T> component(name: String, initializer: () -> T): Lazy<T> =
+        lazy { trace(name, initializer) }
+
+    /**
+     * Returns a table of the components constructed so far in this process.
+     */
+    fun report(): String = buildString {
+        append("Startup of ").append(Process.myProcessName()).append('\n')
+        var selfTotal = 0L
+        for (entry in entries.sortedBy { it.startMs }) {
+            append(
+                "%-26s +%5d ms %8.2f ms self %8.2f ms total  [%s]\n".format(
+                    entry.name,
+                    entry.startMs,
+                    entry.selfNanos / 1e6,
+                    entry.totalNanos / 1e6,
+                    entry.thread,
+                ),
+            )
+            selfTotal += entry.selfNanos
+        }
+        append("%-26s %17.2f ms".format("all components", selfTotal / 1e6))
+    }
+
+    /**
+     * Logs [report] the first time it is called in this process.
+     *
+     * @param reason What the process had finished starting up for, such as its first frame.
+     */
+    fun logReportOnce(reason: String) {
+        if (reported.compareAndSet(false, true)) {
+            Log.i(TAG, "$reason\n${report()}")
+        }
+    }
+}
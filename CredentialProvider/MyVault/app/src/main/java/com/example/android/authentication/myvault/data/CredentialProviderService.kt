@@ -16,13 +16,11 @@ import androidx.credentials.provider.ProviderCreateCredentialRequest
 import androidx.credentials.providerevents.service.CredentialProviderEventsService
 import androidx.credentials.providerevents.signal.ProviderSignalCredentialStateCallback
 import androidx.credentials.providerevents.signal.ProviderSignalCredentialStateRequest
-import com.example.android.authentication.myvault.ACCEPTED_CREDENTIAL_IDS
 import com.example.android.authentication.myvault.AppDependencies
-import com.example.android.authentication.myvault.CREDENTIAL_ID
-import com.example.android.authentication.myvault.DISPLAY_NAME
-import com.example.android.authentication.myvault.NAME
 import com.example.android.authentication.myvault.R
-import com.example.android.authentication.myvault.USER_ID
+import com.example.android.authentication.myvault.data.metrics.ProviderMetrics
+import com.example.android.authentication.myvault.data.metrics.ProviderMetrics.Stage
+import com.example.android.authentication.myvault.data.room.VaultAccount
 import com.example.android.authentication.myvault.fido.PublicKeyCredentialCreationOptions
 import com.example.android.authentication.myvault.showNotification
 import com.example.android.authentication.myvault.util.PasskeyUtils
@@ -31,8 +29,6 @@ import com.example.android.authentication.myvault.util.PrivilegedValidationResul
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
-import org.json.JSONArray
-import org.json.JSONObject
 
 /**
  * A service that listens to credential provider events triggered by the relying parties
@@ -44,6 +40,7 @@ import org.json.JSONObject
 class CredentialProviderService : CredentialProviderEventsService() {
     private val dataSource = AppDependencies.credentialsDataSource
     private val coroutineScope = AppDependencies.coroutineScope
+    private val signalHandler by lazy { CredentialSignalHandler(dataSource, applicationContext) }
 
     /**
      * Called when a credential provider requests to create a new credential.
@@ -63,11 +60,13 @@ class CredentialProviderService : CredentialProviderEventsService() {
 
         // Check if the request is for conditional create.
         if (createReq is CreatePublicKeyCredentialRequest) {
-            finalizeSilently(
-                createReq.requestJson,
-                request.callingAppInfo,
-                createReq.clientDataHash, CredentialsRepository.USER_ACCOUNT, callback,
-            )
+            ProviderMetrics.measure(Stage.CREATE_REQUEST) {
+                finalizeSilently(
+                    createReq.requestJson,
+                    request.callingAppInfo,
+                    createReq.clientDataHash, VaultAccount.PERSONAL, callback,
+                )
+            }
         }
     }
 
@@ -94,7 +93,7 @@ class CredentialProviderService : CredentialProviderEventsService() {
         when (request.callingRequest) {
             is SignalUnknownCredentialRequest -> {
                 updateDataOnSignalAndShowNotification(
-                    handleRequest = ::handleUnknownCredentialRequest,
+                    handleRequest = signalHandler::handleUnknownCredentialRequest,
                     requestJson = request.callingRequest.requestJson,
                     notificationTitle = getString(R.string.credential_deletion),
                     notificationContent = getString(R.string.unknown_signal_message),
@@ -103,7 +102,7 @@ class CredentialProviderService : CredentialProviderEventsService() {
 
             is SignalAllAcceptedCredentialIdsRequest -> {
                 updateDataOnSignalAndShowNotification(
-                    handleRequest = ::handleAcceptedCredentialsRequest,
+                    handleRequest = signalHandler::handleAcceptedCredentialsRequest,
                     requestJson = request.callingRequest.requestJson,
                     notificationTitle = getString(R.string.credentials_list_updation),
                     notificationContent = getString(R.string.all_accepted_signal_message),
@@ -112,7 +111,7 @@ class CredentialProviderService : CredentialProviderEventsService() {
 
             is SignalCurrentUserDetailsRequest -> {
                 updateDataOnSignalAndShowNotification(
-                    handleRequest = ::handleCurrentUserDetailRequest,
+                    handleRequest = signalHandler::handleCurrentUserDetailRequest,
                     requestJson = request.callingRequest.requestJson,
                     notificationTitle = getString(R.string.user_details_updation),
                     notificationContent = getString(R.string.current_user_signal_message),
@@ -142,7 +141,9 @@ class CredentialProviderService : CredentialProviderEventsService() {
         notificationContent: String,
     ) {
         coroutineScope.launch {
-            val success = handleRequest(requestJson)
+            val success = ProviderMetrics.measureSuspending(Stage.SIGNAL) {
+                handleRequest(requestJson)
+            }
             withContext(Dispatchers.Main) {
                 if (success) {
                     showNotification(
@@ -154,114 +155,6 @@ class CredentialProviderService : CredentialProviderEventsService() {
         }
     }
 
-    /**
-     * Handles a [SignalUnknownCredentialRequest] by parsing the credential ID
-     * from the request JSON and attempting to hide the corresponding passkey in the data source.
-     *
-     * "Hiding" a passkey typically means marking it as inactive or not to be suggested
-     * for autofill, often because the system has indicated it's no longer valid
-     * (e.g., deleted from the authenticator).
-     *
-     * @param requestJson The JSON string payload from the [SignalUnknownCredentialRequest].
-     *                   Expected to contain a {@code CREDENTIAL_ID}.
-     */
-    private suspend fun handleUnknownCredentialRequest(requestJson: String): Boolean {
-        try {
-            val credentialId = JSONObject(requestJson).getString(CREDENTIAL_ID)
-            dataSource.getPasskey(credentialId)?.let {
-                // Currently hiding the passkey on UnknownSignal for testing purpose
-                // If the business logc requires deletion, please add deletion code instead
-                dataSource.hidePasskey(it)
-            }
-            return true
-        } catch (e: Exception) {
-            Log.e(getString(R.string.failed_to_handle_unknowncredentialrequest), e.toString())
-            return false
-        }
-    }
-
-    /**
-     * Handles a {@link SignalAllAcceptedCredentialIdsRequest} by synchronizing the visibility
-     * state of passkeys for a specific user.
-     *
-     * It retrieves all current passkeys for the user from the data source. Then, it compares
-     * this list against the list of accepted credential IDs provided in the signal.
-     * Passkeys whose IDs are in the accepted list are unhidden (made active).
-     * Passkeys whose IDs are not in the accepted list are hidden (made inactive).
-     *
-     * This is useful for scenarios where the system provides an authoritative list of
-     * credentials that are currently valid or preferred for a user.
-     *
-     * @param requestJson The JSON string payload from the {@link SignalAllAcceptedCredentialIdsRequest}.
-     *                   Expected to contain a {@code USER_ID} and {@code ACCEPTED_CREDENTIAL_IDS}
-     *                   (which can be a string or a JSON array of strings).
-     */
-    private suspend fun handleAcceptedCredentialsRequest(requestJson: String): Boolean {
-        try {
-            val request = JSONObject(requestJson)
-            val userId = request.getString(USER_ID)
-            val listCurrentPasskeysForUser = dataSource.getAllPasskeysForUser(userId) ?: emptyList()
-            val listAllAcceptedCredIds = mutableListOf<String>()
-            when (val value = request.get(ACCEPTED_CREDENTIAL_IDS)) {
-                is String -> listAllAcceptedCredIds.add(value)
-                is JSONArray -> {
-                    for (i in 0 until value.length()) {
-                        val item = value.get(i)
-                        if (item is String) {
-                            listAllAcceptedCredIds.add(item)
-                        }
-                    }
-                }
-
-                else -> { /*do nothing*/
-                }
-            }
-
-            for (key in listCurrentPasskeysForUser) {
-                if (listAllAcceptedCredIds.contains(key.credId)) {
-                    dataSource.unhidePasskey(key)
-                } else {
-                    dataSource.hidePasskey(key)
-                }
-            }
-            return true
-        } catch (e: Exception) {
-            Log.e(getString(R.string.failed_to_handle_acceptedcredentialsrequest), e.toString())
-            return false
-        }
-    }
-
-    /**
-     * Handles a {@link SignalCurrentUserDetailsRequest} by updating the username and display name
-     * for all passkeys associated with a given user ID.
-     *
-     * This is useful when the user's profile information (like name or display name)
-     * changes elsewhere, and the credential provider needs to reflect these changes
-     * in its stored passkey data.
-     *
-     * @param requestJson The JSON string payload from the {@link SignalCurrentUserDetailsRequest}.
-     *                   Expected to contain {@code USER_ID}, {@code NAME}, and {@code DISPLAY_NAME}.
-     */
-    private suspend fun handleCurrentUserDetailRequest(requestJson: String): Boolean {
-        try {
-            val request = JSONObject(requestJson)
-            val userId = request.getString(USER_ID)
-            val updatedName = request.getString(NAME)
-            val updatedDisplayName = request.getString(DISPLAY_NAME)
-            val listPasskeys = dataSource.getAllPasskeysForUser(userId) ?: emptyList()
-            // Update user details for each passkey
-            for (key in listPasskeys) {
-                val newPasskeyItem =
-                    key.copy(username = updatedName, displayName = updatedDisplayName)
-                dataSource.updatePasskey(newPasskeyItem)
-            }
-            return true
-        } catch (e: Exception) {
-            Log.e(getString(R.string.failed_to_handle_currentuserdetailrequest), e.toString())
-            return false
-        }
-    }
-
     private fun finalizeSilently(
         requestJson: String,
         callingAppInfo: CallingAppInfo?,
@@ -274,7 +167,9 @@ class CredentialProviderService : CredentialProviderEventsService() {
             callback.onError(CreateCredentialUnknownException("Calling app info is null"))
             return
         }
-        val request = PublicKeyCredentialCreationOptions(requestJson)
+        val request = ProviderMetrics.measure(Stage.REQUEST_PARSING) {
+            PublicKeyCredentialCreationOptions(requestJson)
+        }
 
         //Log.i(TAG, "Origin: $origin")
         if (callingAppInfo.isOriginPopulated()) {
@@ -285,7 +180,10 @@ class CredentialProviderService : CredentialProviderEventsService() {
             }
         }
         // Native call. Check for asset links
-        if (!PasskeyUtils.checkRpValidity(request.rp.id, callingAppInfo)) {
+        val rpValid = ProviderMetrics.measure(Stage.NETWORK_VALIDATION) {
+            PasskeyUtils.checkRpValidity(request.rp.id, callingAppInfo)
+        }
+        if (!rpValid) {
             callback.onError(CreateCredentialUnknownException("Asset link validation failed for RP ID"))
             return
         }
@@ -15,9 +15,14 @@
  */
 package com.example.android.authentication.myvault.data
 
+import android.net.Uri
+import com.example.android.authentication.myvault.data.autofill.AutofillCandidate
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+import com.example.android.authentication.myvault.data.room.AccountCredentialCount
 import com.example.android.authentication.myvault.data.room.MyVaultDao
 import com.example.android.authentication.myvault.data.room.SiteMetaData
 import com.example.android.authentication.myvault.data.room.SiteWithCredentials
+import com.example.android.authentication.myvault.data.room.VaultAccount
 import kotlinx.coroutines.flow.Flow
 import java.time.Instant
 
@@ -26,6 +31,7 @@ import java.time.Instant
  */
 class CredentialsDataSource(
     private val myVaultDao: MyVaultDao,
+    private val publicSuffixList: PublicSuffixList,
 ) {
 
     fun siteListWithCredentials(): Flow<List<SiteWithCredentials>> {
@@ -39,31 +45,58 @@ class CredentialsDataSource(
         return myVaultDao.getCredentialsFromSite(url)
     }
 
-    fun getPasskeysCount(siteId: String?): Int {
-        if (siteId == null) {
-            return 0
-        }
-
-        val credentialsFromSite = myVaultDao.getCredentialsFromSite(siteId)
+    /**
+     * Returns the credentials of every site sharing a registrable domain with [host], so that
+     * credentials saved for `login.example.com` are offered on `example.com` and vice versa.
+     */
+    fun credentialsForDomain(host: String?): List<SiteWithCredentials> {
+        val domain = host?.let { publicSuffixList.registrableDomain(it) } ?: return emptyList()
+        return myVaultDao.getCredentialsFromDomain(domain)
+    }
 
-        if (credentialsFromSite != null) {
-            return credentialsFromSite.passkeys.size
-        }
+    /**
+     * Returns the site key passwords saved for a web [origin] are kept under: the registrable
+     * domain of its host, or the host itself when it has none.
+     */
+    fun siteKeyForOrigin(origin: String): String? {
+        val host = Uri.parse(origin).host?.takeIf { it.isNotEmpty() } ?: return null
+        return siteKeyForHost(host)
+    }
 
-        return 0
+    /**
+     * Returns the site key passwords saved for a web page on [host] are kept under: its registrable
+     * domain, or the host itself when it has none.
+     */
+    fun siteKeyForHost(host: String): String = publicSuffixList.registrableDomain(host) ?: host
+
+    /**
+     * Returns up to [limit] passwords to offer for autofill, most recently used first, without
+     * reading their values. Web pages are matched on the registrable domain of [webDomain], apps on
+     * [packageName].
+     */
+    fun autofillCandidates(packageName: String, webDomain: String?, limit: Int): List<AutofillCandidate> {
+        val url = webDomain ?: packageName
+        val domain = webDomain?.let { publicSuffixList.registrableDomain(it) }
+        return myVaultDao.autofillCandidates(url, domain, limit)
     }
 
-    fun getPasswordCount(url: String?): Int {
-        if (url == null) {
-            return 0
-        }
+    suspend fun getPassword(id: Long): PasswordItem? {
+        return myVaultDao.getPasswordById(id)
+    }
 
-        val credentialsFromSite = myVaultDao.getCredentialsFromSite(url)
+    /**
+     * Returns every account with the number of passwords it holds for [passwordUrl] and passkeys
+     * it holds for [rpId], most recently used account first.
+     */
+    fun accountCredentialCounts(passwordUrl: String?, rpId: String?): List<AccountCredentialCount> {
+        return myVaultDao.accountCredentialCounts(passwordUrl, rpId)
+    }
 
-        if (credentialsFromSite != null) {
-            return credentialsFromSite.passwords.size
-        }
-        return 0
+    /**
+     * Records that a credential was just saved to [accountId].
+     */
+    suspend fun markAccountUsed(accountId: String) {
+        myVaultDao.markAccountUsed(accountId, Instant.now().toEpochMilli())
     }
 
     private suspend fun addSite(siteMetaData: SiteMetaData): Long {
@@ -81,35 +114,67 @@ class CredentialsDataSource(
     suspend fun removePassword(password: PasswordItem) {
         val siteId = password.siteId
         myVaultDao.deletePassword(password)
-        if (myVaultDao.count(siteId) == 0) {
-            myVaultDao.deleteSite(SiteMetaData(id = siteId))
-        }
+        removeSiteIfEmpty(siteId)
     }
 
     suspend fun removePasskey(passkey: PasskeyItem) {
         val siteId = passkey.siteId
         myVaultDao.deletePasskey(passkey)
-        if (myVaultDao.countPasskeys(siteId) == 0) {
+        removeSiteIfEmpty(siteId)
+    }
+
+    private suspend fun removeSiteIfEmpty(siteId: Long) {
+        if (myVaultDao.count(siteId) == 0 && myVaultDao.countPasskeys(siteId) == 0) {
             myVaultDao.deleteSite(SiteMetaData(id = siteId))
         }
     }
 
+    /**
+     * Saves a new password, creating its site if needed.
+     *
+     * Passwords a browser saved before they were keyed by web domain sit under the browser's
+     * package name. When [PasswordMetaData.browserPackage] is set, a matching one found there is
+     * moved to the web site instead of saved twice, and the browser's site is removed once empty.
+     */
     suspend fun addNewPassword(passwordMetaData: PasswordMetaData) {
         val site = myVaultDao.getSite(passwordMetaData.url)
-        val siteId = site?.id ?: addSite(SiteMetaData(url = passwordMetaData.url, name = ""))
+        val siteId = site?.id ?: addSite(
+            if (passwordMetaData.isPackageName) {
+                SiteMetaData.forPackage(passwordMetaData.url)
+            } else {
+                SiteMetaData.forWebHost(passwordMetaData.url, publicSuffixList)
+            },
+        )
+        val now = Instant.now().toEpochMilli()
+        val legacy = passwordMetaData.browserPackage
+            ?.let { myVaultDao.getSite(it) }
+            ?.let { myVaultDao.getPassword(it.id, passwordMetaData.username) }
+            ?.takeIf { it.password == passwordMetaData.password }
+        if (legacy != null) {
+            myVaultDao.updatePassword(
+                legacy.copy(
+                    siteId = siteId,
+                    lastUsedTimeMs = now,
+                    accountId = passwordMetaData.accountId,
+                ),
+            )
+            removeSiteIfEmpty(legacy.siteId)
+            return
+        }
         myVaultDao.insertPassword(
             PasswordItem(
                 username = passwordMetaData.username,
                 password = passwordMetaData.password,
                 siteId = siteId,
-                lastUsedTimeMs = Instant.now().toEpochMilli(),
+                lastUsedTimeMs = now,
+                accountId = passwordMetaData.accountId,
             ),
         )
     }
 
     suspend fun addNewPasskey(passkeyMetadata: PasskeyMetadata) {
         val site = myVaultDao.getSite(passkeyMetadata.rpid)
-        val siteId = site?.id ?: addSite(SiteMetaData(url = passkeyMetadata.rpid, name = ""))
+        val siteId = site?.id ?: addSite(SiteMetaData.forWebHost(passkeyMetadata.rpid, publicSuffixList))
         myVaultDao.insertPasskey(
             PasskeyItem(
                 uid = passkeyMetadata.uid,
@@ -119,6 +184,7 @@ class CredentialsDataSource(
                 credPrivateKey = passkeyMetadata.credPrivateKey,
                 siteId = siteId,
                 lastUsedTimeMs = Instant.now().toEpochMilli(),
+                accountId = passkeyMetadata.accountId,
             ),
         )
     }
@@ -140,12 +206,23 @@ class CredentialsDataSource(
     }
 }
 
+/**
+ * A password to save.
+ *
+ * @property url The web host or, when [isPackageName] is set, the package name it is saved for.
+ * @property isPackageName Whether [url] is the package name of an app.
+ * @property browserPackage The browser that saved it for a web host, whose earlier passwords for
+ * the site may still be kept under its package name.
+ */
 data class PasswordMetaData(
     val username: String,
     val password: String,
     val url: String,
     val name: String = "",
     val lastUsedTimeMs: Long,
+    val accountId: String = VaultAccount.PERSONAL,
+    val isPackageName: Boolean = false,
+    val browserPackage: String? = null,
 )
 
 data class PasskeyMetadata(
@@ -156,4 +233,5 @@ data class PasskeyMetadata(
     val credId: String,
     val credPrivateKey: String,
     val lastUsedTimeMs: Long,
+    val accountId: String = VaultAccount.PERSONAL,
 )
@@ -18,10 +18,11 @@ package com.example.android.authentication.myvault.data
 import android.app.PendingIntent
 import android.content.Context
 import android.content.Intent
-import android.content.SharedPreferences
 import android.hardware.biometrics.BiometricManager
+import android.net.Uri
 import android.os.Build
 import android.os.Bundle
+import android.util.Log
 import androidx.credentials.provider.BeginCreateCredentialRequest
 import androidx.credentials.provider.BeginCreateCredentialResponse
 import androidx.credentials.provider.BeginCreatePasswordCredentialRequest
@@ -31,25 +32,42 @@ import androidx.credentials.provider.BeginGetCredentialResponse.Builder
 import androidx.credentials.provider.BeginGetPasswordOption
 import androidx.credentials.provider.BeginGetPublicKeyCredentialOption
 import androidx.credentials.provider.BiometricPromptData
+import androidx.credentials.provider.CallingAppInfo
 import androidx.credentials.provider.CreateEntry
+import androidx.credentials.provider.CredentialEntry
 import androidx.credentials.provider.PasswordCredentialEntry
 import androidx.credentials.provider.PublicKeyCredentialEntry
 import com.example.android.authentication.myvault.AppDependencies
+import com.example.android.authentication.myvault.data.metrics.ProviderMetrics
+import com.example.android.authentication.myvault.data.metrics.ProviderMetrics.Stage
+import com.example.android.authentication.myvault.data.room.AccountCredentialCount
 import com.example.android.authentication.myvault.fido.PublicKeyCredentialRequestOptions
+import com.example.android.authentication.myvault.fido.RelatedOriginVerifier
+import com.example.android.authentication.myvault.util.PasskeyUtils
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.async
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeoutOrNull
 import org.json.JSONObject
 import java.io.IOException
 import java.time.Instant
+import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicInteger
 
 /**
  * Manages the creation and retrieval of credential entries (passwords and passkeys)
  * to and from the MyVault Provider. This class also configures the biometric prompt
  * for Android API level 35 and higher.
+ *
+ * Requests from privileged callers such as browsers carry a web origin. Passwords are then matched
+ * on the origin's registrable domain rather than the caller's package, and passkeys are only
+ * offered when the origin is same-site with, or a related origin of, the requested rp id.
  */
 class CredentialsRepository(
-    private val sharedPreferences: SharedPreferences,
     private val credentialsDataSource: CredentialsDataSource,
     private val applicationContext: Context,
+    private val relatedOriginVerifier: RelatedOriginVerifier,
+    private val coroutineScope: CoroutineScope,
 ) {
     private val requestCode: AtomicInteger = AtomicInteger()
     private val allowedAuthenticator =
@@ -58,6 +76,11 @@ class CredentialsRepository(
     /**
      * This method queries credentials from your database, create passkey and password entries to populate.
      *
+     * When a request carries several options, such as a password and a passkey option, they are
+     * resolved concurrently on separate database connections. The response waits at most
+     * [GET_OPTIONS_BUDGET_MS] for its options, however many there are. Options that miss the budget
+     * are left out of the response rather than delaying it.
+     *
      * @param request   The BeginGetPublicKeyCredentialOption object containing the request parameters.
      * @param responseBuilder The Builder object used to build the BeginGetCredentialResponse.
      * @return True if credentials were found and added to the response builder, false otherwise.
@@ -66,95 +89,155 @@ class CredentialsRepository(
         request: BeginGetCredentialRequest,
         responseBuilder: Builder,
     ): Boolean {
-        val callingPackage = request.callingAppInfo?.packageName ?: return false
+        val callingAppInfo = request.callingAppInfo ?: return false
+        val callingPackage = callingAppInfo.packageName
+        val callingOrigin = callingOrigin(callingAppInfo)
 
-        var hasFoundCredentials = false
+        // A browser whose origin cannot be validated, for instance because the privileged app
+        // allowlist has not been fetched yet, gets nothing rather than being treated as an app.
+        if (callingOrigin == null && callingAppInfo.isOriginPopulated()) {
+            return false
+        }
 
-        for (option in request.beginGetCredentialOptions) {
+        val resolvers = request.beginGetCredentialOptions.mapNotNull { option ->
             when (option) {
                 // If the chosen option is a Password credential
-                is BeginGetPasswordOption -> {
-                    if (populatePasswordData(callingPackage, option, responseBuilder)) {
-                        hasFoundCredentials = true
-                    }
+                is BeginGetPasswordOption -> suspend {
+                    passwordEntries(callingPackage, callingOrigin, option)
                 }
 
                 // If the chosen option is a Passkey credential
-                is BeginGetPublicKeyCredentialOption -> {
-                    if (populatePasskeyData(option, responseBuilder)) {
-                        hasFoundCredentials = true
-                    }
+                is BeginGetPublicKeyCredentialOption -> suspend {
+                    passkeyEntries(callingOrigin, option)
                 }
+
+                else -> null
+            }
+        }
+
+        val results = resolveWithinBudget(resolvers)
+
+        var hasFoundCredentials = false
+        for (entries in results) {
+            if (entries != null) {
+                entries.forEach(responseBuilder::addCredentialEntry)
+                hasFoundCredentials = true
             }
         }
         return hasFoundCredentials
     }
 
+    /**
+     * Runs each resolver on the IO dispatcher and collects the results that arrive within
+     * [GET_OPTIONS_BUDGET_MS]. Room serves concurrent reads from separate WAL connections, so the
+     * lookups do not queue behind each other. A resolver that misses the budget yields null and is
+     * cancelled. Its database lookups are blocking calls that cancellation cannot interrupt, so a
+     * late lookup still holds its IO thread and connection until it finishes; only its result is
+     * ignored.
+     *
+     * @param resolvers One resolver per option, returning its entries or null if it found none.
+     * @return The result of each resolver, in order.
+     */
+    private fun resolveWithinBudget(
+        resolvers: List<suspend () -> List<CredentialEntry>?>,
+    ): List<List<CredentialEntry>?> {
+        val deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GET_OPTIONS_BUDGET_MS)
+        val pending = resolvers.map { resolve -> coroutineScope.async { resolve() } }
+        return runBlocking {
+            pending.mapIndexed { index, deferred ->
+                val remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())
+                val entries = withTimeoutOrNull(remainingMs.coerceAtLeast(1)) { deferred.await() }
+                if (!deferred.isCompleted) {
+                    deferred.cancel()
+                    Log.w(TAG, "Dropped option $index: over the ${GET_OPTIONS_BUDGET_MS}ms budget")
+                }
+                entries
+            }
+        }
+    }
+
     /**
      * This method queries credentials from the storage used i.e database here, create passkey entries to populate.
      *
      * @param request The BeginCreateCredentialRequest object containing the request parameters.
-     * @return The BeginCreateCredentialResponse object containing the list of credential entries.
+     * @return The BeginCreateCredentialResponse object containing one create entry per vault account.
      */
     fun processCreateCredentialsRequest(request: BeginCreateCredentialRequest): BeginCreateCredentialResponse? {
-        var passwordCount = 0
-        var passkeyCount = 0
-
         val requestJson =
             request.candidateQueryData.getString("androidx.credentials.BUNDLE_KEY_REQUEST_JSON")
 
-        val callingPackage = request.callingAppInfo?.packageName
-        if (!callingPackage.isNullOrEmpty()) {
-            passwordCount = credentialsDataSource.getPasswordCount(callingPackage)
+        // Parse the request options into a PublicKeyCredentialRequestOptions object.
+        val rpId: String? = if (requestJson.isNullOrEmpty()) {
+            null
+        } else {
+            ProviderMetrics.measure(Stage.REQUEST_PARSING) {
+                val requestJsonObject = JSONObject(requestJson)
+                val rp: JSONObject = requestJsonObject.getJSONObject("rp")
+                rp.getString("id")
+            }
         }
 
-        // Parse the request options into a PublicKeyCredentialRequestOptions object.
-        if (!requestJson.isNullOrEmpty()) {
-            val requestJsonObject = JSONObject(requestJson)
-            val rp: JSONObject = requestJsonObject.getJSONObject("rp")
-            val id: String = rp.getString("id")
-            passkeyCount = credentialsDataSource.getPasskeysCount(id)
+        // Browsers save passwords under the web site they are for, not their own package name.
+        val passwordUrl = request.callingAppInfo?.let { callingAppInfo ->
+            callingOrigin(callingAppInfo)?.let { credentialsDataSource.siteKeyForOrigin(it) }
+                ?: callingAppInfo.packageName.takeIf { it.isNotEmpty() }
+        }
+        val intentType = when (request) {
+            is BeginCreatePasswordCredentialRequest -> CREATE_PASSWORD_INTENT
+            is BeginCreatePublicKeyCredentialRequest -> CREATE_PASSKEY_INTENT
+            else -> return null
         }
 
-        when (request) {
-            // Handle Password credential
-            is BeginCreatePasswordCredentialRequest -> {
-                return handleCreateCredentialQuery(
-                    passwordCount,
-                    passkeyCount,
-                    CREATE_PASSWORD_INTENT,
-                )
-            }
+        // One grouped query yields the counts of every account.
+        val accounts = ProviderMetrics.measure(Stage.DB_LOOKUP) {
+            credentialsDataSource.accountCredentialCounts(passwordUrl, rpId)
+        }
+        return ProviderMetrics.measure(Stage.ENTRY_CONSTRUCTION) {
+            handleCreateCredentialQuery(accounts, intentType)
+        }
+    }
 
-            // Handle Passkey credential
-            is BeginCreatePublicKeyCredentialRequest -> {
-                return handleCreateCredentialQuery(
-                    passwordCount,
-                    passkeyCount,
-                    CREATE_PASSKEY_INTENT,
-                )
-            }
+    /**
+     * Returns the web origin of a privileged caller such as a browser, or null for apps.
+     *
+     * @param callingAppInfo The calling app info of the request.
+     */
+    private fun callingOrigin(callingAppInfo: CallingAppInfo): String? {
+        if (!callingAppInfo.isOriginPopulated()) {
+            return null
+        }
+        return ProviderMetrics.measure(Stage.REQUEST_PARSING) {
+            PasskeyUtils.privilegedCallingOrigin(callingAppInfo)
         }
-        return null
     }
 
     /**
      * This method queries credentials from the storage used i.e database here, create password entries to populate.
      *
      * @param callingPackage The package name of the calling app.
+     * @param callingOrigin The web origin of a privileged caller, or null for apps.
      * @param option The BeginGetPasswordOption object containing the request parameters.
-     * @param responseBuilder The Builder object used to build the BeginGetCredentialResponse.
-     * @return True if credentials were found and added to the response builder, false otherwise.
+     * @return The password entries, or null if no credentials were found.
      */
-    private fun populatePasswordData(
+    private fun passwordEntries(
         callingPackage: String,
+        callingOrigin: String?,
         option: BeginGetPasswordOption,
-        responseBuilder: Builder,
-    ): Boolean {
+    ): List<CredentialEntry>? {
+        val entries = ArrayList<CredentialEntry>()
         try {
-            val credentials =
-                credentialsDataSource.credentialsForSite(callingPackage) ?: return false
-            val passwords = credentials.passwords
+            val sites = ProviderMetrics.measure(Stage.DB_LOOKUP) {
+                if (callingOrigin != null) {
+                    credentialsDataSource.credentialsForDomain(Uri.parse(callingOrigin).host)
+                } else {
+                    listOfNotNull(credentialsDataSource.credentialsForSite(callingPackage))
+                }
+            }
+            if (sites.isEmpty()) {
+                return null
+            }
+            val passwords = sites.flatMap { it.passwords }
+            val start = System.nanoTime()
             val it = passwords.iterator()
             while (it.hasNext()) {
                 val passwordItemCurrent = it.next()
@@ -173,14 +256,13 @@ class CredentialsRepository(
                     )
                 }
 
-                val entry = entryBuilder.build()
-                // Add the entry to the response builder.
-                responseBuilder.addCredentialEntry(entry)
+                entries.add(entryBuilder.build())
             }
+            ProviderMetrics.record(Stage.ENTRY_CONSTRUCTION, (System.nanoTime() - start) / 1000)
         } catch (e: IOException) {
-            return false
+            return null
         }
-        return true
+        return entries
     }
 
     /**
@@ -204,7 +286,7 @@ class CredentialsRepository(
             ),
             option,
         ).setDisplayName("display-${currentPasswordItem.username}")
-            .setIcon(AppDependencies.providerIcon!!)
+            .setIcon(AppDependencies.providerIcon)
             .setLastUsedTime(Instant.ofEpochMilli(currentPasswordItem.lastUsedTimeMs))
         return entryBuilder
     }
@@ -212,21 +294,36 @@ class CredentialsRepository(
     /**
      * This method queries credentials from your database, create passkey and password entries to populate.
      *
+     * @param callingOrigin The web origin of a privileged caller, or null for apps.
      * @param option   The BeginGetPublicKeyCredentialOption object containing the request parameters.
-     * @param responseBuilder The Builder object used to build the BeginGetCredentialResponse.
-     * @return True if credentials were found and added to the response builder, false otherwise.
+     * @return The passkey entries, or null if no credentials were found.
      */
-    private fun populatePasskeyData(
+    private suspend fun passkeyEntries(
+        callingOrigin: String?,
         option: BeginGetPublicKeyCredentialOption,
-        responseBuilder: Builder,
-    ): Boolean {
+    ): List<CredentialEntry>? {
+        val entries = ArrayList<CredentialEntry>()
         try {
             // Parse the request options into a PublicKeyCredentialRequestOptions object.
-            val request = PublicKeyCredentialRequestOptions(option.requestJson)
+            val request = ProviderMetrics.measure(Stage.REQUEST_PARSING) {
+                PublicKeyCredentialRequestOptions(option.requestJson)
+            }
+
+            // A web origin may only use the rp id if it is same-site with it or a related origin.
+            if (callingOrigin != null &&
+                !ProviderMetrics.measure(Stage.NETWORK_VALIDATION) {
+                    relatedOriginVerifier.isAllowed(callingOrigin, request.rpId)
+                }
+            ) {
+                return null
+            }
 
             // Get the credentials for the site specified in the request.
-            val credentials = credentialsDataSource.credentialsForSite(request.rpId) ?: return false
+            val credentials = ProviderMetrics.measure(Stage.DB_LOOKUP) {
+                credentialsDataSource.credentialsForSite(request.rpId)
+            } ?: return null
 
+            val start = System.nanoTime()
             val passkeys = credentials.passkeys
             passkeys
                 .filter { !it.hidden }
@@ -256,14 +353,13 @@ class CredentialsRepository(
                         )
                     }
 
-                    val entry = entryBuilder.build()
-                    // Add the entry to the response builder.
-                    responseBuilder.addCredentialEntry(entry)
+                    entries.add(entryBuilder.build())
                 }
+            ProviderMetrics.record(Stage.ENTRY_CONSTRUCTION, (System.nanoTime() - start) / 1000)
         } catch (e: IOException) {
-            return false
+            return null
         }
-        return true
+        return entries
     }
 
     /**
@@ -289,7 +385,7 @@ class CredentialsRepository(
             option,
         ).setDisplayName(passkey.displayName)
             .setLastUsedTime(Instant.ofEpochMilli(passkey.lastUsedTimeMs))
-            .setIcon(AppDependencies.providerIcon!!)
+            .setIcon(AppDependencies.providerIcon)
         return entryBuilder
     }
 
@@ -330,72 +426,56 @@ class CredentialsRepository(
      * Handles the creation of a credential query response.
      *
      * <p>This method constructs a {@link BeginCreateCredentialResponse} that
-     * includes a {@link CreateEntry} for an account where credentials can be
-     * saved. The {@link CreateEntry} contains a {@link PendingIntent} and other
+     * includes one {@link CreateEntry} per vault account where credentials can be
+     * saved. Each {@link CreateEntry} contains a {@link PendingIntent} and other
      * metadata required for the credential creation process.
      *
-     * @param passwordCount The number of password credentials associated with the account.
-     * @param passkeyCount  The number of passkey credentials associated with the account.
-     * @param intentType    The type of intent to be used for the {@link PendingIntent}.
+     * @param accounts   The accounts with their credential counts for the requesting site.
+     * @param intentType The type of intent to be used for the {@link PendingIntent}.
      * @return A {@link BeginCreateCredentialResponse} containing the created
-     *         {@link CreateEntry}.
+     *         {@link CreateEntry} objects.
      */
     private fun handleCreateCredentialQuery(
-        passwordCount: Int,
-        passkeyCount: Int,
+        accounts: List<AccountCredentialCount>,
         intentType: String,
     ): BeginCreateCredentialResponse {
         // Each CreateEntry should correspond to an account where the credential can be saved,
         // and must have a PendingIntent set along with other required metadata.
-
-        // Create the CreateEntry using the provided parameters.
-        val createCredentialEntry = createEntry(
-            intentType,
-            passwordCount,
-            passkeyCount,
-        )
-        // Build and return the BeginCreateCredentialResponse with the created CreateEntry.
-        return BeginCreateCredentialResponse.Builder().addCreateEntry(
-            createCredentialEntry,
-        ).build()
+        val responseBuilder = BeginCreateCredentialResponse.Builder()
+        for (account in accounts) {
+            responseBuilder.addCreateEntry(createEntry(account, intentType))
+        }
+        return responseBuilder.build()
     }
 
     /**
-     * Creates a {@link CreateEntry} object for the user account.
+     * Creates a {@link CreateEntry} object for a vault account.
      *
      * <p>This method constructs a {@link CreateEntry} that represents an account
      * where credentials can be saved. It sets various properties of the
-     * {@link CreateEntry}, including the account identifier, a {@link PendingIntent}
-     * for credential creation, the last used time, the number of password and
+     * {@link CreateEntry}, including the account name, a {@link PendingIntent}
+     * carrying the account id, the last used time, the number of password and
      * passkey credentials, the total credential count, and a description.
      * Additionally, it configures biometric prompt data if the device is running
      * Android API level 35 or higher.
      *
-     * @param intentType    The type of intent to be used for the {@link PendingIntent}.
-     * @param passwordCount The number of password credentials associated with the account.
-     * @param passkeyCount  The number of passkey credentials associated with the account.
+     * @param account    The account and its credential counts for the requesting site.
+     * @param intentType The type of intent to be used for the {@link PendingIntent}.
      * @return A {@link CreateEntry} object configured with the specified parameters.
      */
     private fun createEntry(
+        account: AccountCredentialCount,
         intentType: String,
-        passwordCount: Int,
-        passkeyCount: Int,
     ): CreateEntry {
-        // Create a CreateEntry.Builder with the user account and a PendingIntent.
+        // Create a CreateEntry.Builder with the account and a PendingIntent.
         val createEntryBuilder = CreateEntry.Builder(
-            USER_ACCOUNT,
-            createNewPendingIntent(USER_ACCOUNT, intentType),
-        ).setLastUsedTime(
-            Instant.ofEpochMilli(
-                sharedPreferences.getLong(
-                    KEY_ACCOUNT_LAST_USED_MS,
-                    0L,
-                ),
-            ),
-        ).setPasswordCredentialCount(passwordCount).setPublicKeyCredentialCount(passkeyCount)
-            .setTotalCredentialCount(passwordCount + passkeyCount).setDescription(
-                CREDENTIAL_DESCRIPTION,
-            )
+            account.displayName,
+            createNewPendingIntent(account.accountId, intentType),
+        ).setLastUsedTime(Instant.ofEpochMilli(account.lastUsedTimeMs))
+            .setPasswordCredentialCount(account.passwordCount)
+            .setPublicKeyCredentialCount(account.passkeyCount)
+            .setTotalCredentialCount(account.passwordCount + account.passkeyCount)
+            .setDescription(CREDENTIAL_DESCRIPTION)
 
         // Configure biometric prompt data if the device is running Android API level 35 or higher.
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.VANILLA_ICE_CREAM) {
@@ -420,9 +500,14 @@ class CredentialsRepository(
             "com.example.android.authentication.myvault.GET_PASSKEY"
         private const val GET_PASSWORD_INTENT =
             "com.example.android.authentication.myvault.GET_PASSWORD"
-        const val KEY_ACCOUNT_LAST_USED_MS = "key_account_last_used_ms"
         const val KEY_ACCOUNT_ID = "key_account_id"
-        const val USER_ACCOUNT = "user_account"
+
+        /**
+         * How long a request with several options waits for them before answering without the
+         * ones still being resolved.
+         */
+        const val GET_OPTIONS_BUDGET_MS = 300L
+        private const val TAG = "CredentialsRepository"
         const val CREDENTIAL_DESCRIPTION =
             "Your credential will be saved securely to the chosen account."
     }
@@ -36,7 +36,12 @@ import androidx.credentials.provider.ProviderClearCredentialStateRequest
 import androidx.credentials.provider.ProviderGetCredentialRequest
 import com.example.android.authentication.myvault.AppDependencies
 import com.example.android.authentication.myvault.R
+import com.example.android.authentication.myvault.StartupTrace
+import com.example.android.authentication.myvault.data.metrics.ProviderMetrics
+import com.example.android.authentication.myvault.data.metrics.ProviderMetrics.Stage
+import java.io.FileDescriptor
 import java.io.IOException
+import java.io.PrintWriter
 import java.util.concurrent.atomic.AtomicInteger
 
 /*
@@ -52,6 +57,13 @@ import java.util.concurrent.atomic.AtomicInteger
 class MyVaultService(private val credentialsRepository: CredentialsRepository = AppDependencies.credentialsRepository) :
     CredentialProviderService() {
 
+    override fun onCreate() {
+        super.onCreate()
+        // Fetch the privileged app allowlist ahead of the first browser request, which only reads
+        // the local copy.
+        AppDependencies.privilegedAppAllowlist.refreshIfStale()
+    }
+
     /**
      * Called by the Android System in response to a client app calling
      * [androidx.credentials.CredentialManager.createCredential], to create/save a credential
@@ -71,8 +83,11 @@ class MyVaultService(private val credentialsRepository: CredentialsRepository =
     ) {
         // Handle the BeginCreateCredentialRequest by constructing a corresponding BeginCreateCredentialResponse and passing it through the callback.
         val response: BeginCreateCredentialResponse? =
-            credentialsRepository.processCreateCredentialsRequest(request)
+            ProviderMetrics.measure(Stage.CREATE_REQUEST) {
+                credentialsRepository.processCreateCredentialsRequest(request)
+            }
         if (response != null) {
+            ProviderMetrics.recordResponseSize(BeginCreateCredentialResponse.asBundle(response))
             callback.onResult(response)
         } else {
             callback.onError(
@@ -127,15 +142,18 @@ class MyVaultService(private val credentialsRepository: CredentialsRepository =
             return
         }
 
+        val start = System.nanoTime()
         val hasCredentialsFound =
             credentialsRepository.processGetCredentialsRequest(request, responseBuilder)
+        StartupTrace.logReportOnce("First get credential request")
         val hasActionsPopulated =
             populateActions(responseBuilder, credentialsRepository.getRequestCounter())
+        ProviderMetrics.record(Stage.GET_REQUEST, (System.nanoTime() - start) / 1000)
 
         if (hasCredentialsFound || hasActionsPopulated) {
-            callback.onResult(
-                responseBuilder.build(),
-            )
+            val response = responseBuilder.build()
+            ProviderMetrics.recordResponseSize(BeginGetCredentialResponse.asBundle(response))
+            callback.onResult(response)
             return
         }
 
@@ -168,6 +186,18 @@ class MyVaultService(private val credentialsRepository: CredentialsRepository =
         callback.onResult(null)
     }
 
+    /**
+     * Prints the provider metrics for `adb shell dumpsys activity service`. Pass `--reset` to clear
+     * them after printing.
+     */
+    override fun dump(fd: FileDescriptor, writer: PrintWriter, args: Array<out String>?) {
+        ProviderMetrics.dump(writer)
+        if (args?.contains(RESET_ARG) == true) {
+            ProviderMetrics.reset()
+            writer.println("Metrics reset")
+        }
+    }
+
     /**
      * Creates a PendingIntent that navigates the user to the app's open/unlock flow.
      *
@@ -216,5 +246,6 @@ class MyVaultService(private val credentialsRepository: CredentialsRepository =
     companion object {
         private const val OPEN_APP_INTENT = "com.example.android.authentication.myvault.OPEN_APP"
         private const val UNLOCK_INTENT = "com.example.android.authentication.myvault.UNLOCK_APP"
+        private const val RESET_ARG = "--reset"
     }
 }
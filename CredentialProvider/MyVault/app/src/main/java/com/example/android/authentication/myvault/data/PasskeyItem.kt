@@ -19,6 +19,7 @@ import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.Index
 import androidx.room.PrimaryKey
+import com.example.android.authentication.myvault.data.room.VaultAccount
 
 /**
  * Represents a passkey item stored in the database.
@@ -32,11 +33,15 @@ import androidx.room.PrimaryKey
  * @property siteId The ID of the site
  * @property lastUsedTimeMs The last time the passkey item was used
  * @property hidden Whether a passkey is hidden from the end user or not
+ * @property changeSeq The vault change sequence number of the last write to this row
+ * @property accountId The [VaultAccount] the credential is saved to
  */
 @Entity(
     tableName = "passkeys",
     indices = [
         Index("credId", unique = false),
+        Index("changeSeq", unique = false),
+        Index("siteId", unique = false),
     ],
 )
 data class PasskeyItem(
@@ -49,4 +54,6 @@ data class PasskeyItem(
     @ColumnInfo(name = "siteId") val siteId: Long,
     @ColumnInfo(name = "lastUsedTimeMs") val lastUsedTimeMs: Long,
     @ColumnInfo(name = "hidden") val hidden: Boolean = false,
+    @ColumnInfo(name = "changeSeq", defaultValue = "0") val changeSeq: Long = 0,
+    @ColumnInfo(name = "accountId", defaultValue = "'personal'") val accountId: String = VaultAccount.PERSONAL,
 )
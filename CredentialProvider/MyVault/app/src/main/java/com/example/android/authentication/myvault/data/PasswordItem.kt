@@ -19,6 +19,7 @@ import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.Index
 import androidx.room.PrimaryKey
+import com.example.android.authentication.myvault.data.room.VaultAccount
 
 /**
  * Represents a password item stored in the database.
@@ -28,11 +29,15 @@ import androidx.room.PrimaryKey
  * @property password The password
  * @property siteId The ID of the site
  * @property lastUsedTimeMs The last time the password item was used.
+ * @property changeSeq The vault change sequence number of the last write to this row
+ * @property accountId The [VaultAccount] the credential is saved to
  */
 @Entity(
     tableName = "passwords",
     indices = [
         Index("username", unique = false),
+        Index("changeSeq", unique = false),
+        Index("siteId", unique = false),
     ],
 )
 data class PasswordItem(
@@ -41,4 +46,6 @@ data class PasswordItem(
     @ColumnInfo(name = "password") val password: String,
     @ColumnInfo(name = "siteId") val siteId: Long,
     @ColumnInfo(name = "lastUsedTimeMs") val lastUsedTimeMs: Long,
+    @ColumnInfo(name = "changeSeq", defaultValue = "0") val changeSeq: Long = 0,
+    @ColumnInfo(name = "accountId", defaultValue = "'personal'") val accountId: String = VaultAccount.PERSONAL,
 )
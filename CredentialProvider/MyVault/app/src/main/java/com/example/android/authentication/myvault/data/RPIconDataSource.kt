@@ -24,6 +24,7 @@ import java.io.FileNotFoundException
 import java.net.HttpURLConnection
 import java.net.URL
 import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * This class is responsible for providing the icons of the corresponding apps (who are saving credentials through MyVault).
@@ -33,9 +34,12 @@ import java.security.MessageDigest
 class RPIconDataSource(private var dataDir: String) {
 
     /**
-     * A mutable map to store the icons.
+     * A mutable map to store the icons. It is cleared from background threads by [clear].
      */
-    private val icons: MutableMap<String, Bitmap> = mutableMapOf()
+    private val icons: MutableMap<String, Bitmap> = ConcurrentHashMap()
+
+    private val iconDir: File
+        get() = File(dataDir, ICON_DIR)
 
     /**
      * Gets the file for the given URL.
@@ -46,7 +50,52 @@ class RPIconDataSource(private var dataDir: String) {
     private fun getFileForUrl(url: String): File {
         val hash = MessageDigest.getInstance("SHA-1").digest(url.toByteArray())
         val hashName = hash.joinToString(separator = "") { b -> "%02x".format(b) }
-        return File("$dataDir/rpicons", "$hashName.png")
+        return File(iconDir, "$hashName.png")
+    }
+
+    /**
+     * Returns the total size in bytes of the icons stored on disk.
+     */
+    fun diskUsage(): Long = iconDir.listFiles()?.sumOf { it.length() } ?: 0L
+
+    /**
+     * Deletes icons of sites that are no longer in the vault, then the least recently written
+     * icons until the rest fit in [maxBytes].
+     *
+     * @param urls The urls of the sites still in the vault.
+     * @param maxBytes The most disk space icons may use.
+     * @return The number of icons deleted.
+     */
+    fun prune(urls: Collection<String>, maxBytes: Long): Int {
+        val files = iconDir.listFiles() ?: return 0
+        val keep = urls.mapTo(HashSet()) { getFileForUrl(it).name }
+        var deleted = 0
+        val kept = ArrayList<File>()
+        for (file in files) {
+            if (file.name !in keep && file.delete()) {
+                deleted++
+            } else {
+                kept.add(file)
+            }
+        }
+        var size = kept.sumOf { it.length() }
+        for (file in kept.sortedBy { it.lastModified() }) {
+            if (size <= maxBytes) break
+            val length = file.length()
+            if (file.delete()) {
+                size -= length
+                deleted++
+            }
+        }
+        return deleted
+    }
+
+    /**
+     * Deletes every stored icon, on disk and in memory.
+     */
+    fun clear() {
+        iconDir.deleteRecursively()
+        icons.clear()
     }
 
     /**
@@ -125,4 +174,8 @@ class RPIconDataSource(private var dataDir: String) {
         }
         return null
     }
+
+    companion object {
+        private const val ICON_DIR = "rpicons"
+    }
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.autofill
+
+/**
+ * A stored password offered as an autofill suggestion. Only what is needed to label the
+ * suggestion is read; the password value is loaded once the user has picked it and unlocked.
+ *
+ * @property id The id of the password row
+ * @property username The username of the password
+ * @property siteUrl The url of the site the password belongs to
+ */
+data class AutofillCandidate(
+    val id: Long,
+    val username: String,
+    val siteUrl: String,
+)
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.autofill
+
+import android.app.assist.AssistStructure
+import android.text.InputType
+import android.view.View
+import android.view.ViewStructure
+import android.view.autofill.AutofillId
+
+/**
+ * The fields of a screen that MyVault can fill.
+ *
+ * @property packageName The package of the app showing the screen
+ * @property webDomain The domain of the web page, when the screen shows one
+ * @property usernameId The username or email field, if any
+ * @property passwordIds The password fields, in screen order
+ * @property username The text currently in the username field
+ * @property password The text currently in the first password field
+ */
+class ParsedStructure(
+    val packageName: String,
+    val webDomain: String?,
+    val usernameId: AutofillId?,
+    val passwordIds: List<AutofillId>,
+    val username: String?,
+    val password: String?,
+) {
+    val autofillIds: List<AutofillId>
+        get() = listOfNotNull(usernameId) + passwordIds
+}
+
+/**
+ * Finds the username and password fields of an [AssistStructure].
+ *
+ * Fields are recognised from their autofill hints first, then from the HTML input type of web
+ * views and finally from the input type of native text fields. The tree is walked once.
+ */
+object AutofillStructureParser {
+    private val USERNAME_HINTS = setOf(
+        View.AUTOFILL_HINT_USERNAME,
+        View.AUTOFILL_HINT_EMAIL_ADDRESS,
+    )
+    private val PASSWORD_TYPES = setOf("password")
+    private val USERNAME_TYPES = setOf("text", "email")
+    private const val INPUT_TYPE_MASK =
+        InputType.TYPE_MASK_CLASS or InputType.TYPE_MASK_VARIATION
+
+    /**
+     * Parses [structure], or returns null if it has no password field.
+     */
+    fun parse(structure: AssistStructure): ParsedStructure? {
+        val state = State()
+        for (i in 0 until structure.windowNodeCount) {
+            visit(structure.getWindowNodeAt(i).rootViewNode, state)
+        }
+        if (state.passwordIds.isEmpty()) {
+            return null
+        }
+        return ParsedStructure(
+            packageName = structure.activityComponent.packageName,
+            webDomain = state.webDomain,
+            usernameId = state.usernameId,
+            passwordIds = state.passwordIds,
+            username = state.username,
+            password = state.password,
+        )
+    }
+
+    private class State {
+        var webDomain: String? = null
+        var usernameId: AutofillId? = null
+        var username: String? = null
+        val passwordIds = ArrayList<AutofillId>()
+        var password: String? = null
+    }
+
+    private fun visit(node: AssistStructure.ViewNode, state: State) {
+        if (state.webDomain == null && !node.webDomain.isNullOrEmpty()) {
+            state.webDomain = node.webDomain
+        }
+        val id = node.autofillId
+        if (id != null && node.autofillType == View.AUTOFILL_TYPE_TEXT) {
+            when {
+                isPassword(node) -> {
+                    state.passwordIds.add(id)
+                    if (state.password == null) {
+                        state.password = textOf(node)
+                    }
+                }
+
+                // The text field closest before the first password field is the username.
+                state.passwordIds.isEmpty() && isUsername(node) -> {
+                    state.usernameId = id
+                    state.username = textOf(node)
+                }
+            }
+        }
+        for (i in 0 until node.childCount) {
+            visit(node.getChildAt(i), state)
+        }
+    }
+
+    private fun isPassword(node: AssistStructure.ViewNode): Boolean {
+        node.autofillHints?.let { hints ->
+            return View.AUTOFILL_HINT_PASSWORD in hints
+        }
+        node.htmlInfo?.let { html ->
+            return html.tag == "input" && html.typeIn(PASSWORD_TYPES)
+        }
+        return when (node.inputType and INPUT_TYPE_MASK) {
+            InputType.TYPE_CLASS_TEXT or InputType.TYPE_TEXT_VARIATION_PASSWORD,
+            InputType.TYPE_CLASS_TEXT or InputType.TYPE_TEXT_VARIATION_VISIBLE_PASSWORD,
+            InputType.TYPE_CLASS_TEXT or InputType.TYPE_TEXT_VARIATION_WEB_PASSWORD,
+            InputType.TYPE_CLASS_NUMBER or InputType.TYPE_NUMBER_VARIATION_PASSWORD,
+            -> true
+
+            else -> false
+        }
+    }
+
+    private fun isUsername(node: AssistStructure.ViewNode): Boolean {
+        node.autofillHints?.let { hints ->
+            return hints.any { it in USERNAME_HINTS }
+        }
+        node.htmlInfo?.let { html ->
+            return html.tag == "input" && html.typeIn(USERNAME_TYPES)
+        }
+        return when (node.inputType and INPUT_TYPE_MASK) {
+            InputType.TYPE_CLASS_TEXT or InputType.TYPE_TEXT_VARIATION_EMAIL_ADDRESS,
+            InputType.TYPE_CLASS_TEXT or InputType.TYPE_TEXT_VARIATION_WEB_EMAIL_ADDRESS,
+            InputType.TYPE_CLASS_TEXT or InputType.TYPE_TEXT_VARIATION_NORMAL,
+            -> true
+
+            else -> false
+        }
+    }
+
+    private fun ViewStructure.HtmlInfo.typeIn(types: Set<String>): Boolean =
+        attributes?.any { it.first == "type" && it.second in types } == true
+
+    private fun textOf(node: AssistStructure.ViewNode): String? {
+        val value = node.autofillValue ?: return null
+        return if (value.isText) value.textValue.toString() else null
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.autofill
+
+import android.app.PendingIntent
+import android.content.Intent
+import android.os.CancellationSignal
+import android.os.SystemClock
+import android.service.autofill.AutofillService
+import android.service.autofill.Dataset
+import android.service.autofill.FillCallback
+import android.service.autofill.FillRequest
+import android.service.autofill.FillResponse
+import android.service.autofill.Presentations
+import android.service.autofill.SaveCallback
+import android.service.autofill.SaveInfo
+import android.service.autofill.SaveRequest
+import android.util.Log
+import android.widget.RemoteViews
+import com.example.android.authentication.myvault.AppDependencies
+import com.example.android.authentication.myvault.StartupTrace
+import com.example.android.authentication.myvault.data.PasswordMetaData
+import com.example.android.authentication.myvault.ui.AutofillAuthActivity
+import kotlinx.coroutines.launch
+import java.time.Instant
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Offers vault passwords to apps and web pages through the Android autofill framework.
+ *
+ * Fill requests are answered from a single indexed query that reads only ids and usernames, keyed
+ * by the app's package or the page's registrable domain, and capped at [MAX_DATASETS] rows. The
+ * page's domain is only used when [WebDomainVerifier] trusts the app to report it. Every
+ * dataset is locked behind an authentication intent, so password values are only read, after the
+ * user unlocks, for the one suggestion they pick. Building stops once [FILL_BUDGET_MS] has passed,
+ * returning whatever is ready, which keeps responses far inside the framework's fill timeout.
+ */
+class MyVaultAutofillService : AutofillService() {
+    private val credentialsDataSource = AppDependencies.credentialsDataSource
+    private val webDomainVerifier = AppDependencies.webDomainVerifier
+    private val coroutineScope = AppDependencies.coroutineScope
+    private val requestCode = AtomicInteger()
+
+    override fun onFillRequest(
+        request: FillRequest,
+        cancellationSignal: CancellationSignal,
+        callback: FillCallback,
+    ) {
+        val deadline = SystemClock.elapsedRealtime() + FILL_BUDGET_MS
+        val job = coroutineScope.launch {
+            val response = try {
+                buildFillResponse(request, deadline)
+            } catch (e: Exception) {
+                Log.e(TAG, "Could not build fill response", e)
+                null
+            }
+            if (!cancellationSignal.isCanceled) {
+                callback.onSuccess(response)
+            }
+            StartupTrace.logReportOnce("First fill request")
+        }
+        cancellationSignal.setOnCancelListener { job.cancel() }
+    }
+
+    override fun onSaveRequest(request: SaveRequest, callback: SaveCallback) {
+        val parsed = request.fillContexts.lastOrNull()?.structure?.let(AutofillStructureParser::parse)
+        val password = parsed?.password
+        if (parsed == null || password.isNullOrEmpty()) {
+            callback.onFailure(null)
+            return
+        }
+        coroutineScope.launch {
+            try {
+                val webDomain = webDomainVerifier.verifiedWebDomain(parsed.packageName, parsed.webDomain)
+                // Web pages are saved under the same site key as passwords saved through the
+                // credential provider, so both are found together.
+                credentialsDataSource.addNewPassword(
+                    PasswordMetaData(
+                        username = parsed.username.orEmpty(),
+                        password = password,
+                        url = webDomain?.let { credentialsDataSource.siteKeyForHost(it) } ?: parsed.packageName,
+                        lastUsedTimeMs = Instant.now().toEpochMilli(),
+                        isPackageName = webDomain == null,
+                    ),
+                )
+                callback.onSuccess()
+            } catch (e: Exception) {
+                Log.e(TAG, "Could not save password", e)
+                callback.onFailure(null)
+            }
+        }
+    }
+
+    private fun buildFillResponse(request: FillRequest, deadline: Long): FillResponse? {
+        val structure = request.fillContexts.lastOrNull()?.structure ?: return null
+        val parsed = AutofillStructureParser.parse(structure) ?: return null
+        if (parsed.packageName == packageName) {
+            return null
+        }
+
+        val responseBuilder = FillResponse.Builder()
+        val candidates = credentialsDataSource.autofillCandidates(
+            parsed.packageName,
+            webDomainVerifier.trustedWebDomain(parsed.packageName, parsed.webDomain),
+            MAX_DATASETS,
+        )
+        for ((index, candidate) in candidates.withIndex()) {
+            if (SystemClock.elapsedRealtime() >= deadline) {
+                Log.w(TAG, "Fill budget spent, offering $index of ${candidates.size} passwords")
+                break
+            }
+            responseBuilder.addDataset(buildDataset(candidate, parsed))
+        }
+
+        val saveInfo = SaveInfo.Builder(SaveInfo.SAVE_DATA_TYPE_PASSWORD, parsed.passwordIds.toTypedArray())
+        parsed.usernameId?.let { saveInfo.setOptionalIds(arrayOf(it)) }
+        return responseBuilder.setSaveInfo(saveInfo.build()).build()
+    }
+
+    /**
+     * Builds a suggestion for [candidate] that carries no values; picking it launches
+     * [AutofillAuthActivity], which returns the filled dataset.
+     */
+    private fun buildDataset(candidate: AutofillCandidate, parsed: ParsedStructure): Dataset {
+        val presentation = RemoteViews(packageName, android.R.layout.simple_list_item_1).apply {
+            setTextViewText(android.R.id.text1, candidate.username.ifEmpty { candidate.siteUrl })
+        }
+        val intent = Intent(this, AutofillAuthActivity::class.java)
+            .putExtra(AutofillAuthActivity.EXTRA_PASSWORD_ID, candidate.id)
+            .putExtra(AutofillAuthActivity.EXTRA_USERNAME_ID, parsed.usernameId)
+            .putParcelableArrayListExtra(AutofillAuthActivity.EXTRA_PASSWORD_IDS, ArrayList(parsed.passwordIds))
+        val pendingIntent = PendingIntent.getActivity(
+            this,
+            requestCode.incrementAndGet(),
+            intent,
+            PendingIntent.FLAG_MUTABLE or PendingIntent.FLAG_CANCEL_CURRENT,
+        )
+
+        val builder = Dataset.Builder(Presentations.Builder().setMenuPresentation(presentation).build())
+            .setId(candidate.id.toString())
+            .setAuthentication(pendingIntent.intentSender)
+        parsed.autofillIds.forEach { builder.setField(it, null) }
+        return builder.build()
+    }
+
+    companion object {
+        /**
+         * How long a fill request may spend building suggestions. The framework gives up on a
+         * service after about five seconds.
+         */
+        const val FILL_BUDGET_MS = 300L
+
+        /**
+         * The most suggestions offered for one screen.
+         */
+        const val MAX_DATASETS = 20
+        private const val TAG = "MyVaultAutofill"
+    }
+}
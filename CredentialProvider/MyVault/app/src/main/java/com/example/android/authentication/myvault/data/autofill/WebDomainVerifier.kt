@@ -0,0 +1,179 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.autofill
+
+import android.content.pm.PackageManager
+import android.content.pm.SigningInfo
+import android.os.SystemClock
+import android.util.Log
+import android.util.LruCache
+import androidx.credentials.provider.CallingAppInfo
+import com.example.android.authentication.myvault.fido.AssetLinkVerifier
+import com.example.android.authentication.myvault.fido.PrivilegedAppAllowlist
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.withTimeoutOrNull
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Decides whether autofill may trust the web domain an app reports for the screen it shows.
+ *
+ * Any app can put any web domain in its view structure, so a domain is only honoured when the app
+ * is a browser on the [PrivilegedAppAllowlist], or when the domain's Digital Asset Links delegate
+ * it to the app, as for a WebView showing the app's own site. Otherwise the screen is keyed by the
+ * app's package name.
+ *
+ * Fill requests never wait on the network: an app and domain that have not been checked yet are
+ * keyed by package name while the Digital Asset Links check runs in [coroutineScope]. Successful
+ * checks are kept for the life of the process; failures are retried after [FAILURE_CACHE_MS].
+ *
+ * @param packageManager Reads the signing certificates of the requesting app.
+ * @param privilegedAppAllowlist The allowlist browsers are recognized from.
+ * @param coroutineScope The scope Digital Asset Links checks run in.
+ */
+class WebDomainVerifier(
+    private val packageManager: PackageManager,
+    private val privilegedAppAllowlist: PrivilegedAppAllowlist,
+    private val coroutineScope: CoroutineScope,
+) {
+    private val browsers = LruCache<String, CachedBrowser>(CACHE_SIZE)
+    private val assetLinks = LruCache<String, CachedLink>(CACHE_SIZE)
+    private val pending = ConcurrentHashMap<String, Deferred<Boolean>>()
+
+    /**
+     * Returns [webDomain] if [packageName] is known to be allowed to fill it, or null if the
+     * screen should be keyed by package name. Only reads cached results; an app and domain that
+     * have not been checked yet are checked in the background.
+     *
+     * @param packageName The package of the app showing the screen.
+     * @param webDomain The web domain the app reports, if any.
+     */
+    fun trustedWebDomain(packageName: String, webDomain: String?): String? {
+        if (webDomain.isNullOrEmpty()) {
+            return null
+        }
+        val signingInfo = signingInfo(packageName) ?: return null
+        if (isBrowser(packageName, signingInfo, webDomain)) {
+            return webDomain
+        }
+        val linked = cachedLink(packageName, webDomain)
+        if (linked == null) {
+            checkAssetLinks(packageName, signingInfo, webDomain)
+        }
+        return webDomain.takeIf { linked == true }
+    }
+
+    /**
+     * Returns [webDomain] if [packageName] is allowed to fill it, or null if the screen should be
+     * keyed by package name, waiting up to [TIMEOUT_MS] for a Digital Asset Links check.
+     *
+     * @param packageName The package of the app showing the screen.
+     * @param webDomain The web domain the app reports, if any.
+     */
+    suspend fun verifiedWebDomain(packageName: String, webDomain: String?): String? {
+        if (webDomain.isNullOrEmpty()) {
+            return null
+        }
+        val signingInfo = signingInfo(packageName) ?: return null
+        if (isBrowser(packageName, signingInfo, webDomain)) {
+            return webDomain
+        }
+        val linked = cachedLink(packageName, webDomain)
+            ?: withTimeoutOrNull(TIMEOUT_MS) {
+                checkAssetLinks(packageName, signingInfo, webDomain).await()
+            }
+        return webDomain.takeIf { linked == true }
+    }
+
+    /**
+     * Checks [packageName] against the privileged app allowlist. The result is kept until the
+     * allowlist is replaced.
+     */
+    private fun isBrowser(packageName: String, signingInfo: SigningInfo, webDomain: String): Boolean {
+        val allowlist = privilegedAppAllowlist.current() ?: return false
+        browsers.get(packageName)?.takeIf { it.allowlist === allowlist }?.let { return it.isBrowser }
+        val isBrowser = try {
+            CallingAppInfo(packageName, signingInfo, "https://$webDomain").getOrigin(allowlist) != null
+        } catch (e: IllegalStateException) {
+            false
+        } catch (e: IllegalArgumentException) {
+            false
+        }
+        browsers.put(packageName, CachedBrowser(allowlist, isBrowser))
+        return isBrowser
+    }
+
+    private fun cachedLink(packageName: String, webDomain: String): Boolean? =
+        assetLinks.get("$packageName/$webDomain")
+            ?.takeIf { SystemClock.elapsedRealtime() < it.expiresAtMs }
+            ?.linked
+
+    /**
+     * Starts a Digital Asset Links check of [webDomain] for [packageName], or returns the one
+     * already running.
+     */
+    private fun checkAssetLinks(
+        packageName: String,
+        signingInfo: SigningInfo,
+        webDomain: String,
+    ): Deferred<Boolean> {
+        val key = "$packageName/$webDomain"
+        val check = pending.computeIfAbsent(key) {
+            coroutineScope.async(Dispatchers.IO, start = CoroutineStart.LAZY) {
+                val linked = try {
+                    AssetLinkVerifier("https://$webDomain").verify(packageName, signingInfo)
+                } catch (e: Exception) {
+                    Log.w(TAG, "Could not check the asset links of $webDomain", e)
+                    false
+                }
+                val expiresAtMs = if (linked) {
+                    Long.MAX_VALUE
+                } else {
+                    SystemClock.elapsedRealtime() + FAILURE_CACHE_MS
+                }
+                assetLinks.put(key, CachedLink(linked, expiresAtMs))
+                linked
+            }
+        }
+        check.invokeOnCompletion { pending.remove(key, check) }
+        check.start()
+        return check
+    }
+
+    private fun signingInfo(packageName: String): SigningInfo? = try {
+        packageManager.getPackageInfo(
+            packageName,
+            PackageManager.PackageInfoFlags.of(PackageManager.GET_SIGNING_CERTIFICATES.toLong()),
+        ).signingInfo
+    } catch (e: PackageManager.NameNotFoundException) {
+        // Apps this one cannot see are keyed by package name.
+        null
+    }
+
+    private class CachedBrowser(val allowlist: String, val isBrowser: Boolean)
+
+    private class CachedLink(val linked: Boolean, val expiresAtMs: Long)
+
+    companion object {
+        private const val CACHE_SIZE = 32
+        private const val TIMEOUT_MS = 5_000L
+        private const val FAILURE_CACHE_MS = 5 * 60 * 1000L
+        private const val TAG = "WebDomainVerifier"
+    }
+}
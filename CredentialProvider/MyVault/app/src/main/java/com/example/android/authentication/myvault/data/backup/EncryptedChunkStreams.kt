@@ -0,0 +1,237 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.backup
+
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.security.SecureRandom
+import java.util.zip.DataFormatException
+import java.util.zip.Deflater
+import java.util.zip.Inflater
+import javax.crypto.Cipher
+import javax.crypto.SecretKey
+import javax.crypto.spec.GCMParameterSpec
+
+/**
+ * Buffers plaintext into fixed-size chunks, compresses each chunk with DEFLATE and encrypts it with
+ * AES-GCM under a fresh IV.
+ *
+ * Each chunk is written as `[flags][length][iv][ciphertext]`. The stream header, the chunk index
+ * and the final-chunk flag are bound into the GCM tag, so chunks cannot be reordered, spliced
+ * between files or silently truncated.
+ *
+ * @param out The stream the encrypted chunks are written to.
+ * @param key The AES key.
+ * @param header The plaintext file header, authenticated with every chunk.
+ */
+internal class EncryptedChunkOutputStream(
+    out: OutputStream,
+    private val key: SecretKey,
+    private val header: ByteArray,
+) : OutputStream() {
+    private val out = DataOutputStream(out)
+    private val buffer = ByteArray(CHUNK_SIZE)
+    private var position = 0
+    private var chunkIndex = 0L
+    private val deflater = Deflater(Deflater.BEST_SPEED)
+    private val compressed = ByteArrayOutputStream(CHUNK_SIZE)
+    private val deflateBuffer = ByteArray(DEFLATE_BUFFER_SIZE)
+    private val random = SecureRandom()
+    private var closed = false
+
+    override fun write(b: Int) {
+        if (position == buffer.size) {
+            writeChunk(final = false)
+        }
+        buffer[position++] = b.toByte()
+    }
+
+    override fun write(b: ByteArray, off: Int, len: Int) {
+        var offset = off
+        var remaining = len
+        while (remaining > 0) {
+            if (position == buffer.size) {
+                writeChunk(final = false)
+            }
+            val count = minOf(remaining, buffer.size - position)
+            System.arraycopy(b, offset, buffer, position, count)
+            position += count
+            offset += count
+            remaining -= count
+        }
+    }
+
+    override fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        writeChunk(final = true)
+        deflater.end()
+        out.close()
+    }
+
+    private fun writeChunk(final: Boolean) {
+        deflater.reset()
+        deflater.setInput(buffer, 0, position)
+        deflater.finish()
+        compressed.reset()
+        while (!deflater.finished()) {
+            val count = deflater.deflate(deflateBuffer)
+            compressed.write(deflateBuffer, 0, count)
+        }
+
+        val flags = if (final) FLAG_FINAL else 0
+        val iv = ByteArray(IV_SIZE).also { random.nextBytes(it) }
+        val cipher = Cipher.getInstance(TRANSFORMATION)
+        cipher.init(Cipher.ENCRYPT_MODE, key, GCMParameterSpec(TAG_BITS, iv))
+        cipher.updateAAD(associatedData(header, chunkIndex, flags))
+        val ciphertext = cipher.doFinal(compressed.toByteArray())
+
+        out.writeByte(flags)
+        out.writeInt(ciphertext.size)
+        out.write(iv)
+        out.write(ciphertext)
+        position = 0
+        chunkIndex++
+    }
+}
+
+/**
+ * Reads the chunks written by [EncryptedChunkOutputStream], authenticating and decompressing one
+ * chunk at a time.
+ *
+ * @param input The encrypted stream, positioned just after the header.
+ * @param key The AES key.
+ * @param header The plaintext file header that was bound into every chunk.
+ * @throws IOException If a chunk fails authentication or the stream ends before the final chunk.
+ */
+internal class EncryptedChunkInputStream(
+    input: InputStream,
+    private val key: SecretKey,
+    private val header: ByteArray,
+) : InputStream() {
+    private val input = DataInputStream(input)
+    private val buffer = ByteArray(CHUNK_SIZE)
+    private var position = 0
+    private var limit = 0
+    private var chunkIndex = 0L
+    private var finished = false
+    private val inflater = Inflater()
+
+    override fun read(): Int {
+        if (!fill()) {
+            return -1
+        }
+        return buffer[position++].toInt() and 0xFF
+    }
+
+    override fun read(b: ByteArray, off: Int, len: Int): Int {
+        if (len == 0) {
+            return 0
+        }
+        if (!fill()) {
+            return -1
+        }
+        val count = minOf(len, limit - position)
+        System.arraycopy(buffer, position, b, off, count)
+        position += count
+        return count
+    }
+
+    override fun close() {
+        inflater.end()
+        input.close()
+    }
+
+    /**
+     * Makes sure there is unread plaintext in the buffer, returning false at the end of the data.
+     */
+    private fun fill(): Boolean {
+        while (position == limit) {
+            if (finished) {
+                return false
+            }
+            readChunk()
+        }
+        return true
+    }
+
+    private fun readChunk() {
+        val flags = try {
+            input.readUnsignedByte()
+        } catch (e: EOFException) {
+            throw IOException("Backup is truncated", e)
+        }
+        val length = input.readInt()
+        if (length < 0 || length > MAX_CIPHERTEXT_SIZE) {
+            throw IOException("Backup chunk has an invalid length")
+        }
+        val iv = ByteArray(IV_SIZE)
+        input.readFully(iv)
+        val ciphertext = ByteArray(length)
+        input.readFully(ciphertext)
+
+        val compressed = try {
+            val cipher = Cipher.getInstance(TRANSFORMATION)
+            cipher.init(Cipher.DECRYPT_MODE, key, GCMParameterSpec(TAG_BITS, iv))
+            cipher.updateAAD(associatedData(header, chunkIndex, flags))
+            cipher.doFinal(ciphertext)
+        } catch (e: Exception) {
+            throw IOException("Backup chunk failed authentication", e)
+        }
+
+        inflater.reset()
+        inflater.setInput(compressed)
+        limit = 0
+        try {
+            while (!inflater.finished() && limit < buffer.size) {
+                val count = inflater.inflate(buffer, limit, buffer.size - limit)
+                if (count == 0 && inflater.needsInput()) {
+                    throw IOException("Backup chunk is incomplete")
+                }
+                limit += count
+            }
+        } catch (e: DataFormatException) {
+            throw IOException("Backup chunk is corrupt", e)
+        }
+        position = 0
+        chunkIndex++
+        finished = flags and FLAG_FINAL != 0
+    }
+}
+
+private fun associatedData(header: ByteArray, chunkIndex: Long, flags: Int): ByteArray {
+    return ByteBuffer.allocate(header.size + Long.SIZE_BYTES + 1)
+        .put(header)
+        .putLong(chunkIndex)
+        .put(flags.toByte())
+        .array()
+}
+
+private const val TRANSFORMATION = "AES/GCM/NoPadding"
+private const val CHUNK_SIZE = 64 * 1024
+private const val DEFLATE_BUFFER_SIZE = 8 * 1024
+private const val MAX_CIPHERTEXT_SIZE = CHUNK_SIZE * 2
+private const val IV_SIZE = 12
+private const val TAG_BITS = 128
+private const val FLAG_FINAL = 1
@@ -0,0 +1,579 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.backup
+
+import androidx.room.withTransaction
+import com.example.android.authentication.myvault.data.PasskeyItem
+import com.example.android.authentication.myvault.data.PasswordItem
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+import com.example.android.authentication.myvault.data.room.MyVaultDatabase
+import com.example.android.authentication.myvault.data.room.PasskeyWithSiteUrl
+import com.example.android.authentication.myvault.data.room.PasswordWithSiteUrl
+import com.example.android.authentication.myvault.data.room.SiteMetaData
+import com.example.android.authentication.myvault.data.room.VaultAccount
+import com.example.android.authentication.myvault.data.room.VaultChangeTracking
+import com.example.android.authentication.myvault.data.room.VaultTombstone
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.security.SecureRandom
+import javax.crypto.SecretKey
+import javax.crypto.SecretKeyFactory
+import javax.crypto.spec.PBEKeySpec
+import javax.crypto.spec.SecretKeySpec
+
+/**
+ * Writes and restores incremental, encrypted backups of the vault.
+ *
+ * Each call to [backup] writes a single file to [directory] containing only the rows whose
+ * `changeSeq` is above the one recorded by the previous backup, plus tombstones for deleted rows.
+ * The file is compressed and encrypted in chunks by [EncryptedChunkOutputStream], so backup time
+ * and size scale with the number of changes rather than the size of the vault.
+ *
+ * Rows are identified by their natural keys rather than their row ids: sites by url, passwords by
+ * site url and username, and passkeys by credential id. [restore] replays the chain of backup
+ * files in order, writing in batched transactions, and merges each row into the local one with
+ * the same key, so restoring into a vault that already holds credentials never overwrites an
+ * unrelated row.
+ *
+ * @param database The vault database.
+ * @param directory The directory holding the backup chain.
+ * @param passphrase The passphrase the backup key is derived from.
+ * @param publicSuffixList Used to derive the registrable domain of restored sites, which is not
+ * stored in the backup.
+ */
+class VaultBackupManager(
+    private val database: MyVaultDatabase,
+    private val directory: File,
+    private val passphrase: CharArray,
+    private val publicSuffixList: PublicSuffixList,
+) {
+    private val myVaultDao = database.myVaultDao()
+    private val derivedKeys = HashMap<String, SecretKey>()
+
+    /**
+     * Writes every change since the previous backup to a new file.
+     *
+     * @return A summary of the backup, or null if nothing changed since the previous one.
+     * @throws IOException If the passphrase does not match the existing backups or the file cannot
+     * be written.
+     */
+    suspend fun backup(): BackupResult? = withContext(Dispatchers.IO) {
+        directory.mkdirs()
+        val chain = backupChain()
+        val fromSeq = chain.lastOrNull()?.toSeq ?: 0L
+        // Rows changed while the backup runs are stamped above toSeq and left to the next backup,
+        // so pages are read one at a time without holding a transaction open across the write.
+        val toSeq = VaultChangeTracking.currentSeq(database.openHelper.writableDatabase)
+        if (toSeq <= fromSeq) {
+            return@withContext null
+        }
+        val salt = chain.firstOrNull()?.let { readHeader(it.file).salt } ?: newSalt()
+        val key = keyFor(salt)
+        // A file written with the wrong key would break every later restore of the chain.
+        chain.firstOrNull()?.let { verifyKey(it.file, key) }
+
+        val header = BackupHeader(salt, fromSeq, toSeq)
+        val target = File(directory, fileName(fromSeq, toSeq))
+        val partial = File(directory, target.name + PARTIAL_SUFFIX)
+        var records = 0
+        partial.outputStream().buffered().use { fileOut ->
+            val headerBytes = header.toByteArray()
+            fileOut.write(headerBytes)
+            DataOutputStream(
+                BufferedOutputStream(EncryptedChunkOutputStream(fileOut, key, headerBytes)),
+            ).use { out ->
+                records += writeChanges(out, fromSeq, toSeq)
+                out.writeByte(RECORD_END)
+            }
+        }
+        if (!partial.renameTo(target)) {
+            partial.delete()
+            throw IOException("Could not finalize ${target.name}")
+        }
+        BackupResult(target, fromSeq, toSeq, records, target.length())
+    }
+
+    /**
+     * Replays every backup file in [directory] into the database.
+     *
+     * @return The number of records applied.
+     * @throws IOException If the chain has a gap or a file fails authentication.
+     */
+    suspend fun restore(): Int = withContext(Dispatchers.IO) {
+        val db = database.openHelper.writableDatabase
+        val localSeq = VaultChangeTracking.currentSeq(db)
+        var expectedFrom = 0L
+        var applied = 0
+        for (entry in backupChain()) {
+            if (entry.fromSeq != expectedFrom) {
+                throw IOException("Backup chain is missing changes after $expectedFrom")
+            }
+            applied += restoreFile(entry.file)
+            expectedFrom = entry.toSeq
+        }
+        database.withTransaction {
+            // Rows replayed from the chain are already backed up; number new changes after it.
+            VaultChangeTracking.advanceTo(db, expectedFrom)
+            // Rows the vault held before the restore are not, so the next backup picks them up.
+            if (localSeq > 0) {
+                VaultChangeTracking.restamp(db, localSeq)
+            }
+        }
+        applied
+    }
+
+    private suspend fun writeChanges(out: DataOutputStream, fromSeq: Long, toSeq: Long): Int {
+        // Deletions go first: a row deleted and then created again must end up present.
+        var records = writePages(
+            fromSeq,
+            { since, afterId -> myVaultDao.tombstonesAfter(since, afterId, toSeq, PAGE_SIZE) },
+            { it.changeSeq },
+            { it.id },
+        ) { writeTombstone(out, it) }
+        records += writePages(
+            fromSeq,
+            { since, afterId -> myVaultDao.sitesChangedAfter(since, afterId, toSeq, PAGE_SIZE) },
+            { it.changeSeq },
+            { it.id },
+        ) { writeSite(out, it) }
+        records += writePages(
+            fromSeq,
+            { since, afterId ->
+                myVaultDao.passwordsChangedAfter(since, afterId, toSeq, PAGE_SIZE)
+            },
+            { it.password.changeSeq },
+            { it.password.id },
+        ) { writePassword(out, it) }
+        records += writePages(
+            fromSeq,
+            { since, afterId -> myVaultDao.passkeysChangedAfter(since, afterId, toSeq, PAGE_SIZE) },
+            { it.passkey.changeSeq },
+            { it.passkey.id },
+        ) { writePasskey(out, it) }
+        return records
+    }
+
+    /**
+     * Writes the rows changed after [fromSeq] page by page, in `(changeSeq, id)` order.
+     *
+     * @param readPage Reads the page of rows after the given sequence and row id.
+     * @param seqOf The change sequence of a row.
+     * @param idOf The id of a row.
+     * @param write Writes one row to the backup.
+     * @return The number of rows written.
+     */
+    private suspend fun <T> writePages(
+        fromSeq: Long,
+        readPage: suspend (since: Long, afterId: Long) -> List<T>,
+        seqOf: (T) -> Long,
+        idOf: (T) -> Long,
+        write: (T) -> Unit,
+    ): Int {
+        var records = 0
+        var since = fromSeq
+        var afterId = Long.MAX_VALUE
+        while (true) {
+            val page = readPage(since, afterId)
+            page.forEach(write)
+            records += page.size
+            if (page.size < PAGE_SIZE) {
+                return records
+            }
+            since = seqOf(page.last())
+            afterId = idOf(page.last())
+        }
+    }
+
+    private suspend fun restoreFile(file: File): Int {
+        val batch = RestoreBatch()
+        var applied = 0
+        BufferedInputStream(file.inputStream()).use { fileIn ->
+            val header = BackupHeader.read(DataInputStream(fileIn))
+            val key = keyFor(header.salt)
+            DataInputStream(
+                BufferedInputStream(EncryptedChunkInputStream(fileIn, key, header.toByteArray())),
+            ).use { input ->
+                while (true) {
+                    when (input.readUnsignedByte()) {
+                        RECORD_SITE -> batch.sites.add(readSite(input))
+                        RECORD_PASSWORD -> batch.passwords.add(readPassword(input, header.version))
+                        RECORD_PASSKEY -> batch.passkeys.add(readPasskey(input, header.version))
+                        RECORD_TOMBSTONE -> batch.tombstones.add(readTombstone(input))
+                        RECORD_END -> break
+                        else -> throw IOException("Unknown backup record")
+                    }
+                    if (batch.size >= PAGE_SIZE) {
+                        applied += apply(batch)
+                    }
+                }
+            }
+        }
+        applied += apply(batch)
+        return applied
+    }
+
+    /**
+     * Applies a batch in the order the records were written: tombstones, sites, passwords and
+     * passkeys.
+     */
+    private suspend fun apply(batch: RestoreBatch): Int {
+        val size = batch.size
+        if (size == 0) {
+            return 0
+        }
+        database.withTransaction {
+            val siteIds = HashMap<String, Long>()
+            batch.tombstones.forEach { applyTombstone(it) }
+            batch.sites.forEach { applySite(it, siteIds) }
+            batch.passwords.forEach { applyPassword(it, siteIds) }
+            batch.passkeys.forEach { applyPasskey(it, siteIds) }
+        }
+        batch.clear()
+        return size
+    }
+
+    private suspend fun applyTombstone(tombstone: VaultTombstone) {
+        val key = tombstone.syncKey
+        if (key.isEmpty()) {
+            // Deleted before deletions were recorded with a key; there is nothing to match.
+            return
+        }
+        when (tombstone.tableName) {
+            SITES_TABLE -> myVaultDao.deleteSiteIfEmpty(key)
+            PASSWORDS_TABLE -> {
+                val site = myVaultDao.getSite(key.substringBefore('\n')) ?: return
+                myVaultDao.getPassword(site.id, key.substringAfter('\n'))
+                    ?.let { myVaultDao.deletePassword(it) }
+            }
+
+            PASSKEYS_TABLE -> myVaultDao.deletePasskeyByCredId(key)
+        }
+    }
+
+    private suspend fun applySite(site: SiteMetaData, siteIds: MutableMap<String, Long>) {
+        val existing = myVaultDao.getSite(site.url)
+        if (existing == null) {
+            siteIds[site.url] = myVaultDao.insertSite(
+                if (site.packageName.isNotEmpty()) {
+                    SiteMetaData.forPackage(site.packageName, site.name)
+                } else {
+                    // Older backups do not mark app sites, so tell them apart by their key.
+                    SiteMetaData.forKey(site.url, publicSuffixList, site.name)
+                },
+            )
+            return
+        }
+        siteIds[site.url] = existing.id
+        val updated = if (site.packageName.isEmpty()) {
+            existing.copy(name = site.name)
+        } else {
+            existing.copy(name = site.name, packageName = site.packageName, registrableDomain = "")
+        }
+        if (updated != existing) {
+            myVaultDao.updateSite(updated)
+        }
+    }
+
+    private suspend fun applyPassword(
+        record: PasswordWithSiteUrl,
+        siteIds: MutableMap<String, Long>,
+    ) {
+        val siteId = siteIdFor(record.siteUrl, siteIds) {
+            SiteMetaData.forKey(record.siteUrl, publicSuffixList)
+        }
+        val password = record.password
+        val existing = myVaultDao.getPassword(siteId, password.username)
+        if (existing == null) {
+            myVaultDao.insertPassword(password.copy(id = 0, siteId = siteId))
+        } else {
+            myVaultDao.updatePassword(
+                password.copy(id = existing.id, siteId = siteId, changeSeq = existing.changeSeq),
+            )
+        }
+    }
+
+    private suspend fun applyPasskey(
+        record: PasskeyWithSiteUrl,
+        siteIds: MutableMap<String, Long>,
+    ) {
+        val siteId = siteIdFor(record.siteUrl, siteIds) {
+            SiteMetaData.forWebHost(record.siteUrl, publicSuffixList)
+        }
+        val passkey = record.passkey
+        val existing = myVaultDao.getPasskey(passkey.credId)
+        if (existing == null) {
+            myVaultDao.insertPasskey(passkey.copy(id = 0, siteId = siteId))
+        } else {
+            myVaultDao.updatePasskey(
+                passkey.copy(id = existing.id, siteId = siteId, changeSeq = existing.changeSeq),
+            )
+        }
+    }
+
+    /**
+     * Returns the id of the site keyed [url], creating it with [newSite] if neither the vault nor
+     * the backup has it yet.
+     */
+    private suspend fun siteIdFor(
+        url: String,
+        siteIds: MutableMap<String, Long>,
+        newSite: () -> SiteMetaData,
+    ): Long {
+        siteIds[url]?.let { return it }
+        val id = myVaultDao.getSite(url)?.id ?: myVaultDao.insertSite(newSite())
+        siteIds[url] = id
+        return id
+    }
+
+    /**
+     * Lists the complete backup files in [directory], ordered by the sequence they start from.
+     */
+    private fun backupChain(): List<BackupFile> {
+        return directory.listFiles()
+            .orEmpty()
+            .mapNotNull { file ->
+                val match = FILE_NAME_PATTERN.matchEntire(file.name) ?: return@mapNotNull null
+                BackupFile(file, match.groupValues[1].toLong(), match.groupValues[2].toLong())
+            }
+            .sortedBy { it.fromSeq }
+    }
+
+    private fun readHeader(file: File): BackupHeader {
+        return DataInputStream(file.inputStream().buffered()).use { BackupHeader.read(it) }
+    }
+
+    /**
+     * Decrypts the first chunk of [file], which fails authentication if [key] is not its key.
+     */
+    private fun verifyKey(file: File, key: SecretKey) {
+        DataInputStream(file.inputStream().buffered()).use { fileIn ->
+            val header = BackupHeader.read(fileIn)
+            EncryptedChunkInputStream(fileIn, key, header.toByteArray()).read()
+        }
+    }
+
+    private fun keyFor(salt: ByteArray): SecretKey {
+        return derivedKeys.getOrPut(salt.contentToString()) { deriveKey(passphrase, salt) }
+    }
+
+    private fun writeSite(out: DataOutputStream, site: SiteMetaData) {
+        out.writeByte(RECORD_SITE)
+        out.writeUTF(site.url)
+        out.writeUTF(site.packageName)
+        out.writeUTF(site.name)
+    }
+
+    private fun readSite(input: DataInputStream) = SiteMetaData(
+        url = input.readUTF(),
+        packageName = input.readUTF(),
+        name = input.readUTF(),
+    )
+
+    private fun writePassword(out: DataOutputStream, record: PasswordWithSiteUrl) {
+        val password = record.password
+        out.writeByte(RECORD_PASSWORD)
+        out.writeUTF(record.siteUrl)
+        out.writeUTF(password.username)
+        out.writeUTF(password.password)
+        out.writeLong(password.lastUsedTimeMs)
+        out.writeUTF(password.accountId)
+    }
+
+    private fun readPassword(input: DataInputStream, version: Int): PasswordWithSiteUrl {
+        val siteUrl = input.readUTF()
+        return PasswordWithSiteUrl(
+            PasswordItem(
+                username = input.readUTF(),
+                password = input.readUTF(),
+                siteId = 0,
+                lastUsedTimeMs = input.readLong(),
+                accountId = readAccountId(input, version),
+            ),
+            siteUrl,
+        )
+    }
+
+    private fun writePasskey(out: DataOutputStream, record: PasskeyWithSiteUrl) {
+        val passkey = record.passkey
+        out.writeByte(RECORD_PASSKEY)
+        out.writeUTF(record.siteUrl)
+        out.writeUTF(passkey.uid)
+        out.writeUTF(passkey.username)
+        out.writeUTF(passkey.displayName)
+        out.writeUTF(passkey.credId)
+        out.writeUTF(passkey.credPrivateKey)
+        out.writeLong(passkey.lastUsedTimeMs)
+        out.writeBoolean(passkey.hidden)
+        out.writeUTF(passkey.accountId)
+    }
+
+    private fun readPasskey(input: DataInputStream, version: Int): PasskeyWithSiteUrl {
+        val siteUrl = input.readUTF()
+        return PasskeyWithSiteUrl(
+            PasskeyItem(
+                uid = input.readUTF(),
+                username = input.readUTF(),
+                displayName = input.readUTF(),
+                credId = input.readUTF(),
+                credPrivateKey = input.readUTF(),
+                siteId = 0,
+                lastUsedTimeMs = input.readLong(),
+                hidden = input.readBoolean(),
+                accountId = readAccountId(input, version),
+            ),
+            siteUrl,
+        )
+    }
+
+    /**
+     * Reads the account a credential is saved to. Backups written before accounts existed hold
+     * only personal credentials.
+     */
+    private fun readAccountId(input: DataInputStream, version: Int): String =
+        if (version >= ACCOUNTS_FORMAT_VERSION) input.readUTF() else VaultAccount.PERSONAL
+
+    private fun writeTombstone(out: DataOutputStream, tombstone: VaultTombstone) {
+        out.writeByte(RECORD_TOMBSTONE)
+        out.writeUTF(tombstone.tableName)
+        out.writeUTF(tombstone.syncKey)
+    }
+
+    private fun readTombstone(input: DataInputStream) = VaultTombstone(
+        tableName = input.readUTF(),
+        rowId = 0,
+        changeSeq = 0,
+        syncKey = input.readUTF(),
+    )
+
+    /**
+     * Describes a backup file that was written.
+     *
+     * @property file The backup file.
+     * @property fromSeq The change sequence the backup starts after.
+     * @property toSeq The last change sequence included in the backup.
+     * @property records The number of rows and tombstones written.
+     * @property sizeBytes The size of the file on disk.
+     */
+    data class BackupResult(
+        val file: File,
+        val fromSeq: Long,
+        val toSeq: Long,
+        val records: Int,
+        val sizeBytes: Long,
+    )
+
+    private data class BackupFile(val file: File, val fromSeq: Long, val toSeq: Long)
+
+    private class BackupHeader(
+        val salt: ByteArray,
+        val fromSeq: Long,
+        val toSeq: Long,
+        val version: Int = FORMAT_VERSION,
+    ) {
+        fun toByteArray(): ByteArray = ByteBuffer.allocate(HEADER_SIZE)
+            .putInt(MAGIC)
+            .putInt(version)
+            .put(salt)
+            .putLong(fromSeq)
+            .putLong(toSeq)
+            .array()
+
+        companion object {
+            fun read(input: DataInputStream): BackupHeader {
+                if (input.readInt() != MAGIC) {
+                    throw IOException("Not a MyVault backup")
+                }
+                val version = input.readInt()
+                if (version !in MIN_FORMAT_VERSION..FORMAT_VERSION) {
+                    throw IOException("Unsupported MyVault backup version $version")
+                }
+                val salt = ByteArray(SALT_SIZE)
+                input.readFully(salt)
+                return BackupHeader(salt, input.readLong(), input.readLong(), version)
+            }
+        }
+    }
+
+    private class RestoreBatch {
+        val tombstones = ArrayList<VaultTombstone>()
+        val sites = ArrayList<SiteMetaData>()
+        val passwords = ArrayList<PasswordWithSiteUrl>()
+        val passkeys = ArrayList<PasskeyWithSiteUrl>()
+
+        val size: Int
+            get() = tombstones.size + sites.size + passwords.size + passkeys.size
+
+        fun clear() {
+            tombstones.clear()
+            sites.clear()
+            passwords.clear()
+            passkeys.clear()
+        }
+    }
+
+    companion object {
+        private const val MAGIC = 0x4D56424B // "MVBK"
+        private const val FORMAT_VERSION = 3
+        private const val MIN_FORMAT_VERSION = 2
+
+        /** The first version that records the account of each credential. */
+        private const val ACCOUNTS_FORMAT_VERSION = 3
+        private const val SALT_SIZE = 16
+        private const val HEADER_SIZE = 2 * Int.SIZE_BYTES + SALT_SIZE + 2 * Long.SIZE_BYTES
+        private const val PAGE_SIZE = 500
+        private const val PARTIAL_SUFFIX = ".partial"
+        private const val KEY_DERIVATION_ITERATIONS = 210_000
+        private const val KEY_SIZE_BITS = 256
+        private const val SITES_TABLE = "sites"
+        private const val PASSWORDS_TABLE = "passwords"
+        private const val PASSKEYS_TABLE = "passkeys"
+        private val FILE_NAME_PATTERN = Regex("""vault-(\d{20})-(\d{20})\.mvb""")
+
+        private const val RECORD_END = 0
+        private const val RECORD_SITE = 1
+        private const val RECORD_PASSWORD = 2
+        private const val RECORD_PASSKEY = 3
+        private const val RECORD_TOMBSTONE = 4
+
+        private fun fileName(fromSeq: Long, toSeq: Long) =
+            "vault-%020d-%020d.mvb".format(fromSeq, toSeq)
+
+        private fun newSalt() = ByteArray(SALT_SIZE).also { SecureRandom().nextBytes(it) }
+
+        /**
+         * Derives the AES backup key from a passphrase with PBKDF2, so that a backup can be
+         * restored on a new device where no Keystore key exists.
+         */
+        fun deriveKey(passphrase: CharArray, salt: ByteArray): SecretKey {
+            val spec = PBEKeySpec(passphrase, salt, KEY_DERIVATION_ITERATIONS, KEY_SIZE_BITS)
+            try {
+                val encoded = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256")
+                    .generateSecret(spec)
+                    .encoded
+                return SecretKeySpec(encoded, "AES")
+            } finally {
+                spec.clearPassword()
+            }
+        }
+    }
+}
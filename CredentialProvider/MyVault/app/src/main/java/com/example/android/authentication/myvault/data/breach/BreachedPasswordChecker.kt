@@ -0,0 +1,141 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.breach
+
+import android.util.Log
+import com.example.android.authentication.myvault.data.room.MyVaultDao
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.io.IOException
+import java.io.InputStream
+
+/**
+ * Checks passwords against the offline [BreachedPasswordIndex] stored at [indexFile].
+ *
+ * Until the user installs a corpus with [install], the index is built on first use from [seed],
+ * the hashes of the most common passwords in public breach corpora that ship with the app. The
+ * index then stays mapped for the life of the process. Opening, building and querying it all touch
+ * the disk, so every entry point runs on [Dispatchers.IO].
+ *
+ * @param indexFile The location of the index file.
+ * @param seed Opens the bundled hash list, in the format [BreachedPasswordIndexWriter] reads.
+ * @param myVaultDao The DAO used by [scanVault] to walk the stored passwords.
+ */
+class BreachedPasswordChecker(
+    private val indexFile: File,
+    private val seed: () -> InputStream,
+    private val myVaultDao: MyVaultDao,
+) {
+    @Volatile
+    private var index: BreachedPasswordIndex? = null
+
+    private val _breachedPasswordIds = MutableStateFlow<Set<Long>>(emptySet())
+
+    /**
+     * The ids of stored passwords found in the index by the last [scanVault].
+     */
+    val breachedPasswordIds: StateFlow<Set<Long>> = _breachedPasswordIds.asStateFlow()
+
+    /**
+     * Checks a single password.
+     *
+     * @param password The plaintext password.
+     * @return True if the password is known to be breached.
+     */
+    suspend fun isBreached(password: String): Boolean = withContext(Dispatchers.IO) {
+        index()?.contains(password) ?: false
+    }
+
+    /**
+     * Replaces the index with one built from a breached password corpus, such as the SHA-1 list
+     * published by Pwned Passwords, then rescans the vault against it.
+     *
+     * @param source The sorted hash list. It is closed once the index is written.
+     * @return The number of distinct hashes in the new index.
+     * @throws IOException If the list cannot be read or is not a sorted SHA-1 list; the current
+     * index is kept.
+     */
+    suspend fun install(source: InputStream): Long = withContext(Dispatchers.IO) {
+        val count = synchronized(this@BreachedPasswordChecker) {
+            val count = source.reader().use { BreachedPasswordIndexWriter.write(it, indexFile) }
+            // Lookups already running keep their mapping of the replaced file, which stays valid
+            // until the old index is collected.
+            index?.close()
+            index = BreachedPasswordIndex.open(indexFile)
+            count
+        }
+        scanVault()
+        count
+    }
+
+    /**
+     * Checks every stored password, a page at a time, and publishes the ids of the breached ones
+     * to [breachedPasswordIds].
+     *
+     * @return The ids of the breached passwords.
+     */
+    suspend fun scanVault(): Set<Long> = withContext(Dispatchers.IO) {
+        val index = index() ?: return@withContext emptySet()
+        val breached = HashSet<Long>()
+        var afterId = 0L
+        while (true) {
+            val page = myVaultDao.passwordsAfter(afterId, PAGE_SIZE)
+            for (password in page) {
+                if (index.contains(password.password)) {
+                    breached.add(password.id)
+                }
+            }
+            if (page.size < PAGE_SIZE) break
+            afterId = page.last().id
+        }
+        _breachedPasswordIds.value = breached
+        breached
+    }
+
+    private fun index(): BreachedPasswordIndex? {
+        index?.let { return it }
+        synchronized(this) {
+            index?.let { return it }
+            return try {
+                if (!indexFile.exists()) {
+                    seed().reader().use { BreachedPasswordIndexWriter.write(it, indexFile) }
+                }
+                BreachedPasswordIndex.open(indexFile).also { index = it }
+            } catch (e: IOException) {
+                Log.e(TAG, "Could not open breached password index", e)
+                null
+            }
+        }
+    }
+
+    companion object {
+        /**
+         * The file name of the index inside the app's no-backup files directory.
+         */
+        const val INDEX_FILE_NAME = "breached_passwords.idx"
+
+        /**
+         * The name of the bundled hash list among the app's assets.
+         */
+        const val SEED_ASSET_NAME = "breached_passwords.txt"
+        private const val PAGE_SIZE = 500
+        private const val TAG = "BreachedPasswordChecker"
+    }
+}
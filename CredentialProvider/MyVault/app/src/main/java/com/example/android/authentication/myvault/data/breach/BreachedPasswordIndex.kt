@@ -0,0 +1,219 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.breach
+
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.security.MessageDigest
+
+/**
+ * A read-only, memory-mapped index of breached password hashes.
+ *
+ * The file holds a fixed header, the sorted SHA-1 prefixes of known breached passwords, and a
+ * Bloom filter over those prefixes (see [BreachedPasswordIndexWriter]). Nothing is loaded onto the
+ * heap: a lookup probes the Bloom filter, which rejects most unknown passwords after a handful of
+ * bit reads, and only then binary searches the mapped prefixes. The page cache keeps the hot parts
+ * of the file resident, so lookups stay well under a millisecond regardless of the file size.
+ *
+ * Instances are safe to share between threads.
+ */
+class BreachedPasswordIndex private constructor(
+    private val file: RandomAccessFile,
+    private val prefixBytes: Int,
+    private val hashCount: Int,
+    private val recordCount: Long,
+    private val bloomBits: Long,
+    private val records: MappedRegion,
+    private val bloom: MappedRegion,
+) : Closeable {
+
+    /**
+     * The number of breached password hashes in the index.
+     */
+    val size: Long
+        get() = recordCount
+
+    /**
+     * Checks whether a password appears in the index.
+     *
+     * @param password The plaintext password.
+     * @return True if the password is known to be breached.
+     */
+    fun contains(password: String): Boolean =
+        containsSha1(MessageDigest.getInstance("SHA-1").digest(password.toByteArray(Charsets.UTF_8)))
+
+    /**
+     * Checks whether a SHA-1 digest appears in the index.
+     *
+     * @param digest The 20 byte SHA-1 digest of the password.
+     * @return True if the digest is known to be breached.
+     */
+    fun containsSha1(digest: ByteArray): Boolean {
+        require(digest.size == SHA1_BYTES) { "Expected a SHA-1 digest" }
+        val key = ByteBuffer.wrap(digest).getLong(0)
+        if (!mightContain(key)) {
+            return false
+        }
+
+        var low = 0L
+        var high = recordCount - 1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            val cmp = compareRecord(mid, digest)
+            when {
+                cmp < 0 -> low = mid + 1
+                cmp > 0 -> high = mid - 1
+                else -> return true
+            }
+        }
+        return false
+    }
+
+    private fun mightContain(key: Long): Boolean {
+        if (bloomBits == 0L) {
+            return true
+        }
+        val step = bloomStep(key)
+        var hash = key
+        repeat(hashCount) {
+            val bit = java.lang.Long.remainderUnsigned(hash, bloomBits)
+            if (bloom.getByte(bit ushr 3).toInt() and (1 shl (bit and 7).toInt()) == 0) {
+                return false
+            }
+            hash += step
+        }
+        return true
+    }
+
+    private fun compareRecord(index: Long, digest: ByteArray): Int {
+        val offset = index * prefixBytes
+        for (i in 0 until prefixBytes) {
+            val cmp = (records.getByte(offset + i).toInt() and 0xFF) - (digest[i].toInt() and 0xFF)
+            if (cmp != 0) {
+                return cmp
+            }
+        }
+        return 0
+    }
+
+    override fun close() {
+        file.close()
+    }
+
+    /**
+     * A read-only view of a file range, mapped in segments so that files larger than 2 GB can be
+     * addressed with a long offset.
+     */
+    private class MappedRegion(channel: FileChannel, start: Long, private val length: Long) {
+        private val segments: Array<MappedByteBuffer> =
+            Array(((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE).toInt()) { i ->
+                val offset = i * SEGMENT_SIZE
+                channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    start + offset,
+                    minOf(SEGMENT_SIZE, length - offset),
+                )
+            }
+
+        fun getByte(position: Long): Byte =
+            segments[(position / SEGMENT_SIZE).toInt()].get((position % SEGMENT_SIZE).toInt())
+    }
+
+    companion object {
+        internal const val MAGIC = 0x4d564249 // "MVBI"
+        internal const val VERSION = 1
+        internal const val HEADER_BYTES = 32
+        internal const val SHA1_BYTES = 20
+        internal const val MIN_PREFIX_BYTES = 8
+        private const val SEGMENT_SIZE = 1L shl 30
+
+        /**
+         * Opens an index written by [BreachedPasswordIndexWriter].
+         *
+         * @param file The index file.
+         * @throws IOException If the file is not a valid index.
+         */
+        fun open(file: File): BreachedPasswordIndex {
+            val raf = RandomAccessFile(file, "r")
+            try {
+                val channel = raf.channel
+                val header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.BIG_ENDIAN)
+                while (header.hasRemaining()) {
+                    if (channel.read(header, header.position().toLong()) < 0) {
+                        throw IOException("Truncated breach index header")
+                    }
+                }
+                header.flip()
+                if (header.int != MAGIC || header.int != VERSION) {
+                    throw IOException("Not a breach index: $file")
+                }
+                val prefixBytes = header.int
+                val hashCount = header.int
+                val recordCount = header.long
+                val bloomBits = header.long
+                if (prefixBytes !in MIN_PREFIX_BYTES..SHA1_BYTES || recordCount < 0 || bloomBits < 0) {
+                    throw IOException("Corrupt breach index header: $file")
+                }
+
+                val recordsLength = recordCount * prefixBytes
+                val bloomStart = bloomOffset(recordCount, prefixBytes)
+                val bloomLength = (bloomBits + 7) / 8
+                if (channel.size() < bloomStart + bloomLength) {
+                    throw IOException("Truncated breach index: $file")
+                }
+                return BreachedPasswordIndex(
+                    raf,
+                    prefixBytes,
+                    hashCount,
+                    recordCount,
+                    bloomBits,
+                    MappedRegion(channel, HEADER_BYTES.toLong(), recordsLength),
+                    MappedRegion(channel, bloomStart, bloomLength),
+                )
+            } catch (e: Exception) {
+                raf.close()
+                throw e
+            }
+        }
+
+        /**
+         * The file offset of the Bloom filter, which follows the records aligned to 8 bytes.
+         */
+        internal fun bloomOffset(recordCount: Long, prefixBytes: Int): Long =
+            (HEADER_BYTES + recordCount * prefixBytes + 7) and 7L.inv()
+
+        /**
+         * The second hash used for double hashing the Bloom filter. SHA-1 output is already
+         * uniformly distributed, so the first 8 bytes serve as the first hash and a mix of them as
+         * the second; forcing it odd keeps the probe sequence from collapsing.
+         */
+        internal fun bloomStep(key: Long): Long {
+            var h = key
+            h = h xor (h ushr 33)
+            h *= -0xae502812aa7333L
+            h = h xor (h ushr 33)
+            h *= -0x3b314601e57a13adL
+            h = h xor (h ushr 33)
+            return h or 1L
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.breach
+
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.BufferedReader
+import java.io.DataInputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.io.Reader
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import kotlin.math.ln
+import kotlin.math.roundToInt
+
+/**
+ * Builds the file read by [BreachedPasswordIndex] from a list of breached SHA-1 hashes.
+ *
+ * The input is the text format used by public breached password corpora: one upper or lower case
+ * hex SHA-1 per line, optionally followed by `:count`, sorted by hash. Lines are streamed, so the
+ * corpus never has to fit in memory; the Bloom filter is filled in place through a writable
+ * mapping once the number of records is known.
+ */
+object BreachedPasswordIndexWriter {
+    private const val DEFAULT_PREFIX_BYTES = 8
+    private const val DEFAULT_BITS_PER_ENTRY = 10
+    private const val SEGMENT_SIZE = 1L shl 30
+
+    /**
+     * Writes an index file.
+     *
+     * @param source The sorted hash list.
+     * @param target The index file to create or replace.
+     * @param prefixBytes How many leading bytes of each hash to store. 8 bytes keeps the chance of
+     * a false match negligible for any realistic corpus size.
+     * @param bitsPerEntry The Bloom filter size per hash; 10 bits gives about 1% false positives.
+     * @return The number of distinct hashes written.
+     */
+    fun write(
+        source: Reader,
+        target: File,
+        prefixBytes: Int = DEFAULT_PREFIX_BYTES,
+        bitsPerEntry: Int = DEFAULT_BITS_PER_ENTRY,
+    ): Long {
+        require(prefixBytes in BreachedPasswordIndex.MIN_PREFIX_BYTES..BreachedPasswordIndex.SHA1_BYTES)
+        require(bitsPerEntry >= 0)
+
+        val partial = File(target.parentFile, target.name + ".partial")
+        val recordCount = writeRecords(source, partial, prefixBytes)
+        val bloomBits = recordCount * bitsPerEntry
+        val hashCount = if (bloomBits == 0L) 0 else maxOf(1, (bitsPerEntry * ln(2.0)).roundToInt())
+
+        RandomAccessFile(partial, "rw").use { raf ->
+            val bloomStart = BreachedPasswordIndex.bloomOffset(recordCount, prefixBytes)
+            val bloomLength = (bloomBits + 7) / 8
+            raf.setLength(bloomStart + bloomLength)
+            fillBloom(raf.channel, partial, recordCount, prefixBytes, bloomStart, bloomBits, hashCount)
+
+            val header = ByteBuffer.allocate(BreachedPasswordIndex.HEADER_BYTES).order(ByteOrder.BIG_ENDIAN)
+                .putInt(BreachedPasswordIndex.MAGIC)
+                .putInt(BreachedPasswordIndex.VERSION)
+                .putInt(prefixBytes)
+                .putInt(hashCount)
+                .putLong(recordCount)
+                .putLong(bloomBits)
+            header.flip()
+            raf.channel.write(header, 0)
+            raf.fd.sync()
+        }
+        if (!partial.renameTo(target)) {
+            partial.delete()
+            throw IOException("Could not move breach index into place: $target")
+        }
+        return recordCount
+    }
+
+    private fun writeRecords(source: Reader, partial: File, prefixBytes: Int): Long {
+        var count = 0L
+        val previous = ByteArray(prefixBytes)
+        val current = ByteArray(prefixBytes)
+        BufferedOutputStream(FileOutputStream(partial)).use { out ->
+            out.write(ByteArray(BreachedPasswordIndex.HEADER_BYTES))
+            BufferedReader(source).useLines { lines ->
+                for (line in lines) {
+                    val hex = line.trim().substringBefore(':')
+                    if (hex.isEmpty()) continue
+                    if (hex.length != BreachedPasswordIndex.SHA1_BYTES * 2) {
+                        throw IOException("Not a SHA-1 hash: $hex")
+                    }
+                    for (i in 0 until prefixBytes) {
+                        current[i] = ((hexDigit(hex[2 * i]) shl 4) or hexDigit(hex[2 * i + 1])).toByte()
+                    }
+                    if (count > 0) {
+                        val cmp = compareUnsigned(previous, current)
+                        if (cmp > 0) throw IOException("Hashes are not sorted at $hex")
+                        // Distinct hashes can share a prefix; one record is enough.
+                        if (cmp == 0) continue
+                    }
+                    out.write(current)
+                    current.copyInto(previous)
+                    count++
+                }
+            }
+        }
+        return count
+    }
+
+    private fun fillBloom(
+        channel: FileChannel,
+        partial: File,
+        recordCount: Long,
+        prefixBytes: Int,
+        bloomStart: Long,
+        bloomBits: Long,
+        hashCount: Int,
+    ) {
+        if (bloomBits == 0L) return
+        val bloomLength = (bloomBits + 7) / 8
+        val segments = Array(((bloomLength + SEGMENT_SIZE - 1) / SEGMENT_SIZE).toInt()) { i ->
+            val offset = i * SEGMENT_SIZE
+            channel.map(
+                FileChannel.MapMode.READ_WRITE,
+                bloomStart + offset,
+                minOf(SEGMENT_SIZE, bloomLength - offset),
+            )
+        }
+
+        val record = ByteArray(prefixBytes)
+        DataInputStream(BufferedInputStream(FileInputStream(partial))).use { input ->
+            input.skipBytes(BreachedPasswordIndex.HEADER_BYTES)
+            for (n in 0 until recordCount) {
+                input.readFully(record)
+                val key = ByteBuffer.wrap(record).getLong(0)
+                val step = BreachedPasswordIndex.bloomStep(key)
+                var hash = key
+                repeat(hashCount) {
+                    val bit = java.lang.Long.remainderUnsigned(hash, bloomBits)
+                    val byteIndex = bit ushr 3
+                    val segment = segments[(byteIndex / SEGMENT_SIZE).toInt()]
+                    val position = (byteIndex % SEGMENT_SIZE).toInt()
+                    segment.put(position, (segment.get(position).toInt() or (1 shl (bit and 7).toInt())).toByte())
+                    hash += step
+                }
+            }
+        }
+        segments.forEach { it.force() }
+    }
+
+    private fun compareUnsigned(a: ByteArray, b: ByteArray): Int {
+        for (i in a.indices) {
+            val cmp = (a[i].toInt() and 0xFF) - (b[i].toInt() and 0xFF)
+            if (cmp != 0) return cmp
+        }
+        return 0
+    }
+
+    private fun hexDigit(c: Char): Int = Character.digit(c, 16).also {
+        if (it < 0) throw IOException("Invalid hex digit: $c")
+    }
+}
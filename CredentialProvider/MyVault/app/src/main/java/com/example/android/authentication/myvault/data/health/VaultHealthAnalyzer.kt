@@ -0,0 +1,213 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.health
+
+import androidx.room.withTransaction
+import com.example.android.authentication.myvault.data.PasswordItem
+import com.example.android.authentication.myvault.data.room.MyVaultDatabase
+import com.example.android.authentication.myvault.data.room.VaultChangeTracking
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import java.nio.ByteBuffer
+import java.security.SecureRandom
+import javax.crypto.Mac
+import javax.crypto.spec.SecretKeySpec
+
+/**
+ * A stored password that shares its value with at least one other stored password.
+ *
+ * @property id The id of the password row
+ * @property siteUrl The url of the site the password belongs to
+ * @property username The username of the password
+ */
+data class ReusedPassword(
+    val id: Long,
+    val siteUrl: String,
+    val username: String,
+)
+
+/**
+ * The health of the vault's passwords.
+ *
+ * @property totalPasswords The number of stored passwords
+ * @property reuseGroups Groups of passwords that share the same value, largest first
+ */
+data class VaultHealth(
+    val totalPasswords: Int = 0,
+    val reuseGroups: List<List<ReusedPassword>> = emptyList(),
+)
+
+/**
+ * Finds reused passwords across the vault.
+ *
+ * Each password is reduced to a fingerprint, an HMAC under a random per-process key, so the index
+ * never holds password values and cannot be used for offline guessing. Passwords are grouped by
+ * fingerprint in a hash map, which makes reuse detection linear in the number of passwords rather
+ * than comparing every pair.
+ *
+ * After the first full scan the index is kept current from the vault change log: only rows written
+ * and tombstones recorded since the last refresh are read back and applied, so a single edit costs a
+ * single lookup no matter how large the vault is. The password count is the size of the index, kept
+ * current the same way.
+ *
+ * @param database The vault database.
+ */
+class VaultHealthAnalyzer(private val database: MyVaultDatabase) {
+    private val dao = database.myVaultDao()
+    private val mutex = Mutex()
+    private val mac = Mac.getInstance(HMAC).apply {
+        init(SecretKeySpec(ByteArray(KEY_SIZE).also { SecureRandom().nextBytes(it) }, HMAC))
+    }
+
+    private val entries = HashMap<Long, Entry>()
+    private val groups = HashMap<Fingerprint, MutableSet<Long>>()
+    private val reused = HashSet<Fingerprint>()
+    private var lastSeq = UNSCANNED
+
+    /**
+     * The health of the vault, refreshed every time the passwords table changes.
+     */
+    val health: Flow<VaultHealth> =
+        database.invalidationTracker.createFlow(PASSWORDS_TABLE, TOMBSTONES_TABLE)
+            .conflate()
+            .map { refresh() }
+            .flowOn(Dispatchers.IO)
+
+    /**
+     * Brings the index up to date with the database and returns the current health.
+     */
+    suspend fun refresh(): VaultHealth = mutex.withLock {
+        database.withTransaction {
+            if (lastSeq == UNSCANNED) {
+                rebuild()
+            } else {
+                applyChanges()
+            }
+            // Clearing all tables also clears the tombstones it records, which leaves the index
+            // holding passwords that are gone; fall back to a full scan when that happens.
+            if (entries.isNotEmpty() && !dao.hasPasswords()) {
+                rebuild()
+            }
+            snapshot()
+        }
+    }
+
+    private suspend fun rebuild() {
+        entries.clear()
+        groups.clear()
+        reused.clear()
+        lastSeq = VaultChangeTracking.currentSeq(database.openHelper.writableDatabase)
+        var afterId = 0L
+        while (true) {
+            val page = dao.passwordsAfter(afterId, PAGE_SIZE)
+            page.forEach(::put)
+            if (page.size < PAGE_SIZE) break
+            afterId = page.last().id
+        }
+    }
+
+    private suspend fun applyChanges() {
+        val since = lastSeq
+        val until = VaultChangeTracking.currentSeq(database.openHelper.writableDatabase)
+        if (until == since) {
+            return
+        }
+        // Several rows can share a sequence number, so page on (changeSeq, id).
+        var cursorSeq = since
+        var cursorId = Long.MAX_VALUE
+        while (true) {
+            val page = dao.passwordsChangedAfter(cursorSeq, cursorId, until, PAGE_SIZE)
+            page.forEach { put(it.password) }
+            if (page.size < PAGE_SIZE) break
+            cursorSeq = page.last().password.changeSeq
+            cursorId = page.last().password.id
+        }
+        // Row ids are never reused, so a tombstone only ever removes a password that is gone for
+        // good; applying it after the rows changed in the same window is always correct.
+        cursorSeq = since
+        cursorId = Long.MAX_VALUE
+        while (true) {
+            val page = dao.tombstonesAfter(cursorSeq, cursorId, until, PAGE_SIZE)
+            page.filter { it.tableName == PASSWORDS_TABLE }.forEach { remove(it.rowId) }
+            if (page.size < PAGE_SIZE) break
+            cursorSeq = page.last().changeSeq
+            cursorId = page.last().id
+        }
+        lastSeq = until
+    }
+
+    private fun put(password: PasswordItem) {
+        remove(password.id)
+        val fingerprint = fingerprint(password.password)
+        entries[password.id] = Entry(fingerprint, password.siteId, password.username)
+        val group = groups.getOrPut(fingerprint) { LinkedHashSet() }
+        group.add(password.id)
+        if (group.size == 2) {
+            reused.add(fingerprint)
+        }
+    }
+
+    private fun remove(id: Long) {
+        val entry = entries.remove(id) ?: return
+        val group = groups[entry.fingerprint] ?: return
+        group.remove(id)
+        when (group.size) {
+            0 -> groups.remove(entry.fingerprint)
+            1 -> reused.remove(entry.fingerprint)
+        }
+    }
+
+    private suspend fun snapshot(): VaultHealth {
+        if (reused.isEmpty()) {
+            return VaultHealth(totalPasswords = entries.size)
+        }
+        val reusedIds = reused.map { groups.getValue(it) }
+        val siteIds = reusedIds.flatMapTo(HashSet()) { ids -> ids.map { entries.getValue(it).siteId } }
+        val siteUrls = dao.getSitesById(siteIds).associate { it.id to it.url }
+        val reuseGroups = reusedIds
+            .map { ids ->
+                ids.map { id ->
+                    val entry = entries.getValue(id)
+                    ReusedPassword(id, siteUrls[entry.siteId].orEmpty(), entry.username)
+                }
+            }
+            .sortedByDescending { it.size }
+        return VaultHealth(totalPasswords = entries.size, reuseGroups = reuseGroups)
+    }
+
+    private fun fingerprint(password: String): Fingerprint {
+        val digest = ByteBuffer.wrap(mac.doFinal(password.toByteArray(Charsets.UTF_8)))
+        return Fingerprint(digest.getLong(0), digest.getLong(8))
+    }
+
+    private data class Fingerprint(val high: Long, val low: Long)
+
+    private class Entry(val fingerprint: Fingerprint, val siteId: Long, val username: String)
+
+    companion object {
+        private const val HMAC = "HmacSHA256"
+        private const val KEY_SIZE = 32
+        private const val PAGE_SIZE = 2000
+        private const val UNSCANNED = -1L
+        private const val PASSWORDS_TABLE = "passwords"
+        private const val TOMBSTONES_TABLE = "tombstones"
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.importer
+
+import androidx.room.withTransaction
+import com.example.android.authentication.myvault.data.PasskeyItem
+import com.example.android.authentication.myvault.data.PasswordItem
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+import com.example.android.authentication.myvault.data.room.MyVaultDatabase
+import com.example.android.authentication.myvault.data.room.SiteMetaData
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import java.io.InputStream
+
+/**
+ * Imports passwords and passkeys from CSV or JSON exports into the vault.
+ *
+ * The input is streamed through [CsvCredentialReader] or [JsonCredentialReader] and written in
+ * batches, each inside a single transaction. Site ids are cached in memory for the duration of an
+ * import so that each distinct site is looked up or inserted only once.
+ *
+ * @param database The vault database to write to.
+ * @param publicSuffixList Used to derive the registrable domain of new sites.
+ */
+class CredentialsImporter(
+    private val database: MyVaultDatabase,
+    private val publicSuffixList: PublicSuffixList,
+) {
+    private val myVaultDao = database.myVaultDao()
+
+    /**
+     * Imports every credential in [input], emitting progress after each batch.
+     *
+     * The stream is closed when the flow completes.
+     *
+     * @param input The export file contents.
+     * @param format The format the file is encoded in.
+     * @return A cold flow of progress updates; the last one has [ImportProgress.finished] set.
+     */
+    fun importCredentials(input: InputStream, format: ImportFormat): Flow<ImportProgress> = flow {
+        val siteIds = HashMap<String, Long>()
+        var progress = ImportProgress()
+        input.bufferedReader().use { reader ->
+            val records = when (format) {
+                ImportFormat.CSV -> CsvCredentialReader(reader).read()
+                ImportFormat.JSON -> JsonCredentialReader(reader).read()
+            }
+            for (batch in records.chunked(BATCH_SIZE)) {
+                val imported = writeBatch(batch, siteIds)
+                progress = progress.copy(
+                    processed = progress.processed + batch.size,
+                    imported = progress.imported + imported,
+                    skipped = progress.skipped + batch.size - imported,
+                )
+                emit(progress)
+            }
+        }
+        emit(progress.copy(finished = true))
+    }.flowOn(Dispatchers.IO)
+
+    /**
+     * Writes a batch of records in one transaction.
+     *
+     * @param batch The records to write.
+     * @param siteIds Cache of site url to row id, shared across batches.
+     * @return The number of credentials written.
+     */
+    private suspend fun writeBatch(
+        batch: List<ImportedCredential>,
+        siteIds: MutableMap<String, Long>,
+    ): Int {
+        val passwords = batch.filterIsInstance<ImportedCredential.Password>()
+        val passkeys = batch.filterIsInstance<ImportedCredential.Passkey>()
+        if (passwords.isEmpty() && passkeys.isEmpty()) {
+            return 0
+        }
+
+        return database.withTransaction {
+            // Site url to the name the export gives it, for the sites this batch creates.
+            val sites = HashMap<String, String>()
+            val packages = HashSet<String>()
+            passwords.forEach { password ->
+                sites.merge(password.metaData.url, password.metaData.name) { first, next ->
+                    first.ifEmpty { next }
+                }
+                if (password.metaData.isPackageName) {
+                    packages.add(password.metaData.url)
+                }
+            }
+            passkeys.forEach { sites.putIfAbsent(it.metaData.rpid, "") }
+            resolveSiteIds(sites, packages, siteIds)
+
+            myVaultDao.insertPasswords(
+                passwords.map {
+                    PasswordItem(
+                        username = it.metaData.username,
+                        password = it.metaData.password,
+                        siteId = siteIds.getValue(it.metaData.url),
+                        lastUsedTimeMs = it.metaData.lastUsedTimeMs,
+                        accountId = it.metaData.accountId,
+                    )
+                },
+            )
+            myVaultDao.insertPasskeys(
+                passkeys.map {
+                    PasskeyItem(
+                        uid = it.metaData.uid,
+                        username = it.metaData.username,
+                        displayName = it.metaData.displayName,
+                        credId = it.metaData.credId,
+                        credPrivateKey = it.metaData.credPrivateKey,
+                        siteId = siteIds.getValue(it.metaData.rpid),
+                        lastUsedTimeMs = it.metaData.lastUsedTimeMs,
+                        accountId = it.metaData.accountId,
+                    )
+                },
+            )
+            passwords.size + passkeys.size
+        }
+    }
+
+    /**
+     * Makes sure every url in [sites] has an entry in [siteIds], reading existing sites and
+     * inserting the missing ones, under the name the export gives them, with one query each. Urls
+     * in [packages] are app package names; the rest are web hosts.
+     */
+    private suspend fun resolveSiteIds(
+        sites: Map<String, String>,
+        packages: Set<String>,
+        siteIds: MutableMap<String, Long>,
+    ) {
+        val unknown = sites.keys.filterNot { siteIds.containsKey(it) }
+        if (unknown.isEmpty()) {
+            return
+        }
+        myVaultDao.getSites(unknown).forEach { siteIds[it.url] = it.id }
+
+        val missing = unknown.filterNot { siteIds.containsKey(it) }
+        if (missing.isEmpty()) {
+            return
+        }
+        val rowIds = myVaultDao.insertSites(
+            missing.map { url ->
+                val name = sites.getValue(url)
+                if (url in packages) {
+                    SiteMetaData.forPackage(url, name)
+                } else {
+                    SiteMetaData.forWebHost(url, publicSuffixList, name)
+                }
+            },
+        )
+        missing.forEachIndexed { index, url -> siteIds[url] = rowIds[index] }
+    }
+
+    companion object {
+        /**
+         * Number of records written per transaction. Kept below SQLite's bound-variable limit so
+         * the site lookup fits in a single `IN` clause.
+         */
+        private const val BATCH_SIZE = 500
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.importer
+
+import com.example.android.authentication.myvault.data.PasswordMetaData
+import java.io.IOException
+import java.io.Reader
+import java.time.Instant
+
+/**
+ * Streams password records out of a browser style CSV export.
+ *
+ * The header row is used to locate the `url`, `username` and `password` columns, which covers the
+ * exports produced by Chrome, Google Password Manager and most other password managers. Quoted
+ * fields, escaped quotes and line breaks inside quotes are handled as described in RFC 4180.
+ *
+ * @param reader The reader to consume. It is read one character at a time and never buffered whole.
+ */
+class CsvCredentialReader(private val reader: Reader) {
+
+    /**
+     * Lazily reads the file, yielding one [ImportedCredential] per data row.
+     *
+     * @throws IOException If the header row does not contain the required columns.
+     */
+    fun read(): Sequence<ImportedCredential> = sequence {
+        val header = readRow()?.map { it.removePrefix(BYTE_ORDER_MARK).trim().lowercase() }
+            ?: return@sequence
+        val urlColumn = header.indexOfFirst { it == URL || it == WEBSITE || it == ORIGIN }
+        val usernameColumn = header.indexOfFirst { it == USERNAME || it == LOGIN }
+        val passwordColumn = header.indexOf(PASSWORD)
+        val nameColumn = header.indexOfFirst { it == NAME || it == TITLE }
+        if (urlColumn < 0 || usernameColumn < 0 || passwordColumn < 0) {
+            throw IOException("CSV header must contain url, username and password columns")
+        }
+
+        val now = Instant.now().toEpochMilli()
+        while (true) {
+            val row = readRow() ?: break
+            if (row.size == 1 && row[0].isEmpty()) {
+                continue
+            }
+            val site = siteKeyFor(row.getOrElse(urlColumn) { "" })
+            val password = row.getOrNull(passwordColumn)
+            if (site == null || password.isNullOrEmpty()) {
+                yield(ImportedCredential.Unsupported("Row is missing a url or password"))
+                continue
+            }
+            yield(
+                ImportedCredential.Password(
+                    PasswordMetaData(
+                        username = row.getOrElse(usernameColumn) { "" },
+                        password = password,
+                        url = site.key,
+                        name = if (nameColumn >= 0) row.getOrElse(nameColumn) { "" } else "",
+                        lastUsedTimeMs = now,
+                        isPackageName = site.isPackageName,
+                    ),
+                ),
+            )
+        }
+    }
+
+    /**
+     * Reads the next row, or returns null at the end of the input.
+     */
+    private fun readRow(): List<String>? {
+        var c = reader.read()
+        if (c == -1) {
+            return null
+        }
+        val fields = ArrayList<String>(DEFAULT_COLUMN_COUNT)
+        val field = StringBuilder()
+        var quoted = false
+        while (c != -1) {
+            val ch = c.toChar()
+            if (quoted) {
+                if (ch == '"') {
+                    val next = reader.read()
+                    if (next == '"'.code) {
+                        field.append('"')
+                    } else {
+                        quoted = false
+                        c = next
+                        continue
+                    }
+                } else {
+                    field.append(ch)
+                }
+            } else {
+                when (ch) {
+                    '"' -> quoted = true
+                    ',' -> {
+                        fields.add(field.toString())
+                        field.setLength(0)
+                    }
+                    '\r' -> Unit
+                    '\n' -> break
+                    else -> field.append(ch)
+                }
+            }
+            c = reader.read()
+        }
+        fields.add(field.toString())
+        return fields
+    }
+
+    companion object {
+        private const val DEFAULT_COLUMN_COUNT = 5
+        private const val BYTE_ORDER_MARK = "\uFEFF"
+        private const val URL = "url"
+        private const val WEBSITE = "website"
+        private const val ORIGIN = "origin"
+        private const val USERNAME = "username"
+        private const val LOGIN = "login"
+        private const val PASSWORD = "password"
+        private const val NAME = "name"
+        private const val TITLE = "title"
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.importer
+
+import android.net.Uri
+import com.example.android.authentication.myvault.data.PasskeyMetadata
+import com.example.android.authentication.myvault.data.PasswordMetaData
+
+/**
+ * A single record read from an import file.
+ *
+ * Readers produce these lazily so that the importer never holds more than one batch in memory.
+ */
+sealed class ImportedCredential {
+
+    /**
+     * A password credential, keyed by the site url it will be stored against.
+     */
+    data class Password(val metaData: PasswordMetaData) : ImportedCredential()
+
+    /**
+     * A passkey credential, keyed by its relying party id.
+     */
+    data class Passkey(val metaData: PasskeyMetadata) : ImportedCredential()
+
+    /**
+     * A record that could not be converted into a MyVault credential.
+     *
+     * @property reason A short description of why the record was skipped.
+     */
+    data class Unsupported(val reason: String) : ImportedCredential()
+}
+
+/**
+ * The file formats understood by [CredentialsImporter].
+ */
+enum class ImportFormat {
+    CSV,
+    JSON,
+    ;
+
+    companion object {
+        /**
+         * Picks the import format from a content type or, failing that, a file name.
+         *
+         * @param mimeType The MIME type reported by the document provider.
+         * @param fileName The display name of the document.
+         * @return The matching format, or null if the document is not supported.
+         */
+        fun from(mimeType: String?, fileName: String?): ImportFormat? {
+            return when {
+                mimeType == "text/csv" || mimeType == "text/comma-separated-values" -> CSV
+                mimeType == "application/json" -> JSON
+                fileName?.endsWith(".csv", ignoreCase = true) == true -> CSV
+                fileName?.endsWith(".json", ignoreCase = true) == true -> JSON
+                else -> null
+            }
+        }
+    }
+}
+
+/**
+ * Reports how far an import has progressed.
+ *
+ * @property processed The number of records read from the file so far.
+ * @property imported The number of records written to the vault.
+ * @property skipped The number of records that could not be imported.
+ * @property finished Whether the whole file has been consumed.
+ */
+data class ImportProgress(
+    val processed: Int = 0,
+    val imported: Int = 0,
+    val skipped: Int = 0,
+    val finished: Boolean = false,
+)
+
+/**
+ * The key MyVault stores a site under.
+ *
+ * @property key The package name or web host.
+ * @property isPackageName Whether [key] is the package name of an app.
+ */
+internal data class SiteKey(val key: String, val isPackageName: Boolean)
+
+/**
+ * Converts a url from an export file into the key MyVault stores sites under.
+ *
+ * MyVault keys app sites by package name and web sites by host, so `android://<hash>@<package>/`
+ * entries map to the package name and web urls map to their host.
+ *
+ * @param url The url as it appears in the export.
+ * @return The site key, or null if the url is blank.
+ */
+internal fun siteKeyFor(url: String): SiteKey? {
+    val trimmed = url.trim()
+    if (trimmed.isEmpty()) {
+        return null
+    }
+    if (trimmed.startsWith(ANDROID_SCHEME)) {
+        val packageName = trimmed.substringAfter('@').trimEnd('/').ifEmpty { return null }
+        return SiteKey(packageName, isPackageName = true)
+    }
+    if (!trimmed.contains("://")) {
+        return SiteKey(trimmed.trimEnd('/'), isPackageName = false)
+    }
+    return SiteKey(Uri.parse(trimmed).host ?: trimmed, isPackageName = false)
+}
+
+private const val ANDROID_SCHEME = "android://"
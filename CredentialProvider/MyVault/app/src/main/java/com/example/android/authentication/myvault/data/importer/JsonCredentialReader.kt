@@ -0,0 +1,298 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.importer
+
+import android.util.JsonReader
+import android.util.JsonToken
+import com.example.android.authentication.myvault.data.PasskeyMetadata
+import com.example.android.authentication.myvault.data.PasswordMetaData
+import com.example.android.authentication.myvault.fido.b64Decode
+import com.example.android.authentication.myvault.fido.b64Encode
+import org.json.JSONArray
+import org.json.JSONObject
+import java.io.Reader
+import java.security.KeyFactory
+import java.security.interfaces.ECPrivateKey
+import java.security.spec.PKCS8EncodedKeySpec
+import java.time.Instant
+
+/**
+ * Streams credentials out of a JSON export.
+ *
+ * Two layouts are understood:
+ * * A top-level array of flat objects, each holding either `url`/`username`/`password` or the
+ *   passkey fields `rpId`/`userHandle`/`credentialId`/`key`.
+ * * The FIDO Credential Exchange Format, where `basic-auth` and `passkey` credentials are nested
+ *   under `accounts[].items[].credentials[]`.
+ *
+ * Only a single item is materialized at a time, so memory use does not grow with the file size.
+ *
+ * @param reader The reader to consume.
+ */
+class JsonCredentialReader(reader: Reader) {
+    private val jsonReader = JsonReader(reader)
+    private val now = Instant.now().toEpochMilli()
+
+    /**
+     * Lazily reads the file, yielding one [ImportedCredential] per credential found.
+     */
+    fun read(): Sequence<ImportedCredential> = sequence {
+        when (jsonReader.peek()) {
+            JsonToken.BEGIN_ARRAY -> {
+                jsonReader.beginArray()
+                while (jsonReader.hasNext()) {
+                    yield(parseFlatEntry(readObject()))
+                }
+                jsonReader.endArray()
+            }
+
+            JsonToken.BEGIN_OBJECT -> {
+                jsonReader.beginObject()
+                while (jsonReader.hasNext()) {
+                    if (jsonReader.nextName() == CXF_ACCOUNTS) {
+                        yieldAll(readCxfAccounts())
+                    } else {
+                        jsonReader.skipValue()
+                    }
+                }
+                jsonReader.endObject()
+            }
+
+            else -> jsonReader.skipValue()
+        }
+    }
+
+    /**
+     * Walks `accounts[].items[]`, materializing one item at a time.
+     */
+    private fun readCxfAccounts(): Sequence<ImportedCredential> = sequence {
+        jsonReader.beginArray()
+        while (jsonReader.hasNext()) {
+            jsonReader.beginObject()
+            while (jsonReader.hasNext()) {
+                if (jsonReader.nextName() == CXF_ITEMS) {
+                    jsonReader.beginArray()
+                    while (jsonReader.hasNext()) {
+                        yieldAll(parseCxfItem(readObject()))
+                    }
+                    jsonReader.endArray()
+                } else {
+                    jsonReader.skipValue()
+                }
+            }
+            jsonReader.endObject()
+        }
+        jsonReader.endArray()
+    }
+
+    /**
+     * Converts a single CXF item into the credentials it carries.
+     *
+     * @param item The item object, including its `scope` and `credentials`.
+     */
+    private fun parseCxfItem(item: JSONObject): List<ImportedCredential> {
+        val credentials = item.optJSONArray(CXF_CREDENTIALS) ?: return emptyList()
+        val scopeSite = item.optJSONObject(CXF_SCOPE)?.let { scopeSiteKey(it) }
+        val result = ArrayList<ImportedCredential>(credentials.length())
+        for (i in 0 until credentials.length()) {
+            val credential = credentials.optJSONObject(i) ?: continue
+            when (credential.optString(CXF_TYPE)) {
+                CXF_TYPE_BASIC_AUTH -> {
+                    val site = credential.optJSONObject(CXF_SCOPE)?.let { scopeSiteKey(it) }
+                        ?: scopeSite
+                    val password = credential.optJSONObject(PASSWORD)?.optString(CXF_VALUE)
+                    result.add(
+                        password(
+                            site,
+                            credential.optJSONObject(USERNAME)?.optString(CXF_VALUE).orEmpty(),
+                            password,
+                            item.optString(CXF_TITLE),
+                        ),
+                    )
+                }
+
+                CXF_TYPE_PASSKEY -> result.add(
+                    passkey(
+                        rpId = credential.optString(RP_ID),
+                        userHandle = credential.optString(USER_HANDLE),
+                        username = credential.optString(USERNAME),
+                        displayName = credential.optString(CXF_USER_DISPLAY_NAME),
+                        credentialId = credential.optString(CREDENTIAL_ID),
+                        key = credential.optString(KEY),
+                    ),
+                )
+
+                else -> result.add(ImportedCredential.Unsupported("Unsupported credential type"))
+            }
+        }
+        return result
+    }
+
+    /**
+     * Converts an entry of the flat array layout.
+     */
+    private fun parseFlatEntry(entry: JSONObject): ImportedCredential {
+        if (entry.has(RP_ID)) {
+            return passkey(
+                rpId = entry.optString(RP_ID),
+                userHandle = entry.optString(USER_HANDLE),
+                username = entry.optString(USERNAME),
+                displayName = entry.optString(DISPLAY_NAME),
+                credentialId = entry.optString(CREDENTIAL_ID),
+                key = entry.optString(KEY),
+            )
+        }
+        return password(
+            siteKeyFor(entry.optString(URL)),
+            entry.optString(USERNAME),
+            entry.optString(PASSWORD),
+            entry.optString(NAME),
+        )
+    }
+
+    private fun password(
+        site: SiteKey?,
+        username: String,
+        password: String?,
+        name: String,
+    ): ImportedCredential {
+        if (site == null || password.isNullOrEmpty()) {
+            return ImportedCredential.Unsupported("Password is missing a url or value")
+        }
+        return ImportedCredential.Password(
+            PasswordMetaData(
+                username = username,
+                password = password,
+                url = site.key,
+                name = name,
+                lastUsedTimeMs = now,
+                isPackageName = site.isPackageName,
+            ),
+        )
+    }
+
+    private fun passkey(
+        rpId: String,
+        userHandle: String,
+        username: String,
+        displayName: String,
+        credentialId: String,
+        key: String,
+    ): ImportedCredential {
+        if (rpId.isEmpty() || userHandle.isEmpty() || credentialId.isEmpty() || key.isEmpty()) {
+            return ImportedCredential.Unsupported("Passkey is missing required fields")
+        }
+        val privateKey = try {
+            pkcs8ToPrivateKey(key)
+        } catch (e: Exception) {
+            return ImportedCredential.Unsupported("Passkey key is not a PKCS#8 EC key")
+        }
+        return ImportedCredential.Passkey(
+            PasskeyMetadata(
+                uid = userHandle,
+                rpid = rpId,
+                username = username,
+                displayName = displayName.ifEmpty { username },
+                credId = credentialId,
+                credPrivateKey = privateKey,
+                lastUsedTimeMs = now,
+            ),
+        )
+    }
+
+    /**
+     * Converts a base64url PKCS#8 key into the raw scalar form MyVault stores passkeys in.
+     */
+    private fun pkcs8ToPrivateKey(key: String): String {
+        val privateKey = KeyFactory.getInstance(EC)
+            .generatePrivate(PKCS8EncodedKeySpec(b64Decode(key))) as ECPrivateKey
+        return b64Encode(privateKey.s.toByteArray())
+    }
+
+    /**
+     * Picks the site key from a CXF scope, preferring Android apps over web urls because apps
+     * save and look up passwords by their package name.
+     */
+    private fun scopeSiteKey(scope: JSONObject): SiteKey? {
+        scope.optJSONArray(CXF_ANDROID_APPS)?.optJSONObject(0)?.optString(CXF_BUNDLE_ID)
+            ?.takeIf { it.isNotEmpty() }
+            ?.let { return SiteKey(it, isPackageName = true) }
+        return scope.optJSONArray(CXF_URLS)?.optString(0)?.let { siteKeyFor(it) }
+    }
+
+    /**
+     * Reads the next object from the stream into a [JSONObject].
+     */
+    private fun readObject(): JSONObject {
+        val result = JSONObject()
+        jsonReader.beginObject()
+        while (jsonReader.hasNext()) {
+            result.put(jsonReader.nextName(), readValue())
+        }
+        jsonReader.endObject()
+        return result
+    }
+
+    private fun readArray(): JSONArray {
+        val result = JSONArray()
+        jsonReader.beginArray()
+        while (jsonReader.hasNext()) {
+            result.put(readValue())
+        }
+        jsonReader.endArray()
+        return result
+    }
+
+    private fun readValue(): Any {
+        return when (jsonReader.peek()) {
+            JsonToken.BEGIN_OBJECT -> readObject()
+            JsonToken.BEGIN_ARRAY -> readArray()
+            JsonToken.BOOLEAN -> jsonReader.nextBoolean()
+            JsonToken.NULL -> {
+                jsonReader.nextNull()
+                JSONObject.NULL
+            }
+
+            else -> jsonReader.nextString()
+        }
+    }
+
+    companion object {
+        private const val EC = "EC"
+        private const val URL = "url"
+        private const val NAME = "name"
+        private const val USERNAME = "username"
+        private const val PASSWORD = "password"
+        private const val DISPLAY_NAME = "displayName"
+        private const val RP_ID = "rpId"
+        private const val USER_HANDLE = "userHandle"
+        private const val CREDENTIAL_ID = "credentialId"
+        private const val KEY = "key"
+        private const val CXF_ACCOUNTS = "accounts"
+        private const val CXF_ITEMS = "items"
+        private const val CXF_TITLE = "title"
+        private const val CXF_SCOPE = "scope"
+        private const val CXF_URLS = "urls"
+        private const val CXF_ANDROID_APPS = "androidApps"
+        private const val CXF_BUNDLE_ID = "bundleId"
+        private const val CXF_CREDENTIALS = "credentials"
+        private const val CXF_TYPE = "type"
+        private const val CXF_TYPE_BASIC_AUTH = "basic-auth"
+        private const val CXF_TYPE_PASSKEY = "passkey"
+        private const val CXF_VALUE = "value"
+        private const val CXF_USER_DISPLAY_NAME = "userDisplayName"
+    }
+}
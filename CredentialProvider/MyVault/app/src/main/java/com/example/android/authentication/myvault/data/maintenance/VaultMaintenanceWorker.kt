@@ -0,0 +1,170 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.maintenance
+
+import android.content.Context
+import android.util.Log
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.work.Constraints
+import androidx.work.CoroutineWorker
+import androidx.work.ExistingPeriodicWorkPolicy
+import androidx.work.PeriodicWorkRequestBuilder
+import androidx.work.WorkManager
+import androidx.work.WorkerParameters
+import androidx.work.workDataOf
+import com.example.android.authentication.myvault.AppDependencies
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * Sizes of the vault's on-disk state at one point in time.
+ *
+ * @property databaseBytes The size of the main database file
+ * @property walBytes The size of the write-ahead log
+ * @property freeBytes The space held by free pages inside the database file
+ * @property iconBytes The size of the cached rpicons
+ * @property sites The number of site rows
+ */
+data class VaultMetrics(
+    val databaseBytes: Long,
+    val walBytes: Long,
+    val freeBytes: Long,
+    val iconBytes: Long,
+    val sites: Int,
+)
+
+/**
+ * Keeps the vault's disk usage bounded. Runs about once a day while the device is idle and
+ * charging, so none of its work lands on a user-visible path:
+ * * deletes sites left without passwords or passkeys, and icons of sites no longer in the vault,
+ *   then the oldest icons beyond [MAX_ICON_BYTES];
+ * * checkpoints and truncates the write-ahead log;
+ * * refreshes query planner statistics with `PRAGMA optimize`;
+ * * runs `VACUUM` when free pages exceed [VACUUM_MIN_FREE_BYTES] and the database is no larger
+ *   than [VACUUM_MAX_DATABASE_BYTES], since vacuuming rewrites the whole file.
+ *
+ * Metrics taken before and after are logged and returned as the work's output.
+ */
+class VaultMaintenanceWorker(
+    context: Context,
+    params: WorkerParameters,
+) : CoroutineWorker(context, params) {
+    private val database = AppDependencies.database
+    private val dao = database.myVaultDao()
+    private val rpIconDataSource = AppDependencies.rpIconDataSource
+
+    override suspend fun doWork(): Result {
+        val db = database.openHelper.writableDatabase
+
+        val before = measure(db)
+        val deletedSites = dao.deleteOrphanSites()
+        val deletedIcons = rpIconDataSource.prune(dao.siteUrls(), MAX_ICON_BYTES)
+
+        db.query("PRAGMA wal_checkpoint(TRUNCATE)").close()
+        db.query("PRAGMA optimize").close()
+        val vacuumed = before.freeBytes >= VACUUM_MIN_FREE_BYTES &&
+            before.databaseBytes <= VACUUM_MAX_DATABASE_BYTES
+        if (vacuumed) {
+            db.execSQL("VACUUM")
+            // VACUUM in WAL mode writes the new file through the log; fold it back in.
+            db.query("PRAGMA wal_checkpoint(TRUNCATE)").close()
+        }
+        val after = measure(db)
+
+        Log.i(
+            TAG,
+            "Deleted $deletedSites sites and $deletedIcons icons, vacuumed: $vacuumed\n" +
+                "before: $before\nafter:  $after",
+        )
+        return Result.success(
+            workDataOf(
+                KEY_DELETED_SITES to deletedSites,
+                KEY_DELETED_ICONS to deletedIcons,
+                KEY_VACUUMED to vacuumed,
+                KEY_BYTES_BEFORE to before.totalBytes(),
+                KEY_BYTES_AFTER to after.totalBytes(),
+            ),
+        )
+    }
+
+    private suspend fun measure(db: SupportSQLiteDatabase): VaultMetrics {
+        val file = File(db.path!!)
+        val pageSize = pragma(db, "page_size")
+        return VaultMetrics(
+            databaseBytes = file.length(),
+            walBytes = File(file.path + "-wal").length(),
+            freeBytes = pragma(db, "freelist_count") * pageSize,
+            iconBytes = rpIconDataSource.diskUsage(),
+            sites = dao.siteCount(),
+        )
+    }
+
+    private fun pragma(db: SupportSQLiteDatabase, name: String): Long =
+        db.query("PRAGMA $name").use { cursor ->
+            if (cursor.moveToFirst()) cursor.getLong(0) else 0L
+        }
+
+    private fun VaultMetrics.totalBytes() = databaseBytes + walBytes + iconBytes
+
+    companion object {
+        private const val TAG = "VaultMaintenance"
+        private const val WORK_NAME = "vault_maintenance"
+
+        /**
+         * The most disk space cached rpicons may use.
+         */
+        const val MAX_ICON_BYTES = 8L * 1024 * 1024
+
+        /**
+         * The least free space inside the database file worth reclaiming with VACUUM.
+         */
+        const val VACUUM_MIN_FREE_BYTES = 1L * 1024 * 1024
+
+        /**
+         * The largest database VACUUM is run on; larger files take too long and need as much
+         * free disk space again while being rewritten.
+         */
+        const val VACUUM_MAX_DATABASE_BYTES = 256L * 1024 * 1024
+
+        const val KEY_DELETED_SITES = "deleted_sites"
+        const val KEY_DELETED_ICONS = "deleted_icons"
+        const val KEY_VACUUMED = "vacuumed"
+        const val KEY_BYTES_BEFORE = "bytes_before"
+        const val KEY_BYTES_AFTER = "bytes_after"
+
+        /**
+         * Schedules the daily maintenance run, keeping the existing schedule if there is one.
+         *
+         * @param context Any context; the application context is used.
+         */
+        fun schedule(context: Context) {
+            val request = PeriodicWorkRequestBuilder<VaultMaintenanceWorker>(1, TimeUnit.DAYS)
+                .setConstraints(
+                    Constraints.Builder()
+                        .setRequiresDeviceIdle(true)
+                        .setRequiresCharging(true)
+                        .setRequiresStorageNotLow(true)
+                        .build(),
+                )
+                .build()
+            WorkManager.getInstance(context.applicationContext).enqueueUniquePeriodicWork(
+                WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP,
+                request,
+            )
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.metrics
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * A lock-free histogram of non-negative values with log-linear buckets.
+ *
+ * Values below [LINEAR_LIMIT] get a bucket each; above that every power of two is split into
+ * [SUB_BUCKETS] equal buckets, so percentiles are accurate to within 1/[SUB_BUCKETS] of the value
+ * and the whole histogram is a fixed array of counters, whatever range is recorded.
+ *
+ * @property name The name the histogram is reported under
+ * @property unit The unit of the recorded values
+ */
+class Histogram(val name: String, val unit: String) {
+    private val counts = AtomicLongArray(BUCKETS)
+    private val count = AtomicLong()
+    private val sum = AtomicLong()
+    private val max = AtomicLong()
+
+    /**
+     * A point-in-time view of a [Histogram].
+     */
+    data class Snapshot(
+        val name: String,
+        val unit: String,
+        val count: Long,
+        val mean: Long,
+        val p50: Long,
+        val p90: Long,
+        val p99: Long,
+        val max: Long,
+    )
+
+    /**
+     * Records one value; negative values are recorded as zero.
+     */
+    fun record(value: Long) {
+        val v = value.coerceAtLeast(0)
+        counts.incrementAndGet(bucketOf(v))
+        count.incrementAndGet()
+        sum.addAndGet(v)
+        max.accumulateAndGet(v, ::maxOf)
+    }
+
+    /**
+     * Returns the value at or below which [fraction] of the recorded values fall, reported as the
+     * upper bound of its bucket, or 0 if nothing has been recorded.
+     *
+     * @param fraction A fraction between 0 and 1, such as 0.99 for the 99th percentile.
+     */
+    fun percentile(fraction: Double): Long {
+        val total = count.get()
+        if (total == 0L) {
+            return 0
+        }
+        val rank = Math.ceil(fraction * total).toLong().coerceIn(1, total)
+        var seen = 0L
+        for (bucket in 0 until BUCKETS) {
+            seen += counts.get(bucket)
+            if (seen >= rank) {
+                return minOf(upperBoundOf(bucket), max.get())
+            }
+        }
+        return max.get()
+    }
+
+    fun snapshot(): Snapshot {
+        val total = count.get()
+        return Snapshot(
+            name = name,
+            unit = unit,
+            count = total,
+            mean = if (total == 0L) 0 else sum.get() / total,
+            p50 = percentile(0.50),
+            p90 = percentile(0.90),
+            p99 = percentile(0.99),
+            max = max.get(),
+        )
+    }
+
+    fun reset() {
+        for (bucket in 0 until BUCKETS) {
+            counts.set(bucket, 0)
+        }
+        count.set(0)
+        sum.set(0)
+        max.set(0)
+    }
+
+    companion object {
+        private const val SUB_BUCKET_BITS = 3
+        private const val SUB_BUCKETS = 1 shl SUB_BUCKET_BITS
+        private const val LINEAR_BITS = SUB_BUCKET_BITS + 1
+        private const val LINEAR_LIMIT = 1L shl LINEAR_BITS
+        private const val BUCKETS = LINEAR_LIMIT.toInt() + (64 - LINEAR_BITS) * SUB_BUCKETS
+
+        private fun bucketOf(value: Long): Int {
+            if (value < LINEAR_LIMIT) {
+                return value.toInt()
+            }
+            val exponent = 63 - java.lang.Long.numberOfLeadingZeros(value)
+            val subBucket = (value ushr (exponent - SUB_BUCKET_BITS)).toInt() and (SUB_BUCKETS - 1)
+            return LINEAR_LIMIT.toInt() + (exponent - LINEAR_BITS) * SUB_BUCKETS + subBucket
+        }
+
+        private fun upperBoundOf(bucket: Int): Long {
+            if (bucket < LINEAR_LIMIT) {
+                return bucket.toLong()
+            }
+            val exponent = (bucket - LINEAR_LIMIT.toInt()) / SUB_BUCKETS + LINEAR_BITS
+            val subBucket = (bucket - LINEAR_LIMIT.toInt()) % SUB_BUCKETS
+            val width = 1L shl (exponent - SUB_BUCKET_BITS)
+            return (1L shl exponent) + (subBucket + 1) * width - 1
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.metrics
+
+import android.os.Bundle
+import android.os.Parcel
+import androidx.tracing.Trace
+import java.io.PrintWriter
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Latency and size metrics for the credential provider, kept in memory for the life of the
+ * provider process.
+ *
+ * Every [Stage] has a [Histogram]. Timed stages are also emitted as trace sections named
+ * `MyVault.<stage>`, so a system trace shows the same breakdown. Metrics are printed by
+ * `adb shell dumpsys activity service com.example.android.authentication.myvault/.data.MyVaultService`
+ * and shown on the provider metrics screen of debug builds.
+ */
+object ProviderMetrics {
+    private const val MICROS = "us"
+    private const val BYTES = "bytes"
+
+    /**
+     * The stages of credential provider requests that are measured.
+     *
+     * @property label The name used in traces and reports
+     * @property unit The unit of the stage's histogram
+     */
+    enum class Stage(val label: String, val unit: String) {
+        GET_REQUEST("getRequest", MICROS),
+        CREATE_REQUEST("createRequest", MICROS),
+        SIGNAL("signal", MICROS),
+        REQUEST_PARSING("requestParsing", MICROS),
+        DB_LOOKUP("dbLookup", MICROS),
+        ENTRY_CONSTRUCTION("entryConstruction", MICROS),
+        NETWORK_VALIDATION("networkValidation", MICROS),
+        RESPONSE_SIZE("responseSize", BYTES),
+    }
+
+    private val histograms = Stage.entries.associateWith { Histogram(it.label, it.unit) }
+    private val asyncCookie = AtomicInteger()
+
+    /**
+     * Runs [block] as [stage], tracing it and recording its duration.
+     */
+    inline fun <T> measure(stage: Stage, block: () -> T): T {
+        Trace.beginSection("MyVault.${stage.label}")
+        val start = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            record(stage, (System.nanoTime() - start) / 1000)
+            Trace.endSection()
+        }
+    }
+
+    /**
+     * Like [measure], for blocks that suspend and may resume on another thread. The stage is
+     * traced as an async section, since a regular section must end on the thread it began on.
+     */
+    suspend fun <T> measureSuspending(stage: Stage, block: suspend () -> T): T {
+        val name = "MyVault.${stage.label}"
+        val cookie = asyncCookie.incrementAndGet()
+        Trace.beginAsyncSection(name, cookie)
+        val start = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            record(stage, (System.nanoTime() - start) / 1000)
+            Trace.endAsyncSection(name, cookie)
+        }
+    }
+
+    fun record(stage: Stage, value: Long) {
+        histograms.getValue(stage).record(value)
+    }
+
+    /**
+     * Records the size [response] takes up when parcelled across binder.
+     */
+    fun recordResponseSize(response: Bundle) {
+        val parcel = Parcel.obtain()
+        try {
+            parcel.writeBundle(response)
+            record(Stage.RESPONSE_SIZE, parcel.dataSize().toLong())
+        } finally {
+            parcel.recycle()
+        }
+    }
+
+    fun snapshot(): List<Histogram.Snapshot> = Stage.entries.map { histograms.getValue(it).snapshot() }
+
+    fun reset() {
+        histograms.values.forEach(Histogram::reset)
+    }
+
+    /**
+     * Prints every histogram as a table row.
+     */
+    fun dump(writer: PrintWriter) {
+        writer.println("MyVault provider metrics")
+        writer.println(
+            "%-20s %8s %10s %10s %10s %10s %10s  %s"
+                .format("stage", "count", "mean", "p50", "p90", "p99", "max", "unit"),
+        )
+        for (s in snapshot()) {
+            writer.println(
+                "%-20s %8d %10d %10d %10d %10d %10d  %s"
+                    .format(s.name, s.count, s.mean, s.p50, s.p90, s.p99, s.max, s.unit),
+            )
+        }
+        writer.flush()
+    }
+}
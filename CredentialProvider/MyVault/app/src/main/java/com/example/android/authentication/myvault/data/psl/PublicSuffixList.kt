@@ -0,0 +1,220 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.psl
+
+import android.content.res.AssetManager
+import java.io.FileInputStream
+import java.io.FileNotFoundException
+import java.io.IOException
+import java.net.IDN
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Resolves registrable domains (eTLD+1) using the Public Suffix List.
+ *
+ * The build compiles `public_suffix_list.dat` into a reversed-label trie, which ships as an
+ * uncompressed asset and is memory-mapped, so opening the list reads nothing. Resolution walks the
+ * trie from the top-level label down with absolute buffer reads and compares labels in place
+ * against the host string, so it takes microseconds and allocates nothing for ASCII hosts.
+ *
+ * Layout, big-endian:
+ * * header: magic, version and the offset of the root node;
+ * * label pool: every distinct label once, as ASCII bytes;
+ * * nodes: a flags byte, a child count and one entry per child, sorted by label, holding the
+ *   label's pool offset and length and the child node's offset.
+ *
+ * Hosts whose top-level domain is not in the list, such as `localhost` or Android package names
+ * ending in an unknown label, have no registrable domain.
+ */
+class PublicSuffixList private constructor(private val buffer: ByteBuffer) {
+    private val root = buffer.getInt(ROOT_OFFSET_POSITION)
+
+    /**
+     * Returns the index in [host] at which its registrable domain starts, or -1 if the host is a
+     * public suffix itself or is not under a known registry. The host must be lower case or ASCII
+     * case-insensitive and in ASCII (punycode) form; a trailing dot is ignored.
+     *
+     * @param host The host name to resolve.
+     */
+    fun registrableDomainStart(host: String): Int {
+        var end = host.length
+        if (end > 0 && host[end - 1] == '.') {
+            end--
+        }
+        if (end == 0) {
+            return -1
+        }
+
+        var node = root
+        var suffixStart = -1
+        var labelEnd = end
+        while (true) {
+            val labelStart = host.lastIndexOf('.', labelEnd - 1) + 1
+            if (buffer.get(node).toInt() and FLAG_WILDCARD != 0) {
+                // "*.parent" makes every label under the parent a public suffix.
+                suffixStart = labelStart
+            }
+            val child = findChild(node, host, labelStart, labelEnd)
+            if (child < 0) {
+                break
+            }
+            val flags = buffer.get(child).toInt()
+            if (flags and FLAG_EXCEPTION != 0) {
+                // "!label.parent" carves the label back out of a wildcard: the parent is the suffix.
+                suffixStart = labelEnd + 1
+                break
+            }
+            if (flags and FLAG_TERMINAL != 0) {
+                suffixStart = labelStart
+            }
+            if (labelStart == 0) {
+                break
+            }
+            node = child
+            labelEnd = labelStart - 1
+        }
+
+        if (suffixStart <= 0) {
+            return -1
+        }
+        return host.lastIndexOf('.', suffixStart - 2) + 1
+    }
+
+    /**
+     * Returns the registrable domain of [host], or null if it has none. Returns [host] itself,
+     * without copying, when it already is a registrable domain.
+     *
+     * @param host A host name, in Unicode or ASCII form.
+     */
+    fun registrableDomain(host: String): String? {
+        val ascii = if (host.all { it.code < 0x80 }) {
+            host
+        } else {
+            try {
+                IDN.toASCII(host)
+            } catch (e: IllegalArgumentException) {
+                return null
+            }
+        }
+        val start = registrableDomainStart(ascii)
+        if (start < 0) {
+            return null
+        }
+        val end = if (ascii.endsWith('.')) ascii.length - 1 else ascii.length
+        val domain = if (start == 0 && end == ascii.length) ascii else ascii.substring(start, end)
+        return if (domain.any { it in 'A'..'Z' }) domain.lowercase() else domain
+    }
+
+    /**
+     * Checks whether [domain] is a public suffix, such as `com` or `co.uk`, under which names can
+     * be registered.
+     *
+     * @param domain A domain name in lower case ASCII form.
+     */
+    fun isPublicSuffix(domain: String): Boolean = registrableDomainStart("a.$domain") == 0
+
+    /**
+     * Checks whether two hosts share a registrable domain.
+     */
+    fun isSameSite(host: String, other: String): Boolean {
+        val domain = registrableDomain(host) ?: return false
+        return domain == registrableDomain(other)
+    }
+
+    private fun findChild(node: Int, host: String, start: Int, end: Int): Int {
+        var low = 0
+        var high = (buffer.getShort(node + 1).toInt() and 0xFFFF) - 1
+        val children = node + NODE_HEADER_BYTES
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            val entry = children + mid * CHILD_ENTRY_BYTES
+            val cmp = compareLabel(
+                host,
+                start,
+                end,
+                buffer.getInt(entry),
+                buffer.get(entry + 4).toInt() and 0xFF,
+            )
+            when {
+                cmp < 0 -> high = mid - 1
+                cmp > 0 -> low = mid + 1
+                else -> return buffer.getInt(entry + 5)
+            }
+        }
+        return -1
+    }
+
+    private fun compareLabel(host: String, start: Int, end: Int, offset: Int, length: Int): Int {
+        val hostLength = end - start
+        for (i in 0 until minOf(hostLength, length)) {
+            var c = host[start + i].code
+            if (c in 'A'.code..'Z'.code) {
+                c += 'a'.code - 'A'.code
+            }
+            val cmp = c - (buffer.get(offset + i).toInt() and 0xFF)
+            if (cmp != 0) {
+                return cmp
+            }
+        }
+        return hostLength - length
+    }
+
+    companion object {
+        /** The name of the compiled list among the app's assets. */
+        const val ASSET_NAME = "public_suffix_list.bin"
+
+        private const val MAGIC = 0x4d565053 // "MVPS"
+        private const val VERSION = 2
+        private const val HEADER_BYTES = 12
+        private const val ROOT_OFFSET_POSITION = 8
+        private const val NODE_HEADER_BYTES = 3
+        private const val CHILD_ENTRY_BYTES = 9
+        private const val FLAG_TERMINAL = 1
+        private const val FLAG_WILDCARD = 2
+        private const val FLAG_EXCEPTION = 4
+
+        /**
+         * Maps the compiled list from the app's assets. A list stored compressed, as it can be
+         * when the assets are not read from an APK, is read into memory instead.
+         *
+         * @param assets The app's assets.
+         * @throws IOException If the list is missing or not a compiled list of this version.
+         */
+        fun open(assets: AssetManager): PublicSuffixList {
+            val buffer = try {
+                assets.openFd(ASSET_NAME).use { descriptor ->
+                    FileInputStream(descriptor.fileDescriptor).use { input ->
+                        input.channel.map(
+                            FileChannel.MapMode.READ_ONLY,
+                            descriptor.startOffset,
+                            descriptor.length,
+                        )
+                    }
+                }
+            } catch (e: FileNotFoundException) {
+                ByteBuffer.wrap(assets.open(ASSET_NAME).use { it.readBytes() })
+            }
+            if (buffer.capacity() < HEADER_BYTES ||
+                buffer.getInt(0) != MAGIC ||
+                buffer.getInt(Int.SIZE_BYTES) != VERSION
+            ) {
+                throw IOException("$ASSET_NAME is not a public suffix list of version $VERSION")
+            }
+            return PublicSuffixList(buffer)
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.room
+
+import androidx.room.ColumnInfo
+import androidx.room.Embedded
+import com.example.android.authentication.myvault.data.PasskeyItem
+import com.example.android.authentication.myvault.data.PasswordItem
+
+/**
+ * A password together with the url of its site, which identifies the site across devices and
+ * reinstalls where its row id does not.
+ */
+data class PasswordWithSiteUrl(
+    @Embedded val password: PasswordItem,
+    @ColumnInfo(name = "siteUrl") val siteUrl: String,
+)
+
+/**
+ * A passkey together with the url of its site, its relying party id.
+ */
+data class PasskeyWithSiteUrl(
+    @Embedded val passkey: PasskeyItem,
+    @ColumnInfo(name = "siteUrl") val siteUrl: String,
+)
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.room
+
+import androidx.room.RoomDatabase
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * The built-in [VaultAccount]s every vault holds.
+ */
+object DefaultAccounts {
+    /**
+     * The shared preference the last-used time of the single account was kept in before vaults
+     * had accounts. [VaultMigration] carries it over to the personal account.
+     */
+    const val LEGACY_LAST_USED_KEY = "key_account_last_used_ms"
+
+    /**
+     * Inserts the built-in accounts that do not exist yet.
+     *
+     * @param personalLastUsedMs The last-used time given to a newly inserted personal account.
+     */
+    fun insert(db: SupportSQLiteDatabase, personalLastUsedMs: Long = 0L) {
+        val accounts = listOf(
+            arrayOf<Any>(VaultAccount.PERSONAL, "Personal", personalLastUsedMs),
+            arrayOf<Any>(VaultAccount.WORK, "Work", 0L),
+        )
+        for (account in accounts) {
+            db.execSQL(
+                "INSERT OR IGNORE INTO accounts (id, displayName, lastUsedTimeMs) VALUES (?, ?, ?)",
+                account,
+            )
+        }
+    }
+
+    /**
+     * Inserts the built-in accounts into newly created and destructively migrated databases.
+     */
+    val callback = object : RoomDatabase.Callback() {
+        override fun onCreate(db: SupportSQLiteDatabase) {
+            insert(db)
+        }
+
+        override fun onDestructiveMigration(db: SupportSQLiteDatabase) {
+            insert(db)
+        }
+    }
+}
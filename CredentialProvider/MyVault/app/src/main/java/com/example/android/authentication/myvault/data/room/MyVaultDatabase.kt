@@ -26,6 +26,7 @@ import androidx.room.Transaction
 import androidx.room.Update
 import com.example.android.authentication.myvault.data.PasskeyItem
 import com.example.android.authentication.myvault.data.PasswordItem
+import com.example.android.authentication.myvault.data.autofill.AutofillCandidate
 import kotlinx.coroutines.flow.Flow
 
 @Database(
@@ -33,8 +34,10 @@ import kotlinx.coroutines.flow.Flow
         SiteMetaData::class,
         PasswordItem::class,
         PasskeyItem::class,
+        VaultTombstone::class,
+        VaultAccount::class,
     ],
-    version = 8,
+    version = 9,
 )
 abstract class MyVaultDatabase : RoomDatabase() {
     abstract fun myVaultDao(): MyVaultDao
@@ -45,15 +48,24 @@ interface MyVaultDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insertSite(entity: SiteMetaData): Long
 
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    suspend fun insertSites(entities: List<SiteMetaData>): List<Long>
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insertPassword(entity: PasswordItem): Long
 
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertPasswords(entities: List<PasswordItem>)
+
     @Update
     suspend fun updatePassword(entity: PasswordItem)
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insertPasskey(entity: PasskeyItem): Long
 
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertPasskeys(entities: List<PasskeyItem>)
+
     @Update
     suspend fun updatePasskey(entity: PasskeyItem)
 
@@ -73,22 +85,167 @@ interface MyVaultDao {
     @Query("SELECT * FROM sites WHERE url = :url")
     suspend fun getSite(url: String): SiteMetaData?
 
+    @Query("SELECT * FROM sites WHERE id IN (:ids)")
+    suspend fun getSitesById(ids: Collection<Long>): List<SiteMetaData>
+
+    @Query("SELECT * FROM sites WHERE url IN (:urls)")
+    suspend fun getSites(urls: Collection<String>): List<SiteMetaData>
+
     @Query("SELECT COUNT(*) FROM sites WHERE url = :url")
     fun getSiteCount(url: String): Int?
 
     @Query("SELECT COUNT(*) FROM passwords WHERE siteId = :site")
     suspend fun count(site: Long): Int
 
-    @Query("SELECT COUNT(*) FROM sites WHERE url = :site")
+    @Query("SELECT COUNT(*) FROM passkeys WHERE siteId = :site")
     fun countPasskeys(site: Long): Int
 
+    @Query("SELECT url FROM sites")
+    suspend fun siteUrls(): List<String>
+
+    @Query("SELECT COUNT(*) FROM sites")
+    suspend fun siteCount(): Int
+
+    @Query(
+        "DELETE FROM sites WHERE " +
+            "NOT EXISTS (SELECT 1 FROM passwords WHERE passwords.siteId = sites.id) AND " +
+            "NOT EXISTS (SELECT 1 FROM passkeys WHERE passkeys.siteId = sites.id)",
+    )
+    suspend fun deleteOrphanSites(): Int
+
     @Transaction
     @Query("SELECT * FROM sites WHERE url = :url")
     fun getCredentialsFromSite(url: String): SiteWithCredentials?
 
+    @Transaction
+    @Query("SELECT * FROM sites WHERE registrableDomain = :domain")
+    fun getCredentialsFromDomain(domain: String): List<SiteWithCredentials>
+
+    @Query(
+        "SELECT passwords.id AS id, passwords.username AS username, sites.url AS siteUrl " +
+            "FROM passwords INNER JOIN sites ON sites.id = passwords.siteId " +
+            "WHERE sites.url = :url OR sites.registrableDomain = :domain " +
+            "ORDER BY passwords.lastUsedTimeMs DESC LIMIT :limit",
+    )
+    fun autofillCandidates(url: String, domain: String?, limit: Int): List<AutofillCandidate>
+
+    /**
+     * Counts the credentials each account holds for a site in one pass, so building the create
+     * sheet costs a single query however many accounts there are. Accounts without credentials
+     * for the site are included with zero counts.
+     */
+    @Query(
+        "SELECT accounts.id AS accountId, accounts.displayName AS displayName, " +
+            "accounts.lastUsedTimeMs AS lastUsedTimeMs, " +
+            "SUM(CASE WHEN credentials.kind = 0 THEN 1 ELSE 0 END) AS passwordCount, " +
+            "SUM(CASE WHEN credentials.kind = 1 THEN 1 ELSE 0 END) AS passkeyCount " +
+            "FROM accounts LEFT JOIN (" +
+            "SELECT passwords.accountId AS accountId, 0 AS kind FROM passwords " +
+            "INNER JOIN sites ON sites.id = passwords.siteId WHERE sites.url = :passwordUrl " +
+            "UNION ALL " +
+            "SELECT passkeys.accountId AS accountId, 1 AS kind FROM passkeys " +
+            "INNER JOIN sites ON sites.id = passkeys.siteId WHERE sites.url = :rpId" +
+            ") AS credentials ON credentials.accountId = accounts.id " +
+            "GROUP BY accounts.id ORDER BY accounts.lastUsedTimeMs DESC",
+    )
+    fun accountCredentialCounts(passwordUrl: String?, rpId: String?): List<AccountCredentialCount>
+
+    @Query("UPDATE accounts SET lastUsedTimeMs = :timeMs WHERE id = :accountId")
+    suspend fun markAccountUsed(accountId: String, timeMs: Long)
+
+    @Query("SELECT * FROM passwords WHERE id = :id")
+    suspend fun getPasswordById(id: Long): PasswordItem?
+
+    @Query("SELECT * FROM passwords WHERE siteId = :siteId AND username = :username LIMIT 1")
+    suspend fun getPassword(siteId: Long, username: String): PasswordItem?
+
     @Query("SELECT * from passkeys WHERE credId = :credId")
     fun getPasskey(credId: String): PasskeyItem?
 
     @Query("SELECT * from passkeys WHERE uid = :userId")
     suspend fun getAllPasskeysForUser(userId: String): List<PasskeyItem>?
+
+    /**
+     * Pages through the sites changed after `(since, afterId)` and up to sequence [until], in
+     * change order. Pass the `changeSeq` and `id` of the last row of a page to get the next one.
+     */
+    @Query(
+        "SELECT * FROM sites WHERE (changeSeq, id) > (:since, :afterId) AND changeSeq <= :until " +
+            "ORDER BY changeSeq, id LIMIT :limit",
+    )
+    suspend fun sitesChangedAfter(
+        since: Long,
+        afterId: Long,
+        until: Long,
+        limit: Int,
+    ): List<SiteMetaData>
+
+    /**
+     * Pages through the passwords changed after `(since, afterId)` and up to sequence [until], in
+     * change order, with the url of their site.
+     */
+    @Query(
+        "SELECT passwords.*, sites.url AS siteUrl " +
+            "FROM passwords INNER JOIN sites ON sites.id = passwords.siteId " +
+            "WHERE (passwords.changeSeq, passwords.id) > (:since, :afterId) " +
+            "AND passwords.changeSeq <= :until " +
+            "ORDER BY passwords.changeSeq, passwords.id LIMIT :limit",
+    )
+    suspend fun passwordsChangedAfter(
+        since: Long,
+        afterId: Long,
+        until: Long,
+        limit: Int,
+    ): List<PasswordWithSiteUrl>
+
+    /**
+     * Pages through the passkeys changed after `(since, afterId)` and up to sequence [until], in
+     * change order, with the url of their site.
+     */
+    @Query(
+        "SELECT passkeys.*, sites.url AS siteUrl " +
+            "FROM passkeys INNER JOIN sites ON sites.id = passkeys.siteId " +
+            "WHERE (passkeys.changeSeq, passkeys.id) > (:since, :afterId) " +
+            "AND passkeys.changeSeq <= :until " +
+            "ORDER BY passkeys.changeSeq, passkeys.id LIMIT :limit",
+    )
+    suspend fun passkeysChangedAfter(
+        since: Long,
+        afterId: Long,
+        until: Long,
+        limit: Int,
+    ): List<PasskeyWithSiteUrl>
+
+    /**
+     * Pages through the tombstones recorded after `(since, afterId)` and up to sequence [until].
+     */
+    @Query(
+        "SELECT * FROM tombstones WHERE (changeSeq, id) > (:since, :afterId) " +
+            "AND changeSeq <= :until ORDER BY changeSeq, id LIMIT :limit",
+    )
+    suspend fun tombstonesAfter(
+        since: Long,
+        afterId: Long,
+        until: Long,
+        limit: Int,
+    ): List<VaultTombstone>
+
+    @Query("SELECT * FROM passwords WHERE id > :afterId ORDER BY id LIMIT :limit")
+    suspend fun passwordsAfter(afterId: Long, limit: Int): List<PasswordItem>
+
+    @Query("SELECT EXISTS (SELECT 1 FROM passwords)")
+    suspend fun hasPasswords(): Boolean
+
+    @Update
+    suspend fun updateSite(entity: SiteMetaData)
+
+    @Query(
+        "DELETE FROM sites WHERE url = :url AND " +
+            "NOT EXISTS (SELECT 1 FROM passwords WHERE passwords.siteId = sites.id) AND " +
+            "NOT EXISTS (SELECT 1 FROM passkeys WHERE passkeys.siteId = sites.id)",
+    )
+    suspend fun deleteSiteIfEmpty(url: String)
+
+    @Query("DELETE FROM passkeys WHERE credId = :credId")
+    suspend fun deletePasskeyByCredId(credId: String)
 }
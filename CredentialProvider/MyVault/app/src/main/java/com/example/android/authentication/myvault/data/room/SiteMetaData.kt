@@ -19,20 +19,97 @@ import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.Index
 import androidx.room.PrimaryKey
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
 
 @Entity(
     tableName = "sites",
     indices = [
         Index("url", unique = true),
+        Index("changeSeq", unique = false),
+        Index("registrableDomain", unique = false),
     ],
 )
 
 /**
  * This class represents metadata about a site.
+ *
+ * Sites are keyed by [url], which is either the web host the credentials belong to or, for apps,
+ * the package name; [packageName] is set to the package name for the latter. [registrableDomain]
+ * holds the eTLD+1 of web hosts under a known registry, and is empty for packages and other hosts,
+ * so sites can be matched across subdomains with a single indexed query.
  */
 data class SiteMetaData(
     @PrimaryKey(autoGenerate = true) @ColumnInfo(name = "id") val id: Long = 0,
     @ColumnInfo(name = "url") val url: String = "",
     @ColumnInfo(name = "packageName") val packageName: String = "",
     @ColumnInfo(name = "name") val name: String = "",
-)
+    @ColumnInfo(name = "changeSeq", defaultValue = "0") val changeSeq: Long = 0,
+    @ColumnInfo(name = "registrableDomain", defaultValue = "''") val registrableDomain: String = "",
+) {
+    companion object {
+        /**
+         * Creates the row for a newly seen web site.
+         *
+         * @param host The site host or relying party id.
+         * @param publicSuffixList Used to derive the registrable domain of the host.
+         * @param name The name to show for the site, if one is known.
+         */
+        fun forWebHost(host: String, publicSuffixList: PublicSuffixList, name: String = "") =
+            SiteMetaData(
+                url = host,
+                name = name,
+                registrableDomain = publicSuffixList.registrableDomain(host).orEmpty(),
+            )
+
+        /**
+         * Creates the row for a newly seen app. Package names are never given a registrable
+         * domain, even when they read as one, such as `com.example.app`.
+         *
+         * @param packageName The package name of the app.
+         * @param name The name to show for the site, if one is known.
+         */
+        fun forPackage(packageName: String, name: String = "") = SiteMetaData(
+            url = packageName,
+            packageName = packageName,
+            name = name,
+        )
+
+        /**
+         * Creates the row for a site known only by its key, such as one synced from an older
+         * device, telling package names from web hosts with [isPackageName].
+         *
+         * @param url The site key.
+         * @param publicSuffixList Used to tell the two apart and derive the registrable domain.
+         * @param name The name to show for the site, if one is known.
+         */
+        fun forKey(url: String, publicSuffixList: PublicSuffixList, name: String = "") =
+            if (isPackageName(url, publicSuffixList)) {
+                forPackage(url, name)
+            } else {
+                forWebHost(url, publicSuffixList, name)
+            }
+
+        /**
+         * Guesses whether a site key is a package name rather than a web host.
+         *
+         * Package names are reversed domains, so their first label is a top-level domain such as
+         * `com` or `org`, which a host's rarely is. Underscores only appear in package names. The
+         * guess is wrong for hosts whose first label happens to be a top-level domain, such as
+         * `app.example.com` or `de.wikipedia.org`; callers that know which kind they hold use
+         * [forWebHost] or [forPackage] instead.
+         *
+         * @param url The site key.
+         * @param publicSuffixList Used to recognize top-level domains.
+         */
+        fun isPackageName(url: String, publicSuffixList: PublicSuffixList): Boolean {
+            val firstDot = url.indexOf('.')
+            if (firstDot <= 0 || url.contains(':') || url.contains('/')) {
+                return false
+            }
+            if (url.contains('_')) {
+                return true
+            }
+            return publicSuffixList.isPublicSuffix(url.substring(0, firstDot))
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.room
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * An account of the vault that credentials can be saved to, offered as one entry of the create
+ * sheet.
+ *
+ * @property id The stable identifier, stored on each password and passkey of the account
+ * @property displayName The name shown on the create sheet
+ * @property lastUsedTimeMs When a credential was last saved to the account
+ */
+@Entity(tableName = "accounts")
+data class VaultAccount(
+    @PrimaryKey @ColumnInfo(name = "id") val id: String,
+    @ColumnInfo(name = "displayName") val displayName: String,
+    @ColumnInfo(name = "lastUsedTimeMs", defaultValue = "0") val lastUsedTimeMs: Long = 0,
+) {
+    companion object {
+        /** The account credentials belong to unless another one is chosen. */
+        const val PERSONAL = "personal"
+
+        /** The second built-in account. */
+        const val WORK = "work"
+    }
+}
+
+/**
+ * The credentials one account holds for the site of a create request.
+ *
+ * @property accountId The [VaultAccount.id]
+ * @property displayName The [VaultAccount.displayName]
+ * @property lastUsedTimeMs The [VaultAccount.lastUsedTimeMs]
+ * @property passwordCount The passwords of the account saved for the calling app
+ * @property passkeyCount The passkeys of the account saved for the relying party
+ */
+data class AccountCredentialCount(
+    val accountId: String,
+    val displayName: String,
+    val lastUsedTimeMs: Long,
+    val passwordCount: Int,
+    val passkeyCount: Int,
+)
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.room
+
+import androidx.room.RoomDatabase
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * Maintains a vault-wide, monotonically increasing change sequence.
+ *
+ * Every insert or update on `sites`, `passwords` and `passkeys` stamps the row's `changeSeq` column
+ * with the next sequence number, and every delete records a [VaultTombstone]. Incremental
+ * consumers such as backups only need the rows whose sequence is above the last one they saw.
+ *
+ * The bookkeeping lives in SQLite triggers so that it covers every write path, including bulk
+ * imports and restores, without each DAO method having to remember it.
+ *
+ * Several rows can share a sequence number, for instance after [addToExistingVault]. Consumers must
+ * therefore page on `(changeSeq, id)` rather than on `changeSeq` alone.
+ */
+object VaultChangeTracking {
+    private const val SEQUENCE_TABLE = "change_sequence"
+    private val TRACKED_TABLES = listOf("sites", "passwords", "passkeys")
+
+    /**
+     * SQL expressions computing the [VaultTombstone.syncKey] of a deleted row of each table.
+     */
+    private val SYNC_KEYS = mapOf(
+        "sites" to "OLD.url",
+        "passwords" to
+            "IFNULL((SELECT url FROM sites WHERE id = OLD.siteId), '') || char(10) || OLD.username",
+        "passkeys" to "OLD.credId",
+    )
+
+    /**
+     * Creates the sequence table and triggers if they do not already exist.
+     */
+    fun install(db: SupportSQLiteDatabase) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS $SEQUENCE_TABLE (seq INTEGER NOT NULL)")
+        db.execSQL(
+            "INSERT INTO $SEQUENCE_TABLE (seq) SELECT 0 " +
+                "WHERE NOT EXISTS (SELECT 1 FROM $SEQUENCE_TABLE)",
+        )
+        for (table in TRACKED_TABLES) {
+            for (event in listOf("INSERT", "UPDATE")) {
+                // The stamp written below always moves changeSeq forward. The guard keeps the
+                // update trigger from firing again for it, so each write takes one sequence number.
+                val guard = if (event == "UPDATE") "WHEN NEW.changeSeq <= OLD.changeSeq" else ""
+                db.execSQL(
+                    """
+                    CREATE TRIGGER IF NOT EXISTS ${table}_change_seq_${event.lowercase()}
+                    AFTER $event ON $table $guard
+                    BEGIN
+                        UPDATE $SEQUENCE_TABLE SET seq = seq + 1;
+                        UPDATE $table SET changeSeq = (SELECT seq FROM $SEQUENCE_TABLE)
+                            WHERE id = NEW.id;
+                    END
+                    """.trimIndent(),
+                )
+            }
+            db.execSQL(
+                """
+                CREATE TRIGGER IF NOT EXISTS ${table}_change_seq_delete
+                AFTER DELETE ON $table
+                BEGIN
+                    UPDATE $SEQUENCE_TABLE SET seq = seq + 1;
+                    INSERT INTO tombstones (tableName, rowId, changeSeq, syncKey)
+                        VALUES (
+                            '$table',
+                            OLD.id,
+                            (SELECT seq FROM $SEQUENCE_TABLE),
+                            ${SYNC_KEYS.getValue(table)}
+                        );
+                END
+                """.trimIndent(),
+            )
+        }
+    }
+
+    /**
+     * Returns the sequence number of the most recent change.
+     */
+    fun currentSeq(db: SupportSQLiteDatabase): Long {
+        db.query("SELECT seq FROM $SEQUENCE_TABLE").use { cursor ->
+            return if (cursor.moveToFirst()) cursor.getLong(0) else 0L
+        }
+    }
+
+    /**
+     * Moves the sequence forward to at least [seq], so that changes made after replaying an
+     * external change stream are numbered above it.
+     */
+    fun advanceTo(db: SupportSQLiteDatabase, seq: Long) {
+        db.execSQL("UPDATE $SEQUENCE_TABLE SET seq = MAX(seq, ?)", arrayOf<Any>(seq))
+    }
+
+    /**
+     * Gives every row last changed at or before [seq] a new sequence number, so incremental
+     * consumers that have already moved past [seq] see those rows again.
+     */
+    fun restamp(db: SupportSQLiteDatabase, seq: Long) {
+        for (table in TRACKED_TABLES) {
+            // Leaving changeSeq as it is fires the update trigger, which stamps the row.
+            db.execSQL(
+                "UPDATE $table SET changeSeq = changeSeq WHERE changeSeq <= ?",
+                arrayOf<Any>(seq),
+            )
+        }
+    }
+
+    /**
+     * Installs the triggers on newly created and destructively migrated databases.
+     */
+    val callback = object : RoomDatabase.Callback() {
+        override fun onCreate(db: SupportSQLiteDatabase) {
+            install(db)
+        }
+
+        override fun onDestructiveMigration(db: SupportSQLiteDatabase) {
+            install(db)
+        }
+    }
+
+    /**
+     * Adds change tracking to an existing vault without losing its contents. Existing rows are
+     * all stamped with sequence 1 so the first incremental pass picks them up; that pass pages on
+     * `(changeSeq, id)` to get through them. Runs last in [VaultMigration], so the rows it has
+     * already rewritten are not numbered one by one.
+     */
+    fun addToExistingVault(db: SupportSQLiteDatabase) {
+        for (table in TRACKED_TABLES) {
+            db.execSQL("ALTER TABLE $table ADD COLUMN changeSeq INTEGER NOT NULL DEFAULT 0")
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS index_${table}_changeSeq ON $table (changeSeq)",
+            )
+            db.execSQL("UPDATE $table SET changeSeq = 1")
+        }
+        db.execSQL(
+            "CREATE TABLE IF NOT EXISTS tombstones (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "tableName TEXT NOT NULL, " +
+                "rowId INTEGER NOT NULL, " +
+                "changeSeq INTEGER NOT NULL, " +
+                "syncKey TEXT NOT NULL DEFAULT '')",
+        )
+        db.execSQL(
+            "CREATE INDEX IF NOT EXISTS index_tombstones_changeSeq ON tombstones (changeSeq)",
+        )
+        install(db)
+        db.execSQL("UPDATE $SEQUENCE_TABLE SET seq = 1")
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.room
+
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+
+/**
+ * Brings a vault from the last released schema, version 8, to the current one without losing its
+ * contents:
+ * * sites gain [SiteMetaData.registrableDomain], and those keyed by an app's package name are
+ *   marked with [SiteMetaData.packageName] instead, so they are never offered to web sites;
+ * * the `siteId` columns of passwords and passkeys are indexed;
+ * * [VaultAccount]s are added and every credential is assigned to the personal account, which
+ *   takes over the last-used time that used to be kept in shared preferences;
+ * * [VaultChangeTracking] is installed, with every existing row stamped with sequence 1.
+ *
+ * The migration runs inside the database transaction, so it is handed the last-used time rather
+ * than reading shared preferences itself; the caller removes
+ * [DefaultAccounts.LEGACY_LAST_USED_KEY] once the database is open.
+ *
+ * @param publicSuffixList Provides the list used to tell package names from web hosts and derive
+ * registrable domains. It is only called if the migration runs.
+ * @param personalLastUsedMs The last-used time read from [DefaultAccounts.LEGACY_LAST_USED_KEY],
+ * or 0.
+ */
+class VaultMigration(
+    private val publicSuffixList: () -> PublicSuffixList,
+    private val personalLastUsedMs: Long,
+) : Migration(8, 9) {
+    override fun migrate(db: SupportSQLiteDatabase) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS index_passwords_siteId ON passwords (siteId)")
+        db.execSQL("CREATE INDEX IF NOT EXISTS index_passkeys_siteId ON passkeys (siteId)")
+        keySites(db, publicSuffixList())
+        addAccounts(db)
+        VaultChangeTracking.addToExistingVault(db)
+    }
+
+    /**
+     * Fills in the registrable domain of web sites and marks app sites. Sites with passkeys are
+     * keyed by relying party id, a web host, even when it reads as a package name; the others are
+     * told apart with [SiteMetaData.isPackageName].
+     */
+    private fun keySites(db: SupportSQLiteDatabase, publicSuffixList: PublicSuffixList) {
+        db.execSQL("ALTER TABLE sites ADD COLUMN registrableDomain TEXT NOT NULL DEFAULT ''")
+        db.execSQL(
+            "CREATE INDEX IF NOT EXISTS index_sites_registrableDomain ON sites (registrableDomain)",
+        )
+        val markPackage = db.compileStatement("UPDATE sites SET packageName = url WHERE id = ?")
+        val setDomain = db.compileStatement("UPDATE sites SET registrableDomain = ? WHERE id = ?")
+        markPackage.use {
+            setDomain.use {
+                db.query(
+                    "SELECT id, url, EXISTS (SELECT 1 FROM passkeys WHERE passkeys.siteId = sites.id) " +
+                        "FROM sites WHERE packageName = ''",
+                ).use { cursor ->
+                    while (cursor.moveToNext()) {
+                        val id = cursor.getLong(0)
+                        val url = cursor.getString(1)
+                        val hasPasskeys = cursor.getInt(2) != 0
+                        if (!hasPasskeys && SiteMetaData.isPackageName(url, publicSuffixList)) {
+                            markPackage.bindLong(1, id)
+                            markPackage.executeUpdateDelete()
+                            continue
+                        }
+                        val domain = publicSuffixList.registrableDomain(url) ?: continue
+                        setDomain.bindString(1, domain)
+                        setDomain.bindLong(2, id)
+                        setDomain.executeUpdateDelete()
+                    }
+                }
+            }
+        }
+    }
+
+    private fun addAccounts(db: SupportSQLiteDatabase) {
+        db.execSQL(
+            "CREATE TABLE IF NOT EXISTS accounts (" +
+                "id TEXT NOT NULL, " +
+                "displayName TEXT NOT NULL, " +
+                "lastUsedTimeMs INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY(id))",
+        )
+        for (table in listOf("passwords", "passkeys")) {
+            db.execSQL(
+                "ALTER TABLE $table ADD COLUMN accountId TEXT NOT NULL " +
+                    "DEFAULT '${VaultAccount.PERSONAL}'",
+            )
+        }
+        DefaultAccounts.insert(db, personalLastUsedMs)
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.room
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+
+/**
+ * Records the deletion of a row from one of the vault tables so that incremental consumers can
+ * replay it. Rows are written by the triggers installed in [VaultChangeTracking].
+ *
+ * @property id The unique identifier
+ * @property tableName The table the row was deleted from
+ * @property rowId The id of the deleted row
+ * @property changeSeq The vault change sequence number assigned to the deletion
+ * @property syncKey A device-independent key for the deleted row: the site url, the site url and
+ * username separated by a newline for passwords, or the credential id for passkeys
+ */
+@Entity(
+    tableName = "tombstones",
+    indices = [
+        Index("changeSeq", unique = false),
+    ],
+)
+data class VaultTombstone(
+    @PrimaryKey(autoGenerate = true) @ColumnInfo(name = "id") val id: Long = 0,
+    @ColumnInfo(name = "tableName") val tableName: String,
+    @ColumnInfo(name = "rowId") val rowId: Long,
+    @ColumnInfo(name = "changeSeq") val changeSeq: Long,
+    @ColumnInfo(name = "syncKey", defaultValue = "''") val syncKey: String = "",
+)
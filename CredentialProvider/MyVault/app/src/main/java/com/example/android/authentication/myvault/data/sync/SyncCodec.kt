@@ -0,0 +1,100 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.sync
+
+import com.example.android.authentication.myvault.fido.b64Decode
+import com.example.android.authentication.myvault.fido.b64Encode
+import org.json.JSONObject
+import java.security.SecureRandom
+import javax.crypto.Cipher
+import javax.crypto.Mac
+import javax.crypto.SecretKey
+import javax.crypto.spec.GCMParameterSpec
+import javax.crypto.spec.SecretKeySpec
+
+/**
+ * Encrypts sync payloads end to end so the sync server only ever sees opaque ids and blobs.
+ *
+ * The id of a change is an HMAC of its device-independent key (site url and username for
+ * passwords, credential id for passkeys), which lets the server detect conflicting writes to the
+ * same credential without learning what it is. Separate id and encryption keys are derived from
+ * the vault sync key.
+ *
+ * @param syncKey The key shared by all devices of the vault.
+ */
+internal class SyncCodec(syncKey: SecretKey) {
+    private val idKey = SecretKeySpec(derive(syncKey, ID_LABEL), HMAC)
+    private val encryptionKey = SecretKeySpec(derive(syncKey, ENCRYPTION_LABEL), "AES")
+    private val random = SecureRandom()
+
+    /**
+     * Wraps a change for upload.
+     *
+     * @param syncKey The device-independent key of the changed credential.
+     * @param payload The plaintext change.
+     * @return A JSON object holding only the opaque id and the encrypted payload.
+     */
+    fun encode(syncKey: String, payload: JSONObject): JSONObject {
+        val iv = ByteArray(IV_SIZE).also { random.nextBytes(it) }
+        val cipher = Cipher.getInstance(TRANSFORMATION)
+        cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, GCMParameterSpec(TAG_BITS, iv))
+        val ciphertext = cipher.doFinal(payload.toString().toByteArray(Charsets.UTF_8))
+        return JSONObject()
+            .put(ID, idFor(syncKey))
+            .put(BLOB, b64Encode(iv + ciphertext))
+    }
+
+    /**
+     * Unwraps a change received from the server.
+     *
+     * @param change A JSON object produced by [encode] on some device.
+     * @return The plaintext change.
+     */
+    fun decode(change: JSONObject): JSONObject {
+        val blob = b64Decode(change.getString(BLOB))
+        val cipher = Cipher.getInstance(TRANSFORMATION)
+        cipher.init(
+            Cipher.DECRYPT_MODE,
+            encryptionKey,
+            GCMParameterSpec(TAG_BITS, blob, 0, IV_SIZE),
+        )
+        val plaintext = cipher.doFinal(blob, IV_SIZE, blob.size - IV_SIZE)
+        return JSONObject(String(plaintext, Charsets.UTF_8))
+    }
+
+    private fun idFor(syncKey: String): String {
+        val mac = Mac.getInstance(HMAC)
+        mac.init(idKey)
+        return b64Encode(mac.doFinal(syncKey.toByteArray(Charsets.UTF_8)))
+    }
+
+    companion object {
+        const val ID = "id"
+        const val BLOB = "blob"
+        private const val HMAC = "HmacSHA256"
+        private const val TRANSFORMATION = "AES/GCM/NoPadding"
+        private const val IV_SIZE = 12
+        private const val TAG_BITS = 128
+        private const val ID_LABEL = "myvault-sync-id"
+        private const val ENCRYPTION_LABEL = "myvault-sync-encryption"
+
+        private fun derive(key: SecretKey, label: String): ByteArray {
+            val mac = Mac.getInstance(HMAC)
+            mac.init(SecretKeySpec(key.encoded, HMAC))
+            return mac.doFinal(label.toByteArray(Charsets.UTF_8))
+        }
+    }
+}
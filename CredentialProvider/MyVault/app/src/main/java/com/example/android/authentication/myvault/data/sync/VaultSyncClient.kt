@@ -0,0 +1,402 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.sync
+
+import android.content.SharedPreferences
+import androidx.room.withTransaction
+import com.example.android.authentication.myvault.data.PasskeyItem
+import com.example.android.authentication.myvault.data.PasswordItem
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+import com.example.android.authentication.myvault.data.room.MyVaultDatabase
+import com.example.android.authentication.myvault.data.room.SiteMetaData
+import com.example.android.authentication.myvault.data.room.VaultAccount
+import com.example.android.authentication.myvault.data.room.VaultChangeTracking
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import org.json.JSONArray
+import org.json.JSONObject
+import java.io.IOException
+import java.net.HttpURLConnection
+import java.net.URL
+import java.util.UUID
+import javax.crypto.SecretKey
+
+/**
+ * Keeps the vault in step with other devices through a delta sync server.
+ *
+ * Local changes are found through the vault change sequence maintained by [VaultChangeTracking]:
+ * rows whose `changeSeq` is above the last pushed sequence, plus tombstones for deletions. Remote
+ * changes are pulled from a server cursor. Both directions move in batches, so the cost of a sync
+ * is proportional to the number of changed rows rather than the size of the vault.
+ *
+ * Conflicts are resolved by the server: a pushed change is rejected when another device changed
+ * the same credential after this device's last pull, and the winning version arrives on the pull
+ * that follows.
+ *
+ * The app does not create or schedule a client yet. Devices have no way to agree on [syncKey] or
+ * a server, so the client is only exercised by tests until pairing provides both. A periodic
+ * worker like [com.example.android.authentication.myvault.data.maintenance.VaultMaintenanceWorker]
+ * can then run [sync].
+ *
+ * @param database The vault database.
+ * @param preferences Where the device id and sync cursors are persisted.
+ * @param serverUrl The base url of the sync server.
+ * @param syncKey The key shared by all devices of the vault, used to encrypt every change.
+ * @param publicSuffixList Used to derive the registrable domain of sites created by a pull.
+ */
+class VaultSyncClient(
+    private val database: MyVaultDatabase,
+    private val preferences: SharedPreferences,
+    private val serverUrl: String,
+    syncKey: SecretKey,
+    private val publicSuffixList: PublicSuffixList,
+) {
+    private val myVaultDao = database.myVaultDao()
+    private val codec = SyncCodec(syncKey)
+
+    private val deviceId: String by lazy {
+        preferences.getString(KEY_DEVICE_ID, null) ?: UUID.randomUUID().toString().also {
+            preferences.edit().putString(KEY_DEVICE_ID, it).apply()
+        }
+    }
+
+    /**
+     * Pushes local changes, then pulls remote ones.
+     *
+     * @return A summary of what was exchanged.
+     * @throws IOException If the server cannot be reached or rejects a request.
+     */
+    suspend fun sync(): SyncResult = withContext(Dispatchers.IO) {
+        val (pushed, conflicts) = push()
+        val pulled = pull()
+        SyncResult(pushed = pushed, conflicts = conflicts, pulled = pulled)
+    }
+
+    private suspend fun push(): Pair<Int, Int> {
+        val since = preferences.getLong(KEY_LAST_PUSHED_SEQ, 0L)
+        val upTo = VaultChangeTracking.currentSeq(database.openHelper.writableDatabase)
+        if (upTo <= since) {
+            return 0 to 0
+        }
+        val baseCursor = preferences.getLong(KEY_CURSOR, 0L)
+        val pending = ArrayList<JSONObject>(BATCH_SIZE)
+        var accepted = 0
+        var conflicts = 0
+
+        fun flush() {
+            if (pending.isEmpty()) return
+            val response = request(
+                "POST",
+                PUSH_PATH,
+                JSONObject()
+                    .put(DEVICE_ID, deviceId)
+                    .put(BASE_CURSOR, baseCursor)
+                    .put(CHANGES, JSONArray(pending)),
+            )
+            accepted += response.getInt(ACCEPTED)
+            conflicts += response.getJSONArray(CONFLICTS).length()
+            pending.clear()
+        }
+
+        // Rows can share a sequence number, so pages are keyed on (changeSeq, id). Changes made
+        // after upTo was read are left to the next push.
+        //
+        // The server keeps only the latest change of each credential, so tombstones go first: a
+        // credential deleted and then saved again since the previous push ends up live.
+        var cursorSeq = since
+        var cursorId = Long.MAX_VALUE
+        while (true) {
+            val page = myVaultDao.tombstonesAfter(cursorSeq, cursorId, upTo, BATCH_SIZE)
+            for (tombstone in page) {
+                val payload = JSONObject().put(DELETED, true)
+                when (tombstone.tableName) {
+                    PASSWORDS_TABLE -> {
+                        val url = tombstone.syncKey.substringBefore('\n')
+                        val username = tombstone.syncKey.substringAfter('\n')
+                        pending.add(
+                            codec.encode(
+                                passwordKey(url, username),
+                                payload.put(TYPE, TYPE_PASSWORD)
+                                    .put(URL_FIELD, url)
+                                    .put(USERNAME, username),
+                            ),
+                        )
+                    }
+
+                    PASSKEYS_TABLE -> pending.add(
+                        codec.encode(
+                            passkeyKey(tombstone.syncKey),
+                            payload.put(TYPE, TYPE_PASSKEY).put(CRED_ID, tombstone.syncKey),
+                        ),
+                    )
+                }
+            }
+            flush()
+            if (page.size < BATCH_SIZE) break
+            cursorSeq = page.last().changeSeq
+            cursorId = page.last().id
+        }
+
+        cursorSeq = since
+        cursorId = Long.MAX_VALUE
+        while (true) {
+            val page = myVaultDao.passwordsChangedAfter(cursorSeq, cursorId, upTo, BATCH_SIZE)
+            for (record in page) {
+                val password = record.password
+                pending.add(
+                    codec.encode(
+                        passwordKey(record.siteUrl, password.username),
+                        password.toPayload(record.siteUrl),
+                    ),
+                )
+            }
+            flush()
+            if (page.size < BATCH_SIZE) break
+            cursorSeq = page.last().password.changeSeq
+            cursorId = page.last().password.id
+        }
+
+        cursorSeq = since
+        cursorId = Long.MAX_VALUE
+        while (true) {
+            val page = myVaultDao.passkeysChangedAfter(cursorSeq, cursorId, upTo, BATCH_SIZE)
+            for (record in page) {
+                pending.add(
+                    codec.encode(
+                        passkeyKey(record.passkey.credId),
+                        record.passkey.toPayload(record.siteUrl),
+                    ),
+                )
+            }
+            flush()
+            if (page.size < BATCH_SIZE) break
+            cursorSeq = page.last().passkey.changeSeq
+            cursorId = page.last().passkey.id
+        }
+
+        preferences.edit().putLong(KEY_LAST_PUSHED_SEQ, upTo).apply()
+        return accepted to conflicts
+    }
+
+    private suspend fun pull(): Int {
+        var cursor = preferences.getLong(KEY_CURSOR, 0L)
+        var pulled = 0
+        do {
+            val response = request(
+                "GET",
+                "$PULL_PATH?$SINCE=$cursor&$LIMIT=$BATCH_SIZE&$DEVICE_ID=$deviceId",
+                null,
+            )
+            val changes = response.getJSONArray(CHANGES)
+            applyRemoteChanges(changes)
+            pulled += changes.length()
+            cursor = response.getLong(CURSOR)
+            preferences.edit().putLong(KEY_CURSOR, cursor).apply()
+        } while (response.getBoolean(HAS_MORE))
+        return pulled
+    }
+
+    /**
+     * Applies a batch of remote changes in a single transaction.
+     *
+     * Writing them bumps the local change sequence; when no local write was interleaved, the
+     * pushed sequence is moved past them so they are not echoed back to the server.
+     */
+    private suspend fun applyRemoteChanges(changes: JSONArray) {
+        if (changes.length() == 0) {
+            return
+        }
+        database.withTransaction {
+            val db = database.openHelper.writableDatabase
+            val before = VaultChangeTracking.currentSeq(db)
+            val siteIds = HashMap<String, Long>()
+            for (i in 0 until changes.length()) {
+                val change = codec.decode(changes.getJSONObject(i))
+                when (change.getString(TYPE)) {
+                    TYPE_PASSWORD -> applyPassword(change, siteIds)
+                    TYPE_PASSKEY -> applyPasskey(change, siteIds)
+                }
+            }
+            if (preferences.getLong(KEY_LAST_PUSHED_SEQ, 0L) == before) {
+                preferences.edit()
+                    .putLong(KEY_LAST_PUSHED_SEQ, VaultChangeTracking.currentSeq(db))
+                    .apply()
+            }
+        }
+    }
+
+    private suspend fun applyPassword(change: JSONObject, siteIds: MutableMap<String, Long>) {
+        val url = change.getString(URL_FIELD)
+        val username = change.getString(USERNAME)
+        if (change.optBoolean(DELETED)) {
+            val site = myVaultDao.getSite(url) ?: return
+            myVaultDao.getPassword(site.id, username)?.let { myVaultDao.deletePassword(it) }
+            return
+        }
+        // Changes only name the site, so whether it is an app or a web site is inferred from it.
+        val siteId = siteIdFor(url, siteIds) { SiteMetaData.forKey(url, publicSuffixList) }
+        val existing = myVaultDao.getPassword(siteId, username)
+        val item = PasswordItem(
+            id = existing?.id ?: 0,
+            username = username,
+            password = change.getString(PASSWORD),
+            siteId = siteId,
+            lastUsedTimeMs = change.getLong(LAST_USED_TIME_MS),
+            accountId = change.optString(ACCOUNT_ID, VaultAccount.PERSONAL),
+        )
+        if (existing == null) {
+            myVaultDao.insertPassword(item)
+        } else {
+            myVaultDao.updatePassword(item)
+        }
+    }
+
+    private suspend fun applyPasskey(change: JSONObject, siteIds: MutableMap<String, Long>) {
+        val credId = change.getString(CRED_ID)
+        val existing = myVaultDao.getPasskey(credId)
+        if (change.optBoolean(DELETED)) {
+            existing?.let { myVaultDao.deletePasskey(it) }
+            return
+        }
+        val item = PasskeyItem(
+            id = existing?.id ?: 0,
+            uid = change.getString(UID),
+            username = change.getString(USERNAME),
+            displayName = change.getString(DISPLAY_NAME),
+            credId = credId,
+            credPrivateKey = change.getString(CRED_PRIVATE_KEY),
+            siteId = change.getString(RP_ID).let { rpId ->
+                siteIdFor(rpId, siteIds) { SiteMetaData.forWebHost(rpId, publicSuffixList) }
+            },
+            lastUsedTimeMs = change.getLong(LAST_USED_TIME_MS),
+            hidden = change.optBoolean(HIDDEN),
+            accountId = change.optString(ACCOUNT_ID, VaultAccount.PERSONAL),
+        )
+        if (existing == null) {
+            myVaultDao.insertPasskey(item)
+        } else {
+            myVaultDao.updatePasskey(item)
+        }
+    }
+
+    /**
+     * Returns the id of the site keyed [url], creating it with [newSite] if it does not exist yet.
+     */
+    private suspend fun siteIdFor(
+        url: String,
+        siteIds: MutableMap<String, Long>,
+        newSite: () -> SiteMetaData,
+    ): Long {
+        siteIds[url]?.let { return it }
+        val id = myVaultDao.getSite(url)?.id ?: myVaultDao.insertSite(newSite())
+        siteIds[url] = id
+        return id
+    }
+
+    private fun request(method: String, path: String, body: JSONObject?): JSONObject {
+        val connection = URL(serverUrl.trimEnd('/') + path).openConnection() as HttpURLConnection
+        try {
+            connection.requestMethod = method
+            connection.connectTimeout = TIMEOUT_MS
+            connection.readTimeout = TIMEOUT_MS
+            if (body != null) {
+                connection.doOutput = true
+                connection.setRequestProperty("Content-Type", "application/json")
+                connection.outputStream.bufferedWriter().use { it.write(body.toString()) }
+            }
+            if (connection.responseCode != HttpURLConnection.HTTP_OK) {
+                throw IOException("Sync request $path failed with ${connection.responseCode}")
+            }
+            return JSONObject(connection.inputStream.bufferedReader().use { it.readText() })
+        } finally {
+            connection.disconnect()
+        }
+    }
+
+    private fun PasswordItem.toPayload(url: String) = JSONObject()
+        .put(TYPE, TYPE_PASSWORD)
+        .put(URL_FIELD, url)
+        .put(USERNAME, username)
+        .put(PASSWORD, password)
+        .put(LAST_USED_TIME_MS, lastUsedTimeMs)
+        .put(ACCOUNT_ID, accountId)
+
+    private fun PasskeyItem.toPayload(rpId: String) = JSONObject()
+        .put(TYPE, TYPE_PASSKEY)
+        .put(RP_ID, rpId)
+        .put(UID, uid)
+        .put(USERNAME, username)
+        .put(DISPLAY_NAME, displayName)
+        .put(CRED_ID, credId)
+        .put(CRED_PRIVATE_KEY, credPrivateKey)
+        .put(LAST_USED_TIME_MS, lastUsedTimeMs)
+        .put(HIDDEN, hidden)
+        .put(ACCOUNT_ID, accountId)
+
+    /**
+     * Summary of a sync run.
+     *
+     * @property pushed The number of local changes the server accepted.
+     * @property conflicts The number of local changes rejected in favour of another device's.
+     * @property pulled The number of remote changes applied locally.
+     */
+    data class SyncResult(val pushed: Int, val conflicts: Int, val pulled: Int)
+
+    companion object {
+        private const val BATCH_SIZE = 500
+        private const val TIMEOUT_MS = 30_000
+
+        const val PUSH_PATH = "/sync/push"
+        const val PULL_PATH = "/sync/pull"
+        const val DEVICE_ID = "deviceId"
+        const val BASE_CURSOR = "baseCursor"
+        const val CHANGES = "changes"
+        const val ACCEPTED = "accepted"
+        const val CONFLICTS = "conflicts"
+        const val CURSOR = "cursor"
+        const val HAS_MORE = "hasMore"
+        const val SINCE = "since"
+        const val LIMIT = "limit"
+
+        private const val KEY_DEVICE_ID = "key_sync_device_id"
+        private const val KEY_CURSOR = "key_sync_cursor"
+        private const val KEY_LAST_PUSHED_SEQ = "key_sync_last_pushed_seq"
+
+        private const val PASSWORDS_TABLE = "passwords"
+        private const val PASSKEYS_TABLE = "passkeys"
+        private const val PASSWORD_PREFIX = "password:"
+        private const val PASSKEY_PREFIX = "passkey:"
+        private const val TYPE = "type"
+        private const val TYPE_PASSWORD = "password"
+        private const val TYPE_PASSKEY = "passkey"
+        private const val DELETED = "deleted"
+        private const val URL_FIELD = "url"
+        private const val USERNAME = "username"
+        private const val PASSWORD = "password"
+        private const val RP_ID = "rpId"
+        private const val UID = "uid"
+        private const val DISPLAY_NAME = "displayName"
+        private const val CRED_ID = "credId"
+        private const val CRED_PRIVATE_KEY = "credPrivateKey"
+        private const val LAST_USED_TIME_MS = "lastUsedTimeMs"
+        private const val HIDDEN = "hidden"
+        private const val ACCOUNT_ID = "accountId"
+
+        private fun passwordKey(url: String, username: String) = "$PASSWORD_PREFIX$url\n$username"
+
+        private fun passkeyKey(credId: String) = PASSKEY_PREFIX + credId
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.fido
+
+import android.os.SystemClock
+import android.util.Log
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import org.json.JSONObject
+import java.io.File
+import java.io.IOException
+import java.net.HttpURLConnection
+import java.net.URL
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * The Google Password Manager allowlist of privileged apps, such as browsers, that may make
+ * requests on behalf of a web origin.
+ *
+ * Requests never wait on the network for it. The last fetched copy is kept in memory and in
+ * [cacheFile]; [current] returns it and, when it is missing or older than [MAX_AGE_MS], starts a
+ * refresh in [coroutineScope]. The provider service also starts one when it is created, so the
+ * copy is normally in place before the first browser request.
+ *
+ * @param cacheFile Where the last fetched copy is kept across processes.
+ * @param coroutineScope The scope background refreshes run in.
+ */
+class PrivilegedAppAllowlist(
+    private val cacheFile: File,
+    private val coroutineScope: CoroutineScope,
+) {
+    @Volatile
+    private var allowlist: String? = null
+
+    @Volatile
+    private var loaded = false
+
+    @Volatile
+    private var lastAttemptMs = 0L
+
+    private val refreshing = AtomicBoolean()
+
+    /**
+     * Returns the allowlist as JSON, or null if it has never been fetched. Only reads the local
+     * copy; a stale or missing copy is refreshed in the background.
+     */
+    fun current(): String? {
+        if (!loaded) {
+            load()
+        }
+        refreshIfStale()
+        return allowlist
+    }
+
+    /**
+     * Starts a background refresh if the local copy is missing or older than [MAX_AGE_MS], and no
+     * attempt has been made in the last [RETRY_AFTER_MS].
+     */
+    fun refreshIfStale() {
+        val stale = allowlist == null ||
+            System.currentTimeMillis() - cacheFile.lastModified() > MAX_AGE_MS
+        val now = SystemClock.elapsedRealtime()
+        if (!stale || (lastAttemptMs != 0L && now - lastAttemptMs < RETRY_AFTER_MS)) {
+            return
+        }
+        if (!refreshing.compareAndSet(false, true)) {
+            return
+        }
+        lastAttemptMs = now
+        coroutineScope.launch {
+            try {
+                refresh()
+            } finally {
+                refreshing.set(false)
+            }
+        }
+    }
+
+    /**
+     * Fetches the allowlist and replaces the local copy.
+     *
+     * @return True if the allowlist was fetched.
+     */
+    suspend fun refresh(): Boolean = withContext(Dispatchers.IO) {
+        val json = try {
+            fetch().also { JSONObject(it) }
+        } catch (e: Exception) {
+            Log.w(TAG, "Could not fetch the privileged app allowlist", e)
+            return@withContext false
+        }
+        try {
+            // Write next to the copy and rename, so a reader never sees a partial file.
+            val temporary = File(cacheFile.parentFile, "${cacheFile.name}.tmp")
+            temporary.writeText(json)
+            if (!temporary.renameTo(cacheFile)) {
+                temporary.delete()
+            }
+        } catch (e: IOException) {
+            Log.w(TAG, "Could not keep the privileged app allowlist", e)
+        }
+        allowlist = json
+        loaded = true
+        true
+    }
+
+    private fun load() {
+        synchronized(this) {
+            if (loaded) {
+                return
+            }
+            allowlist = try {
+                cacheFile.takeIf { it.exists() }?.readText()
+            } catch (e: IOException) {
+                null
+            }
+            loaded = true
+        }
+    }
+
+    private fun fetch(): String {
+        val connection = URL(ALLOWLIST_URL).openConnection() as HttpURLConnection
+        try {
+            connection.connectTimeout = TIMEOUT_MS
+            connection.readTimeout = TIMEOUT_MS
+            if (connection.responseCode != HttpURLConnection.HTTP_OK) {
+                throw IOException("HTTP ${connection.responseCode}")
+            }
+            return connection.inputStream.use { it.reader().readText() }
+        } finally {
+            connection.disconnect()
+        }
+    }
+
+    companion object {
+        /**
+         * The file name of the local copy inside the app's no-backup files directory.
+         */
+        const val CACHE_FILE_NAME = "privileged_apps.json"
+
+        private const val ALLOWLIST_URL =
+            "https://www.gstatic.com/gpm-passkeys-privileged-apps/apps.json"
+        private const val MAX_AGE_MS = 24 * 60 * 60 * 1000L
+        private const val RETRY_AFTER_MS = 5 * 60 * 1000L
+        private const val TIMEOUT_MS = 5_000
+        private const val TAG = "PrivilegedAppAllowlist"
+    }
+}
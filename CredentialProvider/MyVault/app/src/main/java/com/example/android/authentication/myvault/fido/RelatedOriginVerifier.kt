@@ -0,0 +1,167 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.fido
+
+import android.os.SystemClock
+import android.util.Log
+import android.util.LruCache
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
+import org.json.JSONObject
+import java.io.IOException
+import java.net.HttpURLConnection
+import java.net.URI
+import java.net.URL
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Decides whether a web origin may use a relying party id, following the WebAuthn rules for
+ * same-site origins and Related Origin Requests.
+ *
+ * An origin may always use an rp id it is equal to or a subdomain of, as long as the rp id is not
+ * itself a public suffix. Any other origin must be listed in the rp's `/.well-known/webauthn`
+ * document, where at most [MAX_LABELS] distinct registrable domain labels are honoured.
+ *
+ * Requests never wait on the network: an rp id whose document has not been fetched yet allows only
+ * same-site origins while the document is fetched in [coroutineScope], so the fetch completes and
+ * fills the cache even when the request that started it has moved on. Documents are cached per rp
+ * id for the life of the process; a failed fetch is only remembered for [FAILURE_CACHE_MS], so an
+ * rp id that was briefly unreachable is tried again.
+ *
+ * @param publicSuffixList Used to find the registrable domains of origins and rp ids.
+ * @param coroutineScope The scope documents are fetched in.
+ */
+class RelatedOriginVerifier(
+    private val publicSuffixList: PublicSuffixList,
+    private val coroutineScope: CoroutineScope,
+) {
+    private val relatedOrigins = LruCache<String, CachedOrigins>(CACHE_SIZE)
+    private val fetching = ConcurrentHashMap.newKeySet<String>()
+
+    /**
+     * Checks whether [origin] may assert or register credentials for [rpId].
+     *
+     * @param origin The caller's origin, for example `https://login.example.com`.
+     * @param rpId The relying party id of the request.
+     * @return True if the origin is same-site with the rp id or listed as a related origin in a
+     * document that has already been fetched.
+     */
+    fun isAllowed(origin: String, rpId: String): Boolean {
+        val host = hostOf(origin) ?: return false
+        if (publicSuffixList.registrableDomain(rpId) == null) {
+            return false
+        }
+        if (host == rpId || host.endsWith(".$rpId")) {
+            return true
+        }
+
+        val labels = HashSet<String>()
+        for (candidate in relatedOriginsOf(rpId)) {
+            val candidateHost = hostOf(candidate) ?: continue
+            val domain = publicSuffixList.registrableDomain(candidateHost) ?: continue
+            val label = domain.substringBefore('.')
+            if (labels.size >= MAX_LABELS && label !in labels) {
+                continue
+            }
+            if (sameOrigin(candidate, origin)) {
+                return true
+            }
+            labels.add(label)
+        }
+        return false
+    }
+
+    /**
+     * Returns the cached related origins of [rpId], or none while its document is fetched in the
+     * background.
+     */
+    private fun relatedOriginsOf(rpId: String): List<String> {
+        relatedOrigins.get(rpId)
+            ?.takeIf { SystemClock.elapsedRealtime() < it.expiresAtMs }
+            ?.let { return it.origins }
+        if (fetching.add(rpId)) {
+            coroutineScope.launch(Dispatchers.IO) {
+                try {
+                    relatedOrigins.put(rpId, load(rpId))
+                } finally {
+                    fetching.remove(rpId)
+                }
+            }
+        }
+        return emptyList()
+    }
+
+    private fun load(rpId: String): CachedOrigins = try {
+        val json = JSONObject(fetch("https://$rpId$WELL_KNOWN_PATH"))
+        val array = json.getJSONArray(ORIGINS)
+        CachedOrigins(List(array.length()) { array.getString(it) }, Long.MAX_VALUE)
+    } catch (e: Exception) {
+        Log.w(TAG, "No related origins for $rpId", e)
+        CachedOrigins(emptyList(), SystemClock.elapsedRealtime() + FAILURE_CACHE_MS)
+    }
+
+    private fun fetch(url: String): String {
+        val connection = URL(url).openConnection() as HttpURLConnection
+        try {
+            connection.connectTimeout = TIMEOUT_MS
+            connection.readTimeout = TIMEOUT_MS
+            if (connection.responseCode != HttpURLConnection.HTTP_OK) {
+                throw IOException("HTTP ${connection.responseCode}")
+            }
+            return connection.inputStream.use { it.reader().readText() }
+        } finally {
+            connection.disconnect()
+        }
+    }
+
+    private fun hostOf(origin: String): String? = try {
+        val uri = URI(origin)
+        if (uri.scheme == HTTPS) uri.host?.lowercase() else null
+    } catch (e: Exception) {
+        null
+    }
+
+    private fun sameOrigin(a: String, b: String): Boolean = try {
+        val first = URI(a)
+        val second = URI(b)
+        first.scheme == second.scheme &&
+            first.host.equals(second.host, ignoreCase = true) &&
+            effectivePort(first) == effectivePort(second)
+    } catch (e: Exception) {
+        false
+    }
+
+    private fun effectivePort(uri: URI): Int = if (uri.port == -1) HTTPS_PORT else uri.port
+
+    private class CachedOrigins(val origins: List<String>, val expiresAtMs: Long)
+
+    companion object {
+        /**
+         * The maximum number of registrable domain labels honoured in a related origins document.
+         */
+        const val MAX_LABELS = 5
+        private const val CACHE_SIZE = 32
+        private const val TIMEOUT_MS = 2_000
+        private const val FAILURE_CACHE_MS = 5 * 60 * 1000L
+        private const val WELL_KNOWN_PATH = "/.well-known/webauthn"
+        private const val ORIGINS = "origins"
+        private const val HTTPS = "https"
+        private const val HTTPS_PORT = 443
+        private const val TAG = "RelatedOriginVerifier"
+    }
+}
@@ -15,30 +15,9 @@
  */
 package com.example.android.authentication.myvault.fido
 
-import android.util.Base64
 import androidx.credentials.provider.CallingAppInfo
 import java.security.MessageDigest
 
-/**
- * Decodes a Base64-encoded string into a byte array.
- *
- * @param str The Base64-encoded string.
- * @return The decoded byte array.
- */
-fun b64Decode(str: String): ByteArray {
-    return Base64.decode(str, Base64.NO_PADDING or Base64.NO_WRAP or Base64.URL_SAFE)
-}
-
-/**
- * Encodes a byte array into a Base64-encoded string.
- *
- * @param data The byte array to encode.
- * @return The Base64-encoded string.
- */
-fun b64Encode(data: ByteArray): String {
-    return Base64.encodeToString(data, Base64.NO_PADDING or Base64.NO_WRAP or Base64.URL_SAFE)
-}
-
 /**
  * Generates an origin string for a given CallingAppInfo object.
  *
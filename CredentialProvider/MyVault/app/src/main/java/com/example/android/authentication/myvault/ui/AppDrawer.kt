@@ -25,6 +25,7 @@ import androidx.compose.foundation.layout.width
 import androidx.compose.material.icons.Icons
 import androidx.compose.material.icons.filled.Home
 import androidx.compose.material.icons.filled.Settings
+import androidx.compose.material.icons.filled.Warning
 import androidx.compose.material3.HorizontalDivider
 import androidx.compose.material3.Icon
 import androidx.compose.material3.MaterialTheme
@@ -47,6 +48,7 @@ import com.example.android.authentication.myvault.R
  *
  * @param currentRoute The current route of the app.
  * @param navigateToHome A lambda function to navigate to the home screen.
+ * @param navigateToHealth A lambda function to navigate to the vault health screen.
  * @param navigateToSettings A lambda function to navigate to the settings screen.
  * @param closeDrawer A lambda function to close the drawer.
  */
@@ -54,6 +56,7 @@ import com.example.android.authentication.myvault.R
 fun AppDrawer(
     currentRoute: String,
     navigateToHome: () -> Unit,
+    navigateToHealth: () -> Unit,
     navigateToSettings: () -> Unit,
     closeDrawer: () -> Unit,
 ) {
@@ -68,6 +71,15 @@ fun AppDrawer(
             closeDrawer()
         },
     )
+    DrawerButton(
+        image = Icons.Filled.Warning,
+        label = (stringResource(R.string.vault_health)),
+        isSelected = currentRoute == MyVaultDestinations.HEALTH_ROUTE,
+        action = {
+            navigateToHealth()
+            closeDrawer()
+        },
+    )
     DrawerButton(
         image = Icons.Filled.Settings,
         label = (stringResource(R.string.settings)),
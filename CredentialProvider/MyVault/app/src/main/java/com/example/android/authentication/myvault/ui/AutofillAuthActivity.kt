@@ -0,0 +1,129 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.ui
+
+import android.content.Intent
+import android.os.Bundle
+import android.service.autofill.Dataset
+import android.service.autofill.Field
+import android.util.Log
+import android.view.autofill.AutofillId
+import android.view.autofill.AutofillManager
+import android.view.autofill.AutofillValue
+import androidx.activity.enableEdgeToEdge
+import androidx.biometric.BiometricManager.Authenticators
+import androidx.biometric.BiometricPrompt
+import androidx.biometric.BiometricPrompt.PromptInfo.Builder
+import androidx.fragment.app.FragmentActivity
+import androidx.lifecycle.lifecycleScope
+import com.example.android.authentication.myvault.AppDependencies
+import com.example.android.authentication.myvault.R
+import kotlinx.coroutines.launch
+import java.time.Instant
+
+/**
+ * Unlocks a single autofill suggestion offered by
+ * [com.example.android.authentication.myvault.data.autofill.MyVaultAutofillService].
+ *
+ * After the user authenticates, the chosen password is read from the vault and returned to the
+ * autofill framework as a filled dataset.
+ */
+class AutofillAuthActivity : FragmentActivity() {
+
+    companion object {
+        const val EXTRA_PASSWORD_ID = "com.example.android.authentication.myvault.PASSWORD_ID"
+        const val EXTRA_USERNAME_ID = "com.example.android.authentication.myvault.USERNAME_ID"
+        const val EXTRA_PASSWORD_IDS = "com.example.android.authentication.myvault.PASSWORD_IDS"
+        private const val TAG = "MyVault"
+    }
+
+    private val credentialsDataSource = AppDependencies.credentialsDataSource
+
+    override fun onCreate(savedInstanceState: Bundle?) {
+        enableEdgeToEdge()
+        super.onCreate(savedInstanceState)
+
+        val passwordId = intent.getLongExtra(EXTRA_PASSWORD_ID, -1)
+        val passwordIds = intent.getParcelableArrayListExtra(EXTRA_PASSWORD_IDS, AutofillId::class.java)
+        if (passwordId < 0 || passwordIds.isNullOrEmpty()) {
+            finish()
+            return
+        }
+        val usernameId = intent.getParcelableExtra(EXTRA_USERNAME_ID, AutofillId::class.java)
+        unlock { fill(passwordId, usernameId, passwordIds) }
+    }
+
+    /**
+     * Shows the biometric prompt and runs [onUnlocked] once the user has authenticated.
+     */
+    private fun unlock(onUnlocked: () -> Unit) {
+        val biometricPrompt = BiometricPrompt(
+            this,
+            mainExecutor,
+            object : BiometricPrompt.AuthenticationCallback() {
+                override fun onAuthenticationError(errorCode: Int, errString: CharSequence) {
+                    super.onAuthenticationError(errorCode, errString)
+                    Log.e(TAG, getString(R.string.authentication_error, errString))
+                    finish()
+                }
+
+                override fun onAuthenticationFailed() {
+                    super.onAuthenticationFailed()
+                    Log.e(TAG, getString(R.string.authentication_failed))
+                }
+
+                override fun onAuthenticationSucceeded(result: BiometricPrompt.AuthenticationResult) {
+                    super.onAuthenticationSucceeded(result)
+                    onUnlocked()
+                }
+            },
+        )
+        val promptInfo = Builder()
+            .setTitle(getString(R.string.unlock_app))
+            .setSubtitle(getString(R.string.unlock_app_to_access_credentials))
+            .setAllowedAuthenticators(Authenticators.BIOMETRIC_STRONG or Authenticators.DEVICE_CREDENTIAL)
+            .build()
+        biometricPrompt.authenticate(promptInfo)
+    }
+
+    /**
+     * Reads the password and returns it, with its username, as the authentication result.
+     */
+    private fun fill(passwordId: Long, usernameId: AutofillId?, passwordIds: List<AutofillId>) {
+        lifecycleScope.launch {
+            val passwordItem = credentialsDataSource.getPassword(passwordId)
+            if (passwordItem == null) {
+                finish()
+                return@launch
+            }
+            val dataset = Dataset.Builder().setId(passwordId.toString())
+            usernameId?.let { dataset.setField(it, textField(passwordItem.username)) }
+            passwordIds.forEach { dataset.setField(it, textField(passwordItem.password)) }
+
+            credentialsDataSource.updatePassword(
+                passwordItem.copy(lastUsedTimeMs = Instant.now().toEpochMilli()),
+            )
+            setResult(
+                RESULT_OK,
+                Intent().putExtra(AutofillManager.EXTRA_AUTHENTICATION_RESULT, dataset.build()),
+            )
+            finish()
+        }
+    }
+
+    private fun textField(text: String): Field =
+        Field.Builder().setValue(AutofillValue.forText(text)).build()
+}
@@ -18,7 +18,6 @@ package com.example.android.authentication.myvault.ui
 import android.app.Activity
 import android.content.Intent
 import android.os.Bundle
-import android.util.Base64
 import android.util.Log
 import androidx.activity.enableEdgeToEdge
 import androidx.biometric.BiometricManager.Authenticators
@@ -40,10 +39,11 @@ import com.example.android.authentication.myvault.fido.Cbor
 import com.example.android.authentication.myvault.fido.FidoPublicKeyCredential
 import com.example.android.authentication.myvault.fido.PublicKeyCredentialCreationOptions
 import com.example.android.authentication.myvault.fido.b64Encode
+import com.example.android.authentication.myvault.fido.coseKeyToSPKI
+import com.example.android.authentication.myvault.fido.publicKeyToCose
 import com.example.android.authentication.myvault.util.PasskeyUtils
 import com.example.android.authentication.myvault.util.PrivilegedValidationResult
 import kotlinx.coroutines.runBlocking
-import java.math.BigInteger
 import java.security.KeyPair
 import java.security.KeyPairGenerator
 import java.security.interfaces.ECPrivateKey
@@ -369,24 +369,6 @@ class CreatePasskeyActivity : FragmentActivity() {
         return false
     }
 
-    /**
-     * Converts a COSE key to an SPKI (Subject Public Key Info) byte array.
-     *
-     * @param coseKey A mutable map representing the COSE key.
-     * @return The SPKI byte array, or null if an error occurs.
-     */
-    private fun coseKeyToSPKI(coseKey: MutableMap<Int, Any>): ByteArray? {
-        try {
-            val spkiPrefix: ByteArray = Base64.decode("MFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgAE", 0)
-            val x = coseKey[-2] as ByteArray
-            val y = coseKey[-3] as ByteArray
-            return spkiPrefix + x + y
-        } catch (e: Exception) {
-            // Log exceptions
-        }
-        return null
-    }
-
     /**
      * Set intent response to send back to the calling Relying party/client app
      * @param credentialId : generated credential ID
@@ -428,79 +410,6 @@ class CreatePasskeyActivity : FragmentActivity() {
         biometricPrompt.authenticate(promptInfo)
     }
 
-    /**
-     * Converts an ECPublicKey to a COSE key.
-     *
-     * @param key The ECPublicKey to convert.
-     * @return A mutable map representing the COSE key.
-     */
-    private fun publicKeyToCose(key: ECPublicKey): MutableMap<Int, Any> {
-        val x = bigIntToFixedArray(key.w.affineX)
-        val y = bigIntToFixedArray(key.w.affineY)
-        val coseKey = mutableMapOf<Int, Any>()
-        coseKey[1] = 2 // EC Key type
-        coseKey[3] = -7 // ES256
-        coseKey[-1] = 1 // P-265 Curve
-        coseKey[-2] = x // x
-        coseKey[-3] = y // y
-        return coseKey
-    }
-
-    /**
-     * Converts a {@link BigInteger} to a fixed-size byte array of length 32.
-     *
-     * This method takes a non-negative {@link BigInteger} and converts it into a
-     * fixed-size byte array of length 32. If the {@link BigInteger} requires fewer
-     * than 32 bytes to represent, it will be right-padded with zeros. If the
-     * {@link BigInteger} is larger than 32 bytes, an assertion error will be thrown.
-     *
-     * The {@link BigInteger#toByteArray()} method may add a leading zero byte if the
-     * most-significant bit of the first byte is one. This method handles this case by
-     * removing the leading zero byte before padding.
-     *
-     * @param n The non-negative {@link BigInteger} to convert.
-     * @return A byte array of length 32 representing the {@link BigInteger}.
-     * @throws AssertionError If the input {@link BigInteger} is negative or requires more than 32 bytes.
-     */
-    private fun bigIntToFixedArray(n: BigInteger): ByteArray {
-        assert(n.signum() >= 0)
-
-        val bytes = n.toByteArray()
-        // `toByteArray` will left-pad with a leading zero if the
-        // most-significant bit of the first byte would otherwise be one.
-        var offset = 0
-        if (bytes[0] == 0x00.toByte()) {
-            offset++
-        }
-        val bytesLen = bytes.size - offset
-        assert(bytesLen <= 32)
-
-        val output = ByteArray(32)
-        System.arraycopy(bytes, offset, output, 32 - bytesLen, bytesLen)
-        return output
-    }
-
-    /**
-     * Updates the metadata in shared preferences.
-     *
-     * @param accountId The account ID.
-     */
-    private fun updateMetaInSharedPreferences(accountId: String?) {
-        if (accountId == null || (accountId != USER_ACCOUNT)) {
-            // AccountId was not set
-        } else {
-            applicationContext.getSharedPreferences(
-                applicationContext.packageName,
-                MODE_PRIVATE,
-            ).edit().apply {
-                putLong(
-                    KEY_ACCOUNT_LAST_USED_MS,
-                    Instant.now().toEpochMilli(),
-                )
-            }.apply()
-        }
-    }
-
     /**
      * Saves the passkey in the credentials data store.
      *
@@ -550,8 +459,6 @@ class CreatePasskeyActivity : FragmentActivity() {
             "https://www.gstatic.com/gpm-passkeys-privileged-apps/apps.json"
 
         const val TAG = "MyVault"
-        const val KEY_ACCOUNT_LAST_USED_MS = "key_account_last_used_ms"
         const val KEY_ACCOUNT_ID = "key_account_id"
-        const val USER_ACCOUNT = "user_account"
     }
 }
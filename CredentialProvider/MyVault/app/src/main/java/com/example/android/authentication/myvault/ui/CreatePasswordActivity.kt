@@ -23,13 +23,16 @@ import androidx.activity.enableEdgeToEdge
 import androidx.compose.runtime.rememberCoroutineScope
 import androidx.credentials.CreatePasswordRequest
 import androidx.credentials.CreatePasswordResponse
+import androidx.credentials.provider.CallingAppInfo
 import androidx.credentials.provider.PendingIntentHandler
 import androidx.credentials.provider.ProviderCreateCredentialRequest
 import androidx.lifecycle.lifecycleScope
 import com.example.android.authentication.myvault.AppDependencies
 import com.example.android.authentication.myvault.BiometricErrorUtils
 import com.example.android.authentication.myvault.data.PasswordMetaData
+import com.example.android.authentication.myvault.data.room.VaultAccount
 import com.example.android.authentication.myvault.ui.password.PasswordScreen
+import com.example.android.authentication.myvault.util.PasskeyUtils
 import kotlinx.coroutines.launch
 import java.time.Instant
 
@@ -38,6 +41,7 @@ import java.time.Instant
  */
 class CreatePasswordActivity : ComponentActivity() {
     private val credentialsDataSource = AppDependencies.credentialsDataSource
+    private val breachedPasswordChecker = AppDependencies.breachedPasswordChecker
 
     override fun onCreate(savedInstanceState: Bundle?) {
         enableEdgeToEdge()
@@ -124,7 +128,8 @@ class CreatePasswordActivity : ComponentActivity() {
      * Compose's {@code setContent} to display the {@link PasswordScreen}.
      * When the user interacts with the {@link PasswordScreen} to save the password,
      * it launches a coroutine in the remembered coroutine scope to perform the
-     * actual saving operation asynchronously.
+     * actual saving operation asynchronously. The password is checked against the
+     * offline breach index off the main thread first, so the screen can warn before it is saved.
      *
      * @param request       The {@link CreatePasswordRequest} containing the password
      *                      creation details.
@@ -137,19 +142,23 @@ class CreatePasswordActivity : ComponentActivity() {
         createRequest: ProviderCreateCredentialRequest?,
         accountId: String?,
     ) {
-        setContent {
-            val coroutineScope = rememberCoroutineScope()
-            // Display the PasswordScreen.
-            PasswordScreen(
-                // Define the action to be taken when the user clicks the save button.
-                onSave = {
-                    // Launch a coroutine in the remembered scope to perform the save operation.
-                    coroutineScope.launch {
-                        // Call the onSaveClick method to handle the actual saving of the password.
-                        onSaveClick(request, createRequest, accountId)
-                    }
-                },
-            )
+        lifecycleScope.launch {
+            val breached = breachedPasswordChecker.isBreached(request.password)
+            setContent {
+                val coroutineScope = rememberCoroutineScope()
+                // Display the PasswordScreen.
+                PasswordScreen(
+                    breached = breached,
+                    // Define the action to be taken when the user clicks the save button.
+                    onSave = {
+                        // Launch a coroutine in the remembered scope to perform the save operation.
+                        coroutineScope.launch {
+                            // Call the onSaveClick method to handle the actual saving of the password.
+                            onSaveClick(request, createRequest, accountId)
+                        }
+                    },
+                )
+            }
         }
     }
 
@@ -168,7 +177,7 @@ class CreatePasswordActivity : ComponentActivity() {
         savePassword(
             request.id,
             request.password,
-            createRequest?.callingAppInfo?.packageName,
+            createRequest?.callingAppInfo,
             accountId,
         )
         // Set the response back
@@ -182,55 +191,50 @@ class CreatePasswordActivity : ComponentActivity() {
     /**
      * Saves the user password in storage.
      *
+     * Passwords from a privileged app such as a browser are saved under the registrable domain of
+     * the web origin it made the request for, where requests from that site look them up. Those
+     * from other apps are saved under their package name.
+     *
      * @param username The username.
      * @param password The password.
-     * @param callingPackage The package name of the calling app.
+     * @param callingAppInfo The calling app info of the request.
      * @param accountId The user's unique account ID.
      */
     private suspend fun savePassword(
         username: String,
         password: String,
-        callingPackage: String?,
+        callingAppInfo: CallingAppInfo?,
         accountId: String?,
     ) {
-        if (callingPackage == null) {
+        if (callingAppInfo == null) {
             return
         }
 
-        if (accountId == null || (accountId != USER_ACCOUNT)) {
-            // AccountId was not set
-        } else {
-            saveUserPassword()
-        }
-
+        val account = accountId ?: VaultAccount.PERSONAL
+        val webSite = PasskeyUtils.privilegedCallingOrigin(callingAppInfo)
+            ?.let { credentialsDataSource.siteKeyForOrigin(it) }
         credentialsDataSource.addNewPassword(
             PasswordMetaData(
                 username,
                 password,
-                callingPackage,
+                webSite ?: callingAppInfo.packageName,
                 lastUsedTimeMs = Instant.now().toEpochMilli(),
+                accountId = account,
+                isPackageName = webSite == null,
+                browserPackage = callingAppInfo.packageName.takeIf { webSite != null },
             ),
         )
-    }
+        credentialsDataSource.markAccountUsed(account)
 
-    /**
-     * Saves the user password in storage.
-     */
-    private fun saveUserPassword() {
-        applicationContext.getSharedPreferences(
-            applicationContext.packageName,
-            MODE_PRIVATE,
-        ).edit().apply {
-            putLong(
-                KEY_ACCOUNT_LAST_USED_MS,
-                Instant.now().toEpochMilli(),
-            )
-        }.apply()
+        // Refresh the vault-wide results so the new password is flagged in the credentials list.
+        if (breachedPasswordChecker.isBreached(password)) {
+            AppDependencies.coroutineScope.launch {
+                breachedPasswordChecker.scanVault()
+            }
+        }
     }
 
     companion object {
-        const val KEY_ACCOUNT_LAST_USED_MS = "key_account_last_used_ms"
         const val KEY_ACCOUNT_ID = "key_account_id"
-        const val USER_ACCOUNT = "user_account"
     }
 }
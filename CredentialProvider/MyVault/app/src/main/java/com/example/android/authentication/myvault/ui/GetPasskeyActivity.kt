@@ -50,7 +50,6 @@ import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.async
 import kotlinx.coroutines.runBlocking
 import java.math.BigInteger
-import java.net.URL
 import java.security.AlgorithmParameters
 import java.security.KeyFactory
 import java.security.Signature
@@ -282,7 +281,7 @@ class GetPasskeyActivity : FragmentActivity() {
      * @return The origin if the app is privileged, or null otherwise.
      */
     private fun validatePrivilegedCallingApp(callingAppInfo: CallingAppInfo): String? {
-        val allowlistJson = getGPMPrivilegedAppAllowlist()
+        val allowlistJson = AppDependencies.privilegedAppAllowlist.current()
         if (allowlistJson != null) {
             return try {
                 callingAppInfo.getOrigin(
@@ -303,27 +302,6 @@ class GetPasskeyActivity : FragmentActivity() {
         return null
     }
 
-    /**
-     * Method to retrieve the list of privileged apps allowlisted by GPM
-     *
-     * @return The allowlist as a JSON string, or null if there is an error.
-     */
-    private fun getGPMPrivilegedAppAllowlist(): String? {
-        val gpmAllowlist: String? = runBlocking {
-            val allowlist: Deferred<String?> = async(Dispatchers.IO) {
-                try {
-                    val url = URL(GPM_ALLOWLIST_URL)
-                    return@async url.readText()
-                } catch (e: Exception) {
-                    return@async null
-                }
-            }
-            return@runBlocking allowlist.await()
-        }
-
-        return gpmAllowlist
-    }
-
     /**
      * Checks if the client request contains an origin for the calling app.
      *
@@ -640,8 +618,6 @@ class GetPasskeyActivity : FragmentActivity() {
             "    }\n" +
             "]}\n" +
             "\n"
-        private const val GPM_ALLOWLIST_URL =
-            "https://www.gstatic.com/gpm-passkeys-privileged-apps/apps.json"
 
         private const val TAG = "MyVault"
     }
@@ -16,6 +16,7 @@
 package com.example.android.authentication.myvault.ui
 
 import android.content.Intent
+import android.net.Uri
 import android.os.Bundle
 import androidx.activity.ComponentActivity
 import androidx.activity.enableEdgeToEdge
@@ -30,6 +31,7 @@ import com.example.android.authentication.myvault.AppDependencies
 import com.example.android.authentication.myvault.BiometricErrorUtils
 import com.example.android.authentication.myvault.R
 import com.example.android.authentication.myvault.data.PasswordItem
+import com.example.android.authentication.myvault.util.PasskeyUtils
 import kotlinx.coroutines.runBlocking
 import java.time.Instant
 
@@ -100,7 +102,7 @@ class GetPasswordActivity : ComponentActivity() {
      * Configures the password item and password for a given request and username.
      *
      * <p>This method retrieves the password credentials associated with the calling
-     * application's package name and searches for a password item that matches the
+     * application's package name, or with the web site a browser makes the request for, and searches for a password item that matches the
      * provided username. If a match is found, it returns the corresponding
      * {@link PasswordItem} and password. If no match is found, it returns a
      * {@code null} {@link PasswordItem} and an empty string for the password.
@@ -116,22 +118,26 @@ class GetPasswordActivity : ComponentActivity() {
         request: ProviderGetCredentialRequest,
         username: String?,
     ): Pair<PasswordItem?, String> {
-        // Retrieve the credentials associated with the calling app's package name.
-        val credentials =
-            credentialsDataSource.credentialsForSite(request.callingAppInfo.packageName)
+        // Retrieve the credentials for the web site a browser is on, or the calling app's package name.
+        val origin = PasskeyUtils.privilegedCallingOrigin(request.callingAppInfo)
+        val credentials = if (origin != null) {
+            credentialsDataSource.credentialsForDomain(Uri.parse(origin).host)
+        } else {
+            listOfNotNull(credentialsDataSource.credentialsForSite(request.callingAppInfo.packageName))
+        }
 
         // Get the list of passwords from the credentials.
-        val passwords = credentials?.passwords
+        val passwords = credentials.flatMap { it.passwords }
         // Initialize variables to store the found password item and the password.
         var passwordItem: PasswordItem? = null
         // Get an iterator for the list of passwords.
-        val it = passwords?.iterator()
+        val it = passwords.iterator()
 
         // Initialize the password variable with an empty string.
         var password = getString(R.string.empty)
 
         // Iterate through the passwords to find a matching username.
-        while (it?.hasNext() == true) {
+        while (it.hasNext()) {
             // Get the current password item.
             val passwordItemCurrent = it.next()
             // Check if the current password item's username matches the requested username.
@@ -20,9 +20,13 @@ import androidx.activity.ComponentActivity
 import androidx.activity.compose.setContent
 import androidx.activity.enableEdgeToEdge
 import androidx.core.view.WindowCompat
+import com.example.android.authentication.myvault.AppDependencies
 import com.example.android.authentication.myvault.R
+import com.example.android.authentication.myvault.StartupTrace
 import com.example.android.authentication.myvault.createNotificationChannel
+import com.example.android.authentication.myvault.data.maintenance.VaultMaintenanceWorker
 import com.example.android.authentication.myvault.ui.theme.MyVaultTheme
+import kotlinx.coroutines.launch
 
 class MainActivity : ComponentActivity() {
     override fun onCreate(savedInstanceState: Bundle?) {
@@ -39,5 +43,9 @@ class MainActivity : ComponentActivity() {
                 MyVaultAppNavigation()
             }
         }
+        window.decorView.post { StartupTrace.logReportOnce("First frame") }
+        AppDependencies.coroutineScope.launch {
+            VaultMaintenanceWorker.schedule(applicationContext)
+        }
     }
 }
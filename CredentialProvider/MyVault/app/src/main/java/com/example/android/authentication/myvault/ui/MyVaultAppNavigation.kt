@@ -92,6 +92,7 @@ fun MyVaultAppNavigation(
                 AppDrawer(
                     currentRoute = currentRoute,
                     navigateToHome = navigationActions.navigateToHome,
+                    navigateToHealth = navigationActions.navigateToHealth,
                     navigateToSettings = navigationActions.navigateToSettings,
                     closeDrawer = { coroutineScope.launch { drawerState.close() } },
                 )
@@ -21,6 +21,7 @@ import androidx.navigation.NavHostController
 object MyVaultDestinations {
     const val HOME_ROUTE = "home"
     const val SETTINGS_ROUTE = "settings"
+    const val HEALTH_ROUTE = "health"
 }
 
 /**
@@ -42,6 +43,19 @@ class MyVaultNavActions(navController: NavHostController) {
         }
     }
 
+    /**
+     * Navigates to the vault health destination.
+     */
+    val navigateToHealth: () -> Unit = {
+        navController.navigate(MyVaultDestinations.HEALTH_ROUTE) {
+            popUpTo(navController.graph.findStartDestination().id) {
+                saveState = true
+            }
+            launchSingleTop = true
+            restoreState = true
+        }
+    }
+
     /**
      * Navigates to the settings destination.
      */
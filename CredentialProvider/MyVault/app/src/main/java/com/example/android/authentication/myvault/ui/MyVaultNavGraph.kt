@@ -24,6 +24,8 @@ import androidx.navigation.compose.NavHost
 import androidx.navigation.compose.composable
 import androidx.navigation.compose.rememberNavController
 import com.example.android.authentication.myvault.AppDependencies
+import com.example.android.authentication.myvault.ui.health.HealthScreen
+import com.example.android.authentication.myvault.ui.health.HealthViewModelFactory
 import com.example.android.authentication.myvault.ui.home.HomeScreen
 import com.example.android.authentication.myvault.ui.home.HomeViewModelFactory
 import com.example.android.authentication.myvault.ui.settings.SettingsScreen
@@ -55,14 +57,31 @@ fun MyVaultNavGraph(
                     factory = HomeViewModelFactory(
                         AppDependencies.credentialsDataSource,
                         AppDependencies.rpIconDataSource,
+                        AppDependencies.breachedPasswordChecker,
                     ),
                 ),
                 openDrawer = openDrawer,
             )
         }
+        composable(MyVaultDestinations.HEALTH_ROUTE) {
+            HealthScreen(
+                viewModel = viewModel(
+                    factory = HealthViewModelFactory(AppDependencies.vaultHealthAnalyzer),
+                ),
+                openDrawer = openDrawer,
+            )
+        }
         composable(MyVaultDestinations.SETTINGS_ROUTE) {
             SettingsScreen(
-                viewModel = viewModel(factory = SettingsViewModelFactory(AppDependencies.database)),
+                viewModel = viewModel(
+                    factory = SettingsViewModelFactory(
+                        AppDependencies.database,
+                        AppDependencies.credentialsImporter,
+                        AppDependencies.rpIconDataSource,
+                        AppDependencies::vaultBackupManager,
+                        AppDependencies.breachedPasswordChecker,
+                    ),
+                ),
                 openDrawer = openDrawer,
             )
         }
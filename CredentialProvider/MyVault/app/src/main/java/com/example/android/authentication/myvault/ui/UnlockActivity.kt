@@ -49,11 +49,7 @@ class UnlockActivity : FragmentActivity() {
         enableEdgeToEdge()
         super.onCreate(savedInstanceState)
 
-        credentialsRepo = CredentialsRepository(
-            AppDependencies.sharedPreferences,
-            AppDependencies.credentialsDataSource,
-            applicationContext,
-        )
+        credentialsRepo = AppDependencies.credentialsRepository
 
         val request = PendingIntentHandler.retrieveBeginGetCredentialRequest(intent)
         if (request != null) {
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.ui.health
+
+import androidx.compose.foundation.BorderStroke
+import androidx.compose.foundation.layout.Arrangement
+import androidx.compose.foundation.layout.Column
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.items
+import androidx.compose.material.icons.Icons
+import androidx.compose.material.icons.filled.Menu
+import androidx.compose.material3.Card
+import androidx.compose.material3.CenterAlignedTopAppBar
+import androidx.compose.material3.ExperimentalMaterial3Api
+import androidx.compose.material3.Icon
+import androidx.compose.material3.IconButton
+import androidx.compose.material3.MaterialTheme
+import androidx.compose.material3.Scaffold
+import androidx.compose.material3.Text
+import androidx.compose.material3.TopAppBarDefaults
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.getValue
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.res.pluralStringResource
+import androidx.compose.ui.res.stringResource
+import androidx.compose.ui.tooling.preview.Preview
+import androidx.compose.ui.unit.dp
+import androidx.lifecycle.compose.collectAsStateWithLifecycle
+import com.example.android.authentication.myvault.Dimensions
+import com.example.android.authentication.myvault.R
+import com.example.android.authentication.myvault.data.health.ReusedPassword
+import com.example.android.authentication.myvault.data.health.VaultHealth
+
+/**
+ * This composable holds the stateful version of the vault health screen
+ * @param viewModel : viewmodel instance exposing the vault health analysis
+ * @param openDrawer : method to open the drawer on click
+ * @param modifier : Modifier to update behavior of composables UI
+ */
+@Composable
+fun HealthScreen(
+    viewModel: HealthViewModel,
+    openDrawer: () -> Unit,
+    modifier: Modifier = Modifier,
+) {
+    val health by viewModel.uiState.collectAsStateWithLifecycle()
+
+    HealthScreen(health, openDrawer, modifier)
+}
+
+/**
+ * This composable holds the stateless version of the vault health screen to ease preview
+ * @param health : the latest vault health analysis
+ * @param openDrawer : method to open the drawer on click
+ * @param modifier : Modifier to update behavior of composables UI
+ */
+@Composable
+fun HealthScreen(
+    health: VaultHealth,
+    openDrawer: () -> Unit,
+    modifier: Modifier = Modifier,
+) {
+    Scaffold(
+        topBar = {
+            AppBarContent(openDrawer)
+        },
+        modifier = modifier,
+    ) { innerPadding ->
+        LazyColumn(
+            modifier = Modifier
+                .padding(innerPadding)
+                .fillMaxWidth()
+                .padding(Dimensions.padding_large),
+            verticalArrangement = Arrangement.spacedBy(Dimensions.padding_medium),
+        ) {
+            item {
+                Text(
+                    text = if (health.reuseGroups.isEmpty()) {
+                        stringResource(R.string.no_reused_passwords, health.totalPasswords)
+                    } else {
+                        pluralStringResource(
+                            R.plurals.reused_password_groups,
+                            health.reuseGroups.size,
+                            health.reuseGroups.size,
+                            health.totalPasswords,
+                        )
+                    },
+                    style = MaterialTheme.typography.bodyLarge,
+                )
+            }
+            items(health.reuseGroups) { group ->
+                ReuseGroupCard(group)
+            }
+        }
+    }
+}
+
+/**
+ * Renders one group of passwords sharing the same value.
+ *
+ * @param group The passwords in the group.
+ * @param modifier The modifier to be applied to the composable.
+ */
+@Composable
+private fun ReuseGroupCard(
+    group: List<ReusedPassword>,
+    modifier: Modifier = Modifier,
+) {
+    Card(
+        modifier = modifier.fillMaxWidth(),
+        border = BorderStroke(1.dp, MaterialTheme.colorScheme.outlineVariant),
+        shape = MaterialTheme.shapes.large,
+    ) {
+        Column(
+            modifier = Modifier.padding(Dimensions.padding_medium),
+            verticalArrangement = Arrangement.spacedBy(Dimensions.padding_small),
+        ) {
+            Text(
+                text = stringResource(R.string.reused_on_sites, group.size),
+                style = MaterialTheme.typography.titleSmall,
+                color = MaterialTheme.colorScheme.error,
+            )
+            group.forEach { password ->
+                Text(
+                    text = stringResource(R.string.site_and_username, password.siteUrl, password.username),
+                    style = MaterialTheme.typography.bodyMedium,
+                )
+            }
+        }
+    }
+}
+
+/**
+ * Set the top AppBar UI
+ *
+ * @param openDrawer : method to open the drawer on click
+ */
+@Composable
+@OptIn(ExperimentalMaterial3Api::class)
+private fun AppBarContent(openDrawer: () -> Unit) {
+    CenterAlignedTopAppBar(
+        modifier = Modifier,
+        title = {
+            Text(
+                text = stringResource(R.string.vault_health),
+            )
+        },
+        colors = TopAppBarDefaults.centerAlignedTopAppBarColors(
+            containerColor = MaterialTheme.colorScheme.surface,
+        ),
+        navigationIcon = {
+            IconButton(onClick = openDrawer) {
+                Icon(
+                    imageVector = Icons.Filled.Menu,
+                    contentDescription = stringResource(R.string.vault_health),
+                )
+            }
+        },
+    )
+}
+
+/**
+ * This composable function provides a preview of the HealthScreen composable.
+ */
+@Preview
+@Composable
+fun HealthScreenPreview() {
+    HealthScreen(
+        health = VaultHealth(
+            totalPasswords = 3,
+            reuseGroups = listOf(
+                listOf(
+                    ReusedPassword(1, "example.com", "alice"),
+                    ReusedPassword(2, "example.org", "alice"),
+                ),
+            ),
+        ),
+        openDrawer = {},
+    )
+}
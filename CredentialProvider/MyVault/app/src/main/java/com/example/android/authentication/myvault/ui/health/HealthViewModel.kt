@@ -0,0 +1,43 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.ui.health
+
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import com.example.android.authentication.myvault.data.health.VaultHealth
+import com.example.android.authentication.myvault.data.health.VaultHealthAnalyzer
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.stateIn
+
+/**
+ * This class is a ViewModel that exposes the vault health analysis to the health screen.
+ * @param vaultHealthAnalyzer The analyzer tracking reused passwords.
+ */
+class HealthViewModel(
+    vaultHealthAnalyzer: VaultHealthAnalyzer,
+) : ViewModel() {
+
+    val uiState: StateFlow<VaultHealth> = vaultHealthAnalyzer.health.stateIn(
+        viewModelScope,
+        SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS),
+        VaultHealth(),
+    )
+
+    companion object {
+        private const val STOP_TIMEOUT_MS = 5_000L
+    }
+}
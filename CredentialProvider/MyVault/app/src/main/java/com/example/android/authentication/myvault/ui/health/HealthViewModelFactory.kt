@@ -0,0 +1,35 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.ui.health
+
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.ViewModelProvider
+import com.example.android.authentication.myvault.data.health.VaultHealthAnalyzer
+
+/**
+ * This class is a factory for creating instances of the {@link HealthViewModel} class.
+ *
+ * <p>This factory is used by the {@link ViewModelProvider} to create instances of the {@link
+ * HealthViewModel} class. The factory takes one parameter, {@code vaultHealthAnalyzer}, which is
+ * used to initialize the {@link HealthViewModel} instance.
+ */
+class HealthViewModelFactory(
+    private val vaultHealthAnalyzer: VaultHealthAnalyzer,
+) : ViewModelProvider.NewInstanceFactory() {
+    override fun <T : ViewModel> create(modelClass: Class<T>): T {
+        return HealthViewModel(vaultHealthAnalyzer) as T
+    }
+}
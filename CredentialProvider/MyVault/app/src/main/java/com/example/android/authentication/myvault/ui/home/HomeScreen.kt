@@ -93,6 +93,7 @@ fun HomeScreen(
         ShowCredentialsScreen(
             modifier = modifier,
             site = site,
+            breachedPasswordIds = uiState.breachedPasswordIds,
             onCancel = { hasShownCredentials.value = false },
             onPasswordDelete = {
                 onPasswordDelete(it)
@@ -22,20 +22,24 @@ import com.example.android.authentication.myvault.data.CredentialsDataSource
 import com.example.android.authentication.myvault.data.PasskeyItem
 import com.example.android.authentication.myvault.data.PasswordItem
 import com.example.android.authentication.myvault.data.RPIconDataSource
+import com.example.android.authentication.myvault.data.breach.BreachedPasswordChecker
 import com.example.android.authentication.myvault.data.room.SiteWithCredentials
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
 
 /**
  * This class is a ViewModel that holds the business logic to operate on a list of credentials.
  * @param credentialsDataSource The data source for credentials.
  * @param RPIconDataSource The data source for rpicons.
+ * @param breachedPasswordChecker The offline breached password check used to flag stored passwords.
  */
 class HomeViewModel(
     private val credentialsDataSource: CredentialsDataSource,
     private val RPIconDataSource: RPIconDataSource,
+    private val breachedPasswordChecker: BreachedPasswordChecker,
 ) : ViewModel() {
 
     private val _uiState = MutableStateFlow(HomeUiState())
@@ -75,13 +79,23 @@ class HomeViewModel(
                         icons[it.site.url] = icon
                     }
                 }
-                _uiState.value = HomeUiState(siteList = siteList, iconMap = icons)
+                _uiState.update { it.copy(siteList = siteList, iconMap = icons) }
             }
         }
+        viewModelScope.launch {
+            breachedPasswordChecker.breachedPasswordIds.collect { ids ->
+                _uiState.update { it.copy(breachedPasswordIds = ids) }
+            }
+        }
+        // Check the whole vault in the background; results arrive through the flow above.
+        viewModelScope.launch {
+            breachedPasswordChecker.scanVault()
+        }
     }
 }
 
 data class HomeUiState(
     val siteList: List<SiteWithCredentials> = emptyList(),
     val iconMap: Map<String, Bitmap> = emptyMap(),
+    val breachedPasswordIds: Set<Long> = emptySet(),
 )
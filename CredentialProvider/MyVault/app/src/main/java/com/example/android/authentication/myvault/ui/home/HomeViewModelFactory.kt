@@ -19,19 +19,22 @@ import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
 import com.example.android.authentication.myvault.data.CredentialsDataSource
 import com.example.android.authentication.myvault.data.RPIconDataSource
+import com.example.android.authentication.myvault.data.breach.BreachedPasswordChecker
 
 /**
  * This class is a factory for creating instances of the {@link HomeViewModel} class.
  *
  * <p>This factory is used by the {@link ViewModelProvider} to create instances of the {@link
- * HomeViewModel} class. The factory takes two parameters, {@code credentialsDataSource} and {@code
- * rpIconDataSource}, which are used to initialize the {@link HomeViewModel} instance.
+ * HomeViewModel} class. The factory takes three parameters, {@code credentialsDataSource}, {@code
+ * rpIconDataSource} and {@code breachedPasswordChecker}, which are used to initialize the {@link
+ * HomeViewModel} instance.
  */
 class HomeViewModelFactory(
     private val credentialsDataSource: CredentialsDataSource,
     private val RPIconDataSource: RPIconDataSource,
+    private val breachedPasswordChecker: BreachedPasswordChecker,
 ) : ViewModelProvider.NewInstanceFactory() {
     override fun <T : ViewModel> create(modelClass: Class<T>): T {
-        return HomeViewModel(credentialsDataSource, RPIconDataSource) as T
+        return HomeViewModel(credentialsDataSource, RPIconDataSource, breachedPasswordChecker) as T
     }
 }
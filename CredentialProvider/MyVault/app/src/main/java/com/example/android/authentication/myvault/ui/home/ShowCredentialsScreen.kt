@@ -72,6 +72,7 @@ import com.example.android.authentication.myvault.data.room.SiteWithCredentials
  * @param onPasswordDelete : method to call on selected password credential delete
  * @param onPasskeyDelete : method to call on selected passkey credential delete
  * @param modifier : modifier for the composable
+ * @param breachedPasswordIds : ids of passwords found in the offline breach index
  */
 @Composable
 fun ShowCredentialsScreen(
@@ -80,6 +81,7 @@ fun ShowCredentialsScreen(
     onPasswordDelete: (PasswordItem) -> Unit,
     onPasskeyDelete: (PasskeyItem) -> Unit,
     modifier: Modifier = Modifier,
+    breachedPasswordIds: Set<Long> = emptySet(),
 ) {
     val snackbarHostState = remember { SnackbarHostState() }
 
@@ -90,6 +92,7 @@ fun ShowCredentialsScreen(
         onPasswordDelete,
         onPasskeyDelete,
         modifier,
+        breachedPasswordIds,
     )
 }
 
@@ -102,6 +105,7 @@ fun ShowCredentialsScreen(
  * @param onPasswordDelete The callback to be invoked when the user clicks the delete button for a password credential
  * @param onPasskeyDelete The callback to be invoked when the user clicks the delete button for a passkey credential
  * @param modifier The modifier to be applied to the composable
+ * @param breachedPasswordIds The ids of passwords found in the offline breach index
  */
 @Composable
 fun ShowCredentialsScreen(
@@ -111,6 +115,7 @@ fun ShowCredentialsScreen(
     onPasswordDelete: (PasswordItem) -> Unit,
     onPasskeyDelete: (PasskeyItem) -> Unit,
     modifier: Modifier = Modifier,
+    breachedPasswordIds: Set<Long> = emptySet(),
 ) {
     BackHandler {
         onCancel()
@@ -123,7 +128,7 @@ fun ShowCredentialsScreen(
         },
         modifier = modifier,
     ) { innerPadding ->
-        CredentialsEntry(innerPadding, site, onPasskeyDelete, onPasswordDelete, Modifier)
+        CredentialsEntry(innerPadding, site, breachedPasswordIds, onPasskeyDelete, onPasswordDelete, Modifier)
     }
 }
 
@@ -170,6 +175,7 @@ private fun TopAppBarContent(
  *
  * @param innerPadding The padding to apply to the inner content.
  * @param site The SiteWithCredentials object representing the site and its credentials.
+ * @param breachedPasswordIds The ids of passwords found in the offline breach index.
  * @param onPasskeyDelete The callback to be invoked when a passkey is deleted.
  * @param onPasswordDelete The callback to be invoked when a password is deleted.
  * @param modifier The modifier to be applied to the composable.
@@ -178,6 +184,7 @@ private fun TopAppBarContent(
 private fun CredentialsEntry(
     innerPadding: PaddingValues,
     site: SiteWithCredentials,
+    breachedPasswordIds: Set<Long>,
     onPasskeyDelete: (PasskeyItem) -> Unit,
     onPasswordDelete: (PasswordItem) -> Unit,
     modifier: Modifier = Modifier,
@@ -203,6 +210,7 @@ private fun CredentialsEntry(
                 password = it,
                 onPasswordDelete = onPasswordDelete,
                 Modifier,
+                breached = it.id in breachedPasswordIds,
             )
         }
     }
@@ -215,12 +223,14 @@ private fun CredentialsEntry(
  * @param password The password item to display.
  * @param onPasswordDelete The callback to be invoked when the user clicks the delete button.
  * @param modifier The modifier to be applied to the composable
+ * @param breached Whether the password was found in the offline breach index.
  */
 @Composable
 fun PasswordEntry(
     password: PasswordItem,
     onPasswordDelete: (PasswordItem) -> Unit,
     modifier: Modifier = Modifier,
+    breached: Boolean = false,
 ) {
     var passwordVisible by rememberSaveable { mutableStateOf(false) }
     Card(
@@ -268,6 +278,16 @@ fun PasswordEntry(
                         onClick = { passwordVisible = !passwordVisible },
                     )
                 },
+                supportingText = if (breached) {
+                    {
+                        Text(
+                            text = stringResource(R.string.password_breached),
+                            color = MaterialTheme.colorScheme.error,
+                        )
+                    }
+                } else {
+                    null
+                },
             )
             Button(
                 modifier = Modifier
@@ -51,12 +51,14 @@ import com.example.android.authentication.myvault.ui.theme.MyVaultTheme
  *
  * @param onSave The callback to be invoked when the user clicks the "Save" button
  * @param modifier The modifier to be applied to the composable
+ * @param breached Whether the password was found in the offline breach index
  */
 @OptIn(ExperimentalMaterial3Api::class)
 @Composable
 fun PasswordScreen(
     onSave: () -> Unit,
     modifier: Modifier = Modifier,
+    breached: Boolean = false,
 ) {
     val bottomSheetState = rememberModalBottomSheetState(skipPartiallyExpanded = true)
 
@@ -64,6 +66,7 @@ fun PasswordScreen(
         onSave,
         bottomSheetState,
         modifier,
+        breached,
     )
 }
 
@@ -73,6 +76,7 @@ fun PasswordScreen(
  * @param onSave The callback to be invoked when the user clicks the "Save" button
  * @param bottomSheetState The state of the bottom sheet
  * @param modifier The modifier to be applied to the composable
+ * @param breached Whether the password was found in the offline breach index
  */
 @OptIn(ExperimentalMaterial3Api::class)
 @Composable
@@ -80,6 +84,7 @@ fun PasswordScreen(
     onSave: () -> Unit,
     bottomSheetState: SheetState,
     modifier: Modifier = Modifier,
+    breached: Boolean = false,
 ) {
     var showBottomSheet by rememberSaveable { mutableStateOf(true) }
 
@@ -96,7 +101,7 @@ fun PasswordScreen(
                             .padding(Dimensions.padding_medium)
                             .background(MaterialTheme.colorScheme.onPrimary),
                     ) {
-                        SaveYourPasswordCard(onSave, Modifier)
+                        SaveYourPasswordCard(onSave, breached, Modifier)
                     }
                 },
                 shape = MaterialTheme.shapes.medium,
@@ -109,7 +114,11 @@ fun PasswordScreen(
 }
 
 @Composable
-private fun SaveYourPasswordCard(onSave: () -> Unit, modifier: Modifier = Modifier) {
+private fun SaveYourPasswordCard(
+    onSave: () -> Unit,
+    breached: Boolean,
+    modifier: Modifier = Modifier,
+) {
     Column(modifier.background(MaterialTheme.colorScheme.onPrimary)) {
         Icon(
             painter = painterResource(R.drawable.android_secure),
@@ -125,6 +134,15 @@ private fun SaveYourPasswordCard(onSave: () -> Unit, modifier: Modifier = Modifi
             textAlign = TextAlign.Center,
             modifier = Modifier.padding(bottom = Dimensions.padding_medium),
         )
+        if (breached) {
+            Text(
+                text = stringResource(R.string.password_breached_warning),
+                style = MaterialTheme.typography.bodyMedium,
+                color = MaterialTheme.colorScheme.error,
+                textAlign = TextAlign.Center,
+                modifier = Modifier.padding(horizontal = Dimensions.padding_medium),
+            )
+        }
         Button(
             modifier = Modifier
                 .fillMaxWidth()
@@ -15,13 +15,18 @@
  */
 package com.example.android.authentication.myvault.ui.settings
 
+import android.provider.OpenableColumns
 import android.util.Log
-import androidx.compose.foundation.layout.PaddingValues
+import androidx.activity.compose.rememberLauncherForActivityResult
+import androidx.activity.result.contract.ActivityResultContracts
+import androidx.annotation.StringRes
+import androidx.compose.foundation.layout.Arrangement
+import androidx.compose.foundation.layout.Column
 import androidx.compose.foundation.layout.fillMaxSize
 import androidx.compose.foundation.layout.padding
-import androidx.compose.foundation.layout.wrapContentSize
 import androidx.compose.material.icons.Icons
 import androidx.compose.material.icons.filled.Menu
+import androidx.compose.material3.AlertDialog
 import androidx.compose.material3.Button
 import androidx.compose.material3.ButtonDefaults
 import androidx.compose.material3.CenterAlignedTopAppBar
@@ -29,23 +34,32 @@ import androidx.compose.material3.ExperimentalMaterial3Api
 import androidx.compose.material3.Icon
 import androidx.compose.material3.IconButton
 import androidx.compose.material3.MaterialTheme
+import androidx.compose.material3.OutlinedTextField
 import androidx.compose.material3.Scaffold
 import androidx.compose.material3.SnackbarDuration
 import androidx.compose.material3.SnackbarHost
 import androidx.compose.material3.SnackbarHostState
 import androidx.compose.material3.Text
+import androidx.compose.material3.TextButton
 import androidx.compose.material3.TopAppBarDefaults
 import androidx.compose.runtime.Composable
 import androidx.compose.runtime.LaunchedEffect
 import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableStateOf
 import androidx.compose.runtime.remember
+import androidx.compose.runtime.saveable.rememberSaveable
+import androidx.compose.runtime.setValue
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.platform.LocalContext
 import androidx.compose.ui.res.stringResource
+import androidx.compose.ui.text.input.PasswordVisualTransformation
 import androidx.compose.ui.tooling.preview.Preview
 import androidx.lifecycle.compose.collectAsStateWithLifecycle
+import com.example.android.authentication.myvault.Dimensions
 import com.example.android.authentication.myvault.R
+import com.example.android.authentication.myvault.data.importer.ImportFormat
+import java.io.FileNotFoundException
 
 /**
  * This composable holds the stateful version of Settings screen
@@ -62,9 +76,57 @@ fun SettingsScreen(
     val uiState by viewModel.uiState.collectAsStateWithLifecycle()
 
     val snackbarHostState = remember { SnackbarHostState() }
+    val context = LocalContext.current
+
+    val importLauncher = rememberLauncherForActivityResult(
+        ActivityResultContracts.OpenDocument(),
+    ) { uri ->
+        if (uri == null) {
+            return@rememberLauncherForActivityResult
+        }
+        val resolver = context.contentResolver
+        val fileName = resolver.query(uri, arrayOf(OpenableColumns.DISPLAY_NAME), null, null, null)
+            ?.use { cursor -> if (cursor.moveToFirst()) cursor.getString(0) else null }
+        // Only open the document once it is known to be importable, so nothing is left open.
+        val format = ImportFormat.from(resolver.getType(uri), fileName)
+        val input = format?.let {
+            try {
+                resolver.openInputStream(uri)
+            } catch (e: FileNotFoundException) {
+                null
+            }
+        }
+        if (format == null || input == null) {
+            viewModel.onImportRejected()
+            return@rememberLauncherForActivityResult
+        }
+        viewModel.importCredentials(input, format)
+    }
+
+    val breachListLauncher = rememberLauncherForActivityResult(
+        ActivityResultContracts.OpenDocument(),
+    ) { uri ->
+        if (uri == null) {
+            return@rememberLauncherForActivityResult
+        }
+        val input = try {
+            context.contentResolver.openInputStream(uri)
+        } catch (e: FileNotFoundException) {
+            null
+        }
+        if (input == null) {
+            viewModel.onBreachListRejected()
+            return@rememberLauncherForActivityResult
+        }
+        viewModel.installBreachList(input)
+    }
 
     SettingsScreen(
         viewModel::deleteAllData,
+        { importLauncher.launch(IMPORT_MIME_TYPES) },
+        { breachListLauncher.launch(BREACH_LIST_MIME_TYPES) },
+        viewModel::backUpVault,
+        viewModel::restoreVault,
         openDrawer,
         uiState,
         snackbarHostState,
@@ -76,6 +138,10 @@ fun SettingsScreen(
  * This composable holds the stateless version of Home screen to ease preview
  * @param openDrawer : method to open the drawer on click
  * @param onDeleteClicked : Method to be called on "Delete all credentials" click
+ * @param onImportClicked : Method to be called on "Import credentials" click
+ * @param onInstallBreachListClicked : Method to be called on "Install breached password list" click
+ * @param onBackUp : Method to be called with the passphrase entered after a "Back up vault" click
+ * @param onRestore : Method to be called with the passphrase entered after a "Restore backup" click
  * @param uiState : MutableStateFlow to retrieve updated state from viewmodel
  * @param snackbarHostState : State of the SnackbarHost, which controls the queue and the current Snackbar being shown inside
  * @param modifier : Modifier to update behavior of composables UI
@@ -83,12 +149,17 @@ fun SettingsScreen(
 @Composable
 fun SettingsScreen(
     onDeleteClicked: () -> Unit,
+    onImportClicked: () -> Unit,
+    onInstallBreachListClicked: () -> Unit,
+    onBackUp: (CharArray) -> Unit,
+    onRestore: (CharArray) -> Unit,
     openDrawer: () -> Unit,
     uiState: SettingsViewModel.UiState,
     snackbarHostState: SnackbarHostState,
     modifier: Modifier = Modifier,
 ) {
     val context = LocalContext.current
+    var passphraseAction by remember { mutableStateOf<((CharArray) -> Unit)?>(null) }
 
     Scaffold(
         snackbarHost = { SnackbarHost(snackbarHostState) },
@@ -97,7 +168,36 @@ fun SettingsScreen(
         },
         modifier = modifier,
     ) { innerPadding ->
-        DeleteCredentialsButton(onDeleteClicked, innerPadding, Modifier)
+        Column(
+            modifier = Modifier
+                .fillMaxSize()
+                .padding(innerPadding),
+            horizontalAlignment = Alignment.CenterHorizontally,
+            verticalArrangement = Arrangement.spacedBy(Dimensions.padding_medium),
+        ) {
+            DeleteCredentialsButton(onDeleteClicked, Modifier)
+            ImportCredentialsButton(onImportClicked, Modifier)
+            SettingsButton(R.string.back_up_vault, { passphraseAction = onBackUp }, Modifier)
+            SettingsButton(R.string.restore_vault, { passphraseAction = onRestore }, Modifier)
+            SettingsButton(R.string.install_breach_list, onInstallBreachListClicked, Modifier)
+            if (uiState is SettingsViewModel.UiState.Importing) {
+                Text(
+                    text = stringResource(
+                        R.string.import_in_progress,
+                        uiState.progress.processed,
+                    ),
+                )
+            }
+        }
+    }
+    passphraseAction?.let { action ->
+        PassphraseDialog(
+            onConfirm = { passphrase ->
+                passphraseAction = null
+                action(passphrase)
+            },
+            onDismiss = { passphraseAction = null },
+        )
     }
     when (uiState) {
         is SettingsViewModel.UiState.Init -> {
@@ -114,6 +214,91 @@ fun SettingsScreen(
                 )
             }
         }
+
+        is SettingsViewModel.UiState.Importing -> Unit
+
+        is SettingsViewModel.UiState.Imported -> {
+            LaunchedEffect(uiState) {
+                snackbarHostState.showSnackbar(
+                    context.getString(
+                        R.string.import_finished,
+                        uiState.progress.imported,
+                        uiState.progress.skipped,
+                    ),
+                    null,
+                    false,
+                    SnackbarDuration.Short,
+                )
+            }
+        }
+
+        is SettingsViewModel.UiState.BackedUp -> {
+            LaunchedEffect(uiState) {
+                snackbarHostState.showSnackbar(
+                    uiState.result?.let {
+                        context.getString(R.string.backup_finished, it.records)
+                    } ?: context.getString(R.string.backup_up_to_date),
+                    null,
+                    false,
+                    SnackbarDuration.Short,
+                )
+            }
+        }
+
+        is SettingsViewModel.UiState.Restored -> {
+            LaunchedEffect(uiState) {
+                snackbarHostState.showSnackbar(
+                    context.getString(R.string.restore_finished, uiState.records),
+                    null,
+                    false,
+                    SnackbarDuration.Short,
+                )
+            }
+        }
+
+        is SettingsViewModel.UiState.BackupFailed -> {
+            LaunchedEffect(uiState) {
+                snackbarHostState.showSnackbar(
+                    context.getString(R.string.backup_failed),
+                    null,
+                    false,
+                    SnackbarDuration.Short,
+                )
+            }
+        }
+
+        is SettingsViewModel.UiState.BreachListInstalled -> {
+            LaunchedEffect(uiState) {
+                snackbarHostState.showSnackbar(
+                    context.getString(R.string.breach_list_installed, uiState.hashes),
+                    null,
+                    false,
+                    SnackbarDuration.Short,
+                )
+            }
+        }
+
+        is SettingsViewModel.UiState.BreachListFailed -> {
+            LaunchedEffect(uiState) {
+                snackbarHostState.showSnackbar(
+                    context.getString(R.string.breach_list_failed),
+                    null,
+                    false,
+                    SnackbarDuration.Short,
+                )
+            }
+        }
+
+        is SettingsViewModel.UiState.ImportFailed -> {
+            LaunchedEffect(uiState) {
+                snackbarHostState.showSnackbar(
+                    context.getString(R.string.import_failed),
+                    null,
+                    false,
+                    SnackbarDuration.Short,
+                )
+            }
+        }
     }
 }
 
@@ -151,20 +336,15 @@ private fun AppBarContent(openDrawer: () -> Unit, modifier: Modifier = Modifier)
  * Set the Delete Button UI & action
  *
  * @param onDeleteClicked Method to be called on "Delete all credentials" click
- * @param innerPadding   PaddingValues to apply to the button
  * @param modifier   Modifier to update behavior of composables UI
  */
 @Composable
 private fun DeleteCredentialsButton(
     onDeleteClicked: () -> Unit,
-    innerPadding: PaddingValues,
     modifier: Modifier = Modifier,
 ) {
     Button(
-        modifier = modifier
-            .fillMaxSize()
-            .wrapContentSize(Alignment.TopCenter)
-            .padding(innerPadding),
+        modifier = modifier,
         onClick = {
             onDeleteClicked()
         },
@@ -177,6 +357,95 @@ private fun DeleteCredentialsButton(
     }
 }
 
+/**
+ * Set the Import Button UI & action
+ *
+ * @param onImportClicked Method to be called on "Import credentials" click
+ * @param modifier   Modifier to update behavior of composables UI
+ */
+@Composable
+private fun ImportCredentialsButton(
+    onImportClicked: () -> Unit,
+    modifier: Modifier = Modifier,
+) {
+    Button(
+        modifier = modifier,
+        onClick = {
+            onImportClicked()
+        },
+        colors = ButtonDefaults.buttonColors(
+            containerColor = MaterialTheme.colorScheme.primary,
+            contentColor = MaterialTheme.colorScheme.onPrimary,
+        ),
+    ) {
+        Text(text = stringResource(R.string.import_credentials))
+    }
+}
+
+/**
+ * Set a Button UI & action
+ *
+ * @param text The string resource of the button label
+ * @param onClick Method to be called on click
+ * @param modifier   Modifier to update behavior of composables UI
+ */
+@Composable
+private fun SettingsButton(
+    @StringRes text: Int,
+    onClick: () -> Unit,
+    modifier: Modifier = Modifier,
+) {
+    Button(
+        modifier = modifier,
+        onClick = onClick,
+        colors = ButtonDefaults.buttonColors(
+            containerColor = MaterialTheme.colorScheme.primary,
+            contentColor = MaterialTheme.colorScheme.onPrimary,
+        ),
+    ) {
+        Text(text = stringResource(text))
+    }
+}
+
+/**
+ * Asks for the backup passphrase
+ *
+ * @param onConfirm Method to be called with the entered passphrase
+ * @param onDismiss Method to be called when the dialog is dismissed
+ */
+@Composable
+private fun PassphraseDialog(
+    onConfirm: (CharArray) -> Unit,
+    onDismiss: () -> Unit,
+) {
+    var passphrase by rememberSaveable { mutableStateOf("") }
+    AlertDialog(
+        onDismissRequest = onDismiss,
+        title = { Text(text = stringResource(R.string.backup_passphrase)) },
+        text = {
+            OutlinedTextField(
+                value = passphrase,
+                onValueChange = { passphrase = it },
+                singleLine = true,
+                visualTransformation = PasswordVisualTransformation(),
+            )
+        },
+        confirmButton = {
+            TextButton(
+                onClick = { onConfirm(passphrase.toCharArray()) },
+                enabled = passphrase.isNotEmpty(),
+            ) {
+                Text(text = stringResource(R.string.text_continue))
+            }
+        },
+        dismissButton = {
+            TextButton(onClick = onDismiss) {
+                Text(text = stringResource(R.string.cancel))
+            }
+        },
+    )
+}
+
 /**
  * This composable function provides a preview of the SettingsScreen composable.
  */
@@ -185,9 +454,21 @@ private fun DeleteCredentialsButton(
 fun SettingsScreenPreview() {
     SettingsScreen(
         onDeleteClicked = { },
+        onImportClicked = { },
+        onInstallBreachListClicked = { },
+        onBackUp = { },
+        onRestore = { },
         openDrawer = {},
         uiState = SettingsViewModel.UiState.Init,
         snackbarHostState = SnackbarHostState(),
         modifier = Modifier,
     )
 }
+
+private val IMPORT_MIME_TYPES = arrayOf(
+    "text/csv",
+    "text/comma-separated-values",
+    "application/json",
+)
+
+private val BREACH_LIST_MIME_TYPES = arrayOf("text/plain")
@@ -16,26 +16,141 @@
 package com.example.android.authentication.myvault.ui.settings
 
 import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import com.example.android.authentication.myvault.data.RPIconDataSource
+import com.example.android.authentication.myvault.data.backup.VaultBackupManager
+import com.example.android.authentication.myvault.data.breach.BreachedPasswordChecker
+import com.example.android.authentication.myvault.data.importer.CredentialsImporter
+import com.example.android.authentication.myvault.data.importer.ImportFormat
+import com.example.android.authentication.myvault.data.importer.ImportProgress
+import com.example.android.authentication.myvault.data.room.DefaultAccounts
 import com.example.android.authentication.myvault.data.room.MyVaultDatabase
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.catch
 import kotlinx.coroutines.flow.update
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import java.io.IOException
+import java.io.InputStream
 
 /**
- * This viewmodel holds the logic for deleting all the credentials saved on MyVault
+ * This viewmodel holds the logic for importing credentials into MyVault, backing it up and
+ * restoring it, installing the breached password list, and deleting all the credentials saved on it
+ *
+ * @param backupManagerFor Creates the backup manager for a passphrase the user entered.
+ * @param breachedPasswordChecker The offline breached password check the list is installed into.
  */
-class SettingsViewModel(private val database: MyVaultDatabase) : ViewModel() {
+class SettingsViewModel(
+    private val database: MyVaultDatabase,
+    private val credentialsImporter: CredentialsImporter,
+    private val rpIconDataSource: RPIconDataSource,
+    private val backupManagerFor: (CharArray) -> VaultBackupManager,
+    private val breachedPasswordChecker: BreachedPasswordChecker,
+) : ViewModel() {
     private val _uiState = MutableStateFlow<UiState>(UiState.Init)
     val uiState: StateFlow<UiState> = _uiState.asStateFlow()
 
     /**
-     * Deletes all the data from the database.
+     * Deletes all the data from the database, along with the cached rpicons. Clearing the tables
+     * also checkpoints and vacuums the database, so it runs off the main thread. The built-in
+     * accounts are recreated empty.
      */
     fun deleteAllData() {
-        database.clearAllTables()
-        _uiState.update {
-            UiState.Success
+        viewModelScope.launch {
+            withContext(Dispatchers.IO) {
+                database.clearAllTables()
+                DefaultAccounts.insert(database.openHelper.writableDatabase)
+                rpIconDataSource.clear()
+            }
+            _uiState.update {
+                UiState.Success
+            }
+        }
+    }
+
+    /**
+     * Imports credentials from an exported file, publishing progress as it goes.
+     *
+     * @param input The contents of the export file. It is closed once the import completes.
+     * @param format The format of the export file.
+     */
+    fun importCredentials(input: InputStream, format: ImportFormat) {
+        viewModelScope.launch {
+            credentialsImporter.importCredentials(input, format)
+                .catch { _uiState.value = UiState.ImportFailed }
+                .collect { progress ->
+                    _uiState.value = if (progress.finished) {
+                        UiState.Imported(progress)
+                    } else {
+                        UiState.Importing(progress)
+                    }
+                }
+        }
+    }
+
+    /**
+     * Reports that the picked document is not in a supported format or could not be opened.
+     */
+    fun onImportRejected() {
+        _uiState.value = UiState.ImportFailed
+    }
+
+    /**
+     * Reports that the picked breached password list could not be opened.
+     */
+    fun onBreachListRejected() {
+        _uiState.value = UiState.BreachListFailed
+    }
+
+    /**
+     * Writes the changes made since the previous backup to a new encrypted backup file.
+     *
+     * @param passphrase The backup passphrase. It is cleared once the backup completes.
+     */
+    fun backUpVault(passphrase: CharArray) {
+        viewModelScope.launch {
+            _uiState.value = try {
+                UiState.BackedUp(backupManagerFor(passphrase).backup())
+            } catch (e: IOException) {
+                UiState.BackupFailed
+            } finally {
+                passphrase.fill(Char.MIN_VALUE)
+            }
+        }
+    }
+
+    /**
+     * Restores the vault from its backup files, merging them into the credentials already saved.
+     *
+     * @param passphrase The backup passphrase. It is cleared once the restore completes.
+     */
+    fun restoreVault(passphrase: CharArray) {
+        viewModelScope.launch {
+            _uiState.value = try {
+                UiState.Restored(backupManagerFor(passphrase).restore())
+            } catch (e: IOException) {
+                UiState.BackupFailed
+            } finally {
+                passphrase.fill(Char.MIN_VALUE)
+            }
+        }
+    }
+
+    /**
+     * Replaces the offline breach index with one built from a breached password hash list.
+     *
+     * @param input The sorted SHA-1 hash list. It is closed once the index is written.
+     */
+    fun installBreachList(input: InputStream) {
+        viewModelScope.launch {
+            _uiState.value = try {
+                UiState.BreachListInstalled(breachedPasswordChecker.install(input))
+            } catch (e: IOException) {
+                UiState.BreachListFailed
+            }
         }
     }
 
@@ -53,5 +168,46 @@ class SettingsViewModel(private val database: MyVaultDatabase) : ViewModel() {
          * The state after the data has been deleted successfully.
          */
         data object Success : UiState()
+
+        /**
+         * The state while an import is in progress.
+         */
+        data class Importing(val progress: ImportProgress) : UiState()
+
+        /**
+         * The state after an import has finished.
+         */
+        data class Imported(val progress: ImportProgress) : UiState()
+
+        /**
+         * The state after an import could not be read.
+         */
+        data object ImportFailed : UiState()
+
+        /**
+         * The state after a backup has been written, or found to be unnecessary when [result] is
+         * null.
+         */
+        data class BackedUp(val result: VaultBackupManager.BackupResult?) : UiState()
+
+        /**
+         * The state after the vault has been restored from its backups.
+         */
+        data class Restored(val records: Int) : UiState()
+
+        /**
+         * The state after a backup or restore has failed.
+         */
+        data object BackupFailed : UiState()
+
+        /**
+         * The state after a breached password list of [hashes] entries has been installed.
+         */
+        data class BreachListInstalled(val hashes: Long) : UiState()
+
+        /**
+         * The state after a breached password list could not be installed.
+         */
+        data object BreachListFailed : UiState()
     }
 }
@@ -17,20 +17,35 @@ package com.example.android.authentication.myvault.ui.settings
 
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
+import com.example.android.authentication.myvault.data.RPIconDataSource
+import com.example.android.authentication.myvault.data.backup.VaultBackupManager
+import com.example.android.authentication.myvault.data.breach.BreachedPasswordChecker
+import com.example.android.authentication.myvault.data.importer.CredentialsImporter
 import com.example.android.authentication.myvault.data.room.MyVaultDatabase
 
 /**
  * This class is a factory for creating instances of the {@link SettingsViewModel} class.
  *
  * <p>This factory is used by the {@link ViewModelProvider} to create instances of the {@link
- * SettingsViewModel} class. The factory takes one parameter, {@code database}, which is used to
- * initialize the {@link SettingsViewModel} instance.
+ * SettingsViewModel} class. The factory takes five parameters, {@code database}, {@code
+ * credentialsImporter}, {@code rpIconDataSource}, {@code backupManagerFor} and {@code
+ * breachedPasswordChecker}, which are used to initialize the {@link SettingsViewModel} instance.
  */
 class SettingsViewModelFactory(
     private val database: MyVaultDatabase,
+    private val credentialsImporter: CredentialsImporter,
+    private val rpIconDataSource: RPIconDataSource,
+    private val backupManagerFor: (CharArray) -> VaultBackupManager,
+    private val breachedPasswordChecker: BreachedPasswordChecker,
 ) : ViewModelProvider.NewInstanceFactory() {
 
     override fun <T : ViewModel> create(modelClass: Class<T>): T {
-        return SettingsViewModel(database) as T
+        return SettingsViewModel(
+            database,
+            credentialsImporter,
+            rpIconDataSource,
+            backupManagerFor,
+            breachedPasswordChecker,
+        ) as T
     }
 }
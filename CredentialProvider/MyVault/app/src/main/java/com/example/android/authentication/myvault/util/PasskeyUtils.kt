@@ -1,14 +1,14 @@
 package com.example.android.authentication.myvault.util
 
 import android.content.Context
-import android.content.Context.MODE_PRIVATE
 import android.content.pm.SigningInfo
-import android.util.Base64
 import android.util.Log
 import androidx.credentials.CreatePublicKeyCredentialResponse
 import androidx.credentials.provider.CallingAppInfo
+import com.example.android.authentication.myvault.AppDependencies
 import com.example.android.authentication.myvault.data.CredentialsDataSource
 import com.example.android.authentication.myvault.data.PasskeyMetadata
+import com.example.android.authentication.myvault.data.room.VaultAccount
 import com.example.android.authentication.myvault.fido.AssetLinkVerifier
 import com.example.android.authentication.myvault.fido.AuthenticatorAttestationResponse
 import com.example.android.authentication.myvault.fido.Cbor
@@ -16,15 +16,13 @@ import com.example.android.authentication.myvault.fido.FidoPublicKeyCredential
 import com.example.android.authentication.myvault.fido.PublicKeyCredentialCreationOptions
 import com.example.android.authentication.myvault.fido.appInfoToOrigin
 import com.example.android.authentication.myvault.fido.b64Encode
-import com.example.android.authentication.myvault.ui.CreatePasskeyActivity.Companion.KEY_ACCOUNT_LAST_USED_MS
+import com.example.android.authentication.myvault.fido.coseKeyToSPKI
+import com.example.android.authentication.myvault.fido.publicKeyToCose
 import com.example.android.authentication.myvault.ui.CreatePasskeyActivity.Companion.TAG
-import com.example.android.authentication.myvault.ui.CreatePasskeyActivity.Companion.USER_ACCOUNT
 import kotlinx.coroutines.Deferred
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.async
 import kotlinx.coroutines.runBlocking
-import java.math.BigInteger
-import java.net.URL
 import java.security.KeyPair
 import java.security.KeyPairGenerator
 import java.security.SecureRandom
@@ -87,7 +85,7 @@ class PasskeyUtils {
         fun validatePrivilegedCallingApp(
             callingAppInfo: CallingAppInfo,
         ): PrivilegedValidationResult {
-            val privilegedAppsAllowlist = getGPMPrivilegedAppAllowlist()
+            val privilegedAppsAllowlist = AppDependencies.privilegedAppAllowlist.current()
                 ?: return PrivilegedValidationResult.Failure.AllowlistMissing
 
             return try {
@@ -100,16 +98,18 @@ class PasskeyUtils {
             }
         }
 
-        fun getGPMPrivilegedAppAllowlist(): String? {
-            return runBlocking {
-                try {
-                    // Read the text from the URL safely on the IO thread
-                    URL(GPM_ALLOWLIST_URL).readText()
-                } catch (e: Exception) {
-                    // If the network fails, or the URL is bad, return null
-                    null
-                }
+        /**
+         * Returns the web origin a privileged caller, such as a browser, makes the request for, or
+         * null for apps and for callers that are not on the privileged app allowlist.
+         *
+         * @param callingAppInfo The calling app info of the request.
+         */
+        fun privilegedCallingOrigin(callingAppInfo: CallingAppInfo): String? {
+            if (!callingAppInfo.isOriginPopulated()) {
+                return null
             }
+            val result = validatePrivilegedCallingApp(callingAppInfo)
+            return (result as? PrivilegedValidationResult.Success)?.origin
         }
 
         fun createAndStorePasskey(
@@ -129,9 +129,13 @@ class PasskeyUtils {
             val keyPair = generateKeyPair()
 
             // Save the private key in your local database against callingAppInfo.packageName.
-            savePasskeyInCredentialsDataStore(credentialsDataSource, request, credentialId, keyPair)
-
-            updateMetaInSharedPreferences(applicationContext, accountId)
+            savePasskeyInCredentialsDataStore(
+                credentialsDataSource,
+                request,
+                credentialId,
+                keyPair,
+                accountId ?: VaultAccount.PERSONAL,
+            )
 
             var callingOrigin = appInfoToOrigin(callingAppInfo)
             if (callingAppInfoOrigin != null) {
@@ -178,12 +182,14 @@ class PasskeyUtils {
          * @param request The public key credential creation options.
          * @param credId The credential ID.
          * @param keyPair The key pair.
+         * @param accountId The account the passkey is saved to.
          */
         private fun savePasskeyInCredentialsDataStore(
             credentialsDataSource: CredentialsDataSource,
             request: PublicKeyCredentialCreationOptions,
             credId: ByteArray,
             keyPair: KeyPair,
+            accountId: String,
         ) {
             runBlocking {
                 credentialsDataSource.addNewPasskey(
@@ -195,27 +201,10 @@ class PasskeyUtils {
                         credId = b64Encode(credId),
                         credPrivateKey = b64Encode((keyPair.private as ECPrivateKey).s.toByteArray()),
                         lastUsedTimeMs = Instant.now().toEpochMilli(),
+                        accountId = accountId,
                     ),
                 )
-            }
-        }
-
-        /**
-         * Updates the metadata in shared preferences.
-         *
-         * @param accountId The account ID.
-         */
-        private fun updateMetaInSharedPreferences(applicationContext: Context, accountId: String?) {
-            if (accountId == USER_ACCOUNT) {
-                applicationContext.getSharedPreferences(
-                    applicationContext.packageName,
-                    MODE_PRIVATE,
-                ).edit().apply {
-                    putLong(
-                        KEY_ACCOUNT_LAST_USED_MS,
-                        Instant.now().toEpochMilli(),
-                    )
-                }.apply()
+                credentialsDataSource.markAccountUsed(accountId)
             }
         }
 
@@ -258,78 +247,6 @@ class PasskeyUtils {
             return response
         }
 
-        /**
-         * Converts an ECPublicKey to a COSE key.
-         *
-         * @param key The ECPublicKey to convert.
-         * @return A mutable map representing the COSE key.
-         */
-        private fun publicKeyToCose(key: ECPublicKey): MutableMap<Int, Any> {
-            val x = bigIntToFixedArray(key.w.affineX)
-            val y = bigIntToFixedArray(key.w.affineY)
-            val coseKey = mutableMapOf<Int, Any>()
-            coseKey[1] = 2 // EC Key type
-            coseKey[3] = -7 // ES256
-            coseKey[-1] = 1 // P-265 Curve
-            coseKey[-2] = x // x
-            coseKey[-3] = y // y
-            return coseKey
-        }
-
-        /**
-         * Converts a {@link BigInteger} to a fixed-size byte array of length 32.
-         *
-         * This method takes a non-negative {@link BigInteger} and converts it into a
-         * fixed-size byte array of length 32. If the {@link BigInteger} requires fewer
-         * than 32 bytes to represent, it will be right-padded with zeros. If the
-         * {@link BigInteger} is larger than 32 bytes, an assertion error will be thrown.
-         *
-         * The {@link BigInteger#toByteArray()} method may add a leading zero byte if the
-         * most-significant bit of the first byte is one. This method handles this case by
-         * removing the leading zero byte before padding.
-         *
-         * @param n The non-negative {@link BigInteger} to convert.
-         * @return A byte array of length 32 representing the {@link BigInteger}.
-         * @throws AssertionError If the input {@link BigInteger} is negative or requires more than 32 bytes.
-         */
-        private fun bigIntToFixedArray(n: BigInteger): ByteArray {
-            assert(n.signum() >= 0)
-
-            val bytes = n.toByteArray()
-            // `toByteArray` will left-pad with a leading zero if the
-            // most-significant bit of the first byte would otherwise be one.
-            var offset = 0
-            if (bytes[0] == 0x00.toByte()) {
-                offset++
-            }
-            val bytesLen = bytes.size - offset
-            assert(bytesLen <= 32)
-
-            val output = ByteArray(32)
-            System.arraycopy(bytes, offset, output, 32 - bytesLen, bytesLen)
-            return output
-        }
-
-        /**
-         * Converts a COSE key to an SPKI (Subject Public Key Info) byte array.
-         *
-         * @param coseKey A mutable map representing the COSE key.
-         * @return The SPKI byte array, or null if an error occurs.
-         */
-        private fun coseKeyToSPKI(coseKey: MutableMap<Int, Any>): ByteArray? {
-            try {
-                val spkiPrefix: ByteArray = Base64.decode("MFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgAE", 0)
-                val x = coseKey[-2] as ByteArray
-                val y = coseKey[-3] as ByteArray
-                return spkiPrefix + x + y
-            } catch (e: Exception) {
-                // Log exceptions
-            }
-            return null
-        }
-
-        private const val GPM_ALLOWLIST_URL =
-            "https://www.gstatic.com/gpm-passkeys-privileged-apps/apps.json"
         private val secp_256_r1 = "secp256r1"
         private val ec = "EC"
         private val platform = "platform"
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+import com.example.android.authentication.myvault.data.room.MyVaultDatabase
+import com.example.android.authentication.myvault.data.room.inMemoryVault
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class CredentialsDataSourceTest {
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val publicSuffixList = PublicSuffixList.open(context.assets)
+    private val database: MyVaultDatabase = inMemoryVault(context)
+    private val dao = database.myVaultDao()
+    private val dataSource = CredentialsDataSource(dao, publicSuffixList)
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun keepsPackageNamesOutOfWebDomains() = runTest {
+        dataSource.addNewPassword(password("com.example.app", isPackageName = true))
+
+        val site = dao.getSite("com.example.app")!!
+        assertEquals("", site.registrableDomain)
+        assertEquals("com.example.app", site.packageName)
+        assertTrue(dataSource.credentialsForDomain("example.app").isEmpty())
+    }
+
+    @Test
+    fun movesBrowserPasswordsToTheWebSite() = runTest {
+        dataSource.addNewPassword(password(BROWSER, isPackageName = true))
+        val legacyId = dao.getPassword(dao.getSite(BROWSER)!!.id, "alice")!!.id
+
+        dataSource.addNewPassword(
+            password(dataSource.siteKeyForOrigin("https://login.example.com")!!)
+                .copy(browserPackage = BROWSER),
+        )
+
+        assertNull(dao.getSite(BROWSER))
+        val site = dataSource.credentialsForDomain("www.example.com").single()
+        assertEquals("example.com", site.site.url)
+        assertEquals(legacyId, site.passwords.single().id)
+    }
+
+    @Test
+    fun autofillAndProviderSavesShareTheWebSite() = runTest {
+        dataSource.addNewPassword(password(dataSource.siteKeyForHost("login.example.com")))
+        dataSource.addNewPassword(
+            password(dataSource.siteKeyForOrigin("https://example.com")!!).copy(username = "bob"),
+        )
+
+        val site = dataSource.credentialsForDomain("example.com").single()
+        assertEquals("example.com", site.site.url)
+        assertEquals(setOf("alice", "bob"), site.passwords.mapTo(HashSet()) { it.username })
+    }
+
+    private fun password(url: String, isPackageName: Boolean = false) = PasswordMetaData(
+        username = "alice",
+        password = "s3cret",
+        url = url,
+        lastUsedTimeMs = 0,
+        isPackageName = isPackageName,
+    )
+
+    companion object {
+        private const val BROWSER = "com.android.chrome"
+    }
+}
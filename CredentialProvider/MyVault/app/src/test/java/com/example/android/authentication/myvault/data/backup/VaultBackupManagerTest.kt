@@ -0,0 +1,197 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.backup
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import com.example.android.authentication.myvault.data.PasskeyItem
+import com.example.android.authentication.myvault.data.PasswordItem
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+import com.example.android.authentication.myvault.data.room.MyVaultDatabase
+import com.example.android.authentication.myvault.data.room.SiteMetaData
+import com.example.android.authentication.myvault.data.room.VaultAccount
+import com.example.android.authentication.myvault.data.room.addPasswords
+import com.example.android.authentication.myvault.data.room.inMemoryVault
+import com.example.android.authentication.myvault.data.room.passwordContents
+import com.example.android.authentication.myvault.data.room.stampAsMigrated
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.fail
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.IOException
+
+@RunWith(RobolectricTestRunner::class)
+class VaultBackupManagerTest {
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val publicSuffixList = PublicSuffixList.open(context.assets)
+    private val databases = ArrayList<MyVaultDatabase>()
+
+    @After
+    fun tearDown() {
+        databases.forEach { it.close() }
+    }
+
+    @Test
+    fun restoresEveryRowOfABackup() = runTest {
+        val source = vault()
+        addPasswords(source, count = 1_200, siteCount = SITE_COUNT)
+        val siteId = source.myVaultDao().insertSite(SiteMetaData(url = "passkeys.example"))
+        source.myVaultDao().insertPasskey(passkey("credential", siteId))
+        val removed = source.myVaultDao().getPassword(
+            source.myVaultDao().getSite("site7.example")!!.id,
+            "user7",
+        )!!
+        source.myVaultDao().deletePassword(removed)
+
+        manager(source).backup()
+        val target = vault()
+        manager(target).restore()
+
+        assertEquals(passwordContents(source), passwordContents(target))
+        assertEquals(1_199, passwordContents(target).size)
+        assertEquals("credential", target.myVaultDao().getPasskey("credential")!!.credId)
+    }
+
+    @Test
+    fun backsUpEveryRowAfterMigrationAndOnlyChangesAfterThat() = runTest {
+        val source = vault()
+        addPasswords(source, count = 1_200, siteCount = SITE_COUNT)
+        stampAsMigrated(source)
+
+        val first = manager(source).backup()!!
+        assertEquals(1_200 + SITE_COUNT, first.records)
+
+        val dao = source.myVaultDao()
+        val changed = dao.getPassword(dao.getSite("site3.example")!!.id, "user3")!!
+        dao.updatePassword(changed.copy(password = "changed"))
+        dao.insertPassword(changed.copy(id = 0, username = "new user"))
+        val second = manager(source).backup()!!
+        assertEquals(2, second.records)
+        assertNull(manager(source).backup())
+
+        val target = vault()
+        manager(target).restore()
+        assertEquals(passwordContents(source), passwordContents(target))
+    }
+
+    @Test
+    fun restoreMergesIntoCredentialsByNaturalKey() = runTest {
+        val source = vault()
+        val sourceSite = source.myVaultDao().insertSite(SiteMetaData(url = "shared.example"))
+        source.myVaultDao().insertPassword(password("alice", "from backup", sourceSite))
+        source.myVaultDao().insertPassword(password("bob", "only in backup", sourceSite))
+        manager(source).backup()
+
+        val target = vault()
+        val targetDao = target.myVaultDao()
+        val localSite = targetDao.insertSite(SiteMetaData(url = "local.example"))
+        val sharedSite = targetDao.insertSite(SiteMetaData(url = "shared.example"))
+        // The local rows take the ids the backup's rows had on the source device.
+        targetDao.insertPassword(password("carol", "only local", localSite))
+        targetDao.insertPassword(password("alice", "stale", sharedSite))
+
+        manager(target).restore()
+
+        assertEquals(
+            setOf(
+                Triple("local.example", "carol", "only local"),
+                Triple("shared.example", "alice", "from backup"),
+                Triple("shared.example", "bob", "only in backup"),
+            ),
+            passwordContents(target),
+        )
+
+        // The local row was never backed up, so the next backup of this vault carries it.
+        manager(target).backup()
+        val restoredAgain = vault()
+        manager(restoredAgain).restore()
+        assertEquals(passwordContents(target), passwordContents(restoredAgain))
+    }
+
+    @Test
+    fun restoresTheAccountOfEachCredential() = runTest {
+        val source = vault()
+        val siteId = source.myVaultDao().insertSite(SiteMetaData(url = "accounts.example"))
+        source.myVaultDao().insertPassword(
+            password("alice", "secret", siteId).copy(accountId = VaultAccount.WORK),
+        )
+        source.myVaultDao().insertPasskey(
+            passkey("credential", siteId).copy(accountId = VaultAccount.WORK),
+        )
+        manager(source).backup()
+
+        val target = vault()
+        manager(target).restore()
+
+        val targetDao = target.myVaultDao()
+        val site = targetDao.getSite("accounts.example")!!
+        assertEquals(VaultAccount.WORK, targetDao.getPassword(site.id, "alice")!!.accountId)
+        assertEquals(VaultAccount.WORK, targetDao.getPasskey("credential")!!.accountId)
+    }
+
+    @Test
+    fun wrongPassphraseDoesNotExtendTheChain() = runTest {
+        val source = vault()
+        addPasswords(source, count = 10)
+        manager(source).backup()
+        addPasswords(source, count = 20)
+
+        try {
+            manager(source, "wrong passphrase").backup()
+            fail("Backup with a different passphrase succeeded")
+        } catch (e: IOException) {
+            // Expected.
+        }
+
+        assertEquals(1, folder.root.listFiles()!!.count { it.name.endsWith(".mvb") })
+    }
+
+    private fun vault() = inMemoryVault(context).also { databases.add(it) }
+
+    private fun manager(database: MyVaultDatabase, passphrase: String = PASSPHRASE) =
+        VaultBackupManager(database, folder.root, passphrase.toCharArray(), publicSuffixList)
+
+    private fun password(username: String, password: String, siteId: Long) = PasswordItem(
+        username = username,
+        password = password,
+        siteId = siteId,
+        lastUsedTimeMs = 0,
+    )
+
+    private fun passkey(credId: String, siteId: Long) = PasskeyItem(
+        uid = "user",
+        username = "user",
+        displayName = "User",
+        credId = credId,
+        credPrivateKey = "key",
+        siteId = siteId,
+        lastUsedTimeMs = 0,
+    )
+
+    companion object {
+        private const val PASSPHRASE = "correct horse battery staple"
+        private const val SITE_COUNT = 100
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.breach
+
+import androidx.test.core.app.ApplicationProvider
+import com.example.android.authentication.myvault.data.room.addPasswords
+import com.example.android.authentication.myvault.data.room.inMemoryVault
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.File
+import java.io.IOException
+import java.security.MessageDigest
+
+@RunWith(RobolectricTestRunner::class)
+class BreachedPasswordCheckerTest {
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val database = inMemoryVault(ApplicationProvider.getApplicationContext())
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun bundledListIsInstalledOnFirstUse() = runTest {
+        val indexFile = File(folder.root, BreachedPasswordChecker.INDEX_FILE_NAME)
+        val checker = checker(indexFile, hashList("123456", "password"))
+
+        assertTrue(checker.isBreached("password"))
+        assertFalse(checker.isBreached("correct horse battery staple"))
+        assertTrue(indexFile.exists())
+    }
+
+    @Test
+    fun installedListReplacesTheBundledOne() = runTest {
+        addPasswords(database, count = 10)
+        val checker = checker(hashList("password"))
+
+        assertEquals(2L, checker.install(hashList("password 3", "password 7").byteInputStream()))
+
+        assertFalse(checker.isBreached("password"))
+        assertTrue(checker.isBreached("password 3"))
+        assertEquals(setOf("user3", "user7"), breachedUsernames(checker.breachedPasswordIds.value))
+    }
+
+    @Test
+    fun unsortedListKeepsTheCurrentIndex() = runTest {
+        val checker = checker(hashList("password"))
+        assertTrue(checker.isBreached("password"))
+        val unsorted = hashList("password 3", "password 7").lines().reversed().joinToString("\n")
+
+        try {
+            checker.install(unsorted.byteInputStream())
+        } catch (e: IOException) {
+            // Expected.
+        }
+
+        assertTrue(checker.isBreached("password"))
+    }
+
+    private fun checker(seed: String) =
+        checker(File(folder.root, BreachedPasswordChecker.INDEX_FILE_NAME), seed)
+
+    private fun checker(indexFile: File, seed: String) =
+        BreachedPasswordChecker(indexFile, { seed.byteInputStream() }, database.myVaultDao())
+
+    private suspend fun breachedUsernames(ids: Set<Long>): Set<String> =
+        ids.map { database.myVaultDao().getPasswordById(it)!!.username }.toSet()
+
+    private fun hashList(vararg passwords: String): String = passwords
+        .map { password ->
+            MessageDigest.getInstance("SHA-1").digest(password.toByteArray(Charsets.UTF_8))
+                .joinToString("") { "%02X".format(it) }
+        }
+        .sorted()
+        .joinToString("\n")
+}
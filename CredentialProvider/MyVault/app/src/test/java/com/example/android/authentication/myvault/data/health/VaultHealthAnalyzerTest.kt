@@ -0,0 +1,71 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.health
+
+import androidx.test.core.app.ApplicationProvider
+import com.example.android.authentication.myvault.data.room.addPasswords
+import com.example.android.authentication.myvault.data.room.inMemoryVault
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class VaultHealthAnalyzerTest {
+    private val database = inMemoryVault(ApplicationProvider.getApplicationContext())
+    private val dao = database.myVaultDao()
+    private val analyzer = VaultHealthAnalyzer(database)
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun editsAndDeletesAreAppliedIncrementally() = runTest {
+        addPasswords(database, count = 10)
+        assertEquals(VaultHealth(totalPasswords = 10), analyzer.refresh())
+
+        val first = dao.passwordsAfter(0, 1).single()
+        val second = dao.passwordsAfter(first.id, 1).single()
+        dao.updatePassword(second.copy(password = first.password))
+        assertEquals(listOf(2), analyzer.refresh().reuseGroups.map { it.size })
+
+        dao.deletePassword(first)
+        assertEquals(VaultHealth(totalPasswords = 9), analyzer.refresh())
+    }
+
+    @Test
+    fun changesSpanningSeveralPagesAreAllApplied() = runTest {
+        analyzer.refresh()
+
+        addPasswords(database, count = 5_000)
+
+        assertEquals(5_000, analyzer.refresh().totalPasswords)
+    }
+
+    @Test
+    fun clearingAllTablesEmptiesTheIndex() = runTest {
+        addPasswords(database, count = 10)
+        analyzer.refresh()
+
+        database.clearAllTables()
+
+        assertEquals(VaultHealth(), analyzer.refresh())
+    }
+}
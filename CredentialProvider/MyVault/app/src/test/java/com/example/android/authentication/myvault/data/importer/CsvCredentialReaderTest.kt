@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.importer
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.IOException
+import java.io.StringReader
+
+@RunWith(RobolectricTestRunner::class)
+class CsvCredentialReaderTest {
+
+    private fun read(csv: String) = CsvCredentialReader(StringReader(csv)).read().toList()
+
+    private fun passwords(csv: String) =
+        read(csv).map { (it as ImportedCredential.Password).metaData }
+
+    @Test
+    fun readsChromeExport() {
+        val rows = passwords(
+            "name,url,username,password,note\r\n" +
+                "Example,https://www.example.com/login,alice,s3cret,\r\n" +
+                "App,android://hash@com.example.app/,bob,hunter2,\r\n",
+        )
+
+        assertEquals(2, rows.size)
+        assertEquals("www.example.com", rows[0].url)
+        assertEquals("alice", rows[0].username)
+        assertEquals("s3cret", rows[0].password)
+        assertEquals("Example", rows[0].name)
+        assertFalse(rows[0].isPackageName)
+        assertEquals("com.example.app", rows[1].url)
+        assertTrue(rows[1].isPackageName)
+    }
+
+    @Test
+    fun readsQuotedFields() {
+        val rows = passwords(
+            "url,username,password,title\n" +
+                "https://example.com,\"doe, jane\",\"pa,ss\"\"word\",\"Example \"\"Inc\"\"\"\n",
+        )
+
+        assertEquals("doe, jane", rows.single().username)
+        assertEquals("pa,ss\"word", rows.single().password)
+        assertEquals("Example \"Inc\"", rows.single().name)
+    }
+
+    @Test
+    fun readsLineBreaksInsideQuotes() {
+        val rows = passwords(
+            "url,username,password\n" +
+                "https://example.com,alice,\"line one\r\nline two\"\n" +
+                "https://example.org,bob,plain\n",
+        )
+
+        assertEquals(2, rows.size)
+        assertEquals("line one\nline two", rows[0].password)
+        assertEquals("example.org", rows[1].url)
+    }
+
+    @Test
+    fun acceptsByteOrderMarkAndAlternativeHeaders() {
+        val rows = passwords("\uFEFFWebsite,Login,Password\nexample.com,alice,secret")
+
+        assertEquals("example.com", rows.single().url)
+        assertEquals("alice", rows.single().username)
+        assertEquals("", rows.single().name)
+    }
+
+    @Test
+    fun reportsRowsWithoutUrlOrPassword() {
+        val rows = read("url,username,password\n,alice,secret\nhttps://example.com,bob,\n\n")
+
+        assertEquals(2, rows.size)
+        assertTrue(rows.all { it is ImportedCredential.Unsupported })
+    }
+
+    @Test(expected = IOException::class)
+    fun rejectsHeaderWithoutPasswordColumn() {
+        read("url,username\nhttps://example.com,alice\n")
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.importer
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.Reader
+import java.io.StringReader
+
+@RunWith(RobolectricTestRunner::class)
+class JsonCredentialReaderTest {
+
+    @Test
+    fun readsFlatArray() {
+        val credentials = JsonCredentialReader(
+            StringReader(
+                """
+                [
+                  {"url": "https://example.com/login", "username": "alice", "password": "s3cret",
+                   "name": "Example", "extra": {"ignored": [1, 2, {"deep": null}]}},
+                  {"url": "", "username": "bob", "password": "nope"}
+                ]
+                """.trimIndent(),
+            ),
+        ).read().toList()
+
+        val password = (credentials[0] as ImportedCredential.Password).metaData
+        assertEquals("example.com", password.url)
+        assertEquals("alice", password.username)
+        assertEquals("Example", password.name)
+        assertTrue(credentials[1] is ImportedCredential.Unsupported)
+    }
+
+    @Test
+    fun readsCredentialExchangeFormat() {
+        val credentials = JsonCredentialReader(
+            StringReader(
+                """
+                {
+                  "version": {"major": 1, "minor": 0},
+                  "accounts": [{
+                    "username": "ignored",
+                    "items": [{
+                      "title": "Example",
+                      "scope": {"urls": ["https://example.com"], "androidApps": [{"bundleId": "com.example.app"}]},
+                      "credentials": [{
+                        "type": "basic-auth",
+                        "username": {"value": "alice"},
+                        "password": {"value": "s3cret"}
+                      }, {
+                        "type": "totp"
+                      }]
+                    }]
+                  }]
+                }
+                """.trimIndent(),
+            ),
+        ).read().toList()
+
+        val password = (credentials.single() as ImportedCredential.Password).metaData
+        assertEquals("com.example.app", password.url)
+        assertTrue(password.isPackageName)
+        assertEquals("alice", password.username)
+        assertEquals("s3cret", password.password)
+        assertEquals("Example", password.name)
+    }
+
+    @Test
+    fun streamsLargeFlatArray() {
+        val credentials = JsonCredentialReader(LargeExportReader(LARGE_EXPORT_SIZE)).read()
+
+        var count = 0
+        var last: ImportedCredential? = null
+        credentials.forEach {
+            count++
+            last = it
+        }
+
+        assertEquals(LARGE_EXPORT_SIZE, count)
+        val password = (last as ImportedCredential.Password).metaData
+        assertEquals("site${LARGE_EXPORT_SIZE - 1}.example.com", password.url)
+        assertEquals("Site ${LARGE_EXPORT_SIZE - 1}", password.name)
+    }
+
+    /**
+     * Generates a flat export of [size] entries as it is read, so the test never holds the whole
+     * document in memory either.
+     */
+    private class LargeExportReader(private val size: Int) : Reader() {
+        private var next = 0
+        private var chunk = "["
+        private var position = 0
+
+        override fun read(buffer: CharArray, offset: Int, length: Int): Int {
+            if (position == chunk.length) {
+                chunk = when {
+                    next < size -> entry(next++)
+                    next == size -> "]".also { next++ }
+                    else -> return -1
+                }
+                position = 0
+            }
+            val count = minOf(length, chunk.length - position)
+            chunk.toCharArray(buffer, offset, position, position + count)
+            position += count
+            return count
+        }
+
+        override fun close() = Unit
+
+        private fun entry(i: Int): String {
+            val separator = if (i == 0) "" else ","
+            return """$separator{"url":"https://site$i.example.com/","username":"user$i",""" +
+                """"password":"password \"$i\"","name":"Site $i"}"""
+        }
+    }
+
+    companion object {
+        private const val LARGE_EXPORT_SIZE = 50_000
+    }
+}
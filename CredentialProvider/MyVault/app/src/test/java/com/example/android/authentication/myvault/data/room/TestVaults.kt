@@ -0,0 +1,83 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.room
+
+import android.content.Context
+import androidx.room.Room
+import androidx.room.withTransaction
+import com.example.android.authentication.myvault.data.PasswordItem
+
+/**
+ * Builds an empty vault in memory, set up the way the app sets up the real one.
+ */
+fun inMemoryVault(context: Context): MyVaultDatabase =
+    Room.inMemoryDatabaseBuilder(context, MyVaultDatabase::class.java)
+        .addCallback(VaultChangeTracking.callback)
+        .addCallback(DefaultAccounts.callback)
+        .allowMainThreadQueries()
+        .build()
+
+/**
+ * Leaves the vault the way [VaultMigration] leaves an existing one: every row
+ * stamped with sequence 1, no tombstones and the sequence at 1.
+ */
+fun stampAsMigrated(database: MyVaultDatabase) {
+    val db = database.openHelper.writableDatabase
+    for (table in listOf("sites", "passwords", "passkeys")) {
+        // The update trigger would restamp the rows, so stamp them before it is reinstalled.
+        db.execSQL("DROP TRIGGER ${table}_change_seq_update")
+        db.execSQL("UPDATE $table SET changeSeq = 1")
+    }
+    db.execSQL("DELETE FROM tombstones")
+    VaultChangeTracking.install(db)
+    db.execSQL("UPDATE change_sequence SET seq = 1")
+}
+
+/**
+ * Adds [count] passwords spread over [siteCount] sites named `site<n>.example`, in one
+ * transaction. Password `i` belongs to `user<i>` on site `i % siteCount`.
+ */
+suspend fun addPasswords(database: MyVaultDatabase, count: Int, siteCount: Int = 100) {
+    val dao = database.myVaultDao()
+    database.withTransaction {
+        val siteIds = (0 until siteCount).map { i ->
+            val url = "site$i.example"
+            dao.getSite(url)?.id ?: dao.insertSite(SiteMetaData(url = url))
+        }
+        (0 until count).chunked(BATCH_SIZE).forEach { batch ->
+            dao.insertPasswords(
+                batch.map { i ->
+                    PasswordItem(
+                        username = "user$i",
+                        password = "password $i",
+                        siteId = siteIds[i % siteCount],
+                        lastUsedTimeMs = 0,
+                    )
+                },
+            )
+        }
+    }
+}
+
+/**
+ * Reads every password in the vault as its site url, username and value.
+ */
+suspend fun passwordContents(database: MyVaultDatabase): Set<Triple<String, String, String>> =
+    database.myVaultDao()
+        .passwordsChangedAfter(-1, 0, Long.MAX_VALUE, Int.MAX_VALUE)
+        .mapTo(HashSet()) { Triple(it.siteUrl, it.password.username, it.password.password) }
+
+private const val BATCH_SIZE = 1_000
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.room
+
+import androidx.test.core.app.ApplicationProvider
+import com.example.android.authentication.myvault.data.PasswordItem
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class VaultChangeTrackingTest {
+    private val database = inMemoryVault(ApplicationProvider.getApplicationContext())
+    private val dao = database.myVaultDao()
+    private val db = database.openHelper.writableDatabase
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun eachWriteTakesOneSequenceNumber() = runTest {
+        val siteId = dao.insertSite(SiteMetaData(url = "example.com"))
+        val id = dao.insertPassword(password(siteId))
+        assertEquals(2, VaultChangeTracking.currentSeq(db))
+        assertEquals(2, dao.getPasswordById(id)!!.changeSeq)
+
+        dao.updatePassword(dao.getPasswordById(id)!!.copy(password = "changed"))
+        assertEquals(3, VaultChangeTracking.currentSeq(db))
+        assertEquals(3, dao.getPasswordById(id)!!.changeSeq)
+    }
+
+    @Test
+    fun staleUpdateStillMovesSequenceForward() = runTest {
+        val siteId = dao.insertSite(SiteMetaData(url = "example.com"))
+        val id = dao.insertPassword(password(siteId))
+        val stale = dao.getPasswordById(id)!!
+        dao.updatePassword(stale.copy(password = "first"))
+
+        dao.updatePassword(stale.copy(password = "second"))
+
+        assertEquals(4, dao.getPasswordById(id)!!.changeSeq)
+    }
+
+    @Test
+    fun restampMovesOlderRowsPastTheSequence() = runTest {
+        val siteId = dao.insertSite(SiteMetaData(url = "example.com"))
+        val id = dao.insertPassword(password(siteId))
+        VaultChangeTracking.advanceTo(db, 100)
+
+        VaultChangeTracking.restamp(db, 2)
+
+        assertEquals(102, VaultChangeTracking.currentSeq(db))
+        assertEquals(102, dao.getPasswordById(id)!!.changeSeq)
+    }
+
+    private fun password(siteId: Long) = PasswordItem(
+        username = "alice",
+        password = "secret",
+        siteId = siteId,
+        lastUsedTimeMs = 0,
+    )
+}
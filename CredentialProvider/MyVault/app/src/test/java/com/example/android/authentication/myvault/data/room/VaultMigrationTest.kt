@@ -0,0 +1,159 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.room
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class VaultMigrationTest {
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val publicSuffixList = PublicSuffixList.open(context.assets)
+    private var database: MyVaultDatabase? = null
+
+    @After
+    fun tearDown() {
+        database?.close()
+        context.deleteDatabase(DATABASE_NAME)
+    }
+
+    @Test
+    fun migratesAReleasedVault() = runTest {
+        createReleasedVault()
+
+        val dao = migrate().myVaultDao()
+
+        assertEquals(SiteMetaData.forPackage("com.example.app"), site("com.example.app"))
+        assertEquals(
+            SiteMetaData.forWebHost("login.example.com", publicSuffixList),
+            site("login.example.com"),
+        )
+        // Passkey sites are relying party ids, even when they read as a package name.
+        assertEquals(SiteMetaData.forWebHost("app.example.dev", publicSuffixList), site("app.example.dev"))
+
+        val password = dao.getPassword(dao.getSite("login.example.com")!!.id, "alice")!!
+        assertEquals(VaultAccount.PERSONAL, password.accountId)
+        assertEquals(1, password.changeSeq)
+        assertEquals(VaultAccount.PERSONAL, dao.getPasskey("credential")!!.accountId)
+
+        val accounts = dao.accountCredentialCounts("", "").associateBy { it.accountId }
+        assertEquals(setOf(VaultAccount.PERSONAL, VaultAccount.WORK), accounts.keys)
+        assertEquals(LEGACY_LAST_USED_MS, accounts.getValue(VaultAccount.PERSONAL).lastUsedTimeMs)
+    }
+
+    @Test
+    fun tracksChangesAfterMigration() = runTest {
+        createReleasedVault()
+
+        val database = migrate()
+        val db = database.openHelper.writableDatabase
+        assertEquals(1, VaultChangeTracking.currentSeq(db))
+
+        val dao = database.myVaultDao()
+        val password = dao.getPassword(dao.getSite("login.example.com")!!.id, "alice")!!
+        dao.updatePassword(password.copy(password = "changed"))
+        assertEquals(2, VaultChangeTracking.currentSeq(db))
+        assertEquals(2, dao.getPassword(password.siteId, "alice")!!.changeSeq)
+
+        dao.deletePassword(password)
+        val tombstone = dao.tombstonesAfter(2, Long.MAX_VALUE, Long.MAX_VALUE, 10).single()
+        assertEquals("login.example.com\nalice", tombstone.syncKey)
+    }
+
+    @Test
+    fun tellsPackageNamesFromWebHosts() {
+        assertTrue(SiteMetaData.isPackageName("com.example.app", publicSuffixList))
+        assertTrue(SiteMetaData.isPackageName("org.example.my_app", publicSuffixList))
+        assertFalse(SiteMetaData.isPackageName("www.example.com", publicSuffixList))
+        assertFalse(SiteMetaData.isPackageName("example.com", publicSuffixList))
+        assertFalse(SiteMetaData.isPackageName("localhost", publicSuffixList))
+    }
+
+    /**
+     * Writes a vault with the schema of the last release, version 8.
+     */
+    private fun createReleasedVault() {
+        context.openOrCreateDatabase(DATABASE_NAME, Context.MODE_PRIVATE, null).use { db ->
+            db.execSQL(
+                "CREATE TABLE sites (id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "url TEXT NOT NULL, packageName TEXT NOT NULL, name TEXT NOT NULL)",
+            )
+            db.execSQL("CREATE UNIQUE INDEX index_sites_url ON sites (url)")
+            db.execSQL(
+                "CREATE TABLE passwords (id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "username TEXT NOT NULL, password TEXT NOT NULL, siteId INTEGER NOT NULL, " +
+                    "lastUsedTimeMs INTEGER NOT NULL)",
+            )
+            db.execSQL("CREATE INDEX index_passwords_username ON passwords (username)")
+            db.execSQL(
+                "CREATE TABLE passkeys (id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "uid TEXT NOT NULL, username TEXT NOT NULL, displayName TEXT NOT NULL, " +
+                    "credId TEXT NOT NULL, credPrivateKey TEXT NOT NULL, siteId INTEGER NOT NULL, " +
+                    "lastUsedTimeMs INTEGER NOT NULL, hidden INTEGER NOT NULL)",
+            )
+            db.execSQL("CREATE INDEX index_passkeys_credId ON passkeys (credId)")
+
+            for ((id, url) in listOf(1 to "com.example.app", 2 to "login.example.com", 3 to "app.example.dev")) {
+                db.execSQL(
+                    "INSERT INTO sites (id, url, packageName, name) VALUES (?, ?, '', '')",
+                    arrayOf<Any>(id, url),
+                )
+            }
+            db.execSQL(
+                "INSERT INTO passwords (username, password, siteId, lastUsedTimeMs) " +
+                    "VALUES ('alice', 's3cret', 2, 0), ('bob', 'hunter2', 1, 0)",
+            )
+            db.execSQL(
+                "INSERT INTO passkeys (uid, username, displayName, credId, credPrivateKey, " +
+                    "siteId, lastUsedTimeMs, hidden) " +
+                    "VALUES ('user', 'user', 'User', 'credential', 'key', 3, 0, 0)",
+            )
+            db.version = 8
+        }
+    }
+
+    /**
+     * Opens the vault the way the app does, which fails if the migrated schema does not match
+     * the entities.
+     */
+    private fun migrate(): MyVaultDatabase =
+        Room.databaseBuilder(context, MyVaultDatabase::class.java, DATABASE_NAME)
+            .addMigrations(VaultMigration({ publicSuffixList }, LEGACY_LAST_USED_MS))
+            .addCallback(VaultChangeTracking.callback)
+            .addCallback(DefaultAccounts.callback)
+            .allowMainThreadQueries()
+            .build()
+            .also { database = it }
+
+    /** Reads the site keyed [url], without the columns the vault assigns. */
+    private suspend fun site(url: String) =
+        database!!.myVaultDao().getSite(url)!!.copy(id = 0, changeSeq = 0)
+
+    companion object {
+        private const val DATABASE_NAME = "released_vault.db"
+        private const val LEGACY_LAST_USED_MS = 42L
+    }
+}
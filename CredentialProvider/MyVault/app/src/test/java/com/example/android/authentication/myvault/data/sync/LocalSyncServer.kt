@@ -0,0 +1,222 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.sync
+
+import org.json.JSONArray
+import org.json.JSONObject
+import java.io.BufferedReader
+import java.io.IOException
+import java.io.InputStreamReader
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.net.Socket
+import java.net.URLDecoder
+import java.util.TreeMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * A minimal, in-process stand-in for the MyVault sync backend, used to test [VaultSyncClient]
+ * without a real server.
+ *
+ * It speaks just enough HTTP/1.1 for the push and pull endpoints and keeps the change log in
+ * memory. Only the latest version of each credential id is retained, so a pull from an old cursor
+ * returns each changed credential once no matter how many times it was rewritten.
+ *
+ * Payloads are opaque to the server; it only sees the ids and encrypted blobs built by [SyncCodec].
+ */
+class LocalSyncServer {
+    private val serverSocket = ServerSocket(0, BACKLOG, InetAddress.getLoopbackAddress())
+    private val executor: ExecutorService = Executors.newCachedThreadPool()
+    private val lock = Any()
+    private val latest = HashMap<String, Entry>()
+    private val log = TreeMap<Long, Entry>()
+    private var seq = 0L
+
+    /**
+     * The base url to hand to [VaultSyncClient].
+     */
+    val url: String
+        get() = "http://127.0.0.1:${serverSocket.localPort}"
+
+    /**
+     * The number of credentials currently held by the server.
+     */
+    val size: Int
+        get() = synchronized(lock) { latest.size }
+
+    /**
+     * Starts accepting connections on a background thread.
+     */
+    fun start(): LocalSyncServer {
+        executor.execute {
+            while (!serverSocket.isClosed) {
+                val socket = try {
+                    serverSocket.accept()
+                } catch (e: IOException) {
+                    break
+                }
+                executor.execute { handle(socket) }
+            }
+        }
+        return this
+    }
+
+    /**
+     * Stops the server and releases its port.
+     */
+    fun stop() {
+        serverSocket.close()
+        executor.shutdownNow()
+    }
+
+    private fun handle(socket: Socket) {
+        socket.use {
+            val reader = BufferedReader(InputStreamReader(it.getInputStream(), Charsets.UTF_8))
+            val requestLine = reader.readLine() ?: return
+            var contentLength = 0
+            while (true) {
+                val header = reader.readLine()
+                if (header.isNullOrEmpty()) break
+                if (header.startsWith(CONTENT_LENGTH, ignoreCase = true)) {
+                    contentLength = header.substringAfter(':').trim().toInt()
+                }
+            }
+            // Content-Length counts bytes; the bodies here are ASCII JSON so chars match.
+            val body = CharArray(contentLength)
+            var read = 0
+            while (read < contentLength) {
+                val count = reader.read(body, read, contentLength - read)
+                if (count < 0) break
+                read += count
+            }
+
+            val (method, target) = requestLine.split(' ').let { parts -> parts[0] to parts[1] }
+            val path = target.substringBefore('?')
+            val (status, response) = try {
+                when {
+                    method == "POST" && path == VaultSyncClient.PUSH_PATH ->
+                        200 to push(JSONObject(String(body, 0, read)))
+
+                    method == "GET" && path == VaultSyncClient.PULL_PATH ->
+                        200 to pull(parseQuery(target.substringAfter('?', "")))
+
+                    else -> 404 to JSONObject()
+                }
+            } catch (e: Exception) {
+                400 to JSONObject().put("error", e.toString())
+            }
+
+            val bytes = response.toString().toByteArray(Charsets.UTF_8)
+            val out = it.getOutputStream()
+            out.write(
+                (
+                    "HTTP/1.1 $status ${if (status == 200) "OK" else "Error"}\r\n" +
+                        "Content-Type: application/json\r\n" +
+                        "Content-Length: ${bytes.size}\r\n" +
+                        "Connection: close\r\n\r\n"
+                    ).toByteArray(Charsets.US_ASCII),
+            )
+            out.write(bytes)
+            out.flush()
+        }
+    }
+
+    private fun push(request: JSONObject): JSONObject {
+        val deviceId = request.getString(VaultSyncClient.DEVICE_ID)
+        val baseCursor = request.getLong(VaultSyncClient.BASE_CURSOR)
+        val changes = request.getJSONArray(VaultSyncClient.CHANGES)
+        val conflicts = JSONArray()
+        var accepted = 0
+        synchronized(lock) {
+            for (i in 0 until changes.length()) {
+                val change = changes.getJSONObject(i)
+                val id = change.getString(SyncCodec.ID)
+                val current = latest[id]
+                if (current != null && current.seq > baseCursor && current.deviceId != deviceId) {
+                    // Another device wrote this credential since the pusher last pulled.
+                    conflicts.put(id)
+                    continue
+                }
+                if (current != null) {
+                    log.remove(current.seq)
+                }
+                val entry = Entry(++seq, id, deviceId, change.getString(SyncCodec.BLOB))
+                latest[id] = entry
+                log[entry.seq] = entry
+                accepted++
+            }
+            return JSONObject()
+                .put(VaultSyncClient.ACCEPTED, accepted)
+                .put(VaultSyncClient.CONFLICTS, conflicts)
+                .put(VaultSyncClient.CURSOR, seq)
+        }
+    }
+
+    private fun pull(query: Map<String, String>): JSONObject {
+        val since = query[VaultSyncClient.SINCE]?.toLong() ?: 0L
+        val limit = query[VaultSyncClient.LIMIT]?.toInt() ?: DEFAULT_LIMIT
+        val deviceId = query[VaultSyncClient.DEVICE_ID]
+        synchronized(lock) {
+            val changes = JSONArray()
+            var cursor = since
+            var hasMore = false
+            for (entry in log.tailMap(since, false).values) {
+                if (changes.length() == limit) {
+                    hasMore = true
+                    break
+                }
+                cursor = entry.seq
+                if (entry.deviceId != deviceId) {
+                    changes.put(
+                        JSONObject()
+                            .put(SyncCodec.ID, entry.id)
+                            .put(SyncCodec.BLOB, entry.blob),
+                    )
+                }
+            }
+            if (!hasMore) {
+                cursor = maxOf(cursor, seq)
+            }
+            return JSONObject()
+                .put(VaultSyncClient.CHANGES, changes)
+                .put(VaultSyncClient.CURSOR, cursor)
+                .put(VaultSyncClient.HAS_MORE, hasMore)
+        }
+    }
+
+    /**
+     * Splits a query string into its decoded parameters, keeping the first of repeated names.
+     */
+    private fun parseQuery(query: String): Map<String, String> {
+        val parameters = HashMap<String, String>()
+        for (parameter in query.split('&')) {
+            if (parameter.isEmpty()) continue
+            val name = URLDecoder.decode(parameter.substringBefore('='), Charsets.UTF_8.name())
+            val value = URLDecoder.decode(parameter.substringAfter('=', ""), Charsets.UTF_8.name())
+            parameters.putIfAbsent(name, value)
+        }
+        return parameters
+    }
+
+    private data class Entry(val seq: Long, val id: String, val deviceId: String, val blob: String)
+
+    companion object {
+        private const val BACKLOG = 50
+        private const val DEFAULT_LIMIT = 500
+        private const val CONTENT_LENGTH = "Content-Length"
+    }
+}
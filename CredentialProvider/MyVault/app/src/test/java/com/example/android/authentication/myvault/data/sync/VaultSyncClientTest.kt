@@ -0,0 +1,187 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.data.sync
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import com.example.android.authentication.myvault.data.PasskeyItem
+import com.example.android.authentication.myvault.data.PasswordItem
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+import com.example.android.authentication.myvault.data.room.MyVaultDatabase
+import com.example.android.authentication.myvault.data.room.SiteMetaData
+import com.example.android.authentication.myvault.data.room.VaultAccount
+import com.example.android.authentication.myvault.data.room.addPasswords
+import com.example.android.authentication.myvault.data.room.inMemoryVault
+import com.example.android.authentication.myvault.data.room.passwordContents
+import com.example.android.authentication.myvault.data.room.stampAsMigrated
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import javax.crypto.spec.SecretKeySpec
+import kotlin.time.Duration.Companion.minutes
+
+@RunWith(RobolectricTestRunner::class)
+class VaultSyncClientTest {
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val publicSuffixList = PublicSuffixList.open(context.assets)
+    private val server = LocalSyncServer().start()
+    private val syncKey = SecretKeySpec(ByteArray(32) { it.toByte() }, "AES")
+    private val databases = ArrayList<MyVaultDatabase>()
+
+    @After
+    fun tearDown() {
+        server.stop()
+        databases.forEach { it.close() }
+    }
+
+    @Test
+    fun syncsAHundredThousandRowsAfterMigration() = runTest(timeout = 5.minutes) {
+        val first = vault()
+        addPasswords(first, count = LARGE_VAULT_SIZE, siteCount = 1_000)
+        stampAsMigrated(first)
+
+        assertEquals(LARGE_VAULT_SIZE, client(first, "first").sync().pushed)
+        assertEquals(LARGE_VAULT_SIZE, server.size)
+
+        val second = vault()
+        assertEquals(LARGE_VAULT_SIZE, client(second, "second").sync().pulled)
+        assertEquals(passwordContents(first), passwordContents(second))
+    }
+
+    @Test
+    fun pushesOnlyChangesAfterThePreviousSync() = runTest(timeout = 5.minutes) {
+        val first = vault()
+        addPasswords(first, count = 1_200)
+        val firstClient = client(first, "first")
+        firstClient.sync()
+
+        val dao = first.myVaultDao()
+        val changed = dao.getPassword(dao.getSite("site3.example")!!.id, "user3")!!
+        dao.updatePassword(changed.copy(password = "changed"))
+        dao.insertPassword(changed.copy(id = 0, username = "new user"))
+        assertEquals(2, firstClient.sync().pushed)
+        assertEquals(0, firstClient.sync().pushed)
+
+        val second = vault()
+        val secondClient = client(second, "second")
+        assertEquals(1_201, secondClient.sync().pulled)
+        assertEquals(passwordContents(first), passwordContents(second))
+        // Pulled changes are not pushed back.
+        assertEquals(0, secondClient.sync().pushed)
+    }
+
+    @Test
+    fun credentialDeletedAndSavedAgainStaysOnOtherDevices() = runTest {
+        val first = vault()
+        addPasswords(first, count = 10)
+        val firstClient = client(first, "first")
+        firstClient.sync()
+        val second = vault()
+        val secondClient = client(second, "second")
+        secondClient.sync()
+
+        val dao = first.myVaultDao()
+        val site = dao.getSite("site3.example")!!
+        val deleted = dao.getPassword(site.id, "user3")!!
+        dao.deletePassword(deleted)
+        dao.insertPassword(deleted.copy(id = 0, password = "saved again"))
+        firstClient.sync()
+        secondClient.sync()
+
+        assertEquals(passwordContents(first), passwordContents(second))
+        assertTrue(Triple("site3.example", "user3", "saved again") in passwordContents(second))
+    }
+
+    @Test
+    fun concurrentChangeLosesToTheOneTheServerHasAlready() = runTest {
+        val first = vault()
+        addPasswords(first, count = 10)
+        val firstClient = client(first, "first")
+        firstClient.sync()
+        val second = vault()
+        val secondClient = client(second, "second")
+        secondClient.sync()
+
+        for ((database, password) in listOf(first to "from first", second to "from second")) {
+            val dao = database.myVaultDao()
+            val changed = dao.getPassword(dao.getSite("site3.example")!!.id, "user3")!!
+            dao.updatePassword(changed.copy(password = password))
+        }
+        assertEquals(1, firstClient.sync().pushed)
+        val result = secondClient.sync()
+
+        assertEquals(0, result.pushed)
+        assertEquals(1, result.conflicts)
+        assertEquals(passwordContents(first), passwordContents(second))
+        assertTrue(Triple("site3.example", "user3", "from first") in passwordContents(second))
+        // The losing change is not pushed again.
+        assertEquals(0, secondClient.sync().pushed)
+    }
+
+    @Test
+    fun carriesTheAccountOfEachCredential() = runTest {
+        val first = vault()
+        val dao = first.myVaultDao()
+        val siteId = dao.insertSite(SiteMetaData(url = "accounts.example"))
+        dao.insertPassword(
+            PasswordItem(
+                username = "alice",
+                password = "secret",
+                siteId = siteId,
+                lastUsedTimeMs = 0,
+                accountId = VaultAccount.WORK,
+            ),
+        )
+        dao.insertPasskey(
+            PasskeyItem(
+                uid = "alice",
+                username = "alice",
+                displayName = "Alice",
+                credId = "credential",
+                credPrivateKey = "key",
+                siteId = siteId,
+                lastUsedTimeMs = 0,
+                accountId = VaultAccount.WORK,
+            ),
+        )
+        client(first, "first").sync()
+
+        val second = vault()
+        client(second, "second").sync()
+        val secondDao = second.myVaultDao()
+        val site = secondDao.getSite("accounts.example")!!
+        assertEquals(VaultAccount.WORK, secondDao.getPassword(site.id, "alice")!!.accountId)
+        assertEquals(VaultAccount.WORK, secondDao.getPasskey("credential")!!.accountId)
+    }
+
+    private fun vault() = inMemoryVault(context).also { databases.add(it) }
+
+    private fun client(database: MyVaultDatabase, device: String) = VaultSyncClient(
+        database,
+        context.getSharedPreferences("sync-$device", Context.MODE_PRIVATE),
+        server.url,
+        syncKey,
+        publicSuffixList,
+    )
+
+    companion object {
+        private const val LARGE_VAULT_SIZE = 100_000
+    }
+}
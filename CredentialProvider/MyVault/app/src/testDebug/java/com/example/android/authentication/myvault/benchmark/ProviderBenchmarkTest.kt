@@ -0,0 +1,115 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.benchmark
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import com.example.android.authentication.myvault.data.psl.PublicSuffixList
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.lang.management.ManagementFactory
+
+/**
+ * Runs [ProviderBenchmark] on the JVM, so provider performance can be measured without a device:
+ *
+ * ```
+ * ./gradlew :app:testDebugUnitTest --tests '*ProviderBenchmarkTest'
+ * ```
+ *
+ * Each run prints its report and keeps its results under Robolectric's files directory.
+ */
+@RunWith(RobolectricTestRunner::class)
+class ProviderBenchmarkTest {
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+    private val coroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
+
+    /** Counts the bytes allocated by every live thread of the JVM. */
+    private val allocations = ProviderBenchmark.AllocationCounter {
+        val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        threads.getThreadAllocatedBytes(threads.allThreadIds).sum()
+    }
+
+    @After
+    fun tearDown() {
+        coroutineScope.cancel()
+    }
+
+    @Test
+    fun measuresEveryOperationAtEverySize() {
+        val benchmark = benchmark()
+
+        // Room refuses queries on the main thread, which Robolectric runs tests on.
+        val results = runBlocking(Dispatchers.Default) {
+            benchmark.run(SIZES) { println(it) }
+        }
+
+        for (size in SIZES) {
+            val operations = results.filter { it.vaultSize == size }.map { it.operation }
+            assertEquals(OPERATIONS, operations)
+        }
+        for (measurement in results) {
+            assertEquals(ITERATIONS.toLong(), measurement.latency.count)
+            assertNotNull(measurement.bytesPerOp)
+        }
+    }
+
+    @Test
+    fun comparesWithThePreviousRun() {
+        val benchmark = benchmark()
+        val first = runBlocking(Dispatchers.Default) { benchmark.run(listOf(SIZES.first())) }
+        benchmark.save(first)
+        val second = runBlocking(Dispatchers.Default) { benchmark.run(listOf(SIZES.first())) }
+        val file = benchmark.save(second)
+
+        val report = benchmark.compareWithPrevious(second, file)
+
+        println(report)
+        assertTrue(report.lines().any { it.startsWith("getPassword ") })
+    }
+
+    private fun benchmark() = ProviderBenchmark(
+        context,
+        ITERATIONS,
+        PublicSuffixList.open(context.assets),
+        coroutineScope,
+        allocations,
+    )
+
+    companion object {
+        private const val ITERATIONS = 20
+        private val SIZES = listOf(100, 1_000)
+        private val OPERATIONS = listOf(
+            "getPassword",
+            "getPasskey",
+            "getPasswordAndPasskey",
+            "createPassword",
+            "createPasskey",
+            "signalUnknownCredential",
+            "signalAllAcceptedCredentials",
+            "signalCurrentUserDetails",
+        )
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import org.jetbrains.kotlin.gradle.dsl.JvmTarget
+
+// WebAuthn encoding used by the app, kept free of Android APIs so it can be benchmarked on a
+// plain JVM:
+//   ./gradlew :fido:jmh
+plugins {
+    alias(libs.plugins.jetbrains.kotlin.jvm)
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+kotlin {
+    compilerOptions {
+        jvmTarget.set(JvmTarget.JVM_1_8)
+    }
+}
+
+dependencies {
+    // org.json is part of the Android platform; only the JVM benchmarks need the artifact.
+    compileOnly(libs.org.json)
+    jmh(libs.org.json)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    // Reports gc.alloc.rate.norm, the bytes allocated per operation.
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.fido
+
+import org.json.JSONArray
+import org.json.JSONObject
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.security.KeyPair
+import java.security.KeyPairGenerator
+import java.security.Signature
+import java.security.interfaces.ECPublicKey
+import java.security.spec.ECGenParameterSpec
+import kotlin.random.Random
+
+/**
+ * Throughput of the WebAuthn encoding done for every passkey registration and assertion.
+ *
+ * Run with `./gradlew :fido:jmh`; the gc profiler adds the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+open class FidoBenchmark {
+    private lateinit var keyPair: KeyPair
+    private lateinit var credentialId: ByteArray
+    private lateinit var coseKey: MutableMap<Int, Any>
+    private lateinit var creationOptions: PublicKeyCredentialCreationOptions
+    private lateinit var requestOptions: PublicKeyCredentialRequestOptions
+    private lateinit var assertion: AuthenticatorAssertionResponse
+    private lateinit var attestationObject: Map<String, Any>
+
+    @Setup
+    fun setUp() {
+        val generator = KeyPairGenerator.getInstance("EC")
+        generator.initialize(ECGenParameterSpec("secp256r1"))
+        keyPair = generator.genKeyPair()
+        credentialId = Random(SEED).nextBytes(CREDENTIAL_ID_BYTES)
+        coseKey = publicKeyToCose(keyPair.public as ECPublicKey)
+        creationOptions = PublicKeyCredentialCreationOptions(CREATION_OPTIONS_JSON)
+        requestOptions = PublicKeyCredentialRequestOptions(REQUEST_OPTIONS_JSON)
+        assertion = newAssertion()
+        attestationObject = mapOf(
+            "fmt" to "none",
+            "attStmt" to emptyMap<Any, Any>(),
+            "authData" to Random(SEED).nextBytes(AUTH_DATA_BYTES),
+        )
+    }
+
+    @Benchmark
+    fun cborEncodeAttestationObject(): ByteArray = Cbor().encode(attestationObject)
+
+    @Benchmark
+    fun coseKeyFromPublicKey(): ByteArray =
+        Cbor().encode(publicKeyToCose(keyPair.public as ECPublicKey))
+
+    @Benchmark
+    fun spkiFromCoseKey(): ByteArray? = coseKeyToSPKI(coseKey)
+
+    @Benchmark
+    fun parseCreationOptions(): PublicKeyCredentialCreationOptions =
+        PublicKeyCredentialCreationOptions(CREATION_OPTIONS_JSON)
+
+    @Benchmark
+    fun parseRequestOptions(): PublicKeyCredentialRequestOptions =
+        PublicKeyCredentialRequestOptions(REQUEST_OPTIONS_JSON)
+
+    /** Builds the attestation response, which includes the authenticator data and CBOR object. */
+    @Benchmark
+    fun attestationResponse(): AuthenticatorAttestationResponse = newAttestation()
+
+    /** Builds the assertion response and its authenticator data. */
+    @Benchmark
+    fun assertionAuthenticatorData(): ByteArray = newAssertion().dataToSign()
+
+    @Benchmark
+    fun signAssertion(): ByteArray {
+        val signature = Signature.getInstance("SHA256withECDSA")
+        signature.initSign(keyPair.private)
+        signature.update(assertion.dataToSign())
+        return signature.sign()
+    }
+
+    @Benchmark
+    fun registrationResponseJson(): String =
+        FidoPublicKeyCredential(credentialId, newAttestation(), PLATFORM).json()
+
+    @Benchmark
+    fun assertionResponseJson(): String =
+        FidoPublicKeyCredential(credentialId, assertion, PLATFORM).json()
+
+    private fun newAttestation() = AuthenticatorAttestationResponse(
+        requestOptions = creationOptions,
+        credentialId = credentialId,
+        credentialPublicKey = Cbor().encode(coseKey),
+        origin = ORIGIN,
+        up = true,
+        uv = true,
+        be = true,
+        bs = true,
+        packageName = PACKAGE_NAME,
+        spki = coseKeyToSPKI(coseKey),
+    )
+
+    private fun newAssertion() = AuthenticatorAssertionResponse(
+        requestOptions = requestOptions,
+        origin = ORIGIN,
+        up = true,
+        uv = true,
+        be = true,
+        bs = true,
+        userHandle = creationOptions.user.id,
+        packageName = PACKAGE_NAME,
+    )
+
+    companion object {
+        private const val SEED = 7
+        private const val CREDENTIAL_ID_BYTES = 32
+        private const val AUTH_DATA_BYTES = 164
+        private const val ORIGIN = "android:apk-key-hash:MjAyNS1iZW5jaG1hcmstc2lnbmluZy1jZXJ0"
+        private const val PACKAGE_NAME = "com.example.relyingparty"
+        private const val PLATFORM = "platform"
+        private const val CHALLENGE = "dGhpcy1pcy1hLTMyLWJ5dGUtY2hhbGxlbmdlLXZhbHVl"
+
+        private val CREATION_OPTIONS_JSON = JSONObject()
+            .put("challenge", CHALLENGE)
+            .put("rp", JSONObject().put("name", "Example").put("id", "example.com"))
+            .put(
+                "user",
+                JSONObject()
+                    .put("id", "dXNlci1oYW5kbGUtMTIzNDU2")
+                    .put("name", "user@example.com")
+                    .put("displayName", "User"),
+            )
+            .put(
+                "pubKeyCredParams",
+                JSONArray(listOf(-7, -257).map { JSONObject().put("type", "public-key").put("alg", it) }),
+            )
+            .put("timeout", 60000)
+            .put("attestation", "none")
+            .toString()
+
+        private val REQUEST_OPTIONS_JSON = JSONObject()
+            .put("challenge", CHALLENGE)
+            .put("rpId", "example.com")
+            .put("userVerification", "required")
+            .toString()
+    }
+}
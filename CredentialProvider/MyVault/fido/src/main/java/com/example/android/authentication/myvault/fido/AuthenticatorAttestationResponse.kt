@@ -15,7 +15,6 @@
  */
 package com.example.android.authentication.myvault.fido
 
-import android.util.Log
 import org.json.JSONArray
 import org.json.JSONObject
 import java.security.MessageDigest
@@ -97,8 +96,6 @@ class AuthenticatorAttestationResponse(
         jsonOutput.put("publicKeyAlgorithm", publicKeyAlgorithm)
         if (spki != null) {
             jsonOutput.put("publicKey", b64Encode(spki))
-        } else {
-            Log.i("AuthAttest", " Public key is null")
         }
     }
 
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.fido
+
+import java.util.Base64
+
+/**
+ * Decodes a Base64-encoded string into a byte array.
+ *
+ * @param str The Base64-encoded string.
+ * @return The decoded byte array.
+ */
+fun b64Decode(str: String): ByteArray {
+    return Base64.getUrlDecoder().decode(str)
+}
+
+/**
+ * Encodes a byte array into a Base64-encoded string.
+ *
+ * @param data The byte array to encode.
+ * @return The Base64-encoded string.
+ */
+fun b64Encode(data: ByteArray): String {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(data)
+}
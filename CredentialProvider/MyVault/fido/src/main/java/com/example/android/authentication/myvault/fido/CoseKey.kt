@@ -0,0 +1,86 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.authentication.myvault.fido
+
+import java.math.BigInteger
+import java.security.interfaces.ECPublicKey
+
+// DER prefix of a P-256 SubjectPublicKeyInfo, followed by the uncompressed point marker.
+private val SPKI_PREFIX = b64Decode("MFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgAE")
+
+/**
+ * Converts an ECPublicKey to a COSE key.
+ *
+ * @param key The ECPublicKey to convert.
+ * @return A mutable map representing the COSE key.
+ */
+fun publicKeyToCose(key: ECPublicKey): MutableMap<Int, Any> {
+    val x = bigIntToFixedArray(key.w.affineX)
+    val y = bigIntToFixedArray(key.w.affineY)
+    val coseKey = mutableMapOf<Int, Any>()
+    coseKey[1] = 2 // EC Key type
+    coseKey[3] = -7 // ES256
+    coseKey[-1] = 1 // P-265 Curve
+    coseKey[-2] = x // x
+    coseKey[-3] = y // y
+    return coseKey
+}
+
+/**
+ * Converts a COSE key to an SPKI (Subject Public Key Info) byte array.
+ *
+ * @param coseKey A mutable map representing the COSE key.
+ * @return The SPKI byte array, or null if the key has no P-256 coordinates.
+ */
+fun coseKeyToSPKI(coseKey: MutableMap<Int, Any>): ByteArray? {
+    val x = coseKey[-2] as? ByteArray ?: return null
+    val y = coseKey[-3] as? ByteArray ?: return null
+    return SPKI_PREFIX + x + y
+}
+
+/**
+ * Converts a {@link BigInteger} to a fixed-size byte array of length 32.
+ *
+ * This method takes a non-negative {@link BigInteger} and converts it into a
+ * fixed-size byte array of length 32. If the {@link BigInteger} requires fewer
+ * than 32 bytes to represent, it will be right-padded with zeros. If the
+ * {@link BigInteger} is larger than 32 bytes, an assertion error will be thrown.
+ *
+ * The {@link BigInteger#toByteArray()} method may add a leading zero byte if the
+ * most-significant bit of the first byte is one. This method handles this case by
+ * removing the leading zero byte before padding.
+ *
+ * @param n The non-negative {@link BigInteger} to convert.
+ * @return A byte array of length 32 representing the {@link BigInteger}.
+ * @throws AssertionError If the input {@link BigInteger} is negative or requires more than 32 bytes.
+ */
+private fun bigIntToFixedArray(n: BigInteger): ByteArray {
+    assert(n.signum() >= 0)
+
+    val bytes = n.toByteArray()
+    // `toByteArray` will left-pad with a leading zero if the
+    // most-significant bit of the first byte would otherwise be one.
+    var offset = 0
+    if (bytes[0] == 0x00.toByte()) {
+        offset++
+    }
+    val bytesLen = bytes.size - offset
+    assert(bytesLen <= 32)
+
+    val output = ByteArray(32)
+    System.arraycopy(bytes, offset, output, 32 - bytesLen, bytesLen)
+    return output
+}
@@ -21,3 +21,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "MyVault"
 include(":app")
+include(":fido")
@@ -13,8 +13,12 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+import groovy.json.JsonSlurper
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
 import java.io.FileInputStream
 import java.util.Properties
+import java.util.UUID
 
 plugins {
     alias(libs.plugins.android.application)
@@ -93,6 +97,24 @@ android {
             excludes += "/META-INF/{AL2.0,LGPL2.1}"
         }
     }
+
+    // The AAGUID index is memory-mapped from the APK, which needs it stored uncompressed.
+    androidResources {
+        noCompress += "bin"
+    }
+}
+
+val compileAaguidIndex = tasks.register<CompileAaguidIndexTask>("compileAaguidIndex") {
+    source.set(layout.projectDirectory.file("src/main/aaguid/aaguids.json"))
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(
+            compileAaguidIndex,
+            CompileAaguidIndexTask::outputDirectory,
+        )
+    }
 }
 
 dependencies {
@@ -174,6 +196,7 @@ dependencies {
     // Other Dependencies
     implementation(libs.okhttp)
     implementation(libs.okhttp.logging.interceptor)
+    debugImplementation(libs.okhttp.mockwebserver)
     implementation(libs.kotlin.coroutines)
     implementation(libs.datastore.pref)
     implementation(libs.hilt.navigation.compose)
@@ -181,3 +204,69 @@ dependencies {
     implementation(libs.gms.location)
     implementation(libs.androidx.core.splashscreen)
 }
+
+/**
+ * Compiles the AAGUID catalogue into the binary index read by
+ * `com.authentication.shrine.data.AaguidIndex`, which documents the layout.
+ */
+abstract class CompileAaguidIndexTask : DefaultTask() {
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val source: RegularFileProperty
+
+    @get:OutputDirectory
+    abstract val outputDirectory: DirectoryProperty
+
+    @TaskAction
+    fun compile() {
+        @Suppress("UNCHECKED_CAST")
+        val catalogue = JsonSlurper().parse(source.get().asFile) as Map<String, Map<String, Any?>>
+        val entries = catalogue
+            .map { (aaguid, provider) -> UUID.fromString(aaguid) to provider }
+            // The canonical form is fixed-width lowercase hex, so it sorts as the unsigned number.
+            .sortedBy { (aaguid) -> aaguid.toString() }
+
+        val poolStart = HEADER_BYTES + entries.size * (AAGUID_BYTES + FIELDS.size * FIELD_REFERENCE_BYTES)
+        val pool = ByteArrayOutputStream()
+        // Providers share icons, so each distinct value is stored once.
+        val offsets = mutableMapOf<String, Int>()
+        val index = ByteArrayOutputStream()
+        DataOutputStream(index).use { out ->
+            out.writeInt(MAGIC)
+            out.writeInt(VERSION)
+            out.writeInt(entries.size)
+            for ((aaguid, provider) in entries) {
+                out.writeLong(aaguid.mostSignificantBits)
+                out.writeLong(aaguid.leastSignificantBits)
+                for (field in FIELDS) {
+                    val value = provider[field] as String?
+                    if (value == null) {
+                        out.writeInt(0)
+                        out.writeInt(-1)
+                        continue
+                    }
+                    val bytes = value.toByteArray(Charsets.UTF_8)
+                    val offset = offsets.getOrPut(value) {
+                        (poolStart + pool.size()).also { pool.write(bytes) }
+                    }
+                    out.writeInt(offset)
+                    out.writeInt(bytes.size)
+                }
+            }
+            pool.writeTo(out)
+        }
+        outputDirectory.file(INDEX_NAME).get().asFile.writeBytes(index.toByteArray())
+    }
+
+    private companion object {
+        const val INDEX_NAME = "aaguids.bin"
+        const val MAGIC = 0x41414749 // "AAGI"
+        const val VERSION = 1
+        const val HEADER_BYTES = 12
+        const val AAGUID_BYTES = 16
+        const val FIELD_REFERENCE_BYTES = 8
+
+        /** The stored fields, in the order `AaguidIndex.Field` declares them. */
+        val FIELDS = listOf("icon_light", "icon_dark")
+    }
+}
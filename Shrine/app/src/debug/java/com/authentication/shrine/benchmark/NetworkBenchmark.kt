@@ -0,0 +1,255 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.authentication.shrine.benchmark
+
+import com.authentication.shrine.api.NetworkConfig
+import com.authentication.shrine.api.createOkHttpClient
+import okhttp3.Call
+import okhttp3.Callback
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.RequestBody.Companion.toRequestBody
+import okhttp3.Response
+import okhttp3.logging.HttpLoggingInterceptor
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.json.JSONArray
+import org.json.JSONObject
+import java.io.File
+import java.io.IOException
+import java.net.HttpURLConnection
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Measures the HTTP stack against a local [MockWebServer] that serves `webauthn/getKeys` with an
+ * ETag and a fixed delay, and stands in for the server's bodiless `auth/session` check.
+ *
+ * Each stack makes [rounds] bursts of [concurrency] identical calls, the way several screens ask
+ * for the passkey list at once, and reports throughput, latency percentiles and how many calls
+ * and bytes actually reached the server. The session checks then compare validating a session
+ * at cold start through `webauthn/getKeys`, as the splash screen used to, with `auth/session`.
+ *
+ * @param cacheDir Directory for the tuned stack's disk cache; it is deleted after the run.
+ * @param rounds The number of bursts per stack.
+ * @param concurrency The number of calls per burst.
+ * @param latencyMs The delay the server adds before each response.
+ */
+class NetworkBenchmark(
+    private val cacheDir: File,
+    private val rounds: Int = DEFAULT_ROUNDS,
+    private val concurrency: Int = DEFAULT_CONCURRENCY,
+    private val latencyMs: Long = DEFAULT_LATENCY_MS,
+) {
+    /**
+     * The outcome of one stack.
+     */
+    class Result(
+        val name: String,
+        val calls: Int,
+        val serverCalls: Long,
+        val serverBytes: Long,
+        val elapsedMs: Long,
+        val p50Ms: Long,
+        val p95Ms: Long,
+    ) {
+        override fun toString(): String =
+            "%-10s %5d calls  %5d to server  %7d KiB  %7.1f calls/s  p50 %4d ms  p95 %4d ms".format(
+                name,
+                calls,
+                serverCalls,
+                serverBytes / 1024,
+                calls * 1000.0 / elapsedMs.coerceAtLeast(1),
+                p50Ms,
+                p95Ms,
+            )
+    }
+
+    private val serverCalls = AtomicLong()
+    private val serverBytes = AtomicLong()
+
+    private val dispatcher = object : Dispatcher() {
+        override fun dispatch(request: RecordedRequest): MockResponse {
+            serverCalls.incrementAndGet()
+            if (request.path == SESSION_PATH) {
+                return MockResponse()
+                    .setResponseCode(HttpURLConnection.HTTP_NO_CONTENT)
+                    .setHeadersDelay(latencyMs, TimeUnit.MILLISECONDS)
+            }
+            val response = if (request.getHeader("If-None-Match") == ETAG) {
+                MockResponse().setResponseCode(HttpURLConnection.HTTP_NOT_MODIFIED)
+            } else {
+                serverBytes.addAndGet(KEYS_BODY.length.toLong())
+                MockResponse()
+                    .setHeader("Content-Type", "application/json")
+                    .setBody(KEYS_BODY)
+            }
+            return response
+                .setHeader("ETag", ETAG)
+                .setHeadersDelay(latencyMs, TimeUnit.MILLISECONDS)
+        }
+    }
+
+    /**
+     * Runs every stack in turn.
+     *
+     * @param onProgress Called with each result as it completes.
+     * @return The results, baseline first and the session checks last.
+     */
+    fun run(onProgress: (String) -> Unit = {}): List<Result> {
+        val server = MockWebServer()
+        server.dispatcher = dispatcher
+        server.start()
+        try {
+            val stacks = stacks().map { (name, config) ->
+                measure(name, config, server, KEYS_PATH).also { onProgress(it.toString()) }
+            }
+            // Nothing is revalidated at cold start, as the ETags only live in memory.
+            val sessionChecks = listOf("getKeys" to KEYS_PATH, "session" to SESSION_PATH).map { (name, path) ->
+                measure(name, NetworkConfig(revalidatedPaths = emptySet()), server, path)
+                    .also { onProgress(it.toString()) }
+            }
+            return stacks + sessionChecks
+        } finally {
+            server.shutdown()
+            File(cacheDir, CACHE_DIRECTORY).deleteRecursively()
+        }
+    }
+
+    private fun stacks(): List<Pair<String, NetworkConfig>> = listOf(
+        // What the app shipped before: body logging, no cache and OkHttp's default limits.
+        "baseline" to NetworkConfig(
+            logLevel = HttpLoggingInterceptor.Level.BODY,
+            maxIdleConnections = 5,
+            maxRequestsPerHost = 5,
+            revalidatedPaths = emptySet(),
+            deduplicate = false,
+        ),
+        "debug" to NetworkConfig(
+            logLevel = HttpLoggingInterceptor.Level.BODY,
+            cacheDirectory = File(cacheDir, CACHE_DIRECTORY),
+        ),
+        "release" to NetworkConfig(cacheDirectory = File(cacheDir, CACHE_DIRECTORY)),
+    )
+
+    private fun measure(name: String, config: NetworkConfig, server: MockWebServer, path: String): Result {
+        File(cacheDir, CACHE_DIRECTORY).deleteRecursively()
+        val client = createOkHttpClient(USER_AGENT, config)
+        val url = server.url(path)
+        try {
+            // Warm up the connection, and the ETag for the stacks that keep one.
+            burst(client, url.toString(), 1)
+            serverCalls.set(0)
+            serverBytes.set(0)
+
+            val latencies = Collections.synchronizedList(ArrayList<Long>())
+            val start = System.nanoTime()
+            repeat(rounds) {
+                latencies += burst(client, url.toString(), concurrency)
+            }
+            val elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+            val sorted = latencies.sorted()
+            return Result(
+                name = name,
+                calls = sorted.size,
+                serverCalls = serverCalls.get(),
+                serverBytes = serverBytes.get(),
+                elapsedMs = elapsedMs,
+                p50Ms = percentile(sorted, 0.50),
+                p95Ms = percentile(sorted, 0.95),
+            )
+        } finally {
+            client.dispatcher.executorService.shutdown()
+            client.connectionPool.evictAll()
+            client.cache?.close()
+        }
+    }
+
+    /**
+     * Enqueues [count] identical calls at once, the way Retrofit's suspend functions do, and
+     * returns their latencies in milliseconds.
+     */
+    private fun burst(client: OkHttpClient, url: String, count: Int): List<Long> {
+        val latencies = Collections.synchronizedList(ArrayList<Long>(count))
+        val done = CountDownLatch(count)
+        repeat(count) {
+            val start = System.nanoTime()
+            val request = Request.Builder()
+                .url(url)
+                .header("Cookie", COOKIE)
+                .post(ByteArray(0).toRequestBody())
+                .build()
+            client.newCall(request).enqueue(
+                object : Callback {
+                    override fun onResponse(call: Call, response: Response) {
+                        response.use { it.body?.bytes() }
+                        latencies += TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                        done.countDown()
+                    }
+
+                    override fun onFailure(call: Call, e: IOException) {
+                        done.countDown()
+                    }
+                },
+            )
+        }
+        done.await()
+        return latencies
+    }
+
+    private fun percentile(sorted: List<Long>, fraction: Double): Long =
+        if (sorted.isEmpty()) 0 else sorted[((sorted.size - 1) * fraction).toInt()]
+
+    companion object {
+        const val DEFAULT_ROUNDS = 50
+        const val DEFAULT_CONCURRENCY = 8
+        const val DEFAULT_LATENCY_MS = 40L
+        private const val CACHE_DIRECTORY = "benchmark-http"
+        private const val USER_AGENT = "ShrineNetworkBenchmark"
+        private const val COOKIE = "connect.sid=benchmark"
+        private const val ETAG = "\"keys-v1\""
+        private const val KEYS_PATH = "/webauthn/getKeys"
+        private const val SESSION_PATH = "/auth/session"
+
+        /** A passkey list about the size a user with a dozen passkeys gets back. */
+        private val KEYS_BODY = JSONObject().apply {
+            put("rpId", "localhost")
+            put("userId", "benchmark-user")
+            put(
+                "credentials",
+                JSONArray().apply {
+                    repeat(12) { index ->
+                        put(
+                            JSONObject().apply {
+                                put("id", "credential-$index-".padEnd(86, 'x'))
+                                put("passkeyUserId", "benchmark-user")
+                                put("name", "Passkey $index")
+                                put("credentialType", "public-key")
+                                put("aaguid", "ea9b8d66-4d01-1d21-3ce4-b6b48cb575d4")
+                                put("registeredAt", 1_700_000_000_000L + index)
+                                put("providerIcon", "data:image/png;base64,".padEnd(2048, 'A'))
+                            },
+                        )
+                    }
+                },
+            )
+        }.toString()
+    }
+}
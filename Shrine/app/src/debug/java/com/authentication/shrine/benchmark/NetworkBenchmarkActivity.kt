@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.authentication.shrine.benchmark
+
+import android.os.Bundle
+import android.util.Log
+import androidx.activity.ComponentActivity
+import androidx.activity.compose.setContent
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.items
+import androidx.compose.material3.MaterialTheme
+import androidx.compose.material3.Scaffold
+import androidx.compose.material3.Text
+import androidx.compose.material3.TopAppBar
+import androidx.compose.runtime.mutableStateListOf
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.res.stringResource
+import androidx.compose.ui.text.font.FontFamily
+import androidx.compose.ui.unit.dp
+import androidx.lifecycle.lifecycleScope
+import com.authentication.shrine.R
+import com.authentication.shrine.ui.theme.ShrineTheme
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+
+/**
+ * Debug screen that runs [NetworkBenchmark] and shows its results. Each line is also logged:
+ *
+ * ```
+ * adb shell am start -a com.authentication.shrine.RUN_NETWORK_BENCHMARK \
+ *     --ei rounds 50 --ei concurrency 8 --el latency 40
+ * ```
+ */
+class NetworkBenchmarkActivity : ComponentActivity() {
+    private val lines = mutableStateListOf<String>()
+
+    override fun onCreate(savedInstanceState: Bundle?) {
+        super.onCreate(savedInstanceState)
+        setContent {
+            ShrineTheme {
+                Scaffold(
+                    topBar = { TopAppBar(title = { Text(stringResource(R.string.network_benchmark)) }) },
+                ) { innerPadding ->
+                    LazyColumn(
+                        modifier = Modifier
+                            .padding(innerPadding)
+                            .fillMaxWidth()
+                            .padding(16.dp),
+                    ) {
+                        items(lines) { line ->
+                            Text(
+                                text = line,
+                                style = MaterialTheme.typography.bodySmall,
+                                fontFamily = FontFamily.Monospace,
+                            )
+                        }
+                    }
+                }
+            }
+        }
+        if (savedInstanceState == null) {
+            run()
+        }
+    }
+
+    private fun run() {
+        val benchmark = NetworkBenchmark(
+            cacheDir = cacheDir,
+            rounds = intent.getIntExtra(EXTRA_ROUNDS, NetworkBenchmark.DEFAULT_ROUNDS),
+            concurrency = intent.getIntExtra(EXTRA_CONCURRENCY, NetworkBenchmark.DEFAULT_CONCURRENCY),
+            latencyMs = intent.getLongExtra(EXTRA_LATENCY, NetworkBenchmark.DEFAULT_LATENCY_MS),
+        )
+        lifecycleScope.launch {
+            show(getString(R.string.network_benchmark_running))
+            withContext(Dispatchers.IO) {
+                benchmark.run { line -> lifecycleScope.launch { show(line) } }
+            }
+        }
+    }
+
+    private fun show(line: String) {
+        Log.i(TAG, line)
+        lines.add(line)
+    }
+
+    companion object {
+        private const val EXTRA_ROUNDS = "rounds"
+        private const val EXTRA_CONCURRENCY = "concurrency"
+        private const val EXTRA_LATENCY = "latency"
+        private const val TAG = "NetworkBenchmark"
+    }
+}
@@ -17,6 +17,7 @@ package com.authentication.shrine
 
 import android.annotation.SuppressLint
 import android.content.Context
+import android.os.Build
 import android.util.Log
 import androidx.credentials.ClearCredentialStateRequest
 import androidx.credentials.ClearCredentialStateRequest.Companion.TYPE_CLEAR_RESTORE_CREDENTIAL
@@ -34,21 +35,19 @@ import androidx.credentials.GetCredentialResponse
 import androidx.credentials.GetPasswordOption
 import androidx.credentials.GetPublicKeyCredentialOption
 import androidx.credentials.GetRestoreCredentialOption
+import androidx.credentials.PrepareGetCredentialResponse
 import androidx.credentials.SignalAllAcceptedCredentialIdsRequest
 import androidx.credentials.SignalCurrentUserDetailsRequest
 import androidx.credentials.SignalUnknownCredentialRequest
 import androidx.credentials.exceptions.CreateCredentialException
 import androidx.credentials.exceptions.GetCredentialCancellationException
 import androidx.credentials.exceptions.publickeycredential.GetPublicKeyCredentialDomException
-import androidx.datastore.core.DataStore
-import androidx.datastore.preferences.core.Preferences
-import com.authentication.shrine.repository.AuthRepository.Companion.RP_ID_KEY
-import com.authentication.shrine.repository.AuthRepository.Companion.USER_ID_KEY
-import com.authentication.shrine.repository.AuthRepository.Companion.read
 import com.authentication.shrine.repository.SERVER_CLIENT_ID
+import com.authentication.shrine.repository.SessionStore
 import com.google.android.libraries.identity.googleid.GetGoogleIdOption
 import org.json.JSONArray
 import org.json.JSONObject
+import java.util.concurrent.atomic.AtomicReference
 import javax.inject.Inject
 
 /**
@@ -58,11 +57,14 @@ import javax.inject.Inject
  */
 class CredentialManagerUtils @Inject constructor(
     private val credentialManager: CredentialManager,
-    private val dataStore: DataStore<Preferences>,
+    private val sessionStore: SessionStore,
 ) {
 
     private val TAG = "CredentialManagerUtils"
 
+    /** The options of the last prepared sign-in and the providers' results for them. */
+    private val preparedSignIn = AtomicReference<Pair<String, PrepareGetCredentialResponse>?>()
+
     private object JSON_KEYS {
         const val RP_ID = "rpId"
         const val CREDENTIAL_ID = "credentialId"
@@ -72,16 +74,37 @@ class CredentialManagerUtils @Inject constructor(
         const val DISPLAY_NAME = "displayName"
     }
 
+    /**
+     * Queries the credential providers for a sign-in ahead of time on Android 14 and above. The next
+     * [getPasskeyOrPasswordCredential] call with the same options then shows its sheet from these
+     * results instead of waiting for the providers.
+     *
+     * @param publicKeyCredentialRequestOptions The public key credential request options as JSON.
+     */
+    suspend fun preparePasskeyOrPasswordCredential(publicKeyCredentialRequestOptions: String) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+            return
+        }
+        try {
+            val response = credentialManager.prepareGetCredential(
+                passkeyOrPasswordRequest(publicKeyCredentialRequestOptions),
+            )
+            preparedSignIn.set(publicKeyCredentialRequestOptions to response)
+        } catch (e: Exception) {
+            Log.w(TAG, "Could not prepare the sign-in request", e)
+        }
+    }
+
     /**
      * Retrieves a passkey or password credential from the credential manager.
      *
-     * @param publicKeyCredentialRequestOptions The public key credential request options.
+     * @param publicKeyCredentialRequestOptions The public key credential request options as JSON.
      * @param context The activity context from the Composable, to be used in Credential Manager APIs
      * @return The [GenericCredentialManagerResponse] object containing the passkey or password, or
      * null if an error occurred.
      */
     suspend fun getPasskeyOrPasswordCredential(
-        publicKeyCredentialRequestOptions: JSONObject,
+        publicKeyCredentialRequestOptions: String,
         context: Context,
     ): GenericCredentialManagerResponse {
         val passkeysEligibility = PasskeysEligibility.isPasskeySupported(context)
@@ -89,18 +112,21 @@ class CredentialManagerUtils @Inject constructor(
             return GenericCredentialManagerResponse.Error(errorMessage = passkeysEligibility.reason)
         }
 
+        val prepared = preparedSignIn.getAndSet(null)
+            ?.takeIf { (options, _) -> options == publicKeyCredentialRequestOptions }
+            ?.second?.pendingGetCredentialHandle
         val result: GetCredentialResponse?
         try {
-            val credentialRequest = GetCredentialRequest(
-                listOf(
-                    GetPublicKeyCredentialOption(
-                        publicKeyCredentialRequestOptions.toString(),
-                        null,
-                    ),
-                    GetPasswordOption(),
-                ),
-            )
-            result = credentialManager.getCredential(context, credentialRequest)
+            result = if (prepared != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+                Log.i(TAG, "Showing the sign-in sheet from prepared provider results")
+                credentialManager.getCredential(context, prepared)
+            } else {
+                Log.i(TAG, "Querying providers for the sign-in sheet")
+                credentialManager.getCredential(
+                    context,
+                    passkeyOrPasswordRequest(publicKeyCredentialRequestOptions),
+                )
+            }
         } catch (e: GetCredentialCancellationException) {
             // When credential selector bottom-sheet is cancelled
             return GenericCredentialManagerResponse.CancellationError
@@ -113,6 +139,17 @@ class CredentialManagerUtils @Inject constructor(
         return GenericCredentialManagerResponse.GetCredentialSuccess(getCredentialResponse = result)
     }
 
+    private fun passkeyOrPasswordRequest(publicKeyCredentialRequestOptions: String) =
+        GetCredentialRequest(
+            listOf(
+                GetPublicKeyCredentialOption(
+                    publicKeyCredentialRequestOptions,
+                    null,
+                ),
+                GetPasswordOption(),
+            ),
+        )
+
     /**
      * Retrieves a Sign in with Google credential from the credential manager.
      *
@@ -169,14 +206,14 @@ class CredentialManagerUtils @Inject constructor(
     /**
      * Creates a new passkey credential.
      *
-     * @param requestResult The result of the passkey creation request.
+     * @param requestResult The passkey creation options returned by the server, as JSON.
      * @param context The activity context from the Composable, to be used in Credential Manager APIs
      * @param isConditional Whether the passkey creation is conditional.
      * @return The [CreatePublicKeyCredentialResponse] object containing the passkey, or null if an error occurred.
      */
     @SuppressLint("PublicKeyCredential")
     suspend fun createPasskey(
-        requestResult: JSONObject,
+        requestResult: String,
         context: Context,
         isConditional: Boolean = false,
     ): GenericCredentialManagerResponse {
@@ -186,7 +223,7 @@ class CredentialManagerUtils @Inject constructor(
         }
 
         val credentialRequest = CreatePublicKeyCredentialRequest(
-            requestJson = requestResult.toString(),
+            requestJson = requestResult,
             isConditional = isConditional
         )
         val credentialResponse: CreatePublicKeyCredentialResponse
@@ -206,7 +243,7 @@ class CredentialManagerUtils @Inject constructor(
     /**
      * Creates a restore key using the Credential Manager API.
      *
-     * @param requestResult A [JSONObject] containing the data required for creating the restore
+     * @param requestResult The JSON containing the data required for creating the restore
      * credential. This data is used to create a [CreateRestoreCredentialRequest]
      *
      * @param context The Android Context used for checking passkey eligibility and interacting
@@ -217,7 +254,7 @@ class CredentialManagerUtils @Inject constructor(
      * @throws Exception If any error occurs during the credential creation process.
      */
     suspend fun createRestoreKey(
-        requestResult: JSONObject,
+        requestResult: String,
         context: Context,
     ): GenericCredentialManagerResponse {
         val passkeysEligibility = PasskeysEligibility.isPasskeySupported(context)
@@ -227,7 +264,7 @@ class CredentialManagerUtils @Inject constructor(
             return GenericCredentialManagerResponse.Error(errorMessage = passkeysEligibility.reason)
         }
 
-        val restoreCredentialRequest = CreateRestoreCredentialRequest(requestResult.toString())
+        val restoreCredentialRequest = CreateRestoreCredentialRequest(requestResult)
         try {
             credentialResponse = credentialManager.createCredential(
                 context,
@@ -242,12 +279,12 @@ class CredentialManagerUtils @Inject constructor(
     /**
      * Retrieves the restore key using the Credential Manager API.
      *
-     * @param authenticationJson The JSON object containing authentication information.
+     * @param authenticationJson The JSON containing authentication information.
      * @param context The application context.
      * @return A [GenericCredentialManagerResponse] object indicating success or failure.
      */
     suspend fun getRestoreKey(
-        authenticationJson: JSONObject,
+        authenticationJson: String,
         context: Context,
     ): GenericCredentialManagerResponse {
         val passkeysEligibility = PasskeysEligibility.isPasskeySupported(context)
@@ -255,7 +292,7 @@ class CredentialManagerUtils @Inject constructor(
             return GenericCredentialManagerResponse.Error(errorMessage = passkeysEligibility.reason)
         }
 
-        val options = GetRestoreCredentialOption(authenticationJson.toString())
+        val options = GetRestoreCredentialOption(authenticationJson)
         val getRestoreKeyRequest = GetCredentialRequest(listOf(options))
         val result: GetCredentialResponse?
         try {
@@ -281,7 +318,7 @@ class CredentialManagerUtils @Inject constructor(
     suspend fun signalUnknown(
         credentialId: String,
     ) {
-        dataStore.read(RP_ID_KEY)?.let { rpId ->
+        sessionStore.current().rpId?.let { rpId ->
             credentialManager.signalCredentialState(
                 request = SignalUnknownCredentialRequest(
                     requestJson = JSONObject().apply {
@@ -332,8 +369,9 @@ class CredentialManagerUtils @Inject constructor(
     suspend fun fetchDataAndPerformAction(
         credentialManagerAction: suspend (rpId: String, userId: String) -> Unit
     ) {
-        val rpId = dataStore.read(RP_ID_KEY)
-        val userId = dataStore.read(USER_ID_KEY)
+        val session = sessionStore.current()
+        val rpId = session.rpId
+        val userId = session.userId
 
         if (rpId.isNullOrBlank()) {
             Log.e(TAG, "RP ID not present")
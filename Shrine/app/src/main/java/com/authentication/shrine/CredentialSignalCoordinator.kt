@@ -0,0 +1,131 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.authentication.shrine
+
+import android.util.Base64
+import android.util.Log
+import androidx.datastore.core.DataStore
+import androidx.datastore.preferences.core.Preferences
+import androidx.datastore.preferences.core.edit
+import androidx.datastore.preferences.core.stringPreferencesKey
+import com.authentication.shrine.repository.SessionStore
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.launch
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Sends credential state signals through [CredentialManagerUtils] only when they say something new.
+ *
+ * Every signal reaches every installed credential provider. Each one is therefore held back for
+ * [DEBOUNCE_MS], replaced by any newer signal of the same kind for the same user. It is then only
+ * sent if its content differs from the last one signalled for that relying party and user. A
+ * digest of that content is kept in the data store, so it carries over app restarts.
+ *
+ * @param credentialManagerUtils Sends the signals.
+ * @param sessionStore The in-memory session, for the relying party and user the signals are about.
+ * @param dataStore The data store the digests are kept in.
+ * @param coroutineScope The app scope, so pending signals outlive the screen that sent them.
+ */
+@Singleton
+class CredentialSignalCoordinator @Inject constructor(
+    private val credentialManagerUtils: CredentialManagerUtils,
+    private val sessionStore: SessionStore,
+    private val dataStore: DataStore<Preferences>,
+    private val coroutineScope: CoroutineScope,
+) {
+    private val pending = ConcurrentHashMap<String, Job>()
+
+    /**
+     * Signals the credential ids the server accepts for the current user, through
+     * [CredentialManagerUtils.signalAcceptedIds].
+     *
+     * @param credentialIds The accepted credential ids, in any order.
+     */
+    suspend fun signalAcceptedIds(credentialIds: List<String>) {
+        schedule(KIND_ACCEPTED_IDS, credentialIds.sorted().joinToString(SEPARATOR)) {
+            credentialManagerUtils.signalAcceptedIds(credentialIds)
+        }
+    }
+
+    /**
+     * Signals the current user's name and display name, through
+     * [CredentialManagerUtils.signalUserDetails].
+     *
+     * @param newName The user's name.
+     * @param newDisplayName The user's display name.
+     */
+    suspend fun signalUserDetails(newName: String, newDisplayName: String) {
+        schedule(KIND_USER_DETAILS, newName + SEPARATOR + newDisplayName) {
+            credentialManagerUtils.signalUserDetails(newName, newDisplayName)
+        }
+    }
+
+    private suspend fun schedule(kind: String, content: String, send: suspend () -> Unit) {
+        val session = sessionStore.current()
+        val rpId = session.rpId
+        val userId = session.userId
+        if (rpId.isNullOrBlank() || userId.isNullOrBlank()) {
+            // There is nothing to key the digest by; let CredentialManagerUtils report why.
+            send()
+            return
+        }
+        val key = stringPreferencesKey("$DIGEST_KEY_PREFIX$kind:$rpId:$userId")
+        val digest = digest(content)
+
+        val job = coroutineScope.launch(start = CoroutineStart.LAZY) {
+            delay(DEBOUNCE_MS)
+            val current = sessionStore.current()
+            if (current.rpId != rpId || current.userId != userId) {
+                return@launch
+            }
+            if (dataStore.data.first()[key] == digest) {
+                return@launch
+            }
+            try {
+                send()
+                dataStore.edit { prefs -> prefs[key] = digest }
+            } catch (e: Exception) {
+                Log.w(TAG, "Could not send the $kind signal", e)
+            }
+        }
+        pending.put(key.name, job)?.cancel()
+        job.invokeOnCompletion { pending.remove(key.name, job) }
+        job.start()
+    }
+
+    private fun digest(content: String): String {
+        val hash = MessageDigest.getInstance("SHA-256").digest(content.toByteArray(Charsets.UTF_8))
+        return Base64.encodeToString(hash, Base64.NO_WRAP)
+    }
+
+    companion object {
+        private const val TAG = "CredentialSignals"
+        private const val KIND_ACCEPTED_IDS = "accepted_ids"
+        private const val KIND_USER_DETAILS = "user_details"
+        private const val DIGEST_KEY_PREFIX = "signal_digest:"
+        private const val SEPARATOR = "\n"
+
+        /** How long a signal waits for a newer one to replace it. */
+        private const val DEBOUNCE_MS = 500L
+    }
+}
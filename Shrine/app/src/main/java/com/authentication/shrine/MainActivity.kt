@@ -47,9 +47,12 @@ class MainActivity : ComponentActivity() {
         setContent {
             // Setting theme for the App
             ShrineTheme {
+                val splashState = splashViewModel.uiState.collectAsState().value
                 ShrineNavigation(
-                    startDestination = splashViewModel.uiState.collectAsState().value.nextScreen,
+                    startDestination = splashState.nextScreen,
                     credentialManagerUtils = credentialManagerUtils,
+                    isSessionRejected = splashState.isSessionRejected,
+                    onSessionRejectionHandled = splashViewModel::onSessionRejectionHandled,
                 )
             }
         }
@@ -15,16 +15,30 @@
  */
 package com.authentication.shrine
 
+import android.app.Activity
+import android.app.Application
 import android.app.KeyguardManager
+import android.content.BroadcastReceiver
 import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
 import android.content.pm.PackageManager
 import android.os.Build
+import android.os.Bundle
+import android.os.PatternMatcher
 import androidx.annotation.RequiresApi
+import androidx.core.content.ContextCompat
 import com.google.android.gms.common.ConnectionResult
 import com.google.android.gms.common.GoogleApiAvailability
+import java.util.concurrent.atomic.AtomicBoolean
 
 /**
  * A class that provides information about whether passkeys are supported on the device.
+ *
+ * The answer almost never changes, so it is computed once and cached. The Play Services part is
+ * dropped when the Play Services package is replaced, changed or removed, or when the locale
+ * changes; the lock screen part is checked again whenever an activity starts, since the user has
+ * to leave the app to change the screen lock.
  */
 class PasskeysEligibility {
 
@@ -32,6 +46,20 @@ class PasskeysEligibility {
 
         private const val MIN_PLAY_VERSION = 230815045
 
+        /** Eligibility as far as the platform and Play Services go, or null if not yet known. */
+        @Volatile
+        private var playServicesEligibility: PasskeysEligibilityData? = null
+
+        /** Whether the device has a secure lock screen, or null if not yet known. */
+        @Volatile
+        private var isDeviceSecure: Boolean? = null
+
+        /** Bumped on every invalidation, so a check racing with one does not store its result. */
+        private var generation = 0
+        private val lock = Any()
+
+        private val isListening = AtomicBoolean()
+
         /**
          * Check if passkeys are supported on the device. In order, we verify that:
          * 1. The API Version >= P
@@ -41,10 +69,43 @@ class PasskeysEligibility {
          * https://developer.android.com/jetpack/androidx/releases/credentials#1.3.0-alpha01
          * 4. The device is secured with some lock.
          *
+         * Results are cached; see [PasskeysEligibility].
+         *
          * @param context The application context.
          * @return A PasskeysEligibilityData object containing the eligibility status and reason.
          * */
         fun isPasskeySupported(context: Context): PasskeysEligibilityData {
+            val appContext = context.applicationContext
+            listenForChanges(appContext)
+
+            val playServices = playServicesEligibility ?: cache(
+                compute = { checkPlayServices(appContext) },
+                store = { playServicesEligibility = it },
+            )
+            if (!playServices.isEligible) {
+                return playServices
+            }
+
+            // Check if device is secured with a lock screen
+            val isDeviceSecured = isDeviceSecure ?: cache(
+                compute = {
+                    (appContext.getSystemService(Context.KEYGUARD_SERVICE) as KeyguardManager).isDeviceSecure
+                },
+                store = { isDeviceSecure = it },
+            )
+
+            if (!isDeviceSecured) {
+                return PasskeysEligibilityData(
+                    false,
+                    appContext.getString(R.string.device_not_secure),
+                )
+            }
+
+            // All checks passed, device should support passkeys
+            return PasskeysEligibilityData(true, appContext.getString(R.string.empty_string))
+        }
+
+        private fun checkPlayServices(context: Context): PasskeysEligibilityData {
             // Check if device is running on Android P or higher
             if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) {
                 return PasskeysEligibilityData(
@@ -70,19 +131,83 @@ class PasskeysEligibility {
                 )
             }
 
-            // Check if device is secured with a lock screen
-            val isDeviceSecured =
-                (context.getSystemService(Context.KEYGUARD_SERVICE) as KeyguardManager).isDeviceSecure
+            return PasskeysEligibilityData(true, context.getString(R.string.empty_string))
+        }
 
-            if (!isDeviceSecured) {
-                return PasskeysEligibilityData(
-                    false,
-                    context.getString(R.string.device_not_secure),
+        /**
+         * Computes a value and stores it with [store], unless the cache was invalidated meanwhile.
+         */
+        private inline fun <T> cache(compute: () -> T, store: (T) -> Unit): T {
+            val before = synchronized(lock) { generation }
+            val value = compute()
+            synchronized(lock) {
+                if (generation == before) {
+                    store(value)
+                }
+            }
+            return value
+        }
+
+        private fun invalidate(playServices: Boolean) {
+            synchronized(lock) {
+                generation++
+                if (playServices) {
+                    playServicesEligibility = null
+                }
+                isDeviceSecure = null
+            }
+        }
+
+        /**
+         * Registers, once per process, for the events that can change the answer.
+         */
+        private fun listenForChanges(context: Context) {
+            if (!isListening.compareAndSet(false, true)) {
+                return
+            }
+            val onChange = object : BroadcastReceiver() {
+                override fun onReceive(context: Context, intent: Intent) {
+                    invalidate(playServices = true)
+                }
+            }
+            val packageFilter = IntentFilter().apply {
+                addAction(Intent.ACTION_PACKAGE_ADDED)
+                addAction(Intent.ACTION_PACKAGE_CHANGED)
+                addAction(Intent.ACTION_PACKAGE_REPLACED)
+                addAction(Intent.ACTION_PACKAGE_REMOVED)
+                addDataScheme("package")
+                addDataSchemeSpecificPart(
+                    GoogleApiAvailability.GOOGLE_PLAY_SERVICES_PACKAGE,
+                    PatternMatcher.PATTERN_LITERAL,
                 )
             }
+            ContextCompat.registerReceiver(
+                context,
+                onChange,
+                packageFilter,
+                ContextCompat.RECEIVER_NOT_EXPORTED,
+            )
+            ContextCompat.registerReceiver(
+                context,
+                onChange,
+                IntentFilter(Intent.ACTION_LOCALE_CHANGED),
+                ContextCompat.RECEIVER_NOT_EXPORTED,
+            )
 
-            // All checks passed, device should support passkeys
-            return PasskeysEligibilityData(true, context.getString(R.string.empty_string))
+            (context as? Application)?.registerActivityLifecycleCallbacks(
+                object : Application.ActivityLifecycleCallbacks {
+                    override fun onActivityStarted(activity: Activity) {
+                        invalidate(playServices = false)
+                    }
+
+                    override fun onActivityCreated(activity: Activity, savedInstanceState: Bundle?) = Unit
+                    override fun onActivityResumed(activity: Activity) = Unit
+                    override fun onActivityPaused(activity: Activity) = Unit
+                    override fun onActivityStopped(activity: Activity) = Unit
+                    override fun onActivitySaveInstanceState(activity: Activity, outState: Bundle) = Unit
+                    override fun onActivityDestroyed(activity: Activity) = Unit
+                },
+            )
         }
 
         /**
@@ -23,8 +23,12 @@ import androidx.datastore.core.DataStore
 import androidx.datastore.preferences.core.PreferenceDataStoreFactory
 import androidx.datastore.preferences.core.Preferences
 import androidx.datastore.preferences.preferencesDataStoreFile
-import com.authentication.shrine.api.AddHeaderInterceptor
 import com.authentication.shrine.api.AuthApiService
+import com.authentication.shrine.api.NetworkConfig
+import com.authentication.shrine.api.RawJsonConverterFactory
+import com.authentication.shrine.api.RevalidatingInterceptor
+import com.authentication.shrine.api.createOkHttpClient
+import com.authentication.shrine.repository.SessionStore
 import dagger.Module
 import dagger.Provides
 import dagger.hilt.InstallIn
@@ -37,7 +41,7 @@ import okhttp3.OkHttpClient
 import okhttp3.logging.HttpLoggingInterceptor
 import retrofit2.Retrofit
 import retrofit2.converter.gson.GsonConverterFactory
-import java.util.concurrent.TimeUnit
+import java.io.File
 import javax.inject.Singleton
 
 /**
@@ -53,27 +57,57 @@ class ShrineApplication : Application()
 @InstallIn(SingletonComponent::class)
 object AppModule {
 
+    /**
+     * Provides the settings of the HTTP stack. Bodies are only logged in debug builds.
+     *
+     * @param application The application, whose cache directory holds the HTTP cache.
+     * @return The NetworkConfig instance.
+     */
+    @Singleton
+    @Provides
+    fun provideNetworkConfig(application: Application): NetworkConfig {
+        return NetworkConfig(
+            logLevel = if (BuildConfig.DEBUG) {
+                HttpLoggingInterceptor.Level.BODY
+            } else {
+                HttpLoggingInterceptor.Level.NONE
+            },
+            cacheDirectory = File(application.cacheDir, "http"),
+        )
+    }
+
+    /**
+     * Provides the interceptor that revalidates stored responses, so signing out can clear them.
+     *
+     * @param config The HTTP stack settings.
+     * @return The RevalidatingInterceptor instance.
+     */
+    @Singleton
+    @Provides
+    fun provideRevalidatingInterceptor(config: NetworkConfig): RevalidatingInterceptor {
+        return RevalidatingInterceptor(config.revalidatedPaths)
+    }
+
     /**
      * Creates and provides an OkHttpClient instance with interceptors and timeouts.
      *
+     * @param config The HTTP stack settings.
+     * @param revalidatingInterceptor Revalidates the responses of read-only POST endpoints.
      * @return The OkHttpClient instance.
      */
     @Singleton
     @Provides
-    fun provideOkHttpClient(): OkHttpClient {
+    fun provideOkHttpClient(
+        config: NetworkConfig,
+        revalidatingInterceptor: RevalidatingInterceptor,
+    ): OkHttpClient {
         val userAgent = "${BuildConfig.APPLICATION_ID}/${BuildConfig.VERSION_NAME} " +
             "(Android ${Build.VERSION.RELEASE}; ${Build.MODEL}; ${Build.BRAND})"
-        return OkHttpClient.Builder()
-            .addInterceptor(AddHeaderInterceptor(userAgent))
-            .addInterceptor(
-                HttpLoggingInterceptor().apply {
-                    level = HttpLoggingInterceptor.Level.BODY
-                },
-            )
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(40, TimeUnit.SECONDS)
-            .connectTimeout(40, TimeUnit.SECONDS)
-            .build()
+        return createOkHttpClient(
+            userAgent = userAgent,
+            config = config,
+            revalidatingInterceptor = revalidatingInterceptor,
+        )
     }
 
     /**
@@ -109,11 +143,11 @@ object AppModule {
     @Provides
     fun providesCredentialManagerUtils(
         credentialManager: CredentialManager,
-        dataStore: DataStore<Preferences>,
+        sessionStore: SessionStore,
     ): CredentialManagerUtils {
         return CredentialManagerUtils(
             credentialManager = credentialManager,
-            dataStore = dataStore,
+            sessionStore = sessionStore,
         )
     }
 
@@ -123,6 +157,7 @@ object AppModule {
         return Retrofit.Builder()
             .baseUrl(BuildConfig.API_BASE_URL)
             .client(okHttpClient)
+            .addConverterFactory(RawJsonConverterFactory())
             .addConverterFactory(GsonConverterFactory.create())
             .build()
             .create(AuthApiService::class.java)
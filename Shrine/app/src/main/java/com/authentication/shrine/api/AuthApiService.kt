@@ -20,10 +20,8 @@ import com.authentication.shrine.model.GenericAuthResponse
 import com.authentication.shrine.model.LoginUsernamePasswordRequest
 import com.authentication.shrine.model.PasskeysList
 import com.authentication.shrine.model.RegisterRequestRequestBody
-import com.authentication.shrine.model.RegisterRequestResponse
 import com.authentication.shrine.model.RegisterResponseRequestBody
 import com.authentication.shrine.model.RegisterUsernameRequest
-import com.authentication.shrine.model.SignInRequestResponse
 import com.authentication.shrine.model.SignInResponseRequest
 import com.authentication.shrine.model.SignInWithGoogleRequest
 import retrofit2.Response
@@ -50,11 +48,19 @@ interface AuthApiService {
         @Body usernamePasswordRequest: LoginUsernamePasswordRequest,
     ): Response<GenericAuthResponse>
 
+    /**
+     * Requests WebAuthn registration options (a challenge) from the server.
+     *
+     * @param cookie The session cookie for authentication.
+     * @param requestBody The attestation and authenticator preferences.
+     * @return A Retrofit {@link Response} wrapping the options as the raw JSON sent by the server,
+     *         ready to pass to Credential Manager.
+     */
     @POST("webauthn/registerRequest")
     suspend fun registerRequest(
         @Header("Cookie") cookie: String,
         @Body requestBody: RegisterRequestRequestBody,
-    ): Response<RegisterRequestResponse>
+    ): Response<String>
 
     /**
      * Sends the client's response to a WebAuthn registration challenge back to the server
@@ -79,11 +85,11 @@ interface AuthApiService {
      * Initiates a WebAuthn sign-in ceremony by requesting assertion options
      * (a challenge) from the server.
      *
-     * @return A Retrofit {@link Response} wrapping a {@link SignInRequestResponse},
-     *         which contains the challenge and options for the WebAuthn sign-in.
+     * @return A Retrofit {@link Response} wrapping the challenge and options for the WebAuthn
+     *         sign-in as the raw JSON sent by the server, ready to pass to Credential Manager.
      */
     @POST("webauthn/signinRequest")
-    suspend fun signInRequest(): Response<SignInRequestResponse>
+    suspend fun signInRequest(): Response<String>
 
     /**
      * Sends the client's response to a WebAuthn sign-in challenge (assertion) back
@@ -114,6 +120,19 @@ interface AuthApiService {
         @Header("Cookie") cookie: String,
     ): Response<PasskeysList>
 
+    /**
+     * Checks that a session is still signed in, without sending anything back but the status.
+     *
+     * @param cookie The session cookie for authentication.
+     * @return A Retrofit {@link Response} with no body: successful if the session is signed in,
+     *         401 or 403 if the server no longer accepts it, and 404 from servers that predate
+     *         this endpoint.
+     */
+    @POST("auth/session")
+    suspend fun checkSession(
+        @Header("Cookie") cookie: String,
+    ): Response<Unit>
+
     /**
      * Registers a username with the authentication server.
      *
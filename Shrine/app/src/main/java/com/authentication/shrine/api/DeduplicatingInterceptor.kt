@@ -0,0 +1,91 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.authentication.shrine.api
+
+import okhttp3.Interceptor
+import okhttp3.MediaType
+import okhttp3.Request
+import okhttp3.Response
+import okhttp3.ResponseBody.Companion.toResponseBody
+import java.io.IOException
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+
+/**
+ * Lets identical idempotent requests that are in flight at the same time share one network call.
+ *
+ * The first request for a key goes to the network; requests with the same method, url and cookie
+ * that arrive before it completes wait for it and receive a copy of its response. GET requests
+ * are always eligible, POST requests only for the given [paths].
+ *
+ * @param paths POST endpoints that are safe to repeat, relative to the base url.
+ */
+internal class DeduplicatingInterceptor(private val paths: Set<String>) : Interceptor {
+
+    private class Shared(
+        val response: Response,
+        val contentType: MediaType?,
+        val body: ByteArray,
+    )
+
+    private val inFlight = ConcurrentHashMap<String, CompletableFuture<Shared>>()
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        if (!isIdempotent(request)) {
+            return chain.proceed(request)
+        }
+
+        val key = "${request.method} ${request.url} ${request.header("Cookie").orEmpty()}"
+        val call = CompletableFuture<Shared>()
+        val leader = inFlight.putIfAbsent(key, call)
+        if (leader != null) {
+            return try {
+                leader.get().copyFor(request)
+            } catch (e: ExecutionException) {
+                throw IOException("Shared request failed", e.cause)
+            }
+        }
+
+        try {
+            val response = chain.proceed(request)
+            val body = response.body
+            val contentType = body?.contentType()
+            val bytes = body?.use { it.bytes() } ?: ByteArray(0)
+            val shared = Shared(response, contentType, bytes)
+            call.complete(shared)
+            return shared.copyFor(request)
+        } catch (e: Throwable) {
+            call.completeExceptionally(e)
+            throw e
+        } finally {
+            inFlight.remove(key, call)
+        }
+    }
+
+    private fun isIdempotent(request: Request): Boolean = when (request.method) {
+        "GET" -> true
+        "POST" -> matchesPath(request.url.encodedPath, paths)
+        else -> false
+    }
+
+    private fun Shared.copyFor(request: Request): Response =
+        response.newBuilder()
+            .request(request)
+            .body(body.toResponseBody(contentType))
+            .build()
+}
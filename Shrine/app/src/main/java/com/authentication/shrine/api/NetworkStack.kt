@@ -0,0 +1,102 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.authentication.shrine.api
+
+import okhttp3.Cache
+import okhttp3.ConnectionPool
+import okhttp3.Dispatcher
+import okhttp3.OkHttpClient
+import okhttp3.logging.HttpLoggingInterceptor
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * Settings for the HTTP stack built by [createOkHttpClient].
+ *
+ * The defaults suit the app, which talks to a single host: the dispatcher allows more concurrent
+ * calls to that host than OkHttp's default of 5, and a couple of idle connections are kept warm.
+ *
+ * @property logLevel How much of each exchange to log. Use [HttpLoggingInterceptor.Level.NONE]
+ * in release builds; `BODY` buffers every request and response.
+ * @property cacheDirectory Where to keep the HTTP disk cache, or null for no disk cache.
+ * @property cacheSizeBytes The maximum size of the disk cache.
+ * @property maxIdleConnections The number of idle connections the pool keeps.
+ * @property keepAliveMinutes How long an idle connection is kept.
+ * @property maxRequests The maximum number of concurrent calls.
+ * @property maxRequestsPerHost The maximum number of concurrent calls to one host.
+ * @property revalidatedPaths POST endpoints that are safe to repeat, revalidated with their ETag
+ * and deduplicated while in flight. GET requests always are.
+ * @property deduplicate Whether identical idempotent requests in flight share one network call.
+ */
+data class NetworkConfig(
+    val logLevel: HttpLoggingInterceptor.Level = HttpLoggingInterceptor.Level.NONE,
+    val cacheDirectory: File? = null,
+    val cacheSizeBytes: Long = 10L * 1024 * 1024,
+    val maxIdleConnections: Int = 2,
+    val keepAliveMinutes: Long = 5,
+    val maxRequests: Int = 64,
+    val maxRequestsPerHost: Int = 16,
+    val revalidatedPaths: Set<String> = setOf("webauthn/getKeys"),
+    val deduplicate: Boolean = true,
+)
+
+/**
+ * Builds the [OkHttpClient] used for the auth server.
+ *
+ * @param userAgent The User-Agent header sent with every request.
+ * @param config The stack settings.
+ * @param revalidatingInterceptor Revalidates [NetworkConfig.revalidatedPaths], or null to not
+ * revalidate. Pass one in to be able to clear its stored responses.
+ * @return The configured client.
+ */
+fun createOkHttpClient(
+    userAgent: String,
+    config: NetworkConfig,
+    revalidatingInterceptor: RevalidatingInterceptor? = config.revalidatedPaths
+        .takeIf { it.isNotEmpty() }
+        ?.let { RevalidatingInterceptor(it) },
+): OkHttpClient {
+    val builder = OkHttpClient.Builder()
+        .addInterceptor(AddHeaderInterceptor(userAgent))
+    if (config.deduplicate) {
+        builder.addInterceptor(DeduplicatingInterceptor(config.revalidatedPaths))
+    }
+    revalidatingInterceptor?.let { builder.addInterceptor(it) }
+    if (config.logLevel != HttpLoggingInterceptor.Level.NONE) {
+        builder.addInterceptor(HttpLoggingInterceptor().apply { level = config.logLevel })
+    }
+    config.cacheDirectory?.let { builder.cache(Cache(it, config.cacheSizeBytes)) }
+    return builder
+        .connectionPool(
+            ConnectionPool(config.maxIdleConnections, config.keepAliveMinutes, TimeUnit.MINUTES),
+        )
+        .dispatcher(
+            Dispatcher().apply {
+                maxRequests = config.maxRequests
+                maxRequestsPerHost = config.maxRequestsPerHost
+            },
+        )
+        .readTimeout(30, TimeUnit.SECONDS)
+        .writeTimeout(40, TimeUnit.SECONDS)
+        .connectTimeout(40, TimeUnit.SECONDS)
+        .build()
+}
+
+/**
+ * Returns true if [path] ends with one of [paths], ignoring a leading slash.
+ */
+internal fun matchesPath(path: String, paths: Set<String>): Boolean =
+    paths.any { path.endsWith("/$it") || path == it }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.authentication.shrine.api
+
+import okhttp3.Headers
+import okhttp3.Interceptor
+import okhttp3.MediaType
+import okhttp3.Response
+import okhttp3.ResponseBody.Companion.toResponseBody
+import java.net.HttpURLConnection
+
+/**
+ * Revalidates responses of idempotent POST endpoints with their ETag.
+ *
+ * OkHttp's [okhttp3.Cache] only stores GET responses, and the auth server exposes read-only
+ * calls such as `webauthn/getKeys` as POSTs. This keeps the last successful response of each
+ * such endpoint in memory and sends its ETag as `If-None-Match`; a `304 Not Modified` is then
+ * answered with the stored body. The server decides whether the stored representation is still
+ * current, so a response is never reused without its approval.
+ *
+ * These endpoints answer for the user whose session cookie is sent, so responses are stored per
+ * url and cookie, and [clear] drops them all when the user signs out.
+ *
+ * @param paths The endpoints to revalidate, relative to the base url.
+ */
+class RevalidatingInterceptor(private val paths: Set<String>) : Interceptor {
+
+    private class Entry(
+        val etag: String,
+        val headers: Headers,
+        val contentType: MediaType?,
+        val body: ByteArray,
+    )
+
+    private val entries = HashMap<String, Entry>()
+
+    /**
+     * Forgets every stored response.
+     */
+    fun clear() {
+        synchronized(entries) { entries.clear() }
+    }
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        if (!matchesPath(request.url.encodedPath, paths)) {
+            return chain.proceed(request)
+        }
+
+        val key = "${request.url} ${request.header("Cookie").orEmpty()}"
+        val cached = synchronized(entries) { entries[key] }
+        val response = chain.proceed(
+            if (cached == null) {
+                request
+            } else {
+                request.newBuilder().header("If-None-Match", cached.etag).build()
+            },
+        )
+
+        if (response.code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            response.close()
+            // Headers sent with the 304 win over stored ones. Stored cookies are never replayed; only
+            // one the 304 itself sets, such as a refreshed session cookie, is passed on.
+            val headers = cached.headers.newBuilder().apply {
+                removeAll("Set-Cookie")
+                response.headers.names().forEach { removeAll(it) }
+                addAll(response.headers)
+            }.build()
+            return response.newBuilder()
+                .code(HttpURLConnection.HTTP_OK)
+                .message("OK")
+                .headers(headers)
+                .body(cached.body.toResponseBody(cached.contentType))
+                .build()
+        }
+
+        val etag = response.header("ETag")
+        if (!response.isSuccessful || etag == null) {
+            synchronized(entries) { entries.remove(key) }
+            return response
+        }
+        val body = response.body ?: return response
+        val contentType = body.contentType()
+        val bytes = body.use { it.bytes() }
+        synchronized(entries) {
+            entries[key] = Entry(etag, response.headers, contentType, bytes)
+        }
+        return response.newBuilder().body(bytes.toResponseBody(contentType)).build()
+    }
+}
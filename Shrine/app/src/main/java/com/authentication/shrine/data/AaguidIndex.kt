@@ -0,0 +1,127 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.authentication.shrine.data
+
+import android.content.res.AssetManager
+import java.io.FileInputStream
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.UUID
+
+/**
+ * Looks up credential providers by AAGUID in the index the build compiles from `aaguids.json`.
+ *
+ * The index is stored uncompressed in the APK and memory-mapped, so opening it reads nothing: a
+ * lookup binary searches the sorted AAGUIDs and copies out only the requested field of the match.
+ *
+ * Layout, big-endian:
+ * * header: magic, version and the number of entries;
+ * * entries sorted by AAGUID as an unsigned 128-bit number: the AAGUID's 16 bytes, then the
+ *   offset and length of each field in [Field] order, with a length of -1 for a missing field;
+ * * the field values as UTF-8.
+ */
+class AaguidIndex private constructor(private val buffer: ByteBuffer) {
+
+    /**
+     * The provider fields stored for each AAGUID, in index order.
+     */
+    enum class Field {
+        ICON_LIGHT,
+        ICON_DARK,
+    }
+
+    private val count = buffer.getInt(COUNT_POSITION)
+
+    /**
+     * Returns a field of the provider's entry as the stored bytes.
+     *
+     * @param aaguid The AAGUID in its canonical string form.
+     * @param field The field to read.
+     * @return The field's bytes, or null if the AAGUID is unknown or has no such field.
+     */
+    fun get(aaguid: String, field: Field): ByteArray? {
+        val entry = find(aaguid) ?: return null
+        val position = entry + AAGUID_BYTES + field.ordinal * FIELD_REFERENCE_BYTES
+        val offset = buffer.getInt(position)
+        val length = buffer.getInt(position + Int.SIZE_BYTES)
+        if (length < 0) {
+            return null
+        }
+        val bytes = ByteArray(length)
+        // Read through a duplicate so concurrent lookups do not share a position.
+        buffer.duplicate().apply { position(offset) }.get(bytes)
+        return bytes
+    }
+
+    private fun find(aaguid: String): Int? {
+        val uuid = try {
+            UUID.fromString(aaguid)
+        } catch (e: IllegalArgumentException) {
+            return null
+        }
+        var low = 0
+        var high = count - 1
+        while (low <= high) {
+            val middle = (low + high) ushr 1
+            val entry = HEADER_BYTES + middle * ENTRY_BYTES
+            val comparison = java.lang.Long.compareUnsigned(buffer.getLong(entry), uuid.mostSignificantBits)
+                .takeIf { it != 0 }
+                ?: java.lang.Long.compareUnsigned(buffer.getLong(entry + Long.SIZE_BYTES), uuid.leastSignificantBits)
+            when {
+                comparison < 0 -> low = middle + 1
+                comparison > 0 -> high = middle - 1
+                else -> return entry
+            }
+        }
+        return null
+    }
+
+    companion object {
+        /** The name of the compiled index among the app's assets. */
+        const val ASSET_NAME = "aaguids.bin"
+
+        const val MAGIC = 0x41414749 // "AAGI"
+        const val VERSION = 1
+        private const val COUNT_POSITION = 8
+        private const val HEADER_BYTES = 12
+        private const val AAGUID_BYTES = 16
+        private const val FIELD_REFERENCE_BYTES = 8
+        private val ENTRY_BYTES = AAGUID_BYTES + Field.entries.size * FIELD_REFERENCE_BYTES
+
+        /**
+         * Maps the compiled index from the app's assets.
+         *
+         * @param assets The app's assets.
+         * @throws IOException If the index is missing, compressed or not an index of this version.
+         */
+        fun open(assets: AssetManager): AaguidIndex {
+            val buffer = assets.openFd(ASSET_NAME).use { descriptor ->
+                FileInputStream(descriptor.fileDescriptor).use { input ->
+                    input.channel.map(
+                        FileChannel.MapMode.READ_ONLY,
+                        descriptor.startOffset,
+                        descriptor.length,
+                    )
+                }
+            }
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(Int.SIZE_BYTES) != VERSION) {
+                throw IOException("$ASSET_NAME is not an AAGUID index of version $VERSION")
+            }
+            return AaguidIndex(buffer)
+        }
+    }
+}
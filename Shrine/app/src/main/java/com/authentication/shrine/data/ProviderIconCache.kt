@@ -0,0 +1,115 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.authentication.shrine.data
+
+import android.app.Application
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.util.Log
+import android.util.LruCache
+import androidx.core.graphics.drawable.toBitmap
+import coil.decode.SvgDecoder
+import coil.imageLoader
+import coil.request.CachePolicy
+import coil.request.ImageRequest
+import coil.request.SuccessResult
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.io.IOException
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Credential provider icons, rasterized once from the SVGs in [AaguidIndex] and kept as bitmaps.
+ *
+ * Icons are keyed by AAGUID, theme and size in pixels. A lookup tries memory, then PNGs in the
+ * app's cache directory, and only rasterizes the SVG on a miss in both. Disk entries also carry a
+ * hash of the SVG, so icons changed by an app update are never served stale.
+ *
+ * @param application The application, for its assets and cache directory.
+ */
+@Singleton
+class ProviderIconCache @Inject constructor(
+    private val application: Application,
+) {
+    private val index by lazy { AaguidIndex.open(application.assets) }
+
+    private val memory = object : LruCache<String, Bitmap>(MEMORY_CACHE_BYTES) {
+        override fun sizeOf(key: String, value: Bitmap): Int = value.byteCount
+    }
+
+    private val directory by lazy { File(application.cacheDir, DISK_CACHE_DIRECTORY) }
+
+    /**
+     * Returns the provider's icon as a bitmap.
+     *
+     * @param aaguid The AAGUID of the passkey's provider.
+     * @param dark Whether the icon is shown on a dark theme. Falls back to the light icon when the
+     * provider has no dark one.
+     * @param sizePx The width and height of the icon, in pixels.
+     * @return The icon, or null if the provider is unknown or its icon cannot be rasterized.
+     */
+    suspend fun get(aaguid: String, dark: Boolean, sizePx: Int): Bitmap? {
+        val key = "$aaguid-${if (dark) "dark" else "light"}-$sizePx"
+        memory.get(key)?.let { return it }
+
+        return withContext(Dispatchers.IO) {
+            val svg = (if (dark) index.get(aaguid, AaguidIndex.Field.ICON_DARK) else null)
+                ?: index.get(aaguid, AaguidIndex.Field.ICON_LIGHT)
+                ?: return@withContext null
+            val file = File(directory, "$key-${Integer.toHexString(svg.contentHashCode())}.png")
+            val bitmap = BitmapFactory.decodeFile(file.path)
+                ?: rasterize(svg, sizePx)?.also { write(file, it) }
+            bitmap?.also { memory.put(key, it) }
+        }
+    }
+
+    private suspend fun rasterize(svg: ByteArray, sizePx: Int): Bitmap? {
+        val request = ImageRequest.Builder(application)
+            .data(svg)
+            .decoderFactory(SvgDecoder.Factory())
+            .size(sizePx)
+            .allowHardware(false)
+            .memoryCachePolicy(CachePolicy.DISABLED)
+            .diskCachePolicy(CachePolicy.DISABLED)
+            .build()
+        val result = application.imageLoader.execute(request) as? SuccessResult ?: return null
+        return result.drawable.toBitmap(sizePx, sizePx)
+    }
+
+    private fun write(file: File, bitmap: Bitmap) {
+        try {
+            directory.mkdirs()
+            // Write next to the entry and rename, so a reader never sees a partial PNG.
+            val temporary = File(directory, "${file.name}.tmp")
+            temporary.outputStream().use { bitmap.compress(Bitmap.CompressFormat.PNG, 100, it) }
+            if (!temporary.renameTo(file)) {
+                temporary.delete()
+            }
+        } catch (e: IOException) {
+            Log.w(TAG, "Could not cache provider icon ${file.name}", e)
+        }
+    }
+
+    companion object {
+        private const val TAG = "ProviderIconCache"
+        private const val DISK_CACHE_DIRECTORY = "provider-icons"
+
+        /** Room for a few dozen icons at the largest density. */
+        private const val MEMORY_CACHE_BYTES = 4 * 1024 * 1024
+    }
+}
@@ -30,35 +30,6 @@ data class RegisterRequestRequestBody(
     val authenticatorSelection: AuthenticatorSelection = AuthenticatorSelection(),
 )
 
-/**
- * Represents the server's response when requesting WebAuthn registration options.
- * This data contains the parameters needed by the client (e.g., a browser or app)
- * to call `navigator.credentials.create()`.
- *
- * @property authenticatorSelection Specifies authenticator selection criteria required by the server.
- * @property challenge A server-generated cryptographic challenge that must be signed by the authenticator.
- * @property excludeCredentials A list of credentials that should not be created again for this user,
- *                              used to prevent duplicate registrations.
- * @property pubKeyCredParams A list of public key credential types and algorithms supported by the Relying Party (server).
- * @property rp Information about the Relying Party (the server or service).
- * @property timeout The time, in milliseconds, that the client has to complete the registration ceremony.
- * @property user Information about the user for whom the credential is being registered.
- * @see AuthenticatorSelection
- * @see CredentialDetail
- * @see PubKeyCredParam
- * @see Rp
- * @see User
- */
-data class RegisterRequestResponse(
-    val authenticatorSelection: AuthenticatorSelection,
-    val challenge: String,
-    val excludeCredentials: List<CredentialDetail>,
-    val pubKeyCredParams: List<PubKeyCredParam>,
-    val rp: Rp,
-    val timeout: Int,
-    val user: User,
-)
-
 /**
  * Specifies requirements for the authenticator during a WebAuthn ceremony (registration or authentication).
  *
@@ -79,54 +50,3 @@ data class AuthenticatorSelection(
     val requireResidentKey: Boolean = true,
     val residentKey: String = "required",
 )
-
-/**
- * Describes a public key credential type and the cryptographic algorithm it uses.
- * Part of the `pubKeyCredParams` in {@link RegisterRequestResponse}.
- *
- * @property alg The COSE algorithm identifier for the public key. (e.g., -7 for ES256, -257 for RS256).
- * @property type The type of the public key credential. Typically "public-key".
- */
-data class PubKeyCredParam(
-    val alg: Int,
-    val type: String,
-)
-
-/**
- * Represents the Relying Party (RP) in a WebAuthn ceremony.
- * The RP is the server or service that the user is trying to register with or authenticate to.
- *
- * @property id The effective domain of the Relying Party. This MUST be a valid domain string.
- * @property name A human-readable name for the Relying Party.
- */
-data class Rp(
-    val id: String,
-    val name: String,
-)
-
-/**
- * Represents the user for whom a WebAuthn credential is being registered or asserted.
- *
- * @property displayName A human-readable name for the user account, chosen by the user.
- * @property id A unique, server-chosen identifier for the user account (e.g., a UUID or username).
- *              This should not be personally identifiable information if possible.
- * @property name A human-readable name for the user account, which may be the same as `displayName` or a username.
- *                The distinction can vary based on RP implementation.
- */
-data class User(
-    val displayName: String,
-    val id: String,
-    val name: String,
-)
-
-/**
- * Describes an existing WebAuthn credential, often used in `excludeCredentials`
- * to prevent re-registration of an already existing passkey.
- *
- * @property id The base64url-encoded credential ID of an existing public key credential.
- * @property type The type of the credential. Typically "public-key".
- */
-data class CredentialDetail(
-    val id: String,
-    val type: String,
-)
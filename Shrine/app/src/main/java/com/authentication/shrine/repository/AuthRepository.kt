@@ -24,17 +24,14 @@ import androidx.credentials.GetCredentialResponse
 import androidx.credentials.PasswordCredential
 import androidx.credentials.PublicKeyCredential
 import androidx.credentials.RestoreCredential
-import androidx.datastore.core.DataStore
-import androidx.datastore.preferences.core.Preferences
-import androidx.datastore.preferences.core.booleanPreferencesKey
-import androidx.datastore.preferences.core.edit
-import androidx.datastore.preferences.core.stringPreferencesKey
 import com.authentication.shrine.api.AuthApiService
+import com.authentication.shrine.api.RevalidatingInterceptor
 import com.authentication.shrine.model.AuthError
 import com.authentication.shrine.model.AuthResult
 import com.authentication.shrine.model.CredmanResponse
 import com.authentication.shrine.model.FederationOptionsRequest
 import com.authentication.shrine.model.LoginUsernamePasswordRequest
+import com.authentication.shrine.model.PasskeyCredential
 import com.authentication.shrine.model.PasskeysList
 import com.authentication.shrine.model.RegisterRequestRequestBody
 import com.authentication.shrine.model.RegisterResponseRequestBody
@@ -42,16 +39,34 @@ import com.authentication.shrine.model.RegisterUsernameRequest
 import com.authentication.shrine.model.ResponseObject
 import com.authentication.shrine.model.SignInResponseRequest
 import com.authentication.shrine.model.SignInWithGoogleRequest
+import com.authentication.shrine.repository.SessionStore.Companion.CRED_ID
+import com.authentication.shrine.repository.SessionStore.Companion.DISPLAYNAME
+import com.authentication.shrine.repository.SessionStore.Companion.IS_SIGNED_IN_THROUGH_PASSKEYS
+import com.authentication.shrine.repository.SessionStore.Companion.RESTORE_KEY_CREDENTIAL_ID
+import com.authentication.shrine.repository.SessionStore.Companion.RP_ID_KEY
+import com.authentication.shrine.repository.SessionStore.Companion.SESSION_ID
+import com.authentication.shrine.repository.SessionStore.Companion.USERNAME
+import com.authentication.shrine.repository.SessionStore.Companion.USER_ID_KEY
 import com.authentication.shrine.utility.createCookieHeader
-import com.authentication.shrine.utility.getJsonObject
 import com.authentication.shrine.utility.getSessionId
 import com.google.android.gms.fido.fido2.api.common.PublicKeyCredentialType
 import com.google.android.libraries.identity.googleid.GoogleIdTokenCredential
-import kotlinx.coroutines.flow.first
-import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.async
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.launch
 import okhttp3.ResponseBody
 import org.json.JSONObject
 import java.io.IOException
+import java.net.HttpURLConnection
+import java.util.concurrent.atomic.AtomicReference
 import javax.inject.Inject
 import javax.inject.Singleton
 
@@ -62,35 +77,53 @@ const val SERVER_CLIENT_ID =
  * Repository class that handles authentication-related operations.
  *
  * @param authApiService The API service for interacting with the server.
- * @param dataStore The data store for storing user data.
+ * @param sessionStore The in-memory session backed by the data store.
+ * @param coroutineScope The app scope, for refreshing the passkey list in the background.
+ * @param revalidatingInterceptor Holds the server responses stored for the session, cleared on
+ * sign-out.
  */
 @Singleton
 class AuthRepository @Inject constructor(
-    private val dataStore: DataStore<Preferences>,
+    private val sessionStore: SessionStore,
     private val authApiService: AuthApiService,
+    private val coroutineScope: CoroutineScope,
+    private val revalidatingInterceptor: RevalidatingInterceptor,
 ) {
 
+    private val prefetchedSignInOptions = AtomicReference<PrefetchedOptions?>()
+    private val prefetchedCreationOptions = AtomicReference<PrefetchedOptions?>()
+
+    private val cachedPasskeys = MutableStateFlow<CachedPasskeys?>(null)
+    private val passkeysRefresh = AtomicReference<Deferred<PasskeysList?>?>()
+
+    /**
+     * The user's passkeys as last fetched or changed locally, or null until they are first loaded
+     * for the current session.
+     */
+    val passkeys: StateFlow<PasskeysList?> =
+        combine(cachedPasskeys, sessionStore.session) { cached, session ->
+            cached?.takeIf { it.sessionId == session.sessionId }?.list
+        }.stateIn(coroutineScope, SharingStarted.Eagerly, null)
+
     // Companion object for constants and helper methods
     companion object {
         const val TAG = "AuthRepository"
 
-        // Keys for SharedPreferences
-        val USERNAME = stringPreferencesKey("username")
-        val DISPLAYNAME = stringPreferencesKey("displayname")
-        val IS_SIGNED_IN_THROUGH_PASSKEYS = booleanPreferencesKey("is_signed_passkeys")
-        val SESSION_ID = stringPreferencesKey("session_id")
-        val RP_ID_KEY = stringPreferencesKey("rp_id_key")
-        val USER_ID_KEY = stringPreferencesKey("user_id_key")
-        val CRED_ID = stringPreferencesKey("cred_id")
-        val RESTORE_KEY_CREDENTIAL_ID = stringPreferencesKey("restore_key_credential_id")
-
         // Value for restore credential AuthApiService parameter
         const val RESTORE_KEY_TYPE_PARAMETER = "rc"
         const val RESTORE_CREDENTIAL_AAGUID = "restore-credential"
 
-        suspend fun <T> DataStore<Preferences>.read(key: Preferences.Key<T>): T? {
-            return data.map { it[key] }.first()
-        }
+        // How long to wait before prefetching options again after a failed attempt
+        private const val PREFETCH_RETRY_MS = 30_000L
+
+        // How long a fetched passkey list is served before it is revalidated in the background
+        private const val PASSKEYS_STALE_AFTER_MS = 5 * 60_000L
+
+        // Responses that mean the session itself is no longer valid, so the user is signed out
+        private val SESSION_REJECTED_CODES = setOf(
+            HttpURLConnection.HTTP_UNAUTHORIZED,
+            HttpURLConnection.HTTP_FORBIDDEN,
+        )
     }
 
     /**
@@ -105,7 +138,7 @@ class AuthRepository @Inject constructor(
             val response =
                 authApiService.registerUsername(RegisterUsernameRequest(username, displayName))
             if (response.isSuccessful) {
-                dataStore.edit { prefs ->
+                sessionStore.edit { prefs ->
                     // Use local values since server doesn't return response with these fields.
                     prefs[USERNAME] = username
                     prefs[DISPLAYNAME] = displayName
@@ -140,7 +173,7 @@ class AuthRepository @Inject constructor(
         return try {
             val response = authApiService.loginWithUsernamePassword(LoginUsernamePasswordRequest(username, password))
             if (response.isSuccessful) {
-                dataStore.edit { prefs ->
+                sessionStore.edit { prefs ->
                     prefs[USERNAME] = response.body()?.username.orEmpty()
                     prefs[DISPLAYNAME] = response.body()?.displayName.orEmpty()
                     response.getSessionId()?.also {
@@ -167,7 +200,9 @@ class AuthRepository @Inject constructor(
      * Clears all the sign-in information.
      */
     suspend fun signOut() {
-        dataStore.edit { prefs ->
+        cachedPasskeys.value = null
+        revalidatingInterceptor.clear()
+        sessionStore.edit { prefs ->
             prefs.remove(USERNAME)
             prefs.remove(DISPLAYNAME)
             prefs.remove(SESSION_ID)
@@ -179,37 +214,29 @@ class AuthRepository @Inject constructor(
     /**
      * Starts to register a passkey creation request to the server.
      *
-     * @return The public key credential request options, or null if there was an error.
+     * Options fetched by [prefetchPasskeyCreationOptions] are used while they are fresh and were
+     * requested with the current session.
+     *
+     * @param usePrefetched Whether prefetched options may be used. When false, they are left for a
+     * later call.
+     * @return The public key credential creation options as JSON, or null if there was an error.
      */
-    suspend fun registerPasskeyCreationRequest(): AuthResult<JSONObject> {
+    suspend fun registerPasskeyCreationRequest(usePrefetched: Boolean = true): AuthResult<String> {
         return try {
-            val sessionId = dataStore.read(SESSION_ID)
-            if (!sessionId.isNullOrEmpty()) {
-                val response = authApiService.registerRequest(
-                    cookie = sessionId.createCookieHeader(),
-                    requestBody = RegisterRequestRequestBody(),
-                )
-                if (response.isSuccessful) {
-                    dataStore.edit { prefs ->
-                        prefs[RP_ID_KEY] = response.body()?.rp?.id ?: ""
-                        response.getSessionId()?.also {
-                            prefs[SESSION_ID] = it
-                        }
-                    }
-                    val responseObject = response.getJsonObject()
-                    AuthResult.Success(responseObject)
-                } else {
-                    if (response.code() == 401) {
-                        signOut()
-                    }
-                    AuthResult.Failure(
-                        AuthError.ServerError(
-                            response.errorBody()?.let { parseResponseError(it) }
-                                ?: response.message()))
-                }
+            val sessionId = sessionStore.current().sessionId
+            // Only take the options when they may be used, so a call that may not leaves them in
+            // place for one that may.
+            val prefetched = if (usePrefetched) {
+                prefetchedCreationOptions.getAndSet(null)
+                    ?.takeIf { it.remainingMs > 0 && it.requestedWithSessionId == sessionId }
             } else {
-                AuthResult.Failure(AuthError.Unknown(null))
+                null
             }
+            val options = prefetched ?: when (val result = fetchPasskeyCreationOptions()) {
+                is AuthResult.Success -> result.data
+                is AuthResult.Failure -> return result
+            }
+            useOptions(options)
         } catch (e: IOException) {
             AuthResult.Failure(AuthError.NetworkError)
         } catch (e: Exception) {
@@ -217,6 +244,62 @@ class AuthRepository @Inject constructor(
         }
     }
 
+    /**
+     * Fetches passkey creation options ahead of [registerPasskeyCreationRequest], so the create
+     * sheet does not wait on a round trip.
+     *
+     * @return The options, or null if they could not be fetched.
+     */
+    suspend fun prefetchPasskeyCreationOptions(): PrefetchedOptions? {
+        return try {
+            (fetchPasskeyCreationOptions() as? AuthResult.Success)?.data
+                ?.also { prefetchedCreationOptions.set(it) }
+        } catch (e: Exception) {
+            Log.w(TAG, "Could not prefetch passkey creation options", e)
+            null
+        }
+    }
+
+    /**
+     * Keeps passkey creation options prefetched, fetching them again shortly before they expire.
+     * Returns once the options are used, or when the calling scope is cancelled.
+     */
+    suspend fun keepPasskeyCreationOptionsWarm() {
+        keepWarm(prefetchedCreationOptions, ::prefetchPasskeyCreationOptions) {}
+    }
+
+    private suspend fun fetchPasskeyCreationOptions(): AuthResult<PrefetchedOptions> {
+        val sessionId = sessionStore.current().sessionId
+        if (sessionId.isNullOrEmpty()) {
+            return AuthResult.Failure(AuthError.Unknown(null))
+        }
+        // A new request replaces the challenge the server keeps for this session.
+        prefetchedCreationOptions.set(null)
+        val response = authApiService.registerRequest(
+            cookie = sessionId.createCookieHeader(),
+            requestBody = RegisterRequestRequestBody(),
+        )
+        val options = response.body()
+        if (response.isSuccessful && options != null) {
+            val json = JSONObject(options)
+            return AuthResult.Success(
+                PrefetchedOptions.of(
+                    json = options,
+                    rpId = json.optJSONObject("rp")?.optString("id").orEmpty(),
+                    timeoutMs = json.optLong("timeout").takeIf { json.has("timeout") },
+                    sessionId = response.getSessionId(),
+                    requestedWithSessionId = sessionId,
+                ),
+            )
+        }
+        if (response.code() == 401) {
+            signOut()
+        }
+        return AuthResult.Failure(
+            AuthError.ServerError(
+                response.errorBody()?.let { parseResponseError(it) } ?: response.message()))
+    }
+
     /**
      * Finishes registering a new credential to the server. This should only be called after
      * a call to [registerPasskeyCreationRequest] and a local API for public key generation.
@@ -248,7 +331,7 @@ class AuthRepository @Inject constructor(
 
             val rawId = registrationResponseJson.getString("rawId")
             val response = registrationResponseJson.getJSONObject("response")
-            val sessionId = dataStore.read(SESSION_ID)
+            val sessionId = sessionStore.current().sessionId
             if (!sessionId.isNullOrBlank()) {
                 val apiResult = authApiService.registerResponse(
                     cookie = sessionId.createCookieHeader(),
@@ -264,7 +347,7 @@ class AuthRepository @Inject constructor(
                     ),
                 )
                 if (apiResult.isSuccessful) {
-                    dataStore.edit { prefs ->
+                    sessionStore.edit { prefs ->
                         prefs[CRED_ID] = rawId
                         if (credentialResponse is CreateRestoreCredentialResponse) {
                             prefs[RESTORE_KEY_CREDENTIAL_ID] = rawId
@@ -273,6 +356,23 @@ class AuthRepository @Inject constructor(
                             prefs[SESSION_ID] = it
                         }
                     }
+                    // Show the new passkey at once; the server fills in its details on revalidation.
+                    changeCachedPasskeys(confirmed = false) { list ->
+                        list.credentials + PasskeyCredential(
+                            id = rawId,
+                            passkeyUserId = list.userId,
+                            name = "",
+                            credentialType = PublicKeyCredentialType.PUBLIC_KEY.toString(),
+                            aaguid = if (credentialResponse is CreateRestoreCredentialResponse) {
+                                RESTORE_CREDENTIAL_AAGUID
+                            } else {
+                                ""
+                            },
+                            registeredAt = System.currentTimeMillis(),
+                            providerIcon = "",
+                        )
+                    }
+                    revalidatePasskeys()
                     AuthResult.Success(Unit)
                 } else {
                     if (apiResult.code() == 401) {
@@ -293,28 +393,26 @@ class AuthRepository @Inject constructor(
     /**
      * Starts to sign in with a credential.
      *
-     * @return The public key credential request options, or null if there was an error.
+     * Options fetched by [prefetchSignInOptions] are used while they are fresh.
+     *
+     * @param usePrefetched Whether prefetched options may be used. When false, they are left for a
+     * later call.
+     * @return The public key credential request options as JSON, or null if there was an error.
      */
-    suspend fun signInWithPasskeyOrPasswordRequest(): AuthResult<JSONObject> {
+    suspend fun signInWithPasskeyOrPasswordRequest(usePrefetched: Boolean = true): AuthResult<String> {
         return try {
-            val response = authApiService.signInRequest()
-            if (response.isSuccessful) {
-                dataStore.edit { prefs ->
-                    prefs[RP_ID_KEY] = response.body()?.rpId ?: ""
-                    response.getSessionId()?.also {
-                        prefs[SESSION_ID] = it
-                    }
-                }
-                val responseObject = response.getJsonObject()
-                AuthResult.Success(responseObject)
+            // Only take the options when they may be used, so a call that may not leaves them in
+            // place for one that may.
+            val prefetched = if (usePrefetched) {
+                prefetchedSignInOptions.getAndSet(null)?.takeIf { it.remainingMs > 0 }
             } else {
-                if (response.code() == 401) {
-                    signOut()
-                }
-                AuthResult.Failure(
-                    AuthError.ServerError(
-                        response.errorBody()?.let { parseResponseError(it) } ?: response.message()))
+                null
+            }
+            val options = prefetched ?: when (val result = fetchSignInOptions()) {
+                is AuthResult.Success -> result.data
+                is AuthResult.Failure -> return result
             }
+            useOptions(options)
         } catch (e: IOException) {
             AuthResult.Failure(AuthError.NetworkError)
         } catch (e: Exception) {
@@ -322,6 +420,86 @@ class AuthRepository @Inject constructor(
         }
     }
 
+    /**
+     * Fetches sign-in options ahead of [signInWithPasskeyOrPasswordRequest], so the sign-in sheet
+     * does not wait on a round trip.
+     *
+     * @return The options, or null if they could not be fetched.
+     */
+    suspend fun prefetchSignInOptions(): PrefetchedOptions? {
+        return try {
+            (fetchSignInOptions() as? AuthResult.Success)?.data
+                ?.also { prefetchedSignInOptions.set(it) }
+        } catch (e: Exception) {
+            Log.w(TAG, "Could not prefetch sign-in options", e)
+            null
+        }
+    }
+
+    /**
+     * Keeps sign-in options prefetched, fetching them again shortly before they expire. Returns
+     * once the options are used, or when the calling scope is cancelled.
+     *
+     * @param onPrefetched Called with the JSON of each set of options fetched.
+     */
+    suspend fun keepSignInOptionsWarm(onPrefetched: suspend (String) -> Unit) {
+        keepWarm(prefetchedSignInOptions, ::prefetchSignInOptions, onPrefetched)
+    }
+
+    private suspend fun keepWarm(
+        slot: AtomicReference<PrefetchedOptions?>,
+        prefetch: suspend () -> PrefetchedOptions?,
+        onPrefetched: suspend (String) -> Unit,
+    ) {
+        while (true) {
+            val options = prefetch()
+            options?.let { onPrefetched(it.json) }
+            delay(options?.remainingMs?.coerceAtLeast(0) ?: PREFETCH_RETRY_MS)
+            // Once the options are taken a ceremony may be under way, and fetching again would
+            // replace the challenge the server checks it against.
+            if (options != null && slot.get() !== options) {
+                return
+            }
+        }
+    }
+
+    private suspend fun fetchSignInOptions(): AuthResult<PrefetchedOptions> {
+        val response = authApiService.signInRequest()
+        val options = response.body()
+        if (response.isSuccessful && options != null) {
+            val json = JSONObject(options)
+            return AuthResult.Success(
+                PrefetchedOptions.of(
+                    json = options,
+                    rpId = json.optString("rpId"),
+                    timeoutMs = json.optLong("timeout").takeIf { json.has("timeout") },
+                    sessionId = response.getSessionId(),
+                    requestedWithSessionId = null,
+                ),
+            )
+        }
+        if (response.code() == 401) {
+            signOut()
+        }
+        return AuthResult.Failure(
+            AuthError.ServerError(
+                response.errorBody()?.let { parseResponseError(it) } ?: response.message()))
+    }
+
+    /**
+     * Stores the rp id and session of [options], which the server checks the response against,
+     * and returns their JSON.
+     */
+    private suspend fun useOptions(options: PrefetchedOptions): AuthResult<String> {
+        sessionStore.edit { prefs ->
+            prefs[RP_ID_KEY] = options.rpId
+            options.sessionId?.also {
+                prefs[SESSION_ID] = it
+            }
+        }
+        return AuthResult.Success(options.json)
+    }
+
     /**
      * Finishes to signing in with a credential. This should only be called after a call to
      * [signInWithPasskeyRequest] and a local API for key assertion.
@@ -344,7 +522,7 @@ class AuthRepository @Inject constructor(
                 if (signInResponse != null) {
                     val signInResponseJSON = JSONObject(signInResponse)
                     val response = signInResponseJSON.getJSONObject("response")
-                    val sessionId = dataStore.read(SESSION_ID)
+                    val sessionId = sessionStore.current().sessionId
                     val credentialId = signInResponseJSON.getString("rawId")
 
                     if (!sessionId.isNullOrBlank()) {
@@ -363,7 +541,7 @@ class AuthRepository @Inject constructor(
                             ),
                         )
                         return if (apiResult.isSuccessful) {
-                            dataStore.edit { prefs ->
+                            sessionStore.edit { prefs ->
                                 prefs[CRED_ID] = credentialId
                                 apiResult.getSessionId()?.also {
                                     prefs[SESSION_ID] = it
@@ -441,7 +619,7 @@ class AuthRepository @Inject constructor(
      * @return True if the user is signed in, false otherwise.
      */
     suspend fun isSignedInThroughPassword(): Boolean {
-        val sessionId = dataStore.read(SESSION_ID)
+        val sessionId = sessionStore.current().sessionId
         return when {
             sessionId.isNullOrBlank() -> false
             else -> true
@@ -454,32 +632,33 @@ class AuthRepository @Inject constructor(
      * @return True if the user is signed in through passkeys, false otherwise.
      */
     suspend fun isSignedInThroughPasskeys(): Boolean {
-        val isSignedInThroughPasskeys = dataStore.read(IS_SIGNED_IN_THROUGH_PASSKEYS)
-        isSignedInThroughPasskeys?.let {
-            return it
-        }
-        return false
+        return sessionStore.current().isSignedInThroughPasskeys
     }
 
     /**
-     * Checks if session id is valid with server. Currently makes a getKeys() request
+     * Checks if session id is valid with server. Uses the lightweight session check, and falls
+     * back to a getKeys() request on servers that do not serve it yet.
      *
-     * @return True if the session id is valid, false otherwise.
+     * @return Success if the session id is valid. Otherwise a failure whose error is
+     * [AuthError.InvalidCredentials] only if the server rejected the session.
      */
     suspend fun isSessionIdValid(): AuthResult<Unit> {
         return try {
-            val sessionId = dataStore.read(SESSION_ID)
+            val sessionId = sessionStore.current().sessionId
             if (!sessionId.isNullOrBlank()) {
-                val apiResult = authApiService.getKeys(
-                    cookie = sessionId.createCookieHeader(),
-                )
-                if (apiResult.isSuccessful) {
-                    AuthResult.Success(Unit)
-                } else {
-                    AuthResult.Failure(AuthError.InvalidCredentials)
+                val cookie = sessionId.createCookieHeader()
+                val apiResult = authApiService.checkSession(cookie)
+                    .takeUnless { it.code() == HttpURLConnection.HTTP_NOT_FOUND }
+                    ?: authApiService.getKeys(cookie).also { keys ->
+                        keys.body()?.let { cachePasskeys(sessionId, cachedPasskeys.value, it) }
+                    }
+                when {
+                    apiResult.isSuccessful -> AuthResult.Success(Unit)
+                    apiResult.code() in SESSION_REJECTED_CODES -> AuthResult.Failure(AuthError.InvalidCredentials)
+                    else -> AuthResult.Failure(AuthError.ServerError(apiResult.message()))
                 }
             } else {
-                AuthResult.Failure(AuthError.Unknown(null))
+                AuthResult.Failure(AuthError.InvalidCredentials)
             }
         } catch (e: IOException) {
             AuthResult.Failure(AuthError.NetworkError)
@@ -494,7 +673,7 @@ class AuthRepository @Inject constructor(
      * @param flag True if the user is signed in through passkeys, false otherwise.
      */
     suspend fun setSignedInState(flag: Boolean) {
-        dataStore.edit { prefs ->
+        sessionStore.edit { prefs ->
             prefs[IS_SIGNED_IN_THROUGH_PASSKEYS] = flag
         }
     }
@@ -505,7 +684,7 @@ class AuthRepository @Inject constructor(
      * This is a suspend function that edits the data store to remove the session ID.
      */
     suspend fun clearSessionIdFromDataStore() {
-        dataStore.edit { prefs ->
+        sessionStore.edit { prefs ->
             prefs.remove(SESSION_ID)
         }
     }
@@ -513,60 +692,153 @@ class AuthRepository @Inject constructor(
     /**
      * Retrieves the stored username asynchronously.
      *
-     * This is a suspend function that reads the username from the data store.
+     * This is a suspend function that reads the username from the in-memory session.
      *
      * @return The stored username as a [String]. Returns an empty string if no username is found.
      */
     suspend fun getUsername(): String {
-        return dataStore.read(USERNAME).orEmpty()
+        return sessionStore.current().username
     }
 
     /**
      * Retrieves the stored displayname asynchronously.
      *
-     * This is a suspend function that reads the displayname from the data store.
+     * This is a suspend function that reads the displayname from the in-memory session.
      *
      * @return The stored displayname as a [String]. Returns an empty string if no displayname is
      * found.
      */
     suspend fun getDisplayname(): String {
-        return dataStore.read(DISPLAYNAME).orEmpty()
+        return sessionStore.current().displayName
     }
 
     /**
-     * Retrieves a list of Passkeys from the Backend
+     * Retrieves a list of Passkeys, from the cache when it holds the current session's list.
+     *
+     * A cached list is returned at once, and revalidated in the background if it is stale.
+     * Otherwise the list is fetched from the Backend with [refreshPasskeys].
      *
      * @return [PasskeysList] Object holding a list of Passkey details
      * */
     suspend fun getListOfPasskeys(): PasskeysList? {
-        val sessionId = dataStore.read(SESSION_ID)
-        if (!sessionId.isNullOrBlank()) {
-            val apiResult = authApiService.getKeys(
-                cookie = sessionId.createCookieHeader(),
-            )
-            if (apiResult.isSuccessful) {
-                dataStore.edit { prefs ->
-                    prefs[USER_ID_KEY] = apiResult.body()?.userId ?: ""
-                }
-                return apiResult.body()
-            } else if (apiResult.code() == 401) {
-                signOut()
-                return null
+        val sessionId = sessionStore.current().sessionId
+        val cached = cachedPasskeys.value?.takeIf { it.sessionId == sessionId }
+            ?: return refreshPasskeys()
+        if (cached.isStale(PASSKEYS_STALE_AFTER_MS)) {
+            revalidatePasskeys()
+        }
+        return cached.list
+    }
+
+    /**
+     * Fetches the list of Passkeys from the Backend into [passkeys]. Calls made while a fetch is
+     * in flight share its result.
+     *
+     * @return [PasskeysList] Object holding a list of Passkey details
+     * */
+    suspend fun refreshPasskeys(): PasskeysList? {
+        while (true) {
+            passkeysRefresh.get()?.let { return it.await() }
+            val refresh = coroutineScope.async(start = CoroutineStart.LAZY) { fetchPasskeys() }
+            if (passkeysRefresh.compareAndSet(null, refresh)) {
+                refresh.invokeOnCompletion { passkeysRefresh.compareAndSet(refresh, null) }
+                return refresh.await()
+            }
+            refresh.cancel()
+        }
+    }
+
+    private fun revalidatePasskeys() {
+        coroutineScope.launch {
+            try {
+                refreshPasskeys()
+            } catch (e: Exception) {
+                Log.w(TAG, "Could not revalidate the passkey list", e)
+            }
+        }
+    }
+
+    /**
+     * Fetches the passkey list with the current session. Only a missing session or one the server
+     * rejects signs the user out; any other failure, such as a server error, leaves the session
+     * and the cached list as they are.
+     */
+    private suspend fun fetchPasskeys(): PasskeysList? {
+        val before = cachedPasskeys.value
+        val sessionId = sessionStore.current().sessionId
+        if (sessionId.isNullOrBlank()) {
+            signOut()
+            return null
+        }
+        val apiResult = authApiService.getKeys(
+            cookie = sessionId.createCookieHeader(),
+        )
+        if (apiResult.isSuccessful) {
+            sessionStore.edit { prefs ->
+                prefs[USER_ID_KEY] = apiResult.body()?.userId ?: ""
             }
+            return apiResult.body()?.let { cachePasskeys(sessionId, before, it) }
+        }
+        if (apiResult.code() in SESSION_REJECTED_CODES) {
+            signOut()
+        } else {
+            Log.w(TAG, "Could not fetch the passkey list: HTTP ${apiResult.code()}")
         }
-        signOut()
         return null
     }
 
+    /**
+     * Caches a list fetched from the server, unless the cache changed since the fetch started, in
+     * which case the list predates a local change and the cached one is kept.
+     *
+     * @return The list now cached for the session.
+     */
+    private fun cachePasskeys(sessionId: String, before: CachedPasskeys?, list: PasskeysList): PasskeysList {
+        if (cachedPasskeys.compareAndSet(before, CachedPasskeys(sessionId, list))) {
+            return list
+        }
+        return cachedPasskeys.value?.takeIf { it.sessionId == sessionId }?.list ?: list
+    }
+
+    /**
+     * Changes the cached list locally, ahead of the server, if the current session has one.
+     *
+     * @param confirmed Whether the server's list is known to match the change, so the cache stays
+     * as fresh as it was; otherwise it is revalidated the next time it is read.
+     * @param transform Returns the new credentials for the cached list.
+     * @return The entries before and after the change, or null if nothing was cached.
+     */
+    private suspend fun changeCachedPasskeys(
+        confirmed: Boolean,
+        transform: (PasskeysList) -> List<PasskeyCredential>,
+    ): Pair<CachedPasskeys, CachedPasskeys>? {
+        val sessionId = sessionStore.current().sessionId
+        while (true) {
+            val before = cachedPasskeys.value?.takeIf { it.sessionId == sessionId } ?: return null
+            val after = CachedPasskeys(
+                sessionId = before.sessionId,
+                list = before.list.copy(credentials = transform(before.list)),
+                fetchedAtMs = if (confirmed) before.fetchedAtMs else 0,
+            )
+            if (cachedPasskeys.compareAndSet(before, after)) {
+                return before to after
+            }
+        }
+    }
+
     /**
      * Deletes a passkey from the Backend
      * @param credentialId The ID of the credential to be deleted
      * @return True if the deletion was successful, false otherwise
      */
     suspend fun deletePasskey(credentialId: String): AuthResult<Unit> {
-        val sessionId = dataStore.read(SESSION_ID)
+        // Remove the passkey from the list at once, and put it back if the server keeps it.
+        val change = changeCachedPasskeys(confirmed = true) { list ->
+            list.credentials.filterNot { it.id == credentialId }
+        }
+        val sessionId = sessionStore.current().sessionId
         // Construct endpoint for deleting passkeys.
-        return try {
+        val result = try {
             if (!sessionId.isNullOrEmpty()) {
                 val response = authApiService.deletePasskey(
                     cookie = sessionId.createCookieHeader(),
@@ -591,11 +863,18 @@ class AuthRepository @Inject constructor(
         } catch (e: Exception) {
             AuthResult.Failure(AuthError.Unknown(e.message))
         }
+        if (result is AuthResult.Failure && change != null) {
+            // If the list moved on meanwhile, ask the server instead of undoing over it.
+            if (!cachedPasskeys.compareAndSet(change.second, change.first)) {
+                revalidatePasskeys()
+            }
+        }
+        return result
     }
 
     suspend fun deleteRestoreKeyFromServer(): Boolean {
-        val sessionId = dataStore.read(SESSION_ID)
-        val credentialId = dataStore.read(RESTORE_KEY_CREDENTIAL_ID)
+        val sessionId = sessionStore.current().sessionId
+        val credentialId = sessionStore.current().restoreKeyCredentialId
         // Construct endpoint for deleting passkeys.
         try {
             if (!sessionId.isNullOrEmpty() && !credentialId.isNullOrEmpty()) {
@@ -604,6 +883,9 @@ class AuthRepository @Inject constructor(
                     credentialId = credentialId,
                 )
                 if (response.isSuccessful) {
+                    changeCachedPasskeys(confirmed = true) { list ->
+                        list.credentials.filterNot { it.id == credentialId }
+                    }
                     return true
                 } else if (response.code() == 401) {
                     signOut()
@@ -645,7 +927,7 @@ class AuthRepository @Inject constructor(
 
         if (apiResult.isSuccessful) {
             apiResult.getSessionId()?.let { newSessionId ->
-                dataStore.edit { prefs ->
+                sessionStore.edit { prefs ->
                     prefs[SESSION_ID] = newSessionId
                     prefs[USERNAME] = apiResult.body()?.username.orEmpty()
                     prefs[DISPLAYNAME] = apiResult.body()?.displayName.orEmpty()
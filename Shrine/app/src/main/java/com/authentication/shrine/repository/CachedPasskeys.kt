@@ -0,0 +1,42 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.authentication.shrine.repository
+
+import android.os.SystemClock
+import com.authentication.shrine.model.PasskeysList
+
+/**
+ * The user's passkey list as last fetched from the server or changed locally.
+ *
+ * Entries are compared by identity, so a fetch that started before a local change can tell that
+ * its result is out of date.
+ *
+ * @property sessionId The session the list was fetched with; it is only served to that session.
+ * @property list The passkey list.
+ * @property fetchedAtMs When the server last confirmed the list, in
+ * [SystemClock.elapsedRealtime] time, or 0 if it holds local changes the server has not described.
+ */
+internal class CachedPasskeys(
+    val sessionId: String,
+    val list: PasskeysList,
+    val fetchedAtMs: Long = SystemClock.elapsedRealtime(),
+) {
+    /**
+     * Whether the list should be revalidated before it is relied on again.
+     */
+    fun isStale(staleAfterMs: Long): Boolean =
+        SystemClock.elapsedRealtime() - fetchedAtMs > staleAfterMs
+}
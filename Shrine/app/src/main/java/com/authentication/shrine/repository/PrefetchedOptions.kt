@@ -0,0 +1,74 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.authentication.shrine.repository
+
+import android.os.SystemClock
+
+/**
+ * WebAuthn options fetched from the server before the user asked for them.
+ *
+ * The server binds each challenge to the session that requested it, so the options carry that
+ * session and are only handed out while the session is still current and the challenge has not
+ * expired.
+ *
+ * @property json The options as sent by the server.
+ * @property rpId The relying party id named in the options.
+ * @property sessionId The session id the server set with the options, if it set one.
+ * @property requestedWithSessionId The session id the options were requested with, if any.
+ * @property expiresAtMs When the options stop being usable, in [SystemClock.elapsedRealtime] time.
+ */
+class PrefetchedOptions internal constructor(
+    val json: String,
+    internal val rpId: String,
+    internal val sessionId: String?,
+    internal val requestedWithSessionId: String?,
+    val expiresAtMs: Long,
+) {
+    /**
+     * How long the options stay usable, in milliseconds.
+     */
+    val remainingMs: Long
+        get() = expiresAtMs - SystemClock.elapsedRealtime()
+
+    companion object {
+        /** Used when the options do not state a timeout. */
+        private const val DEFAULT_TIMEOUT_MS = 60_000L
+
+        /** Leaves time for the user to finish the ceremony before the challenge expires. */
+        private const val EXPIRY_MARGIN_MS = 30_000L
+
+        /** The shortest lifetime given to options, however short their timeout. */
+        private const val MIN_LIFETIME_MS = 5_000L
+
+        internal fun of(
+            json: String,
+            rpId: String,
+            timeoutMs: Long?,
+            sessionId: String?,
+            requestedWithSessionId: String?,
+        ): PrefetchedOptions {
+            val timeout = timeoutMs?.takeIf { it > 0 } ?: DEFAULT_TIMEOUT_MS
+            val lifetime = (timeout - EXPIRY_MARGIN_MS).coerceAtLeast(MIN_LIFETIME_MS)
+            return PrefetchedOptions(
+                json = json,
+                rpId = rpId,
+                sessionId = sessionId,
+                requestedWithSessionId = requestedWithSessionId,
+                expiresAtMs = SystemClock.elapsedRealtime() + lifetime,
+            )
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.authentication.shrine.repository
+
+import androidx.datastore.core.DataStore
+import androidx.datastore.preferences.core.MutablePreferences
+import androidx.datastore.preferences.core.Preferences
+import androidx.datastore.preferences.core.booleanPreferencesKey
+import androidx.datastore.preferences.core.edit
+import androidx.datastore.preferences.core.stringPreferencesKey
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.launch
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * The signed-in session as persisted in the "auth" [DataStore].
+ *
+ * @property sessionId The session cookie value, or null when signed out.
+ * @property username The signed-in username, or an empty string.
+ * @property displayName The signed-in display name, or an empty string.
+ * @property isSignedInThroughPasskeys True if the user signed in with a passkey.
+ * @property rpId The relying party id returned by the last registration or sign-in request.
+ * @property userId The user handle returned by the server.
+ * @property credentialId The id of the last credential registered or used.
+ * @property restoreKeyCredentialId The id of the registered restore credential.
+ */
+data class Session(
+    val sessionId: String? = null,
+    val username: String = "",
+    val displayName: String = "",
+    val isSignedInThroughPasskeys: Boolean = false,
+    val rpId: String? = null,
+    val userId: String? = null,
+    val credentialId: String? = null,
+    val restoreKeyCredentialId: String? = null,
+)
+
+/**
+ * Keeps an in-memory snapshot of the [Session] in front of the [DataStore].
+ *
+ * The snapshot is loaded once when the store is created and kept current by every write, so
+ * API calls and ViewModels read the session from memory instead of the disk.
+ *
+ * @param dataStore The data store the session is persisted to.
+ * @param coroutineScope The application scope the store is observed in.
+ */
+@Singleton
+class SessionStore @Inject constructor(
+    private val dataStore: DataStore<Preferences>,
+    coroutineScope: CoroutineScope,
+) {
+
+    companion object {
+        // Keys for the session preferences
+        val USERNAME = stringPreferencesKey("username")
+        val DISPLAYNAME = stringPreferencesKey("displayname")
+        val IS_SIGNED_IN_THROUGH_PASSKEYS = booleanPreferencesKey("is_signed_passkeys")
+        val SESSION_ID = stringPreferencesKey("session_id")
+        val RP_ID_KEY = stringPreferencesKey("rp_id_key")
+        val USER_ID_KEY = stringPreferencesKey("user_id_key")
+        val CRED_ID = stringPreferencesKey("cred_id")
+        val RESTORE_KEY_CREDENTIAL_ID = stringPreferencesKey("restore_key_credential_id")
+
+        private fun Preferences.toSession() = Session(
+            sessionId = this[SESSION_ID],
+            username = this[USERNAME].orEmpty(),
+            displayName = this[DISPLAYNAME].orEmpty(),
+            isSignedInThroughPasskeys = this[IS_SIGNED_IN_THROUGH_PASSKEYS] ?: false,
+            rpId = this[RP_ID_KEY],
+            userId = this[USER_ID_KEY],
+            credentialId = this[CRED_ID],
+            restoreKeyCredentialId = this[RESTORE_KEY_CREDENTIAL_ID],
+        )
+    }
+
+    private val _session = MutableStateFlow(Session())
+    private val loaded = CompletableDeferred<Unit>()
+
+    /**
+     * The current session. Holds an empty [Session] until the first load completes; use
+     * [current] where that difference matters.
+     */
+    val session: StateFlow<Session> = _session.asStateFlow()
+
+    init {
+        coroutineScope.launch {
+            dataStore.data.collect { prefs ->
+                _session.value = prefs.toSession()
+                loaded.complete(Unit)
+            }
+        }
+    }
+
+    /**
+     * Returns the current session, waiting only for the initial load.
+     */
+    suspend fun current(): Session {
+        loaded.await()
+        return _session.value
+    }
+
+    /**
+     * Writes to the data store and updates the snapshot from the written preferences.
+     *
+     * @param transform Applies the changes to the preferences.
+     */
+    suspend fun edit(transform: suspend (MutablePreferences) -> Unit) {
+        _session.value = dataStore.edit(transform).toSession()
+    }
+}
@@ -49,7 +49,6 @@ import com.authentication.shrine.ui.common.ShrineLoader
 import com.authentication.shrine.ui.theme.ShrineTheme
 import com.authentication.shrine.ui.viewmodel.AuthenticationUiState
 import com.authentication.shrine.ui.viewmodel.AuthenticationViewModel
-import org.json.JSONObject
 
 /**
  * Stateful composable function for Authentication screen.
@@ -91,7 +90,7 @@ fun AuthenticationScreen(
                 var skipPasskeyPrompt = !isPasswordCredential
                 if (isPasswordCredential) {
                     val conditionalSuccess = viewModel.conditionalCreatePasskey(
-                        createPasskey = { createPasskeyRequestObj: JSONObject ->
+                        createPasskey = { createPasskeyRequestObj: String ->
                             credentialManagerUtils.createPasskey(
                                 requestResult = createPasskeyRequestObj,
                                 context = context,
@@ -141,6 +140,14 @@ fun AuthenticationScreen(
         )
     }
 
+    LaunchedEffect(Unit) {
+        viewModel.keepSignInOptionsWarm(
+            prepare = { options ->
+                credentialManagerUtils.preparePasskeyOrPasswordCredential(options)
+            },
+        )
+    }
+
     AuthenticationScreen(
         onSignInWithPasskeyOrPasswordRequest = onSignInWithPasskeyOrPasswordRequest,
         onSignInWithSignInWithGoogleRequest = onSignInWithSignInWithGoogleRequest,
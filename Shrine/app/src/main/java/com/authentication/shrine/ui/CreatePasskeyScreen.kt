@@ -83,6 +83,10 @@ fun CreatePasskeyScreen(
         }
     }
 
+    LaunchedEffect(Unit) {
+        viewModel.keepCreationOptionsWarm()
+    }
+
     CreatePasskeyScreen(
         onLearnMoreClicked = onLearnMoreClicked,
         onRegisterRequest = onRegisterRequest,
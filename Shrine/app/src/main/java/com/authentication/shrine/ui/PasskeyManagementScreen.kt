@@ -15,11 +15,13 @@
  */
 package com.authentication.shrine.ui
 
+import android.graphics.Bitmap
 import androidx.compose.foundation.BorderStroke
 import androidx.compose.foundation.Image
 import androidx.compose.foundation.background
 import androidx.compose.foundation.border
 import androidx.compose.foundation.clickable
+import androidx.compose.foundation.isSystemInDarkTheme
 import androidx.compose.foundation.layout.Arrangement
 import androidx.compose.foundation.layout.Column
 import androidx.compose.foundation.layout.Row
@@ -46,15 +48,16 @@ import androidx.compose.runtime.remember
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.draw.clip
+import androidx.compose.ui.graphics.asImageBitmap
+import androidx.compose.ui.graphics.painter.BitmapPainter
 import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.platform.LocalDensity
 import androidx.compose.ui.res.dimensionResource
+import androidx.compose.ui.res.painterResource
 import androidx.compose.ui.res.stringResource
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.tooling.preview.Preview
 import androidx.compose.ui.unit.dp
-import coil.compose.rememberAsyncImagePainter
-import coil.decode.SvgDecoder
-import coil.request.ImageRequest
 import com.authentication.shrine.CredentialManagerUtils
 import com.authentication.shrine.R
 import com.authentication.shrine.model.PasskeyCredential
@@ -68,6 +71,9 @@ import com.authentication.shrine.ui.viewmodel.PasskeyManagementUiState
 import com.authentication.shrine.ui.viewmodel.PasskeyManagementViewModel
 import com.authentication.shrine.utility.toReadableDate
 
+/** The size provider icons are drawn, and rasterized, at. */
+private val ProviderIconSize = 48.dp
+
 /**
  * Stateful composable of the Passkeys Management Screen
  *
@@ -101,6 +107,16 @@ fun PasskeyManagementScreen(
         }
     }
 
+    LaunchedEffect(Unit) {
+        viewModel.keepCreationOptionsWarm()
+    }
+
+    val darkTheme = isSystemInDarkTheme()
+    val providerIconSizePx = with(LocalDensity.current) { ProviderIconSize.roundToPx() }
+    LaunchedEffect(darkTheme, providerIconSizePx) {
+        viewModel.setProviderIconStyle(darkTheme, providerIconSizePx)
+    }
+
     val passkeysList = uiState.passkeysList
     val onItemClick = { index: Int ->
         viewModel.updateItem(index, passkeysList)
@@ -122,7 +138,7 @@ fun PasskeyManagementScreen(
         onDeleteClicked = onDeleteClicked,
         uiState = uiState,
         passkeysList = passkeysList,
-        aaguidData = uiState.aaguidData,
+        providerIcons = uiState.providerIcons,
         onItemClick = onItemClick,
         onSignal = onSignalBtnClicked,
         modifier = modifier,
@@ -144,7 +160,7 @@ fun PasskeyManagementScreen(
     onDeleteClicked: (credentialId: String) -> Unit,
     uiState: PasskeyManagementUiState,
     passkeysList: List<PasskeyCredential>,
-    aaguidData: Map<String, Map<String, String>>,
+    providerIcons: Map<String, Bitmap>,
     onItemClick: (Int) -> Unit,
     onSignal: () -> Unit,
     modifier: Modifier = Modifier,
@@ -181,7 +197,7 @@ fun PasskeyManagementScreen(
                 PasskeysListColumn(
                     onDeleteClicked = onDeleteClicked,
                     passkeysList = passkeysList,
-                    aaguidData = aaguidData,
+                    providerIcons = providerIcons,
                     onItemClick = onItemClick,
                 )
 
@@ -229,7 +245,7 @@ fun PasskeyManagementScreen(
 fun PasskeysListColumn(
     onDeleteClicked: (credentialId: String) -> Unit,
     passkeysList: List<PasskeyCredential>,
-    aaguidData: Map<String, Map<String, String>>,
+    providerIcons: Map<String, Bitmap>,
     onItemClick: (Int) -> Unit,
 ) {
     val shape = RoundedCornerShape(dimensionResource(R.dimen.padding_small))
@@ -248,7 +264,7 @@ fun PasskeysListColumn(
                 PasskeysDetailsRow(
                     onDeleteClicked = onDeleteClicked,
                     credentialId = item.id,
-                    iconSvgString = aaguidData[item.aaguid]?.get("icon_light"),
+                    icon = providerIcons[item.aaguid],
                     credentialProviderName = item.name,
                     passkeyCreationDate = item.registeredAt.toReadableDate(),
                     isChecked = item.isSelected,
@@ -274,7 +290,7 @@ fun PasskeysListColumn(
 /**
  * Composable to display one list item of Passkeys detail
  *
- * @param iconSvgString Icon SVG string fetched from the server for the credential provider
+ * @param icon Icon of the credential provider, rasterized by the view model
  * @param credentialProviderName Name of the credential provider for the passkey
  * @param passkeyCreationDate Date when the passkey was created
  * */
@@ -282,7 +298,7 @@ fun PasskeysListColumn(
 fun PasskeysDetailsRow(
     onDeleteClicked: (credentialId: String) -> Unit,
     credentialId: String,
-    iconSvgString: String?,
+    icon: Bitmap?,
     credentialProviderName: String,
     passkeyCreationDate: String,
     isChecked: Boolean,
@@ -296,12 +312,11 @@ fun PasskeysDetailsRow(
         verticalAlignment = Alignment.CenterVertically,
         horizontalArrangement = Arrangement.spacedBy(dimensionResource(R.dimen.dimen_standard)),
     ) {
-        val painter = rememberAsyncImagePainter(
-            ImageRequest.Builder(LocalContext.current)
-                .data(iconSvgString?.toByteArray() ?: R.drawable.ic_passkey)
-                .decoderFactory(SvgDecoder.Factory())
-                .build(),
-        )
+        val painter = if (icon != null) {
+            remember(icon) { BitmapPainter(icon.asImageBitmap()) }
+        } else {
+            painterResource(R.drawable.ic_passkey)
+        }
 
         Checkbox(
             checked = isChecked,
@@ -309,7 +324,7 @@ fun PasskeysDetailsRow(
         )
 
         Image(
-            modifier = Modifier.size(48.dp),
+            modifier = Modifier.size(ProviderIconSize),
             painter = painter,
             contentDescription = stringResource(R.string.credential_provider_logo),
         )
@@ -371,7 +386,7 @@ fun PasskeyManagementScreenPreview() {
                         providerIcon = ""
                     )
                 ),
-                aaguidData = mapOf(),
+                providerIcons = mapOf(),
                 onItemClick = { _ -> },
                 onSignal = { },
             )
@@ -17,6 +17,7 @@ package com.authentication.shrine.ui
 
 import androidx.compose.foundation.isSystemInDarkTheme
 import androidx.compose.runtime.Composable
+import androidx.compose.runtime.LaunchedEffect
 import androidx.compose.runtime.SideEffect
 import androidx.compose.runtime.remember
 import androidx.compose.ui.graphics.Color
@@ -28,11 +29,19 @@ import com.google.accompanist.systemuicontroller.rememberSystemUiController
 
 /**
  * Composable function responsible for setting App theme and navigation.
+ *
+ * @param startDestination The route to start at.
+ * @param credentialManagerUtils The Credential Manager wrapper used by the screens.
+ * @param isSessionRejected Whether the server rejected the session the app started with, in which
+ * case the user is sent to sign in.
+ * @param onSessionRejectionHandled Called once the user has been sent to sign in.
  */
 @Composable
 fun ShrineNavigation(
     startDestination: String,
     credentialManagerUtils: CredentialManagerUtils,
+    isSessionRejected: Boolean = false,
+    onSessionRejectionHandled: () -> Unit = {},
 ) {
     val systemUiController = rememberSystemUiController()
     val darkIcons = isSystemInDarkTheme()
@@ -46,6 +55,13 @@ fun ShrineNavigation(
         ShrineNavActions(navController)
     }
 
+    LaunchedEffect(isSessionRejected) {
+        if (isSessionRejected) {
+            navigationActions.navigateToLogin()
+            onSessionRejectionHandled()
+        }
+    }
+
     ShrineNavGraph(
         navController = navController,
         startDestination = startDestination,
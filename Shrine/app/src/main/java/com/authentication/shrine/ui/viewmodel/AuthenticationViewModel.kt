@@ -15,6 +15,7 @@
  */
 package com.authentication.shrine.ui.viewmodel
 
+import android.os.SystemClock
 import android.util.Log
 import androidx.annotation.StringRes
 import androidx.credentials.GetCredentialResponse
@@ -32,7 +33,6 @@ import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
-import org.json.JSONObject
 import javax.inject.Inject
 
 /**
@@ -58,6 +58,17 @@ class AuthenticationViewModel @Inject constructor(
     private val _uiState = MutableStateFlow(AuthenticationUiState())
     val uiState = _uiState.asStateFlow()
 
+    /**
+     * Keeps sign-in options fetched, and the credential providers queried for them, while the
+     * sign-in screen is visible, so a tap opens the sheet without waiting for either. Options are
+     * fetched again shortly before they expire. Runs until the calling scope is cancelled.
+     *
+     * @param prepare Lambda that calls CredManUtil's preparePasskeyOrPasswordCredential method
+     */
+    suspend fun keepSignInOptionsWarm(prepare: suspend (String) -> Unit) {
+        repository.keepSignInOptionsWarm(onPrefetched = prepare)
+    }
+
     /**
      * Requests a sign-in challenge from the server.
      *
@@ -66,12 +77,14 @@ class AuthenticationViewModel @Inject constructor(
      */
     fun signInWithPasskeyOrPasswordRequest(
         onSuccess: suspend (Boolean) -> Unit,
-        getCredential: suspend (JSONObject) -> GenericCredentialManagerResponse,
+        getCredential: suspend (String) -> GenericCredentialManagerResponse,
     ) {
         _uiState.update { AuthenticationUiState(isLoading = true) }
+        val tappedAtMs = SystemClock.elapsedRealtime()
         viewModelScope.launch {
             when (val result = repository.signInWithPasskeyOrPasswordRequest()) {
                 is AuthResult.Success -> {
+                    Log.i(TAG, "Tap to sheet request: ${SystemClock.elapsedRealtime() - tappedAtMs} ms")
                     val credentialResponse = getCredential(result.data)
                     if (credentialResponse is GenericCredentialManagerResponse.GetCredentialSuccess) {
                         signInWithPasskeyOrPasswordResponse(
@@ -230,7 +243,7 @@ class AuthenticationViewModel @Inject constructor(
     /**
      * Checks for a stored restore key and attempts to sign in with it if found.
      *
-     * @param getRestoreKey A suspend function that takes a [JSONObject] and returns a [GenericCredentialManagerResponse].
+     * @param getRestoreKey A suspend function that takes the options JSON and returns a [GenericCredentialManagerResponse].
      * This function is responsible for retrieving the restore key from the CredentialManager.
      *
      * @param onSuccess A lambda that takes a [Boolean] indicating the success of the sign-in operation.
@@ -239,12 +252,13 @@ class AuthenticationViewModel @Inject constructor(
      * @see signInWithPasskeyResponse
      */
     fun checkForStoredRestoreKey(
-        getRestoreKey: suspend (JSONObject) -> GenericCredentialManagerResponse,
+        getRestoreKey: suspend (String) -> GenericCredentialManagerResponse,
         onSuccess: suspend (Boolean) -> Unit,
     ) {
         viewModelScope.launch {
             if (!repository.isSignedInThroughPasskeys() && !repository.isSignedInThroughPassword()) {
-                when (val result = repository.signInWithPasskeyOrPasswordRequest()) {
+                // Leave prefetched options for the sign-in button.
+                when (val result = repository.signInWithPasskeyOrPasswordRequest(usePrefetched = false)) {
                     is AuthResult.Success -> {
                         val restoreKeyResponse = getRestoreKey(result.data)
                         if (restoreKeyResponse is GenericCredentialManagerResponse.GetCredentialSuccess) {
@@ -271,7 +285,7 @@ class AuthenticationViewModel @Inject constructor(
     /**
      * Creates a restore key by registering a new passkey.
      *
-     * @param createRestoreKey A suspend function that takes a [JSONObject] and returns a
+     * @param createRestoreKey A suspend function that takes the options JSON and returns a
      * [GenericCredentialManagerResponse]. This function is responsible for creating
      * the restore key.
      *
@@ -279,7 +293,7 @@ class AuthenticationViewModel @Inject constructor(
      * @see GenericCredentialManagerResponse
      */
     suspend fun createRestoreKey(
-        createRestoreKey: suspend (createRestoreCredentialsObject: JSONObject) -> GenericCredentialManagerResponse,
+        createRestoreKey: suspend (createRestoreCredentialsObject: String) -> GenericCredentialManagerResponse,
     ): Boolean {
         return registerPasskey(createRestoreKey, "Error creating restore key.")
     }
@@ -287,14 +301,14 @@ class AuthenticationViewModel @Inject constructor(
     /**
      * Conditionally creates a passkey after a successful password login.
      *
-     * @param createPasskey A suspend function that takes a [JSONObject] and returns a
+     * @param createPasskey A suspend function that takes the options JSON and returns a
      * [GenericCredentialManagerResponse]. This function is responsible for creating
      * the passkey.
      *
      * @return Boolean indicating success
      */
     suspend fun conditionalCreatePasskey(
-        createPasskey: suspend (createPasskeyRequestObject: JSONObject) -> GenericCredentialManagerResponse,
+        createPasskey: suspend (createPasskeyRequestObject: String) -> GenericCredentialManagerResponse,
     ): Boolean {
         val success = registerPasskey(createPasskey, "Error during conditional passkey creation.")
         if (success) {
@@ -307,7 +321,7 @@ class AuthenticationViewModel @Inject constructor(
      * Internal helper to register a passkey (normal or restore key).
      */
     private suspend fun registerPasskey(
-        createPasskey: suspend (JSONObject) -> GenericCredentialManagerResponse,
+        createPasskey: suspend (String) -> GenericCredentialManagerResponse,
         errorMessage: String
     ): Boolean {
         return when (val result = repository.registerPasskeyCreationRequest()) {
@@ -29,7 +29,6 @@ import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
-import org.json.JSONObject
 import javax.inject.Inject
 
 /**
@@ -51,6 +50,14 @@ class CreatePasskeyViewModel @Inject constructor(
     private val _uiState = MutableStateFlow(CreatePasskeyUiState())
     val uiState = _uiState.asStateFlow()
 
+    /**
+     * Keeps passkey creation options fetched while the screen is visible, so the create sheet
+     * opens without a round trip. Runs until the calling scope is cancelled.
+     */
+    suspend fun keepCreationOptionsWarm() {
+        repository.keepPasskeyCreationOptionsWarm()
+    }
+
     /**
      * Creates a passkey.
      *
@@ -60,7 +67,7 @@ class CreatePasskeyViewModel @Inject constructor(
      */
     fun createPasskey(
         onSuccess: (navigateToHome: Boolean) -> Unit,
-        createPasskey: suspend (JSONObject) -> GenericCredentialManagerResponse,
+        createPasskey: suspend (String) -> GenericCredentialManagerResponse,
     ) {
         _uiState.update { it.copy(isLoading = true) }
 
@@ -15,28 +15,32 @@
  */
 package com.authentication.shrine.ui.viewmodel
 
-import android.app.Application
+import android.graphics.Bitmap
 import androidx.annotation.StringRes
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import com.authentication.shrine.CredentialManagerUtils
+import com.authentication.shrine.CredentialSignalCoordinator
 import com.authentication.shrine.GenericCredentialManagerResponse
 import com.authentication.shrine.R
+import com.authentication.shrine.data.ProviderIconCache
 import com.authentication.shrine.model.AuthError
 import com.authentication.shrine.model.AuthResult
 import com.authentication.shrine.model.PasskeyCredential
+import com.authentication.shrine.model.PasskeysList
 import com.authentication.shrine.repository.AuthRepository
 import com.authentication.shrine.repository.AuthRepository.Companion.RESTORE_CREDENTIAL_AAGUID
-import com.google.gson.Gson
-import com.google.gson.reflect.TypeToken
 import dagger.hilt.android.lifecycle.HiltViewModel
-import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.collectLatest
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.filterNotNull
+import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
-import org.json.JSONObject
-import java.io.InputStreamReader
+import java.io.IOException
 import javax.inject.Inject
 
 /**
@@ -44,43 +48,62 @@ import javax.inject.Inject
  * authentication backend
  *
  * @param authRepository The authentication repository.
- * @param application The application.
+ * @param providerIconCache Rasterized icons of the passkeys' providers.
+ * @param credentialSignalCoordinator Sends credential state signals when they change.
  */
 @HiltViewModel
 class PasskeyManagementViewModel @Inject constructor(
     private val authRepository: AuthRepository,
-    private val application: Application,
     private val credentialManagerUtils: CredentialManagerUtils,
+    private val providerIconCache: ProviderIconCache,
+    private val credentialSignalCoordinator: CredentialSignalCoordinator,
 ) : ViewModel() {
     private val _uiState = MutableStateFlow(PasskeyManagementUiState())
     val uiState = _uiState.asStateFlow()
 
+    /** The theme and size the screen draws provider icons at, once it has told us. */
+    private val iconStyle = MutableStateFlow<Pair<Boolean, Int>?>(null)
+
     init {
         viewModelScope.launch {
-            loadAaguidData()
-            getPasskeysList()
+            authRepository.passkeys.filterNotNull().collect { showPasskeys(it) }
+        }
+        getPasskeysList()
+        viewModelScope.launch {
+            combine(
+                uiState.map { state -> state.passkeysList.map { it.aaguid }.toSet() }.distinctUntilChanged(),
+                iconStyle.filterNotNull(),
+            ) { aaguids, style -> aaguids to style }
+                .collectLatest { (aaguids, style) -> loadProviderIcons(aaguids, style.first, style.second) }
         }
     }
 
-    private fun loadAaguidData() {
-        // Use viewModelScope for coroutine
-        viewModelScope.launch(Dispatchers.IO) { // Use IO dispatcher for file reading
-            try {
-                val gson = Gson()
-                val aaguidInputStream = application.assets.open("aaguids.json")
-                val reader = InputStreamReader(aaguidInputStream)
-                val aaguidJsonData = gson.fromJson<Map<String, Map<String, String>>>(
-                    reader,
-                    object : TypeToken<Map<String, Map<String, String>>>() {}.type,
+    /**
+     * Sets how provider icons are drawn, so they are rasterized ahead of the list rows.
+     *
+     * @param dark Whether the screen uses a dark theme.
+     * @param sizePx The size of an icon, in pixels.
+     */
+    fun setProviderIconStyle(dark: Boolean, sizePx: Int) {
+        iconStyle.value = dark to sizePx
+    }
+
+    /**
+     * Loads the icons of the listed passkeys' providers from [ProviderIconCache], off the main
+     * thread and before the rows that show them are composed.
+     */
+    private suspend fun loadProviderIcons(aaguids: Set<String>, dark: Boolean, sizePx: Int) {
+        try {
+            val providerIcons = aaguids.mapNotNull { aaguid ->
+                providerIconCache.get(aaguid, dark, sizePx)?.let { aaguid to it }
+            }.toMap()
+            _uiState.update { it.copy(providerIcons = providerIcons) }
+        } catch (e: IOException) {
+            _uiState.update {
+                it.copy(
+                    isLoading = false,
+                    messageResourceId = R.string.get_aaguid_error,
                 )
-                _uiState.update { it.copy(aaguidData = aaguidJsonData) }
-            } catch (e: Exception) {
-                _uiState.update {
-                    it.copy(
-                        isLoading = false,
-                        messageResourceId = R.string.get_aaguid_error,
-                    )
-                }
             }
         }
     }
@@ -88,23 +111,23 @@ class PasskeyManagementViewModel @Inject constructor(
     /**
      * Makes a request to get a list of passkeys from the server. Very similar to
      * [com.authentication.shrine.ui.viewmodel.SettingsViewModel.getPasskeysList].
+     *
+     * A list already loaded is shown at once, without a request; later changes to it arrive
+     * through [AuthRepository.passkeys].
      */
     fun getPasskeysList() {
-        _uiState.update {
-            it.copy(isLoading = true)
+        if (authRepository.passkeys.value == null) {
+            _uiState.update {
+                it.copy(isLoading = true)
+            }
         }
 
         viewModelScope.launch {
             val data = authRepository.getListOfPasskeys()
             if (data != null) {
-                val filteredPasskeysList =
-                    data.credentials.filter { passkey -> passkey.aaguid != RESTORE_CREDENTIAL_AAGUID }
+                showPasskeys(data)
                 _uiState.update {
-                    it.copy(
-                        isLoading = false,
-                        userHasPasskeys = filteredPasskeysList.isNotEmpty(),
-                        passkeysList = filteredPasskeysList,
-                    )
+                    it.copy(isLoading = false)
                 }
             } else {
                 _uiState.update {
@@ -117,13 +140,36 @@ class PasskeyManagementViewModel @Inject constructor(
         }
     }
 
+    /**
+     * Shows a passkey list, keeping the selection of passkeys that are still in it.
+     */
+    private fun showPasskeys(data: PasskeysList) {
+        val filteredPasskeysList =
+            data.credentials.filter { passkey -> passkey.aaguid != RESTORE_CREDENTIAL_AAGUID }
+        _uiState.update { state ->
+            val selectedIds = state.passkeysList.filter { it.isSelected }.map { it.id }.toSet()
+            state.copy(
+                userHasPasskeys = filteredPasskeysList.isNotEmpty(),
+                passkeysList = filteredPasskeysList.map { it.copy(isSelected = it.id in selectedIds) },
+            )
+        }
+    }
+
+    /**
+     * Keeps passkey creation options fetched while the screen is visible, so the create sheet
+     * opens without a round trip. Runs until the calling scope is cancelled.
+     */
+    suspend fun keepCreationOptionsWarm() {
+        authRepository.keepPasskeyCreationOptionsWarm()
+    }
+
     /**
      * Creates a passkey. This is similar to the function in [CreatePasskeyViewModel].
      *
      * @param createPasskey Reference to [CredentialManagerUtils.createPasskey]
      */
     fun createPasskey(
-        createPasskey: suspend (JSONObject) -> GenericCredentialManagerResponse,
+        createPasskey: suspend (String) -> GenericCredentialManagerResponse,
     ) {
         _uiState.update { it.copy(isLoading = true) }
 
@@ -134,24 +180,12 @@ class PasskeyManagementViewModel @Inject constructor(
                     if (createPasskeyResponse is GenericCredentialManagerResponse.CreatePasskeySuccess) {
                         when (authRepository.registerPasskeyCreationResponse(createPasskeyResponse.createPasskeyResponse)) {
                             is AuthResult.Success -> {
-                                val passkeysList = authRepository.getListOfPasskeys()
-                                if (passkeysList != null) {
-                                    val filteredPasskeysList =
-                                        passkeysList.credentials.filter { passkey -> passkey.aaguid != RESTORE_CREDENTIAL_AAGUID }
-                                    _uiState.update {
-                                        it.copy(
-                                            isLoading = false,
-                                            passkeysList = filteredPasskeysList,
-                                            messageResourceId = R.string.passkey_created
-                                        )
-                                    }
-                                } else {
-                                    _uiState.update {
-                                        it.copy(
-                                            isLoading = false,
-                                            messageResourceId = R.string.get_keys_error,
-                                        )
-                                    }
+                                // The repository adds the passkey to the list it publishes.
+                                _uiState.update {
+                                    it.copy(
+                                        isLoading = false,
+                                        messageResourceId = R.string.passkey_created
+                                    )
                                 }
                             }
 
@@ -204,8 +238,8 @@ class PasskeyManagementViewModel @Inject constructor(
     }
 
     /**
-     * Makes a request to delete a passkey from the server. Refreshes the passkey list upon
-     * successful deletion.
+     * Makes a request to delete a passkey from the server. The passkey leaves the list at once,
+     * and comes back if the server keeps it.
      *
      * @param credentialId The ID of the passkey to delete.
      */
@@ -218,26 +252,12 @@ class PasskeyManagementViewModel @Inject constructor(
             credentialManagerUtils.signalUnknown(credentialId)
             when (val result = authRepository.deletePasskey(credentialId)) {
                 is AuthResult.Success -> {
-                    // Refresh passkeys list after deleting a passkey
-                    val data = authRepository.getListOfPasskeys()
-                    if (data != null) {
-                        val filteredPasskeysList =
-                            data.credentials.filter { passkey -> passkey.aaguid != RESTORE_CREDENTIAL_AAGUID }
-                        _uiState.update {
-                            it.copy(
-                                isLoading = false,
-                                userHasPasskeys = filteredPasskeysList.isNotEmpty(),
-                                passkeysList = filteredPasskeysList,
-                                messageResourceId = R.string.delete_passkey_successful,
-                            )
-                        }
-                    } else {
-                        _uiState.update {
-                            it.copy(
-                                isLoading = false,
-                                messageResourceId = R.string.get_keys_error,
-                            )
-                        }
+                    // The repository already removed the passkey from the list it publishes.
+                    _uiState.update {
+                        it.copy(
+                            isLoading = false,
+                            messageResourceId = R.string.delete_passkey_successful,
+                        )
                     }
                 }
 
@@ -269,9 +289,15 @@ class PasskeyManagementViewModel @Inject constructor(
         }
     }
 
+    /**
+     * Signals the selected passkeys as the only ones the server accepts. Repeated or unchanged
+     * signals are coalesced by [CredentialSignalCoordinator].
+     *
+     * @param credentialsIds The IDs of the accepted passkeys.
+     */
     fun signalAccepted(credentialsIds: List<String>) {
         viewModelScope.launch {
-            credentialManagerUtils.signalAcceptedIds(credentialsIds)
+            credentialSignalCoordinator.signalAcceptedIds(credentialsIds)
         }
     }
 
@@ -296,6 +322,7 @@ class PasskeyManagementViewModel @Inject constructor(
 /**
  * Represents the UI state for the passkey management screen.
  *
+ * @param providerIcons The icons of the listed passkeys' providers, keyed by AAGUID.
  * @param isLoading Indicates whether a modification operation is in progress.
  * @param userHasPasskeys Indicates whether the user has passkeys.
  * @param passkeysList A list of passkeys for the user returned from the server.
@@ -303,7 +330,7 @@ class PasskeyManagementViewModel @Inject constructor(
  * @param errorMessage An error message returned from the server.
  */
 data class PasskeyManagementUiState(
-    val aaguidData: Map<String, Map<String, String>> = emptyMap(),
+    val providerIcons: Map<String, Bitmap> = emptyMap(),
     val isLoading: Boolean = false,
     val userHasPasskeys: Boolean = true,
     val passkeysList: List<PasskeyCredential> = listOf(),
@@ -29,7 +29,6 @@ import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
-import org.json.JSONObject
 import javax.inject.Inject
 
 /**
@@ -62,7 +61,7 @@ class RegistrationViewModel @Inject constructor(
         username: String,
         displayName: String,
         onSuccess: suspend (navigateToHome: Boolean) -> Unit,
-        createPasskeyCallback: suspend (JSONObject) -> GenericCredentialManagerResponse,
+        createPasskeyCallback: suspend (String) -> GenericCredentialManagerResponse,
     ) {
         _uiState.update { RegisterUiState(isLoading = true) }
 
@@ -118,7 +117,7 @@ class RegistrationViewModel @Inject constructor(
      */
     private suspend fun createPasskey(
         onSuccess: suspend (navigateToHome: Boolean) -> Unit,
-        createPasskey: suspend (JSONObject) -> GenericCredentialManagerResponse,
+        createPasskey: suspend (String) -> GenericCredentialManagerResponse,
     ) {
         _uiState.update { it.copy(isLoading = true) }
 
@@ -255,7 +254,7 @@ class RegistrationViewModel @Inject constructor(
     /**
      * Creates a restore key by registering a new passkey.
      *
-     * @param createRestoreKeyOnCredMan A suspend function that takes a [JSONObject] and returns a
+     * @param createRestoreKeyOnCredMan A suspend function that takes the options JSON and returns a
      * [GenericCredentialManagerResponse]. This function is responsible for creating
      * the restore key.
      *
@@ -263,7 +262,7 @@ class RegistrationViewModel @Inject constructor(
      * @see GenericCredentialManagerResponse
      */
     suspend fun createRestoreKey(
-        createRestoreKeyOnCredMan: suspend (createRestoreCredRequestObj: JSONObject) -> GenericCredentialManagerResponse,
+        createRestoreKeyOnCredMan: suspend (createRestoreCredRequestObj: String) -> GenericCredentialManagerResponse,
     ): Boolean {
         return when (val result = repository.registerPasskeyCreationRequest()) {
             is AuthResult.Success -> {
@@ -20,11 +20,13 @@ import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import com.authentication.shrine.R
 import com.authentication.shrine.model.PasskeyCredential
+import com.authentication.shrine.model.PasskeysList
 import com.authentication.shrine.repository.AuthRepository
 import com.authentication.shrine.repository.AuthRepository.Companion.RESTORE_CREDENTIAL_AAGUID
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.filterNotNull
 import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
 import javax.inject.Inject
@@ -49,32 +51,43 @@ class SettingsViewModel @Inject constructor(
     private val _uiState = MutableStateFlow(SettingsUiState())
     val uiState = _uiState.asStateFlow()
 
+    init {
+        viewModelScope.launch {
+            authRepository.passkeys.filterNotNull().collect { showPasskeys(it) }
+        }
+    }
+
     /**
      * Fetches the list of passkeys for the authenticated user and updates the UI state.
      *
-     * This function updates {@link #_uiState} to indicate loading status,
-     * and then asynchronously retrieves passkey data and username from {@link AuthRepository}.
+     * This function updates {@link #_uiState} to indicate loading status unless a list is already
+     * loaded, and then asynchronously retrieves passkey data and username from {@link AuthRepository}.
+     * A list already loaded is served without a request, and later changes to it arrive through
+     * {@link AuthRepository#passkeys}.
      * On successful retrieval, it updates the state with the fetched data.
      * If retrieval fails, it updates the state with an error message.
      */
     fun getPasskeysList() {
         _uiState.update {
-            SettingsUiState(isLoading = true)
+            SettingsUiState(
+                isLoading = authRepository.passkeys.value == null,
+                userHasPasskeys = it.userHasPasskeys,
+                username = it.username,
+                displayname = it.displayname,
+                passkeysList = it.passkeysList,
+            )
         }
 
         viewModelScope.launch {
             try {
                 val data = authRepository.getListOfPasskeys()
                 if (data != null) {
-                    val filteredPasskeysList =
-                        data.credentials.filter({ passkey -> passkey.aaguid != RESTORE_CREDENTIAL_AAGUID })
+                    showPasskeys(data)
                     _uiState.update {
                         it.copy(
                             isLoading = false,
-                            userHasPasskeys = filteredPasskeysList.isNotEmpty(),
                             username = authRepository.getUsername(),
                             displayname = authRepository.getDisplayname(),
-                            passkeysList = filteredPasskeysList,
                         )
                     }
                 } else {
@@ -95,6 +108,17 @@ class SettingsViewModel @Inject constructor(
             }
         }
     }
+
+    private fun showPasskeys(data: PasskeysList) {
+        val filteredPasskeysList =
+            data.credentials.filter({ passkey -> passkey.aaguid != RESTORE_CREDENTIAL_AAGUID })
+        _uiState.update {
+            it.copy(
+                userHasPasskeys = filteredPasskeysList.isNotEmpty(),
+                passkeysList = filteredPasskeysList,
+            )
+        }
+    }
 }
 
 /**
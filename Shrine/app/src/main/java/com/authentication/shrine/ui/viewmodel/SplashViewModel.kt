@@ -17,6 +17,7 @@ package com.authentication.shrine.ui.viewmodel
 
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import com.authentication.shrine.model.AuthError
 import com.authentication.shrine.model.AuthResult
 import com.authentication.shrine.repository.AuthRepository
 import com.authentication.shrine.ui.navigation.ShrineAppDestinations
@@ -31,7 +32,9 @@ import javax.inject.Inject
  * A ViewModel that handles splash screen-related operations.
  *
  * This ViewModel is responsible for checking if the user is signed in, either using a password or
- * passkeys.
+ * passkeys. The first screen is chosen from the session stored on the device, so the splash never
+ * waits for the network; the session is then checked with the server in the background, and the
+ * user is sent back to sign in only if the server rejects it.
  */
 @HiltViewModel
 class SplashViewModel @Inject constructor(
@@ -43,46 +46,53 @@ class SplashViewModel @Inject constructor(
 
     init {
         viewModelScope.launch {
-            val startDestination =
-                if (isSessionIdValid()) {
-                    ShrineAppDestinations.MainMenuRoute.name
-                } else {
-                    signOut()
-                    ShrineAppDestinations.AuthRoute.name
-                }
-
+            val hasSession = repository.isSignedInThroughPassword()
             _uiState.update {
                 SplashScreenState(
-                    nextScreen = startDestination,
+                    nextScreen = if (hasSession) {
+                        ShrineAppDestinations.MainMenuRoute.name
+                    } else {
+                        ShrineAppDestinations.AuthRoute.name
+                    },
                     isLoading = false,
                 )
             }
+            if (hasSession && isSessionRejected()) {
+                repository.signOut()
+                _uiState.update { it.copy(isSessionRejected = true) }
+            }
         }
     }
 
     /**
-     * Checks if the session ID is valid with the server.
-     *
-     * @return True if the session ID is valid, false otherwise or if there was an error.
+     * Marks the redirect to sign in as done, so it is not repeated when the UI is recreated.
      */
-    private suspend fun isSessionIdValid(): Boolean {
-        return when (repository.isSessionIdValid()) {
-            is AuthResult.Success -> true
-            is AuthResult.Failure -> false
-        }
+    fun onSessionRejectionHandled() {
+        _uiState.update { it.copy(isSessionRejected = false) }
     }
 
     /**
-     * Signs out the user.
+     * Checks the session ID with the server.
+     *
+     * @return True if the server rejected the session; false if it is valid or could not be
+     * checked, for example while offline.
      */
-    private fun signOut() {
-        viewModelScope.launch {
-            repository.signOut()
-        }
+    private suspend fun isSessionRejected(): Boolean {
+        val result = repository.isSessionIdValid()
+        return result is AuthResult.Failure && result.error == AuthError.InvalidCredentials
     }
 }
 
+/**
+ * Represents the UI state for the splash screen.
+ *
+ * @param isLoading Whether the stored session is still being read.
+ * @param nextScreen The route to start navigation at.
+ * @param isSessionRejected Whether the server rejected the stored session after navigation had
+ * started, so the user has to be sent to sign in.
+ */
 data class SplashScreenState(
     val isLoading: Boolean = true,
     val nextScreen: String = ShrineAppDestinations.AuthRoute.name,
+    val isSessionRejected: Boolean = false,
 )
@@ -15,15 +15,10 @@
  */
 package com.authentication.shrine.ui.viewmodel
 
-import androidx.datastore.core.DataStore
-import androidx.datastore.preferences.core.Preferences
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
-import com.authentication.shrine.CredentialManagerUtils
-import com.authentication.shrine.repository.AuthRepository.Companion.CRED_ID
-import com.authentication.shrine.repository.AuthRepository.Companion.RP_ID_KEY
-import com.authentication.shrine.repository.AuthRepository.Companion.USER_ID_KEY
-import com.authentication.shrine.repository.AuthRepository.Companion.read
+import com.authentication.shrine.CredentialSignalCoordinator
+import com.authentication.shrine.repository.SessionStore
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asStateFlow
@@ -35,24 +30,25 @@ import javax.inject.Inject
  * ViewModel responsible for managing the state and business logic for the user profile
  * update screen.
  *
- * @property credentialManagerUtils Utilities for interacting with the Credential Manager.
- * @property dataStore The DataStore instance used for reading persisted user and credential identifiers.
+ * @property credentialSignalCoordinator Sends credential state signals when they change.
+ * @property sessionStore The in-memory session holding the user and credential identifiers.
  */
 @HiltViewModel
 class UpdateProfileViewModel @Inject constructor(
-    private val credentialManagerUtils: CredentialManagerUtils,
-    private val dataStore: DataStore<Preferences>,
+    private val credentialSignalCoordinator: CredentialSignalCoordinator,
+    private val sessionStore: SessionStore,
 ) : ViewModel() {
     private val _uiState = MutableStateFlow(UpdateProfileState())
     val uiState = _uiState.asStateFlow()
 
     init {
         viewModelScope.launch {
+            val session = sessionStore.current()
             _uiState.update {
                 UpdateProfileState(
-                    userId = dataStore.read(USER_ID_KEY) ?: "",
-                    rpId = dataStore.read(RP_ID_KEY) ?: "",
-                    credentialId = dataStore.read(CRED_ID) ?: "",
+                    userId = session.userId.orEmpty(),
+                    rpId = session.rpId.orEmpty(),
+                    credentialId = session.credentialId.orEmpty(),
                 )
             }
         }
@@ -60,7 +56,7 @@ class UpdateProfileViewModel @Inject constructor(
 
     /**
      * Signals an update to the user's metadata (name and display name) through the
-     * [CredentialManagerUtils].
+     * [CredentialSignalCoordinator], which skips it if the details have not changed.
      *
      * @param newName The new name for the user.
      * @param newDisplayName The new display name for the user.
@@ -70,7 +66,7 @@ class UpdateProfileViewModel @Inject constructor(
         newDisplayName: String,
     ) {
         viewModelScope.launch {
-            credentialManagerUtils.signalUserDetails(newName, newDisplayName)
+            credentialSignalCoordinator.signalUserDetails(newName, newDisplayName)
         }
     }
 }
@@ -17,8 +17,6 @@ package com.authentication.shrine.utility
 
 import com.authentication.shrine.api.ApiException
 import com.authentication.shrine.utility.Constants.SESSION_ID_KEY
-import com.google.gson.Gson
-import org.json.JSONObject
 import retrofit2.Response
 import java.text.SimpleDateFormat
 import java.util.Date
@@ -76,24 +74,3 @@ fun <T> Response<T>.getSessionId(): String? {
 fun String.createCookieHeader(): String {
     return SESSION_ID_KEY + this
 }
-
-/**
- * Extension function to convert the body of a Retrofit {@link Response} into a {@link JSONObject}.
- * This function uses Gson to first serialize the response body to a JSON string,
- * and then parses that string into a JSONObject.
- *
- * Note: This approach involves an intermediate JSON string representation. If performance
- * is critical for very large objects, or if the response body is already a JSON string,
- * more direct methods might be considered.
- *
- * @receiver The Retrofit {@link Response} object.
- * @param T The type of the response body, which must be serializable by Gson.
- * @return A {@link JSONObject} representation of the response body.
- *         Returns an empty JSONObject if the body is null or cannot be parsed.
- * @see Gson
- * @see JSONObject
- */
-fun <T> Response<T>.getJsonObject(): JSONObject {
-    val jsonString = Gson().toJson(body())
-    return JSONObject(jsonString)
-}